@@ -4,6 +4,7 @@ import com.pebbles_boon.metalrender.config.MetalRenderConfig;
 import com.pebbles_boon.metalrender.nativebridge.MetalHardwareChecker;
 import com.pebbles_boon.metalrender.nativebridge.NativeBridge;
 import com.pebbles_boon.metalrender.render.MetalWorldRenderer;
+import com.pebbles_boon.metalrender.render.chunk.BlockStatePropertyTable;
 import com.pebbles_boon.metalrender.render.unified.MetalRenderCoordinator;
 import com.pebbles_boon.metalrender.sodium.backend.MeshShaderBackend;
 import com.pebbles_boon.metalrender.sodium.backend.SodiumMetalInterface;
@@ -29,6 +30,8 @@ public class MetalRenderClient implements ClientModInitializer {
     }
     try {
       NativeBridge.loadLibrary();
+      if (NativeBridge.isHeadless())
+        MetalLogger.info("Using headless native backend (no GPU work)");
     } catch (UnsatisfiedLinkError e) {
       MetalLogger.error("got lost finding non-existent native library",
           e);
@@ -43,6 +46,7 @@ public class MetalRenderClient implements ClientModInitializer {
           coordinator = new MetalRenderCoordinator();
           coordinator.initialize();
           worldRenderer = new MetalWorldRenderer();
+          BlockStatePropertyTable.registerReloadListener();
           meshShaderBackend = new MeshShaderBackend();
           meshShaderBackend.initialize();
           MetalLogger.info("Metal ready: " +
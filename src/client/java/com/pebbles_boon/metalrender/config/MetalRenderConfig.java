@@ -22,6 +22,7 @@ public final class MetalRenderConfig {
   private static volatile int lod2Distance = 8;
   private static volatile int lod3Distance = 12;
   private static volatile int lod4Distance = 16;
+  private static volatile int lodHysteresis = 1;
   private static volatile boolean lodEnabled = true;
   private static volatile boolean mirrorUploads = false;
   private static volatile boolean swapOpaque = false;
@@ -198,6 +199,38 @@ public final class MetalRenderConfig {
   public static void setLod4Distance(int v) {
     lod4Distance = Math.max(lod3Distance + 1, v);
   }
+  public static int lodHysteresis() {
+    return lodHysteresis;
+  }
+  public static void setLodHysteresis(int v) {
+    lodHysteresis = Math.max(0, v);
+  }
+  public static int lodDistance(int level) {
+    return switch (level) {
+      case 1 -> lod1Distance;
+      case 2 -> lod2Distance;
+      case 3 -> lod3Distance;
+      case 4 -> lod4Distance;
+      default -> 0;
+    };
+  }
+  public static int lodMargin(int level) {
+    int inner = lodDistance(level) - lodDistance(level - 1);
+    int outer = level < 4 ? lodDistance(level + 1) - lodDistance(level)
+        : Integer.MAX_VALUE;
+    return Math.max(0, Math.min(lodHysteresis, (Math.min(inner, outer) - 1) / 2));
+  }
+  public static int getLodLevel(int chunkDistance, int currentLevel) {
+    if (!lodEnabled)
+      return 0;
+    int level = Math.max(0, Math.min(4, currentLevel));
+    while (level < 4 &&
+        chunkDistance >= lodDistance(level + 1) + lodMargin(level + 1))
+      level++;
+    while (level > 0 && chunkDistance < lodDistance(level) - lodMargin(level))
+      level--;
+    return level;
+  }
   public static int getLodLevel(int chunkDistance) {
     if (!lodEnabled)
       return 0;
@@ -237,6 +270,8 @@ public final class MetalRenderConfig {
     setDqSimulationDistanceStep((int) getFloat(
         "metalrender.dynamic.simulation.step", dqSimulationDistanceStep));
     emergencyMode = getBool("metalrender.emergency", emergencyMode);
+    setLodHysteresis(
+        (int) getFloat("metalrender.lod.hysteresis", lodHysteresis));
   }
   private static boolean getBool(String key, boolean def) {
     String v = System.getProperty(key);
@@ -0,0 +1,488 @@
+package com.pebbles_boon.metalrender.nativebridge;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+public final class HeadlessBridge {
+  private static final long CONTEXT_HANDLE = 1L;
+  private static final long DEVICE_HANDLE = 2L;
+  private static final long FRAME_CONTEXT = 3L;
+  private static final long LIBRARY_HANDLE = 4L;
+  private static final long PIPELINE_BASE = 0x100L;
+  private static final long AVAILABLE_MEMORY = 8L * 1024 * 1024 * 1024;
+  private static final AtomicLong nextHandle = new AtomicLong(0x10000L);
+  private static final ConcurrentHashMap<Long, ByteBuffer> buffers =
+      new ConcurrentHashMap<>();
+  private static final ConcurrentHashMap<Long, Integer> textures =
+      new ConcurrentHashMap<>();
+  private static final ConcurrentHashMap<Long, RegisteredMesh> meshes =
+      new ConcurrentHashMap<>();
+  private static final ConcurrentHashMap<Long, RegisteredMesh> farTiles =
+      new ConcurrentHashMap<>();
+  private static final Set<Long> meshPipelines = ConcurrentHashMap.newKeySet();
+  private static final LongAdder bufferBytes = new LongAdder();
+  private static final LongAdder textureBytes = new LongAdder();
+  private static final LongAdder totalUploads = new LongAdder();
+  private static final LongAdder totalUploadBytes = new LongAdder();
+  private static final LongAdder totalRegistrations = new LongAdder();
+  private static final LongAdder totalUnregistrations = new LongAdder();
+  private static final LongAdder totalTranslucentSorts = new LongAdder();
+  private static final LongAdder totalDrawCalls = new LongAdder();
+  private static final LongAdder totalDrawnQuads = new LongAdder();
+  private static final LongAdder frameUploads = new LongAdder();
+  private static final LongAdder frameUploadBytes = new LongAdder();
+  private static final LongAdder frameRegistrations = new LongAdder();
+  private static final LongAdder frameDrawCalls = new LongAdder();
+  private static final LongAdder frameDrawnQuads = new LongAdder();
+  private static volatile long framesCompleted;
+  private static volatile long lastFrameUploads, lastFrameUploadBytes,
+      lastFrameRegistrations, lastFrameDrawCalls, lastFrameDrawnQuads;
+  private static volatile int width = 1, height = 1;
+  private static volatile double camX, camY, camZ;
+  private static volatile boolean gpuDriven;
+  private HeadlessBridge() {
+  }
+  private record RegisteredMesh(int cx, int cy, int cz, long bufferHandle,
+      int byteOffset, int quadCount, int opaqueQuadCount,
+      int[] faceQuadCounts, int lodLevel) {
+  }
+  private static int visibleQuads(RegisteredMesh mesh) {
+    int[] faces = mesh.faceQuadCounts();
+    if (faces == null)
+      return mesh.quadCount();
+    double ox = mesh.cx() * 16.0 - camX;
+    double oy = mesh.cy() * 16.0 - camY;
+    double oz = mesh.cz() * 16.0 - camZ;
+    int quads = mesh.quadCount() - mesh.opaqueQuadCount();
+    for (int f = 0; f < faces.length; f++) {
+      boolean culled = switch (f) {
+        case 0 -> oy + 16.0 < 0.0;
+        case 1 -> oy > 0.0;
+        case 2 -> oz + 16.0 < 0.0;
+        case 3 -> oz > 0.0;
+        case 4 -> ox + 16.0 < 0.0;
+        case 5 -> ox > 0.0;
+        default -> false;
+      };
+      if (!culled)
+        quads += faces[f];
+    }
+    return quads;
+  }
+  private static long meshKey(int cx, int cy, int cz) {
+    return ((long) (cx & 0x3FFFFF) << 42) | ((long) (cy & 0xFFFFF) << 22) |
+        (cz & 0x3FFFFF);
+  }
+  private static void recordUpload(int bytes) {
+    totalUploads.increment();
+    totalUploadBytes.add(bytes);
+    frameUploads.increment();
+    frameUploadBytes.add(bytes);
+  }
+  private static void recordDraw(long quads) {
+    totalDrawCalls.increment();
+    frameDrawCalls.increment();
+    totalDrawnQuads.add(quads);
+    frameDrawnQuads.add(quads);
+  }
+  public static boolean nIsAvailable() {
+    return true;
+  }
+  public static long nInit(int width, int height, float scale) {
+    HeadlessBridge.width = Math.max(1, width);
+    HeadlessBridge.height = Math.max(1, height);
+    return CONTEXT_HANDLE;
+  }
+  public static void nResize(long handle, int width, int height, float scale) {
+    HeadlessBridge.width = Math.max(1, width);
+    HeadlessBridge.height = Math.max(1, height);
+  }
+  public static void nBeginFrame(long handle, float[] proj, float[] view,
+      float fogStart, float fogEnd) {
+  }
+  public static void nDrawTerrain(long handle, int layerId) {
+    recordDraw(0);
+  }
+  public static void nDrawOverlay(long handle, int layerId) {
+    recordDraw(0);
+  }
+  public static void nOnWorldLoaded(long handle) {
+  }
+  public static void nOnWorldUnloaded(long handle) {
+    meshes.clear();
+    farTiles.clear();
+  }
+  public static void nDestroy(long handle) {
+    meshes.clear();
+    farTiles.clear();
+    buffers.clear();
+    textures.clear();
+    bufferBytes.reset();
+    textureBytes.reset();
+  }
+  public static String nGetDeviceName() {
+    return "Headless";
+  }
+  public static boolean nSupportsIndirect() {
+    return false;
+  }
+  public static boolean nSupportsMeshShaders() {
+    return false;
+  }
+  public static long nCreateBuffer(long deviceHandle, int sizeBytes,
+      int storageMode) {
+    if (sizeBytes <= 0)
+      return 0;
+    long handle = nextHandle.getAndIncrement();
+    buffers.put(handle, ByteBuffer.allocateDirect(sizeBytes));
+    bufferBytes.add(sizeBytes);
+    return handle;
+  }
+  public static void nUploadBufferData(long bufferHandle, byte[] data,
+      int offset, int length) {
+    ByteBuffer buf = buffers.get(bufferHandle);
+    if (buf == null || data == null || length <= 0 ||
+        offset + length > buf.capacity())
+      return;
+    buf.put(offset, data, 0, length);
+    recordUpload(length);
+  }
+  public static void nUploadBufferDataDirect(long bufferHandle,
+      ByteBuffer data, int offset, int length) {
+    ByteBuffer buf = buffers.get(bufferHandle);
+    if (buf == null || data == null || length <= 0 ||
+        length > buf.capacity() || offset + length > data.capacity())
+      return;
+    buf.put(0, data, offset, length);
+    recordUpload(length);
+  }
+  public static void nUploadBufferRange(long bufferHandle, int dstOffset,
+      ByteBuffer data, int srcOffset, int length) {
+    ByteBuffer buf = buffers.get(bufferHandle);
+    if (buf == null || data == null || length <= 0 || dstOffset < 0 ||
+        dstOffset + length > buf.capacity() ||
+        srcOffset + length > data.capacity())
+      return;
+    buf.put(dstOffset, data, srcOffset, length);
+    recordUpload(length);
+  }
+  public static void nCopyBufferRange(long srcBuffer, int srcOffset,
+      long dstBuffer, int dstOffset, int length) {
+    ByteBuffer src = buffers.get(srcBuffer);
+    ByteBuffer dst = buffers.get(dstBuffer);
+    if (src == null || dst == null || length <= 0 ||
+        srcOffset + length > src.capacity() ||
+        dstOffset + length > dst.capacity())
+      return;
+    dst.put(dstOffset, src, srcOffset, length);
+  }
+  public static void nDestroyBuffer(long bufferHandle) {
+    ByteBuffer buf = buffers.remove(bufferHandle);
+    if (buf != null)
+      bufferBytes.add(-buf.capacity());
+  }
+  public static void nSetPipelineState(long frameContext,
+      long pipelineHandle) {
+  }
+  public static void nSetChunkOffset(long frameContext, float x, float y,
+      float z) {
+  }
+  public static void nDrawIndexedBuffer(long frameContext, long vertexBuffer,
+      long indexBuffer, int indexCount, int baseIndex) {
+    recordDraw(indexCount / 6);
+  }
+  public static void nDrawIndexedBatch(long frameContext, long indexBuffer,
+      float[] drawData, int drawCount) {
+    for (int i = 0; i < drawCount; i++)
+      recordDraw(0);
+  }
+  public static void nDrawBuffer(long frameContext, long vertexBuffer,
+      int vertexCount, int baseVertex) {
+    recordDraw(vertexCount / 4);
+  }
+  public static long nGetCurrentFrameContext(long handle) {
+    return FRAME_CONTEXT;
+  }
+  public static void nEndFrame(long handle) {
+    lastFrameUploads = frameUploads.sumThenReset();
+    lastFrameUploadBytes = frameUploadBytes.sumThenReset();
+    lastFrameRegistrations = frameRegistrations.sumThenReset();
+    lastFrameDrawCalls = frameDrawCalls.sumThenReset();
+    lastFrameDrawnQuads = frameDrawnQuads.sumThenReset();
+    framesCompleted++;
+  }
+  public static void nSetProjectionMatrix(long handle, float[] matrix) {
+  }
+  public static void nSetModelViewMatrix(long handle, float[] matrix) {
+  }
+  public static void nSetCameraPosition(long handle, double x, double y,
+      double z) {
+    camX = x;
+    camY = y;
+    camZ = z;
+  }
+  public static void nBindTexture(long handle, long textureHandle, int slot) {
+  }
+  public static long nCreateTexture2D(long deviceHandle, int width, int height,
+      byte[] pixelData) {
+    if (width <= 0 || height <= 0)
+      return 0;
+    long handle = nextHandle.getAndIncrement();
+    int bytes = width * height * 4;
+    textures.put(handle, bytes);
+    textureBytes.add(bytes);
+    if (pixelData != null)
+      recordUpload(pixelData.length);
+    return handle;
+  }
+  public static void nUpdateTexture2D(long textureHandle, int width,
+      int height, byte[] pixelData) {
+    if (pixelData != null && textures.containsKey(textureHandle))
+      recordUpload(pixelData.length);
+  }
+  public static long nGetDeviceHandle(long handle) {
+    return DEVICE_HANDLE;
+  }
+  public static long nGetShaderLibraryHandle(long handle) {
+    return LIBRARY_HANDLE;
+  }
+  public static long nGetInhousePipelineHandle(long handle) {
+    return PIPELINE_BASE;
+  }
+  public static long nGetDefaultPipelineHandle(long handle) {
+    return PIPELINE_BASE + 1;
+  }
+  public static int nGetGLTextureId(long handle) {
+    return 0;
+  }
+  public static int nGetIOSurfaceWidth(long handle) {
+    return width;
+  }
+  public static int nGetIOSurfaceHeight(long handle) {
+    return height;
+  }
+  public static void nWaitForRender(long handle) {
+  }
+  public static boolean nIsFrameReady(long handle) {
+    return true;
+  }
+  public static void nSetReuseTerrainFrame(boolean reuse) {
+  }
+  public static boolean nBindIOSurfaceToTexture(long handle, int glTexture) {
+    return false;
+  }
+  public static boolean nReadbackPixels(long handle, ByteBuffer dest) {
+    return false;
+  }
+  public static boolean nReadbackDepth(long handle, ByteBuffer dest) {
+    return false;
+  }
+  public static long nGetEntityPipelineHandle(long handle) {
+    return PIPELINE_BASE + 2;
+  }
+  public static long nGetEntityTranslucentPipelineHandle(long handle) {
+    return PIPELINE_BASE + 3;
+  }
+  public static long nGetEntityEmissivePipelineHandle(long handle) {
+    return PIPELINE_BASE + 4;
+  }
+  public static long nGetParticlePipelineHandle(long handle) {
+    return PIPELINE_BASE + 5;
+  }
+  public static void nSetEntityOverlay(long frameContext, float hurtTime,
+      float whiteFlash, float alpha) {
+  }
+  public static void nSetEntityTintColor(long frameContext, float r, float g,
+      float b, float a) {
+  }
+  public static void nBindEntityTexture(long frameContext,
+      long textureHandle) {
+  }
+  public static void nDrawEntityBuffer(long frameContext, long vertexBuffer,
+      int vertexCount, int baseVertex, int renderFlags) {
+    recordDraw(vertexCount / 4);
+  }
+  public static void nDrawEntityBufferIndexed(long frameContext,
+      long vertexBuffer, long indexBuffer, int indexCount, int baseIndex,
+      int renderFlags) {
+    recordDraw(indexCount / 6);
+  }
+  public static void nSetDebugColor(long frameContext, float r, float g,
+      float b, float a) {
+  }
+  public static void nDrawLineBuffer(long frameContext, long vertexBuffer,
+      int vertexCount) {
+    recordDraw(0);
+  }
+  public static void nDrawTriangleBuffer(long frameContext, long vertexBuffer,
+      int vertexCount) {
+    recordDraw(vertexCount / 6);
+  }
+  public static void nUploadCameraUniforms(long handle, float[] viewProj,
+      float[] proj, float[] modelView, float[] cameraPos,
+      float[] frustumPlanes, float screenW, float screenH, float nearPlane,
+      float farPlane, int totalChunks) {
+  }
+  public static void nUploadSubChunkData(long handle, ByteBuffer directBuffer,
+      int count) {
+  }
+  public static void nUploadChunkUniforms(long handle,
+      ByteBuffer directBuffer, int count) {
+  }
+  public static void nSetGPUDrivenEnabled(long handle, boolean enabled) {
+    gpuDriven = enabled;
+  }
+  public static int nRunGPUCulling(long handle, int chunkCount) {
+    return chunkCount;
+  }
+  public static void nExecuteIndirectDraws(long frameContext,
+      long vertexBuffer, long indexBuffer) {
+  }
+  public static int nGetGPUVisibleCount(long handle) {
+    return 0;
+  }
+  public static void nGetGPUCullStats(int[] outStats) {
+    if (outStats != null)
+      Arrays.fill(outStats, 0);
+  }
+  public static int nGetThermalState() {
+    return 0;
+  }
+  public static int nGetThermalLODReduction() {
+    return 0;
+  }
+  public static long nGetAvailableMemory() {
+    return AVAILABLE_MEMORY - bufferBytes.sum() - textureBytes.sum();
+  }
+  public static int nGetHiZMipCount() {
+    return 0;
+  }
+  public static boolean nIsGPUDrivenActive() {
+    return gpuDriven;
+  }
+  public static boolean nAreMeshShadersActive() {
+    return false;
+  }
+  public static void nRegisterChunkMesh(int cx, int cy, int cz,
+      long bufferHandle, int quadCount, int opaqueQuadCount, int lodLevel) {
+    meshes.put(meshKey(cx, cy, cz),
+        new RegisteredMesh(cx, cy, cz, bufferHandle, 0, quadCount,
+            opaqueQuadCount, null, lodLevel));
+    totalRegistrations.increment();
+    frameRegistrations.increment();
+  }
+  public static void nRegisterChunkMeshRange(int cx, int cy, int cz,
+      long bufferHandle, int byteOffset, int quadCount, int opaqueQuadCount,
+      int[] faceQuadCounts, int vertexFormat, int paletteOffset,
+      int lodLevel) {
+    meshes.put(meshKey(cx, cy, cz), new RegisteredMesh(cx, cy, cz,
+        bufferHandle, byteOffset, quadCount, opaqueQuadCount,
+        faceQuadCounts == null ? null : faceQuadCounts.clone(), lodLevel));
+    totalRegistrations.increment();
+    frameRegistrations.increment();
+  }
+  public static void nUnregisterChunkMesh(int cx, int cy, int cz) {
+    if (meshes.remove(meshKey(cx, cy, cz)) != null)
+      totalUnregistrations.increment();
+  }
+  public static void nSetChunkTranslucentIndices(int cx, int cy, int cz,
+      long bufferHandle, int byteOffset) {
+    if (meshes.containsKey(meshKey(cx, cy, cz)))
+      totalTranslucentSorts.increment();
+  }
+  public static void nRegisterFarFieldTile(int cx, int cy, int cz,
+      long bufferHandle, int byteOffset, int quadCount, int extentXZ,
+      int extentY) {
+    farTiles.put(meshKey(cx, cy, cz), new RegisteredMesh(cx, cy, cz,
+        bufferHandle, byteOffset, quadCount, quadCount, null, 0));
+    totalRegistrations.increment();
+    frameRegistrations.increment();
+  }
+  public static void nUnregisterFarFieldTile(int cx, int cy, int cz) {
+    if (farTiles.remove(meshKey(cx, cy, cz)) != null)
+      totalUnregistrations.increment();
+  }
+  public static int nDrawAllVisibleChunks(long frameContext,
+      long indexBuffer) {
+    int drawn = 0;
+    for (RegisteredMesh mesh : meshes.values()) {
+      if (mesh.quadCount() <= 0 || !buffers.containsKey(mesh.bufferHandle()))
+        continue;
+      recordDraw(visibleQuads(mesh));
+      drawn++;
+    }
+    for (RegisteredMesh tile : farTiles.values()) {
+      if (tile.quadCount() <= 0 || !buffers.containsKey(tile.bufferHandle()))
+        continue;
+      recordDraw(tile.quadCount());
+      drawn++;
+    }
+    return drawn;
+  }
+  public static int getRegisteredMeshCount() {
+    return meshes.size();
+  }
+  public static void nDispatchTerrain(long handle, int visibleRegions,
+      long indirectBufferAddr) {
+  }
+  public static long nCreateMeshPipeline(long device, long library,
+      String objectFunc, String meshFunc, String fragmentFunc) {
+    long handle = nextHandle.getAndIncrement();
+    meshPipelines.add(handle);
+    return handle;
+  }
+  public static void nDrawMeshThreadgroups(long frameContext,
+      long pipelineHandle, int objectThreadgroups, int meshThreadsPerGroup,
+      long argumentBuffer) {
+    recordDraw(0);
+  }
+  public static void nDestroyMeshPipeline(long pipelineHandle) {
+    meshPipelines.remove(pipelineHandle);
+  }
+  public static void nUploadMeshletBuffer(long deviceHandle,
+      ByteBuffer directBuffer, int count) {
+    recordUpload(count * 32);
+  }
+  public static int nGetActivePipelineCount() {
+    return meshPipelines.size();
+  }
+  public static long[] nCreateTerrainMeshPipelines(long libraryHandle) {
+    long[] handles = new long[3];
+    for (int i = 0; i < handles.length; i++)
+      handles[i] = nCreateMeshPipeline(DEVICE_HANDLE, libraryHandle, null,
+          null, null);
+    return handles;
+  }
+  public static int getLiveBufferCount() {
+    return buffers.size();
+  }
+  public static long getLiveBufferBytes() {
+    return bufferBytes.sum();
+  }
+  public static long getTotalUploadBytes() {
+    return totalUploadBytes.sum();
+  }
+  public static long getLastFrameUploadBytes() {
+    return lastFrameUploadBytes;
+  }
+  public static long getLastFrameDrawCalls() {
+    return lastFrameDrawCalls;
+  }
+  public static long getFramesCompleted() {
+    return framesCompleted;
+  }
+  public static String getDebugStats() {
+    return String.format(
+        "headless: frames=%d meshes=%d farTiles=%d buffers=%d (%.1fMB) textures=%d (%.1fMB) uploads=%d (%.1fMB) regs=%d unregs=%d sorts=%d draws=%d quads=%d | last frame: uploads=%d (%.1fKB) regs=%d draws=%d quads=%d",
+        framesCompleted, meshes.size(), farTiles.size(), buffers.size(),
+        bufferBytes.sum() / 1048576.0, textures.size(),
+        textureBytes.sum() / 1048576.0, totalUploads.sum(),
+        totalUploadBytes.sum() / 1048576.0, totalRegistrations.sum(),
+        totalUnregistrations.sum(), totalTranslucentSorts.sum(),
+        totalDrawCalls.sum(),
+        totalDrawnQuads.sum(), lastFrameUploads, lastFrameUploadBytes / 1024.0,
+        lastFrameRegistrations, lastFrameDrawCalls, lastFrameDrawnQuads);
+  }
+}
@@ -0,0 +1,116 @@
+package com.pebbles_boon.metalrender.nativebridge;
+final class MetalNatives {
+  private MetalNatives() {
+  }
+  static native boolean nIsAvailable();
+  static native long nInit(int width, int height, float scale);
+  static native void nResize(long handle, int width, int height, float scale);
+  static native void nBeginFrame(long handle, float[] proj, float[] view,
+      float fogStart, float fogEnd);
+  static native void nDrawTerrain(long handle, int layerId);
+  static native void nDrawOverlay(long handle, int layerId);
+  static native void nOnWorldLoaded(long handle);
+  static native void nOnWorldUnloaded(long handle);
+  static native void nDestroy(long handle);
+  static native String nGetDeviceName();
+  static native boolean nSupportsIndirect();
+  static native boolean nSupportsMeshShaders();
+  static native long nCreateBuffer(long deviceHandle, int sizeBytes,
+      int storageMode);
+  static native void nUploadBufferData(long bufferHandle, byte[] data,
+      int offset, int length);
+  static native void nUploadBufferDataDirect(long bufferHandle,
+      java.nio.ByteBuffer data, int offset, int length);
+  static native void nUploadBufferRange(long bufferHandle, int dstOffset,
+      java.nio.ByteBuffer data, int srcOffset, int length);
+  static native void nCopyBufferRange(long srcBuffer, int srcOffset,
+      long dstBuffer, int dstOffset, int length);
+  static native void nDestroyBuffer(long bufferHandle);
+  static native void nSetPipelineState(long frameContext, long pipelineHandle);
+  static native void nSetChunkOffset(long frameContext, float x, float y,
+      float z);
+  static native void nDrawIndexedBuffer(long frameContext, long vertexBuffer,
+      long indexBuffer, int indexCount, int baseIndex);
+  static native void nDrawIndexedBatch(long frameContext, long indexBuffer,
+      float[] drawData, int drawCount);
+  static native void nDrawBuffer(long frameContext, long vertexBuffer,
+      int vertexCount, int baseVertex);
+  static native long nGetCurrentFrameContext(long handle);
+  static native void nEndFrame(long handle);
+  static native void nSetProjectionMatrix(long handle, float[] matrix);
+  static native void nSetModelViewMatrix(long handle, float[] matrix);
+  static native void nSetCameraPosition(long handle, double x, double y,
+      double z);
+  static native void nBindTexture(long handle, long textureHandle, int slot);
+  static native long nCreateTexture2D(long deviceHandle, int width, int height,
+      byte[] pixelData);
+  static native void nUpdateTexture2D(long textureHandle, int width, int height,
+      byte[] pixelData);
+  static native long nGetDeviceHandle(long handle);
+  static native long nGetShaderLibraryHandle(long handle);
+  static native long nGetInhousePipelineHandle(long handle);
+  static native long nGetDefaultPipelineHandle(long handle);
+  static native int nGetGLTextureId(long handle);
+  static native int nGetIOSurfaceWidth(long handle);
+  static native int nGetIOSurfaceHeight(long handle);
+  static native void nWaitForRender(long handle);
+  static native boolean nIsFrameReady(long handle);
+  static native void nSetReuseTerrainFrame(boolean reuse);
+  static native boolean nBindIOSurfaceToTexture(long handle, int glTexture);
+  static native boolean nReadbackPixels(long handle, java.nio.ByteBuffer dest);
+  static native boolean nReadbackDepth(long handle, java.nio.ByteBuffer dest);
+  static native long nGetEntityPipelineHandle(long handle);
+  static native long nGetEntityTranslucentPipelineHandle(long handle);
+  static native long nGetEntityEmissivePipelineHandle(long handle);
+  static native long nGetParticlePipelineHandle(long handle);
+  static native void nSetEntityOverlay(long frameContext, float hurtTime,
+      float whiteFlash, float alpha);
+  static native void nSetEntityTintColor(long frameContext, float r, float g,
+      float b, float a);
+  static native void nBindEntityTexture(long frameContext, long textureHandle);
+  static native void nDrawEntityBuffer(long frameContext, long vertexBuffer,
+      int vertexCount, int baseVertex, int renderFlags);
+  static native void nDrawEntityBufferIndexed(long frameContext,
+      long vertexBuffer, long indexBuffer, int indexCount, int baseIndex,
+      int renderFlags);
+  static native void nSetDebugColor(long frameContext, float r, float g,
+      float b, float a);
+  static native void nDrawLineBuffer(long frameContext, long vertexBuffer,
+      int vertexCount);
+  static native void nDrawTriangleBuffer(long frameContext, long vertexBuffer,
+      int vertexCount);
+  static native void nUploadCameraUniforms(long handle, float[] viewProj,
+      float[] proj, float[] modelView, float[] cameraPos, float[] frustumPlanes,
+      float screenW, float screenH, float nearPlane, float farPlane,
+      int totalChunks);
+  static native void nUploadSubChunkData(long handle,
+      java.nio.ByteBuffer directBuffer, int count);
+  static native void nUploadChunkUniforms(long handle,
+      java.nio.ByteBuffer directBuffer, int count);
+  static native void nSetGPUDrivenEnabled(long handle, boolean enabled);
+  static native int nRunGPUCulling(long handle, int chunkCount);
+  static native void nExecuteIndirectDraws(long frameContext, long vertexBuffer,
+      long indexBuffer);
+  static native int nGetGPUVisibleCount(long handle);
+  static native void nGetGPUCullStats(int[] outStats);
+  static native int nGetThermalState();
+  static native int nGetThermalLODReduction();
+  static native long nGetAvailableMemory();
+  static native int nGetHiZMipCount();
+  static native boolean nIsGPUDrivenActive();
+  static native boolean nAreMeshShadersActive();
+  static native void nRegisterChunkMesh(int cx, int cy, int cz,
+      long bufferHandle, int quadCount, int opaqueQuadCount, int lodLevel);
+  static native void nRegisterChunkMeshRange(int cx, int cy, int cz,
+      long bufferHandle, int byteOffset, int quadCount, int opaqueQuadCount,
+      int[] faceQuadCounts, int vertexFormat, int paletteOffset,
+      int lodLevel);
+  static native void nUnregisterChunkMesh(int cx, int cy, int cz);
+  static native void nSetChunkTranslucentIndices(int cx, int cy, int cz,
+      long bufferHandle, int byteOffset);
+  static native void nRegisterFarFieldTile(int cx, int cy, int cz,
+      long bufferHandle, int byteOffset, int quadCount, int extentXZ,
+      int extentY);
+  static native void nUnregisterFarFieldTile(int cx, int cy, int cz);
+  static native int nDrawAllVisibleChunks(long frameContext, long indexBuffer);
+}
@@ -1,12 +1,18 @@
 package com.pebbles_boon.metalrender.nativebridge;
 public final class NativeBridge {
+  private static final boolean HEADLESS = "headless".equalsIgnoreCase(
+      System.getProperty("metalrender.backend", "metal"));
   private static volatile boolean libLoaded;
   static {
-    try {
-      System.loadLibrary("metalrender");
+    if (HEADLESS) {
       libLoaded = true;
-    } catch (Throwable t) {
-      libLoaded = false;
+    } else {
+      try {
+        System.loadLibrary("metalrender");
+        libLoaded = true;
+      } catch (Throwable t) {
+        libLoaded = false;
+      }
     }
   }
   private NativeBridge() {
@@ -20,116 +26,556 @@ public final class NativeBridge {
   public static boolean isLibLoaded() {
     return libLoaded;
   }
-  public static native boolean nIsAvailable();
-  public static native long nInit(int width, int height, float scale);
-  public static native void nResize(long handle, int width, int height,
-      float scale);
-  public static native void nBeginFrame(long handle, float[] proj, float[] view,
-      float fogStart, float fogEnd);
-  public static native void nDrawTerrain(long handle, int layerId);
-  public static native void nDrawOverlay(long handle, int layerId);
-  public static native void nOnWorldLoaded(long handle);
-  public static native void nOnWorldUnloaded(long handle);
-  public static native void nDestroy(long handle);
-  public static native String nGetDeviceName();
-  public static native boolean nSupportsIndirect();
-  public static native boolean nSupportsMeshShaders();
-  public static native long nCreateBuffer(long deviceHandle, int sizeBytes,
-      int storageMode);
-  public static native void nUploadBufferData(long bufferHandle, byte[] data,
-      int offset, int length);
-  public static native void nUploadBufferDataDirect(long bufferHandle,
-      java.nio.ByteBuffer data,
-      int offset, int length);
-  public static native void nDestroyBuffer(long bufferHandle);
-  public static native void nSetPipelineState(long frameContext,
-      long pipelineHandle);
-  public static native void nSetChunkOffset(long frameContext, float x, float y,
-      float z);
-  public static native void nDrawIndexedBuffer(long frameContext,
-      long vertexBuffer,
-      long indexBuffer, int indexCount,
-      int baseIndex);
-  public static native void nDrawIndexedBatch(long frameContext,
-      long indexBuffer,
-      float[] drawData, int drawCount);
-  public static native void nDrawBuffer(long frameContext, long vertexBuffer,
-      int vertexCount, int baseVertex);
-  public static native long nGetCurrentFrameContext(long handle);
-  public static native void nEndFrame(long handle);
-  public static native void nSetProjectionMatrix(long handle, float[] matrix);
-  public static native void nSetModelViewMatrix(long handle, float[] matrix);
-  public static native void nSetCameraPosition(long handle, double x, double y,
-      double z);
-  public static native void nBindTexture(long handle, long textureHandle,
-      int slot);
-  public static native long nCreateTexture2D(long deviceHandle, int width,
-      int height, byte[] pixelData);
-  public static native void nUpdateTexture2D(long textureHandle, int width,
-      int height, byte[] pixelData);
-  public static native long nGetDeviceHandle(long handle);
-  public static native long nGetShaderLibraryHandle(long handle);
-  public static native long nGetInhousePipelineHandle(long handle);
-  public static native long nGetDefaultPipelineHandle(long handle);
-  public static native int nGetGLTextureId(long handle);
-  public static native int nGetIOSurfaceWidth(long handle);
-  public static native int nGetIOSurfaceHeight(long handle);
-  public static native void nWaitForRender(long handle);
-  public static native boolean nIsFrameReady(long handle);
-  public static native void nSetReuseTerrainFrame(boolean reuse);
-  public static native boolean nBindIOSurfaceToTexture(long handle,
-      int glTexture);
-  public static native boolean nReadbackPixels(long handle,
-      java.nio.ByteBuffer dest);
-  public static native boolean nReadbackDepth(long handle,
-      java.nio.ByteBuffer dest);
-  public static native long nGetEntityPipelineHandle(long handle);
-  public static native long nGetEntityTranslucentPipelineHandle(long handle);
-  public static native long nGetEntityEmissivePipelineHandle(long handle);
-  public static native long nGetParticlePipelineHandle(long handle);
-  public static native void nSetEntityOverlay(long frameContext, float hurtTime,
-      float whiteFlash, float alpha);
-  public static native void nSetEntityTintColor(long frameContext, float r,
-      float g, float b, float a);
-  public static native void nBindEntityTexture(long frameContext,
-      long textureHandle);
-  public static native void nDrawEntityBuffer(long frameContext,
-      long vertexBuffer,
-      int vertexCount, int baseVertex,
-      int renderFlags);
-  public static native void nDrawEntityBufferIndexed(long frameContext, long vertexBuffer,
-      long indexBuffer, int indexCount, int baseIndex,
-      int renderFlags);
-  public static native void nSetDebugColor(long frameContext, float r, float g,
-      float b, float a);
-  public static native void nDrawLineBuffer(long frameContext,
-      long vertexBuffer, int vertexCount);
-  public static native void nDrawTriangleBuffer(long frameContext,
-      long vertexBuffer, int vertexCount);
-  public static native void nUploadCameraUniforms(long handle,
-      float[] viewProj, float[] proj, float[] modelView,
-      float[] cameraPos, float[] frustumPlanes,
+  public static boolean isHeadless() {
+    return HEADLESS;
+  }
+  public static boolean nIsAvailable() {
+    if (HEADLESS)
+      return HeadlessBridge.nIsAvailable();
+    return MetalNatives.nIsAvailable();
+  }
+  public static long nInit(int width, int height, float scale) {
+    if (HEADLESS)
+      return HeadlessBridge.nInit(width, height, scale);
+    return MetalNatives.nInit(width, height, scale);
+  }
+  public static void nResize(long handle, int width, int height, float scale) {
+    if (HEADLESS)
+      HeadlessBridge.nResize(handle, width, height, scale);
+    else
+      MetalNatives.nResize(handle, width, height, scale);
+  }
+  public static void nBeginFrame(long handle, float[] proj, float[] view,
+      float fogStart, float fogEnd) {
+    if (HEADLESS)
+      HeadlessBridge.nBeginFrame(handle, proj, view, fogStart, fogEnd);
+    else
+      MetalNatives.nBeginFrame(handle, proj, view, fogStart, fogEnd);
+  }
+  public static void nDrawTerrain(long handle, int layerId) {
+    if (HEADLESS)
+      HeadlessBridge.nDrawTerrain(handle, layerId);
+    else
+      MetalNatives.nDrawTerrain(handle, layerId);
+  }
+  public static void nDrawOverlay(long handle, int layerId) {
+    if (HEADLESS)
+      HeadlessBridge.nDrawOverlay(handle, layerId);
+    else
+      MetalNatives.nDrawOverlay(handle, layerId);
+  }
+  public static void nOnWorldLoaded(long handle) {
+    if (HEADLESS)
+      HeadlessBridge.nOnWorldLoaded(handle);
+    else
+      MetalNatives.nOnWorldLoaded(handle);
+  }
+  public static void nOnWorldUnloaded(long handle) {
+    if (HEADLESS)
+      HeadlessBridge.nOnWorldUnloaded(handle);
+    else
+      MetalNatives.nOnWorldUnloaded(handle);
+  }
+  public static void nDestroy(long handle) {
+    if (HEADLESS)
+      HeadlessBridge.nDestroy(handle);
+    else
+      MetalNatives.nDestroy(handle);
+  }
+  public static String nGetDeviceName() {
+    if (HEADLESS)
+      return HeadlessBridge.nGetDeviceName();
+    return MetalNatives.nGetDeviceName();
+  }
+  public static boolean nSupportsIndirect() {
+    if (HEADLESS)
+      return HeadlessBridge.nSupportsIndirect();
+    return MetalNatives.nSupportsIndirect();
+  }
+  public static boolean nSupportsMeshShaders() {
+    if (HEADLESS)
+      return HeadlessBridge.nSupportsMeshShaders();
+    return MetalNatives.nSupportsMeshShaders();
+  }
+  public static long nCreateBuffer(long deviceHandle, int sizeBytes,
+      int storageMode) {
+    if (HEADLESS)
+      return HeadlessBridge.nCreateBuffer(deviceHandle, sizeBytes, storageMode);
+    return MetalNatives.nCreateBuffer(deviceHandle, sizeBytes, storageMode);
+  }
+  public static void nUploadBufferData(long bufferHandle, byte[] data,
+      int offset, int length) {
+    if (HEADLESS)
+      HeadlessBridge.nUploadBufferData(bufferHandle, data, offset, length);
+    else
+      MetalNatives.nUploadBufferData(bufferHandle, data, offset, length);
+  }
+  public static void nUploadBufferDataDirect(long bufferHandle,
+      java.nio.ByteBuffer data, int offset, int length) {
+    if (HEADLESS)
+      HeadlessBridge.nUploadBufferDataDirect(bufferHandle, data, offset,
+          length);
+    else
+      MetalNatives.nUploadBufferDataDirect(bufferHandle, data, offset, length);
+  }
+  public static void nUploadBufferRange(long bufferHandle, int dstOffset,
+      java.nio.ByteBuffer data, int srcOffset, int length) {
+    if (HEADLESS)
+      HeadlessBridge.nUploadBufferRange(bufferHandle, dstOffset, data,
+          srcOffset, length);
+    else
+      MetalNatives.nUploadBufferRange(bufferHandle, dstOffset, data, srcOffset,
+          length);
+  }
+  public static void nCopyBufferRange(long srcBuffer, int srcOffset,
+      long dstBuffer, int dstOffset, int length) {
+    if (HEADLESS)
+      HeadlessBridge.nCopyBufferRange(srcBuffer, srcOffset, dstBuffer,
+          dstOffset, length);
+    else
+      MetalNatives.nCopyBufferRange(srcBuffer, srcOffset, dstBuffer, dstOffset,
+          length);
+  }
+  public static void nDestroyBuffer(long bufferHandle) {
+    if (HEADLESS)
+      HeadlessBridge.nDestroyBuffer(bufferHandle);
+    else
+      MetalNatives.nDestroyBuffer(bufferHandle);
+  }
+  public static void nSetPipelineState(long frameContext, long pipelineHandle) {
+    if (HEADLESS)
+      HeadlessBridge.nSetPipelineState(frameContext, pipelineHandle);
+    else
+      MetalNatives.nSetPipelineState(frameContext, pipelineHandle);
+  }
+  public static void nSetChunkOffset(long frameContext, float x, float y,
+      float z) {
+    if (HEADLESS)
+      HeadlessBridge.nSetChunkOffset(frameContext, x, y, z);
+    else
+      MetalNatives.nSetChunkOffset(frameContext, x, y, z);
+  }
+  public static void nDrawIndexedBuffer(long frameContext, long vertexBuffer,
+      long indexBuffer, int indexCount, int baseIndex) {
+    if (HEADLESS)
+      HeadlessBridge.nDrawIndexedBuffer(frameContext, vertexBuffer, indexBuffer,
+          indexCount, baseIndex);
+    else
+      MetalNatives.nDrawIndexedBuffer(frameContext, vertexBuffer, indexBuffer,
+          indexCount, baseIndex);
+  }
+  public static void nDrawIndexedBatch(long frameContext, long indexBuffer,
+      float[] drawData, int drawCount) {
+    if (HEADLESS)
+      HeadlessBridge.nDrawIndexedBatch(frameContext, indexBuffer, drawData,
+          drawCount);
+    else
+      MetalNatives.nDrawIndexedBatch(frameContext, indexBuffer, drawData,
+          drawCount);
+  }
+  public static void nDrawBuffer(long frameContext, long vertexBuffer,
+      int vertexCount, int baseVertex) {
+    if (HEADLESS)
+      HeadlessBridge.nDrawBuffer(frameContext, vertexBuffer, vertexCount,
+          baseVertex);
+    else
+      MetalNatives.nDrawBuffer(frameContext, vertexBuffer, vertexCount,
+          baseVertex);
+  }
+  public static long nGetCurrentFrameContext(long handle) {
+    if (HEADLESS)
+      return HeadlessBridge.nGetCurrentFrameContext(handle);
+    return MetalNatives.nGetCurrentFrameContext(handle);
+  }
+  public static void nEndFrame(long handle) {
+    if (HEADLESS)
+      HeadlessBridge.nEndFrame(handle);
+    else
+      MetalNatives.nEndFrame(handle);
+  }
+  public static void nSetProjectionMatrix(long handle, float[] matrix) {
+    if (HEADLESS)
+      HeadlessBridge.nSetProjectionMatrix(handle, matrix);
+    else
+      MetalNatives.nSetProjectionMatrix(handle, matrix);
+  }
+  public static void nSetModelViewMatrix(long handle, float[] matrix) {
+    if (HEADLESS)
+      HeadlessBridge.nSetModelViewMatrix(handle, matrix);
+    else
+      MetalNatives.nSetModelViewMatrix(handle, matrix);
+  }
+  public static void nSetCameraPosition(long handle, double x, double y,
+      double z) {
+    if (HEADLESS)
+      HeadlessBridge.nSetCameraPosition(handle, x, y, z);
+    else
+      MetalNatives.nSetCameraPosition(handle, x, y, z);
+  }
+  public static void nBindTexture(long handle, long textureHandle, int slot) {
+    if (HEADLESS)
+      HeadlessBridge.nBindTexture(handle, textureHandle, slot);
+    else
+      MetalNatives.nBindTexture(handle, textureHandle, slot);
+  }
+  public static long nCreateTexture2D(long deviceHandle, int width, int height,
+      byte[] pixelData) {
+    if (HEADLESS)
+      return HeadlessBridge.nCreateTexture2D(deviceHandle, width, height,
+          pixelData);
+    return MetalNatives.nCreateTexture2D(deviceHandle, width, height,
+        pixelData);
+  }
+  public static void nUpdateTexture2D(long textureHandle, int width, int height,
+      byte[] pixelData) {
+    if (HEADLESS)
+      HeadlessBridge.nUpdateTexture2D(textureHandle, width, height, pixelData);
+    else
+      MetalNatives.nUpdateTexture2D(textureHandle, width, height, pixelData);
+  }
+  public static long nGetDeviceHandle(long handle) {
+    if (HEADLESS)
+      return HeadlessBridge.nGetDeviceHandle(handle);
+    return MetalNatives.nGetDeviceHandle(handle);
+  }
+  public static long nGetShaderLibraryHandle(long handle) {
+    if (HEADLESS)
+      return HeadlessBridge.nGetShaderLibraryHandle(handle);
+    return MetalNatives.nGetShaderLibraryHandle(handle);
+  }
+  public static long nGetInhousePipelineHandle(long handle) {
+    if (HEADLESS)
+      return HeadlessBridge.nGetInhousePipelineHandle(handle);
+    return MetalNatives.nGetInhousePipelineHandle(handle);
+  }
+  public static long nGetDefaultPipelineHandle(long handle) {
+    if (HEADLESS)
+      return HeadlessBridge.nGetDefaultPipelineHandle(handle);
+    return MetalNatives.nGetDefaultPipelineHandle(handle);
+  }
+  public static int nGetGLTextureId(long handle) {
+    if (HEADLESS)
+      return HeadlessBridge.nGetGLTextureId(handle);
+    return MetalNatives.nGetGLTextureId(handle);
+  }
+  public static int nGetIOSurfaceWidth(long handle) {
+    if (HEADLESS)
+      return HeadlessBridge.nGetIOSurfaceWidth(handle);
+    return MetalNatives.nGetIOSurfaceWidth(handle);
+  }
+  public static int nGetIOSurfaceHeight(long handle) {
+    if (HEADLESS)
+      return HeadlessBridge.nGetIOSurfaceHeight(handle);
+    return MetalNatives.nGetIOSurfaceHeight(handle);
+  }
+  public static void nWaitForRender(long handle) {
+    if (HEADLESS)
+      HeadlessBridge.nWaitForRender(handle);
+    else
+      MetalNatives.nWaitForRender(handle);
+  }
+  public static boolean nIsFrameReady(long handle) {
+    if (HEADLESS)
+      return HeadlessBridge.nIsFrameReady(handle);
+    return MetalNatives.nIsFrameReady(handle);
+  }
+  public static void nSetReuseTerrainFrame(boolean reuse) {
+    if (HEADLESS)
+      HeadlessBridge.nSetReuseTerrainFrame(reuse);
+    else
+      MetalNatives.nSetReuseTerrainFrame(reuse);
+  }
+  public static boolean nBindIOSurfaceToTexture(long handle, int glTexture) {
+    if (HEADLESS)
+      return HeadlessBridge.nBindIOSurfaceToTexture(handle, glTexture);
+    return MetalNatives.nBindIOSurfaceToTexture(handle, glTexture);
+  }
+  public static boolean nReadbackPixels(long handle, java.nio.ByteBuffer dest) {
+    if (HEADLESS)
+      return HeadlessBridge.nReadbackPixels(handle, dest);
+    return MetalNatives.nReadbackPixels(handle, dest);
+  }
+  public static boolean nReadbackDepth(long handle, java.nio.ByteBuffer dest) {
+    if (HEADLESS)
+      return HeadlessBridge.nReadbackDepth(handle, dest);
+    return MetalNatives.nReadbackDepth(handle, dest);
+  }
+  public static long nGetEntityPipelineHandle(long handle) {
+    if (HEADLESS)
+      return HeadlessBridge.nGetEntityPipelineHandle(handle);
+    return MetalNatives.nGetEntityPipelineHandle(handle);
+  }
+  public static long nGetEntityTranslucentPipelineHandle(long handle) {
+    if (HEADLESS)
+      return HeadlessBridge.nGetEntityTranslucentPipelineHandle(handle);
+    return MetalNatives.nGetEntityTranslucentPipelineHandle(handle);
+  }
+  public static long nGetEntityEmissivePipelineHandle(long handle) {
+    if (HEADLESS)
+      return HeadlessBridge.nGetEntityEmissivePipelineHandle(handle);
+    return MetalNatives.nGetEntityEmissivePipelineHandle(handle);
+  }
+  public static long nGetParticlePipelineHandle(long handle) {
+    if (HEADLESS)
+      return HeadlessBridge.nGetParticlePipelineHandle(handle);
+    return MetalNatives.nGetParticlePipelineHandle(handle);
+  }
+  public static void nSetEntityOverlay(long frameContext, float hurtTime,
+      float whiteFlash, float alpha) {
+    if (HEADLESS)
+      HeadlessBridge.nSetEntityOverlay(frameContext, hurtTime, whiteFlash,
+          alpha);
+    else
+      MetalNatives.nSetEntityOverlay(frameContext, hurtTime, whiteFlash, alpha);
+  }
+  public static void nSetEntityTintColor(long frameContext, float r, float g,
+      float b, float a) {
+    if (HEADLESS)
+      HeadlessBridge.nSetEntityTintColor(frameContext, r, g, b, a);
+    else
+      MetalNatives.nSetEntityTintColor(frameContext, r, g, b, a);
+  }
+  public static void nBindEntityTexture(long frameContext, long textureHandle) {
+    if (HEADLESS)
+      HeadlessBridge.nBindEntityTexture(frameContext, textureHandle);
+    else
+      MetalNatives.nBindEntityTexture(frameContext, textureHandle);
+  }
+  public static void nDrawEntityBuffer(long frameContext, long vertexBuffer,
+      int vertexCount, int baseVertex, int renderFlags) {
+    if (HEADLESS)
+      HeadlessBridge.nDrawEntityBuffer(frameContext, vertexBuffer, vertexCount,
+          baseVertex, renderFlags);
+    else
+      MetalNatives.nDrawEntityBuffer(frameContext, vertexBuffer, vertexCount,
+          baseVertex, renderFlags);
+  }
+  public static void nDrawEntityBufferIndexed(long frameContext,
+      long vertexBuffer, long indexBuffer, int indexCount, int baseIndex,
+      int renderFlags) {
+    if (HEADLESS)
+      HeadlessBridge.nDrawEntityBufferIndexed(frameContext, vertexBuffer,
+          indexBuffer, indexCount, baseIndex, renderFlags);
+    else
+      MetalNatives.nDrawEntityBufferIndexed(frameContext, vertexBuffer,
+          indexBuffer, indexCount, baseIndex, renderFlags);
+  }
+  public static void nSetDebugColor(long frameContext, float r, float g,
+      float b, float a) {
+    if (HEADLESS)
+      HeadlessBridge.nSetDebugColor(frameContext, r, g, b, a);
+    else
+      MetalNatives.nSetDebugColor(frameContext, r, g, b, a);
+  }
+  public static void nDrawLineBuffer(long frameContext, long vertexBuffer,
+      int vertexCount) {
+    if (HEADLESS)
+      HeadlessBridge.nDrawLineBuffer(frameContext, vertexBuffer, vertexCount);
+    else
+      MetalNatives.nDrawLineBuffer(frameContext, vertexBuffer, vertexCount);
+  }
+  public static void nDrawTriangleBuffer(long frameContext, long vertexBuffer,
+      int vertexCount) {
+    if (HEADLESS)
+      HeadlessBridge.nDrawTriangleBuffer(frameContext, vertexBuffer,
+          vertexCount);
+    else
+      MetalNatives.nDrawTriangleBuffer(frameContext, vertexBuffer, vertexCount);
+  }
+  public static void nUploadCameraUniforms(long handle, float[] viewProj,
+      float[] proj, float[] modelView, float[] cameraPos, float[] frustumPlanes,
       float screenW, float screenH, float nearPlane, float farPlane,
-      int totalChunks);
-  public static native void nUploadSubChunkData(long handle,
-      java.nio.ByteBuffer directBuffer, int count);
-  public static native void nUploadChunkUniforms(long handle,
-      java.nio.ByteBuffer directBuffer, int count);
-  public static native void nSetGPUDrivenEnabled(long handle, boolean enabled);
-  public static native int nRunGPUCulling(long handle, int chunkCount);
-  public static native void nExecuteIndirectDraws(long frameContext,
-      long vertexBuffer, long indexBuffer);
-  public static native int nGetGPUVisibleCount(long handle);
-  public static native void nGetGPUCullStats(int[] outStats);
-  public static native int nGetThermalState();
-  public static native int nGetThermalLODReduction();
-  public static native long nGetAvailableMemory();
-  public static native int nGetHiZMipCount();
-  public static native boolean nIsGPUDrivenActive();
-  public static native boolean nAreMeshShadersActive();
-  public static native void nRegisterChunkMesh(int cx, int cy, int cz,
-      long bufferHandle, int quadCount, int opaqueQuadCount, int lodLevel);
-  public static native void nUnregisterChunkMesh(int cx, int cy, int cz);
-  public static native int nDrawAllVisibleChunks(long frameContext,
-      long indexBuffer);
+      int totalChunks) {
+    if (HEADLESS)
+      HeadlessBridge.nUploadCameraUniforms(handle, viewProj, proj, modelView,
+          cameraPos, frustumPlanes, screenW, screenH, nearPlane, farPlane,
+          totalChunks);
+    else
+      MetalNatives.nUploadCameraUniforms(handle, viewProj, proj, modelView,
+          cameraPos, frustumPlanes, screenW, screenH, nearPlane, farPlane,
+          totalChunks);
+  }
+  public static void nUploadSubChunkData(long handle,
+      java.nio.ByteBuffer directBuffer, int count) {
+    if (HEADLESS)
+      HeadlessBridge.nUploadSubChunkData(handle, directBuffer, count);
+    else
+      MetalNatives.nUploadSubChunkData(handle, directBuffer, count);
+  }
+  public static void nUploadChunkUniforms(long handle,
+      java.nio.ByteBuffer directBuffer, int count) {
+    if (HEADLESS)
+      HeadlessBridge.nUploadChunkUniforms(handle, directBuffer, count);
+    else
+      MetalNatives.nUploadChunkUniforms(handle, directBuffer, count);
+  }
+  public static void nSetGPUDrivenEnabled(long handle, boolean enabled) {
+    if (HEADLESS)
+      HeadlessBridge.nSetGPUDrivenEnabled(handle, enabled);
+    else
+      MetalNatives.nSetGPUDrivenEnabled(handle, enabled);
+  }
+  public static int nRunGPUCulling(long handle, int chunkCount) {
+    if (HEADLESS)
+      return HeadlessBridge.nRunGPUCulling(handle, chunkCount);
+    return MetalNatives.nRunGPUCulling(handle, chunkCount);
+  }
+  public static void nExecuteIndirectDraws(long frameContext, long vertexBuffer,
+      long indexBuffer) {
+    if (HEADLESS)
+      HeadlessBridge.nExecuteIndirectDraws(frameContext, vertexBuffer,
+          indexBuffer);
+    else
+      MetalNatives.nExecuteIndirectDraws(frameContext, vertexBuffer,
+          indexBuffer);
+  }
+  public static int nGetGPUVisibleCount(long handle) {
+    if (HEADLESS)
+      return HeadlessBridge.nGetGPUVisibleCount(handle);
+    return MetalNatives.nGetGPUVisibleCount(handle);
+  }
+  public static void nGetGPUCullStats(int[] outStats) {
+    if (HEADLESS)
+      HeadlessBridge.nGetGPUCullStats(outStats);
+    else
+      MetalNatives.nGetGPUCullStats(outStats);
+  }
+  public static int nGetThermalState() {
+    if (HEADLESS)
+      return HeadlessBridge.nGetThermalState();
+    return MetalNatives.nGetThermalState();
+  }
+  public static int nGetThermalLODReduction() {
+    if (HEADLESS)
+      return HeadlessBridge.nGetThermalLODReduction();
+    return MetalNatives.nGetThermalLODReduction();
+  }
+  public static long nGetAvailableMemory() {
+    if (HEADLESS)
+      return HeadlessBridge.nGetAvailableMemory();
+    return MetalNatives.nGetAvailableMemory();
+  }
+  public static int nGetHiZMipCount() {
+    if (HEADLESS)
+      return HeadlessBridge.nGetHiZMipCount();
+    return MetalNatives.nGetHiZMipCount();
+  }
+  public static boolean nIsGPUDrivenActive() {
+    if (HEADLESS)
+      return HeadlessBridge.nIsGPUDrivenActive();
+    return MetalNatives.nIsGPUDrivenActive();
+  }
+  public static boolean nAreMeshShadersActive() {
+    if (HEADLESS)
+      return HeadlessBridge.nAreMeshShadersActive();
+    return MetalNatives.nAreMeshShadersActive();
+  }
+  public static void nRegisterChunkMesh(int cx, int cy, int cz,
+      long bufferHandle, int quadCount, int opaqueQuadCount, int lodLevel) {
+    if (HEADLESS)
+      HeadlessBridge.nRegisterChunkMesh(cx, cy, cz, bufferHandle, quadCount,
+          opaqueQuadCount, lodLevel);
+    else
+      MetalNatives.nRegisterChunkMesh(cx, cy, cz, bufferHandle, quadCount,
+          opaqueQuadCount, lodLevel);
+  }
+  public static void nRegisterChunkMeshRange(int cx, int cy, int cz,
+      long bufferHandle, int byteOffset, int quadCount, int opaqueQuadCount,
+      int[] faceQuadCounts, int vertexFormat, int paletteOffset,
+      int lodLevel) {
+    if (HEADLESS)
+      HeadlessBridge.nRegisterChunkMeshRange(cx, cy, cz, bufferHandle,
+          byteOffset, quadCount, opaqueQuadCount, faceQuadCounts, vertexFormat,
+          paletteOffset, lodLevel);
+    else
+      MetalNatives.nRegisterChunkMeshRange(cx, cy, cz, bufferHandle,
+          byteOffset, quadCount, opaqueQuadCount, faceQuadCounts, vertexFormat,
+          paletteOffset, lodLevel);
+  }
+  public static void nUnregisterChunkMesh(int cx, int cy, int cz) {
+    if (HEADLESS)
+      HeadlessBridge.nUnregisterChunkMesh(cx, cy, cz);
+    else
+      MetalNatives.nUnregisterChunkMesh(cx, cy, cz);
+  }
+  public static void nSetChunkTranslucentIndices(int cx, int cy, int cz,
+      long bufferHandle, int byteOffset) {
+    if (HEADLESS)
+      HeadlessBridge.nSetChunkTranslucentIndices(cx, cy, cz, bufferHandle,
+          byteOffset);
+    else
+      MetalNatives.nSetChunkTranslucentIndices(cx, cy, cz, bufferHandle,
+          byteOffset);
+  }
+  public static void nRegisterFarFieldTile(int cx, int cy, int cz,
+      long bufferHandle, int byteOffset, int quadCount, int extentXZ,
+      int extentY) {
+    if (HEADLESS)
+      HeadlessBridge.nRegisterFarFieldTile(cx, cy, cz, bufferHandle,
+          byteOffset, quadCount, extentXZ, extentY);
+    else
+      MetalNatives.nRegisterFarFieldTile(cx, cy, cz, bufferHandle, byteOffset,
+          quadCount, extentXZ, extentY);
+  }
+  public static void nUnregisterFarFieldTile(int cx, int cy, int cz) {
+    if (HEADLESS)
+      HeadlessBridge.nUnregisterFarFieldTile(cx, cy, cz);
+    else
+      MetalNatives.nUnregisterFarFieldTile(cx, cy, cz);
+  }
+  public static int nDrawAllVisibleChunks(long frameContext, long indexBuffer) {
+    if (HEADLESS)
+      return HeadlessBridge.nDrawAllVisibleChunks(frameContext, indexBuffer);
+    return MetalNatives.nDrawAllVisibleChunks(frameContext, indexBuffer);
+  }
+  public static void nDispatchTerrain(long handle, int visibleRegions,
+      long indirectBufferAddr) {
+    if (HEADLESS)
+      HeadlessBridge.nDispatchTerrain(handle, visibleRegions,
+          indirectBufferAddr);
+    else
+      MeshShaderNative.dispatchTerrain(handle, visibleRegions,
+          indirectBufferAddr);
+  }
+  public static long nCreateMeshPipeline(long device, long library,
+      String objectFunc, String meshFunc, String fragmentFunc) {
+    if (HEADLESS)
+      return HeadlessBridge.nCreateMeshPipeline(device, library, objectFunc,
+          meshFunc, fragmentFunc);
+    return MeshShaderNative.createMeshPipeline(device, library, objectFunc,
+        meshFunc, fragmentFunc);
+  }
+  public static void nDrawMeshThreadgroups(long frameContext,
+      long pipelineHandle, int objectThreadgroups, int meshThreadsPerGroup,
+      long argumentBuffer) {
+    if (HEADLESS)
+      HeadlessBridge.nDrawMeshThreadgroups(frameContext, pipelineHandle,
+          objectThreadgroups, meshThreadsPerGroup, argumentBuffer);
+    else
+      MeshShaderNative.drawMeshThreadgroups(frameContext, pipelineHandle,
+          objectThreadgroups, meshThreadsPerGroup, argumentBuffer);
+  }
+  public static void nDestroyMeshPipeline(long pipelineHandle) {
+    if (HEADLESS)
+      HeadlessBridge.nDestroyMeshPipeline(pipelineHandle);
+    else
+      MeshShaderNative.destroyMeshPipeline(pipelineHandle);
+  }
+  public static void nUploadMeshletBuffer(long deviceHandle,
+      java.nio.ByteBuffer directBuffer, int count) {
+    if (HEADLESS)
+      HeadlessBridge.nUploadMeshletBuffer(deviceHandle, directBuffer, count);
+    else
+      MeshShaderNative.uploadMeshletBuffer(deviceHandle, directBuffer, count);
+  }
+  public static int nGetActivePipelineCount() {
+    if (HEADLESS)
+      return HeadlessBridge.nGetActivePipelineCount();
+    return MeshShaderNative.getActivePipelineCount();
+  }
+  public static long[] nCreateTerrainMeshPipelines(long libraryHandle) {
+    if (HEADLESS)
+      return HeadlessBridge.nCreateTerrainMeshPipelines(libraryHandle);
+    return MeshShaderNative.createTerrainMeshPipelines(libraryHandle);
+  }
 }
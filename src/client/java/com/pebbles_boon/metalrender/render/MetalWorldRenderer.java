@@ -1,6 +1,7 @@
 package com.pebbles_boon.metalrender.render;
 import com.pebbles_boon.metalrender.MetalRenderClient;
 import com.pebbles_boon.metalrender.backend.MetalRenderer;
+import com.pebbles_boon.metalrender.config.MetalRenderConfig;
 import com.pebbles_boon.metalrender.culling.FrustumCuller;
 import com.pebbles_boon.metalrender.entity.MetalEntityRenderer;
 import com.pebbles_boon.metalrender.nativebridge.MetalHardwareChecker;
@@ -8,13 +9,17 @@ import com.pebbles_boon.metalrender.nativebridge.NativeBridge;
 import com.pebbles_boon.metalrender.nativebridge.NativeMemory;
 import com.pebbles_boon.metalrender.particle.MetalParticleRenderer;
 import com.pebbles_boon.metalrender.render.chunk.CustomChunkMesher;
+import com.pebbles_boon.metalrender.render.chunk.FarFieldRenderer;
 import com.pebbles_boon.metalrender.render.chunk.MetalChunkContext;
+import com.pebbles_boon.metalrender.render.chunk.SectionBuildQueue;
+import com.pebbles_boon.metalrender.render.chunk.SectionRegistry;
 import com.pebbles_boon.metalrender.sodium.backend.MeshShaderBackend;
 import com.pebbles_boon.metalrender.util.MetalLogger;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import net.minecraft.client.MinecraftClient;
@@ -33,6 +38,7 @@ public class MetalWorldRenderer {
   private final MetalEntityRenderer entityRenderer;
   private final MetalParticleRenderer particleRenderer;
   private final CustomChunkMesher chunkMesher;
+  private final FarFieldRenderer farFieldRenderer;
   private final MetalTextureManager textureManager;
   private final IOSurfaceBlitter ioSurfaceBlitter;
   private final Matrix4f projectionMatrix;
@@ -40,6 +46,7 @@ public class MetalWorldRenderer {
   private boolean worldLoaded;
   private boolean renderingActive;
   private boolean texturesReady;
+  private boolean farFieldActive;
   private int frameCount;
   private int maxMeshes = 65536;
   private int maxDrawnChunksPerFrame = 65536;
@@ -71,6 +78,7 @@ public class MetalWorldRenderer {
     this.entityRenderer = new MetalEntityRenderer();
     this.particleRenderer = new MetalParticleRenderer();
     this.chunkMesher = new CustomChunkMesher();
+    this.farFieldRenderer = new FarFieldRenderer();
     MetalRenderer renderer = MetalRenderClient.getRenderer();
     long device = renderer != null ? renderer.getBackend().getDeviceHandle() : 0;
     this.textureManager = new MetalTextureManager(device);
@@ -93,6 +101,7 @@ public class MetalWorldRenderer {
         renderer.resize(w, h);
       }
       chunkMesher.initialize(renderer.getBackend().getDeviceHandle());
+      farFieldRenderer.initialize(renderer.getBackend().getDeviceHandle());
       entityRenderer.setDeviceAndPipeline(
           renderer.getBackend().getDeviceHandle(), 0);
       particleRenderer.setDeviceAndPipeline(
@@ -127,8 +136,18 @@ public class MetalWorldRenderer {
     textureManager.destroy();
     ioSurfaceBlitter.destroy();
     chunkMesher.clear();
+    farFieldRenderer.clear();
+    farFieldActive = false;
     pendingChunkRebuilds.clear();
     pendingSectionKeys.clear();
+    pendingBuilds.clear();
+    lastScanPlayerCX = Integer.MIN_VALUE;
+    lastScanPlayerCZ = Integer.MIN_VALUE;
+    lastScanRenderDist = -1;
+    lodColumns.clear();
+    lodCenterValid = false;
+    lodSweepActive = false;
+    pruneRange = -1;
     frameCount = 0;
     lastDrawnChunkCount = 0;
     if (meshShaderBackend != null) {
@@ -175,21 +194,36 @@ public class MetalWorldRenderer {
               ", meshCount=" + chunkMesher.getMeshCount());
     }
     Camera camera = client.gameRenderer.getCamera();
-    Vector3f camPos = new Vector3f((float) camera.getCameraPos().x,
-        (float) camera.getCameraPos().y,
-        (float) camera.getCameraPos().z);
     if (MetalRenderClient.getConfig().enableMetalRendering) {
+      double camX = camera.getCameraPos().x;
+      double camY = camera.getCameraPos().y;
+      double camZ = camera.getCameraPos().z;
+      chunkMesher.updateView(camX, camY, camZ,
+          client.options.getViewDistance().getValue() + 2,
+          (cx, cy, cz) -> {
+            float minX = (float) (cx * 16 - camX);
+            float minY = (float) (cy * 16 - camY);
+            float minZ = (float) (cz * 16 - camZ);
+            return frustumCuller.testBoundingBox(minX, minY, minZ,
+                minX + 16.0f, minY + 16.0f, minZ + 16.0f);
+          });
       long t0 = System.nanoTime();
-      boolean nearMeshLimit = chunkMesher.getMeshCount() >= maxMeshes - 500;
-      if (frameCount % 30 == 0 || (nearMeshLimit && !pendingBuildSet.isEmpty())) {
-        pruneFarMeshes(client, camPos);
-      }
+      pruneFarMeshes(client);
       long t1 = System.nanoTime();
       buildPendingChunkMeshes(client);
       long t2 = System.nanoTime();
       if (frameCount % 5 == 0) {
         rebuildLodMeshes(client);
       }
+      if (MetalRenderClient.getConfig().enableZone2Lod) {
+        farFieldActive = true;
+        farFieldRenderer.update(camX, camZ,
+            client.options.getViewDistance().getValue(),
+            MetalRenderClient.getConfig().zone2Radius, 1_000_000L);
+      } else if (farFieldActive) {
+        farFieldActive = false;
+        farFieldRenderer.clearTiles();
+      }
       long t3 = System.nanoTime();
       jPruneAcc += (t1 - t0);
       jBuildAcc += (t2 - t1);
@@ -200,12 +234,14 @@ public class MetalWorldRenderer {
         double buildMs = jBuildAcc / 1e6 / jProfCount;
         double lodMs = jLodAcc / 1e6 / jProfCount;
         MetalLogger.info("JAVA_PROFILE: prune=%.2fms build=%.2fms lod=%.2fms (avg/%d) pending=%d queued=%d meshes=%d",
-            pruneMs, buildMs, lodMs, jProfCount, pendingBuildSet.size(), chunkMesher.getPendingCount(),
+            pruneMs, buildMs, lodMs, jProfCount, pendingBuilds.size(), chunkMesher.getPendingCount(),
             chunkMesher.getMeshCount());
         jPruneAcc = 0;
         jBuildAcc = 0;
         jLodAcc = 0;
         jProfCount = 0;
+        if (MetalRenderClient.getConfig().enableZone2Lod)
+          MetalLogger.info("FAR_FIELD: %s", farFieldRenderer.getDebugStats());
       }
     }
   }
@@ -354,6 +390,8 @@ public class MetalWorldRenderer {
       renderBlockOutline(frameCtx);
     }
     renderer.endFrame();
+    chunkMesher.onFrameEnd();
+    farFieldRenderer.onFrameEnd();
     frameCount++;
   }
   private void renderBlockOutline(long frameCtx) {
@@ -434,9 +472,7 @@ public class MetalWorldRenderer {
     v[vi++] = p3x; v[vi++] = p3y; v[vi++] = p3z;
     return vi;
   }
-  private final java.util.LinkedHashSet<Long> pendingBuildSet = new java.util.LinkedHashSet<>();
-  private final java.util.ArrayList<Long> sortedBuildList = new java.util.ArrayList<>();
-  private boolean sortedListDirty = true;
+  private final SectionBuildQueue pendingBuilds = new SectionBuildQueue(4096);
   private float cachedForwardX = 0, cachedForwardZ = 1;
   private int lastScanPlayerCX = Integer.MIN_VALUE, lastScanPlayerCZ = Integer.MIN_VALUE;
   private int lastScanRenderDist = -1;
@@ -444,7 +480,7 @@ public class MetalWorldRenderer {
     return ((long) (cx & 0x3FFFFF) << 42) | ((long) (cy & 0xFFFFF) << 22) | (cz & 0x3FFFFF);
   }
   private void buildPendingChunkMeshes(MinecraftClient client) {
-    scanForPendingChunks(client);
+    updatePendingSections(client);
     if (client.player != null && chunkMesher.getMeshCount() < maxMeshes) {
       int playerChunkX = client.player.getChunkPos().x;
       int playerChunkZ = client.player.getChunkPos().z;
@@ -452,11 +488,11 @@ public class MetalWorldRenderer {
       cachedForwardX = (float) -Math.sin(Math.toRadians(yaw));
       cachedForwardZ = (float) Math.cos(Math.toRadians(yaw));
       buildFromPendingSet(playerChunkX, playerChunkZ, 0);
+      pendingBuilds.rebucket(4096);
     }
   }
-  private int scanFrameCounter = 0;
-  private int scanFrontierRing = 0;
-  private void scanForPendingChunks(MinecraftClient client) {
+  private long trackedColumnsQueued, trackedColumnsDropped, trackedRequests;
+  private void updatePendingSections(MinecraftClient client) {
     ClientWorld world = client.world;
     if (world == null)
       return;
@@ -465,75 +501,106 @@ public class MetalWorldRenderer {
     int renderDist = client.options.getViewDistance().getValue();
     int playerChunkX = client.player.getChunkPos().x;
     int playerChunkZ = client.player.getChunkPos().z;
-    boolean playerMovedChunk = (playerChunkX != lastScanPlayerCX ||
-        playerChunkZ != lastScanPlayerCZ);
-    boolean renderDistChanged = (renderDist != lastScanRenderDist);
-    if (playerMovedChunk || renderDistChanged) {
-      lastScanPlayerCX = playerChunkX;
-      lastScanPlayerCZ = playerChunkZ;
-      lastScanRenderDist = renderDist;
-      sortedListDirty = true;
-      if (renderDistChanged) {
-        pendingBuildSet.clear();
-        scanRingsInRange(world, playerChunkX, playerChunkZ, 0, renderDist);
-        scanFrontierRing = 0;
-        scanFrameCounter = 0;
-      } else {
-        int closeRange = Math.min(8, renderDist);
-        scanRingsInRange(world, playerChunkX, playerChunkZ, 0, closeRange);
-        scanFrontierRing = 0; 
-      }
+    if (renderDist != lastScanRenderDist) {
+      pendingBuilds.clear();
+      visitColumns(world, playerChunkX - renderDist, playerChunkZ - renderDist,
+          playerChunkX + renderDist, playerChunkZ + renderDist, 0, 0, -1, -1,
+          true);
+    } else if (playerChunkX != lastScanPlayerCX ||
+        playerChunkZ != lastScanPlayerCZ) {
+      visitColumns(world, lastScanPlayerCX - renderDist,
+          lastScanPlayerCZ - renderDist, lastScanPlayerCX + renderDist,
+          lastScanPlayerCZ + renderDist, playerChunkX - renderDist,
+          playerChunkZ - renderDist, playerChunkX + renderDist,
+          playerChunkZ + renderDist, false);
+      visitColumns(world, playerChunkX - renderDist, playerChunkZ - renderDist,
+          playerChunkX + renderDist, playerChunkZ + renderDist,
+          lastScanPlayerCX - renderDist, lastScanPlayerCZ - renderDist,
+          lastScanPlayerCX + renderDist, lastScanPlayerCZ + renderDist, true);
+    }
+    lastScanPlayerCX = playerChunkX;
+    lastScanPlayerCZ = playerChunkZ;
+    lastScanRenderDist = renderDist;
+    chunkMesher.drainSectionRequests(this::onSectionRequested);
+    logServerChunkAvailability(world, playerChunkX, playerChunkZ, renderDist);
+  }
+  private void visitColumns(ClientWorld world, int minX, int minZ, int maxX,
+      int maxZ, int exMinX, int exMinZ, int exMaxX, int exMaxZ,
+      boolean queue) {
+    for (int cz = minZ; cz <= maxZ; cz++) {
+      boolean rowExcluded = cz >= exMinZ && cz <= exMaxZ;
+      int leftEnd = rowExcluded ? Math.min(maxX, exMinX - 1) : maxX;
+      for (int cx = minX; cx <= leftEnd; cx++)
+        visitColumn(world, cx, cz, queue);
+      if (!rowExcluded)
+        continue;
+      for (int cx = Math.max(minX, exMaxX + 1); cx <= maxX; cx++)
+        visitColumn(world, cx, cz, queue);
     }
-    scanFrameCounter++;
-    if (scanFrameCounter >= 60) {
-      scanRingsInRange(world, playerChunkX, playerChunkZ, 0, renderDist);
-      scanFrameCounter = 0;
-      scanFrontierRing = 0;
-    } else {
-      int closeRange = Math.min(8, renderDist);
-      if (!playerMovedChunk) {
-        scanRingsInRange(world, playerChunkX, playerChunkZ, 0, closeRange);
-      }
-      int frontierStart = Math.max(closeRange + 1, scanFrontierRing);
-      int frontierEnd = Math.min(frontierStart + 8, renderDist);
-      if (frontierStart <= renderDist) {
-        scanRingsInRange(world, playerChunkX, playerChunkZ, frontierStart, frontierEnd);
-        scanFrontierRing = frontierEnd + 1;
-        if (scanFrontierRing > renderDist) {
-          scanFrontierRing = closeRange + 1;
-        }
+  }
+  private void visitColumn(ClientWorld world, int cx, int cz, boolean queue) {
+    if (queue) {
+      WorldChunk chunk = world.getChunkManager().getWorldChunk(cx, cz);
+      if (chunk != null) {
+        queueMissingSections(chunk, cx, cz);
+        trackedColumnsQueued++;
       }
+      return;
     }
-    logServerChunkAvailability(world, playerChunkX, playerChunkZ, renderDist);
+    int minSy = world.getBottomY() >> 4;
+    int maxSy = world.getTopYInclusive() >> 4;
+    for (int sy = minSy; sy <= maxSy; sy++)
+      pendingBuilds.remove(packChunkKey(cx, sy, cz));
+    trackedColumnsDropped++;
   }
-  private void scanRingsInRange(ClientWorld world, int playerChunkX, int playerChunkZ,
-      int startRing, int endRing) {
-    for (int ring = startRing; ring <= endRing; ring++) {
-      for (int dx = -ring; dx <= ring; dx++) {
-        for (int dz = -ring; dz <= ring; dz++) {
-          if (ring > 0 && Math.abs(dx) < ring && Math.abs(dz) < ring)
-            continue;
-          int cx = playerChunkX + dx;
-          int cz = playerChunkZ + dz;
-          WorldChunk chunk = world.getChunkManager().getWorldChunk(cx, cz);
-          if (chunk == null)
-            continue;
-          ChunkSection[] sections = chunk.getSectionArray();
-          for (int sy = 0; sy < sections.length; sy++) {
-            ChunkSection section = sections[sy];
-            if (section == null || section.isEmpty())
-              continue;
-            int worldY = chunk.sectionIndexToCoord(sy);
-            if (!chunkMesher.hasMesh(cx, worldY, cz)) {
-              if (pendingBuildSet.add(packChunkKey(cx, worldY, cz))) {
-                sortedListDirty = true;
-              }
-            }
-          }
-        }
+  private void queueMissingSections(WorldChunk chunk, int cx, int cz) {
+    ChunkSection[] sections = chunk.getSectionArray();
+    for (int sy = 0; sy < sections.length; sy++) {
+      ChunkSection section = sections[sy];
+      if (section == null || section.isEmpty())
+        continue;
+      int worldY = chunk.sectionIndexToCoord(sy);
+      if (!chunkMesher.hasMesh(cx, worldY, cz)) {
+        pendingBuilds.add(packChunkKey(cx, worldY, cz));
       }
     }
   }
+  private void onSectionRequested(long key) {
+    trackedRequests++;
+    int cx = unpackX(key), cy = unpackY(key), cz = unpackZ(key);
+    if (!isTrackedColumn(cx, cz))
+      return;
+    ClientWorld world = MinecraftClient.getInstance().world;
+    WorldChunk chunk = world != null
+        ? world.getChunkManager().getWorldChunk(cx, cz) : null;
+    if (chunk == null)
+      return;
+    int sectionIdx = cy - chunk.getBottomSectionCoord();
+    ChunkSection[] sections = chunk.getSectionArray();
+    if (sectionIdx < 0 || sectionIdx >= sections.length)
+      return;
+    ChunkSection section = sections[sectionIdx];
+    if (section == null || section.isEmpty() || chunkMesher.hasMesh(cx, cy, cz))
+      return;
+    pendingBuilds.add(key);
+  }
+  private boolean isTrackedColumn(int cx, int cz) {
+    return lastScanRenderDist >= 0 &&
+        Math.max(Math.abs(cx - lastScanPlayerCX),
+            Math.abs(cz - lastScanPlayerCZ)) <= lastScanRenderDist;
+  }
+  private static int unpackX(long key) {
+    int cx = (int) ((key >> 42) & 0x3FFFFF);
+    return (cx & 0x200000) != 0 ? cx | ~0x3FFFFF : cx;
+  }
+  private static int unpackY(long key) {
+    int cy = (int) ((key >> 22) & 0xFFFFF);
+    return (cy & 0x80000) != 0 ? cy | ~0xFFFFF : cy;
+  }
+  private static int unpackZ(long key) {
+    int cz = (int) (key & 0x3FFFFF);
+    return (cz & 0x200000) != 0 ? cz | ~0x3FFFFF : cz;
+  }
   private long lastChunkDiagMs = 0;
   private void logServerChunkAvailability(ClientWorld world, int playerChunkX, int playerChunkZ, int renderDist) {
     long now = System.currentTimeMillis();
@@ -558,8 +625,12 @@ public class MetalWorldRenderer {
       if (ringAvail > 0)
         maxRingAvail = ring;
     }
-    MetalLogger.info("CHUNK_AVAIL: server=%d/%d (max_ring=%d) meshes=%d pending=%d",
-        available, total, maxRingAvail, chunkMesher.getMeshCount(), pendingBuildSet.size());
+    MetalLogger.info("CHUNK_AVAIL: server=%d/%d (max_ring=%d) meshes=%d pending=%d | tracked: queuedCols=%d droppedCols=%d requests=%d",
+        available, total, maxRingAvail, chunkMesher.getMeshCount(), pendingBuilds.size(),
+        trackedColumnsQueued, trackedColumnsDropped, trackedRequests);
+    MetalLogger.info("BUILD_QUEUE: %s", pendingBuilds.getDebugStats());
+    MetalLogger.info("SECTION_REGISTRY: %s pruned: columns=%d sections=%d",
+        chunkMesher.getRegistry().getDebugStats(), prunedColumns, prunedSections);
   }
   public int buildMeshesDuringWait(long metalHandle) {
     MinecraftClient client = MinecraftClient.getInstance();
@@ -583,115 +654,152 @@ public class MetalWorldRenderer {
     return totalBuilt;
   }
   private int buildFromPendingSet(int playerChunkX, int playerChunkZ, long budgetNanos) {
-    if (pendingBuildSet.isEmpty())
+    if (pendingBuilds.isEmpty())
       return 0;
-    if (sortedListDirty) {
-      sortedBuildList.clear();
-      sortedBuildList.addAll(pendingBuildSet);
-      final int pcx = playerChunkX;
-      final int pcz = playerChunkZ;
-      final float fwdX = cachedForwardX;
-      final float fwdZ = cachedForwardZ;
-      sortedBuildList.sort((a, b) -> {
-        int ax = (int) ((a >> 42) & 0x3FFFFF);
-        if ((ax & 0x200000) != 0)
-          ax |= ~0x3FFFFF;
-        int az = (int) (a & 0x3FFFFF);
-        if ((az & 0x200000) != 0)
-          az |= ~0x3FFFFF;
-        int bx = (int) ((b >> 42) & 0x3FFFFF);
-        if ((bx & 0x200000) != 0)
-          bx |= ~0x3FFFFF;
-        int bz = (int) (b & 0x3FFFFF);
-        if ((bz & 0x200000) != 0)
-          bz |= ~0x3FFFFF;
-        float dotA = (ax - pcx) * fwdX + (az - pcz) * fwdZ;
-        float dotB = (bx - pcx) * fwdX + (bz - pcz) * fwdZ;
-        boolean frontA = dotA >= 0;
-        boolean frontB = dotB >= 0;
-        if (frontA != frontB)
-          return frontA ? -1 : 1;
-        int distA = Math.abs(ax - pcx) + Math.abs(az - pcz);
-        int distB = Math.abs(bx - pcx) + Math.abs(bz - pcz);
-        return Integer.compare(distA, distB);
-      });
-      sortedListDirty = false;
-    }
+    pendingBuilds.setView(playerChunkX, playerChunkZ, cachedForwardX,
+        cachedForwardZ);
     long deadline = budgetNanos > 0 ? System.nanoTime() + budgetNanos : Long.MAX_VALUE;
     int maxSubmit = 500;
     int built = 0;
-    int i = 0;
-    while (i < sortedBuildList.size() && built < maxSubmit && chunkMesher.getMeshCount() < maxMeshes) {
+    while (!pendingBuilds.isEmpty() && built < maxSubmit && chunkMesher.getMeshCount() < maxMeshes) {
       if (budgetNanos > 0 && built > 0 && System.nanoTime() >= deadline)
         break;
-      long key = sortedBuildList.get(i);
-      int cx = (int) ((key >> 42) & 0x3FFFFF);
-      if ((cx & 0x200000) != 0)
-        cx |= ~0x3FFFFF;
-      int cy = (int) ((key >> 22) & 0xFFFFF);
-      if ((cy & 0x80000) != 0)
-        cy |= ~0xFFFFF;
-      int cz = (int) (key & 0x3FFFFF);
-      if ((cz & 0x200000) != 0)
-        cz |= ~0x3FFFFF;
-      if (chunkMesher.hasMesh(cx, cy, cz)) {
-        sortedBuildList.remove(i);
-        pendingBuildSet.remove(key);
+      long key = pendingBuilds.poll();
+      int cx = unpackX(key);
+      int cy = unpackY(key);
+      int cz = unpackZ(key);
+      if (chunkMesher.hasMesh(cx, cy, cz))
         continue;
-      }
       int chunkDist = Math.max(Math.abs(cx - playerChunkX), Math.abs(cz - playerChunkZ));
-      int lodLevel = com.pebbles_boon.metalrender.config.MetalRenderConfig.getLodLevel(chunkDist);
+      int lodLevel = MetalRenderConfig.getLodLevel(chunkDist);
       chunkMesher.buildMeshFromWorld(cx, cy, cz, lodLevel);
-      sortedBuildList.remove(i);
-      pendingBuildSet.remove(key);
       built++;
     }
     return built;
   }
-  private int lodScanOffset = 0;
+  private static final int LOD_MAX_RING_DELTA = 8;
+  private final Set<Long> lodColumns = new LinkedHashSet<>();
+  private boolean lodCenterValid;
+  private int lodCenterX, lodCenterZ;
+  private long lodConfigStamp;
+  private boolean lodSweepActive;
+  private int lodSweepCursor;
+  private int lodPlayerChunkX, lodPlayerChunkZ;
+  private int lodRebuilt, lodScanned, lodRingColumns;
+  private long lodDeadline;
+  private final SectionRegistry.Visitor lodSweepVisitor = this::visitLodSweep;
+  private final SectionRegistry.Visitor lodColumnVisitor = this::visitLodColumn;
   private void rebuildLodMeshes(MinecraftClient client) {
     if (client.player == null || client.world == null)
       return;
     int playerChunkX = client.player.getChunkPos().x;
     int playerChunkZ = client.player.getChunkPos().z;
-    int rebuilt = 0;
-    long deadline = System.nanoTime() + 2_000_000L; 
-    int maxScansPerPass = 2048; 
-    int scanned = 0;
-    var allMeshes = chunkMesher.getAllMeshes();
-    if (allMeshes.isEmpty())
-      return;
-    var iter = allMeshes.iterator();
-    int skip = lodScanOffset;
-    while (skip > 0 && iter.hasNext()) {
-      iter.next();
-      skip--;
-    }
-    while (iter.hasNext() && scanned < maxScansPerPass) {
-      if (rebuilt > 0 && System.nanoTime() >= deadline)
-        break;
-      CustomChunkMesher.ChunkMeshData mesh = iter.next();
-      scanned++;
-      int dx = mesh.chunkX - playerChunkX;
-      int dz = mesh.chunkZ - playerChunkZ;
-      int chunkDist = Math.max(Math.abs(dx), Math.abs(dz));
-      int desiredLod = com.pebbles_boon.metalrender.config.MetalRenderConfig
-          .getLodLevel(chunkDist);
-      if (chunkMesher.needsLodRebuild(mesh.chunkX, mesh.chunkY, mesh.chunkZ,
-          desiredLod)) {
-        chunkMesher.buildMeshFromWorld(mesh.chunkX, mesh.chunkY, mesh.chunkZ,
-            desiredLod);
-        rebuilt++;
+    long stamp = lodConfigStamp();
+    int moved = Math.max(Math.abs(playerChunkX - lodCenterX),
+        Math.abs(playerChunkZ - lodCenterZ));
+    if (!lodCenterValid || stamp != lodConfigStamp ||
+        moved > LOD_MAX_RING_DELTA) {
+      lodSweepActive = true;
+      lodSweepCursor = 0;
+      lodColumns.clear();
+    } else if (moved > 0 && MetalRenderConfig.lodEnabled()) {
+      queueLodRingDelta(lodCenterX, lodCenterZ, playerChunkX, playerChunkZ,
+          client.options.getViewDistance().getValue() + 2);
+    }
+    lodCenterValid = true;
+    lodCenterX = playerChunkX;
+    lodCenterZ = playerChunkZ;
+    lodConfigStamp = stamp;
+    chunkMesher.drainPublishedColumns(lodColumns::add);
+    SectionRegistry registry = chunkMesher.getRegistry();
+    lodPlayerChunkX = playerChunkX;
+    lodPlayerChunkZ = playerChunkZ;
+    lodRebuilt = 0;
+    lodScanned = 0;
+    lodDeadline = System.nanoTime() + 2_000_000L; 
+    if (lodSweepActive) {
+      lodSweepCursor = registry.scan(lodSweepCursor, 2048, lodSweepVisitor);
+      lodSweepActive = lodSweepCursor != 0;
+    }
+    var iter = lodColumns.iterator();
+    while (iter.hasNext() &&
+        (lodRebuilt == 0 || System.nanoTime() < lodDeadline)) {
+      long column = iter.next();
+      iter.remove();
+      int cx = (int) (column >> 32);
+      int cz = (int) column;
+      if (!isInPruneRange(cx, cz) ||
+          client.world.getChunkManager().getWorldChunk(cx, cz) == null) {
+        evictColumn(cx, cz);
+        continue;
+      }
+      registry.scanColumn(cx, cz, lodColumnVisitor);
+    }
+    if (lodRebuilt > 0 && frameCount % 60 == 0) {
+      MetalLogger.info("[LOD_REBUILD] Rebuilt %d meshes (scanned %d, sweep %s, ring columns %d, backlog %d)",
+          lodRebuilt, lodScanned, lodSweepActive ? "active" : "idle",
+          lodRingColumns, lodColumns.size());
+    }
+  }
+  private void queueLodRingDelta(int oldX, int oldZ, int newX, int newZ,
+      int maxRing) {
+    int moved = Math.max(Math.abs(newX - oldX), Math.abs(newZ - oldZ));
+    lodRingColumns = 0;
+    for (int level = 1; level <= 4; level++) {
+      int distance = MetalRenderConfig.lodDistance(level);
+      int margin = MetalRenderConfig.lodMargin(level);
+      queueLodThreshold(distance - margin, moved, oldX, oldZ, newX, newZ,
+          maxRing);
+      if (margin > 0)
+        queueLodThreshold(distance + margin, moved, oldX, oldZ, newX, newZ,
+            maxRing);
+    }
+  }
+  private void queueLodThreshold(int threshold, int moved, int oldX, int oldZ,
+      int newX, int newZ, int maxRing) {
+    int last = Math.min(threshold + moved - 1, maxRing);
+    for (int r = Math.max(0, threshold - moved); r <= last; r++) {
+      for (int i = -r; i <= r; i++) {
+        queueLodCrossing(newX + i, newZ - r, r, threshold, oldX, oldZ);
+        queueLodCrossing(newX + i, newZ + r, r, threshold, oldX, oldZ);
+      }
+      for (int j = 1 - r; j < r; j++) {
+        queueLodCrossing(newX - r, newZ + j, r, threshold, oldX, oldZ);
+        queueLodCrossing(newX + r, newZ + j, r, threshold, oldX, oldZ);
       }
     }
-    lodScanOffset += scanned;
-    if (!iter.hasNext() || lodScanOffset >= allMeshes.size()) {
-      lodScanOffset = 0;
-    }
-    if (rebuilt > 0 && frameCount % 60 == 0) {
-      MetalLogger.info("[LOD_REBUILD] Rebuilt %d meshes (scanned %d, offset %d)",
-          rebuilt, scanned, lodScanOffset);
+  }
+  private void queueLodCrossing(int cx, int cz, int ring, int threshold,
+      int oldX, int oldZ) {
+    int oldRing = Math.max(Math.abs(cx - oldX), Math.abs(cz - oldZ));
+    if ((ring >= threshold) == (oldRing >= threshold))
+      return;
+    if (lodColumns.add(((long) cx << 32) | (cz & 0xFFFFFFFFL)))
+      lodRingColumns++;
+  }
+  private static long lodConfigStamp() {
+    long stamp = MetalRenderConfig.lodEnabled() ? 1 : 0;
+    for (int level = 1; level <= 4; level++)
+      stamp = stamp * 31 + MetalRenderConfig.lodDistance(level);
+    return stamp * 31 + MetalRenderConfig.lodHysteresis();
+  }
+  private boolean visitLodSweep(long key, int chunkX, int chunkY, int chunkZ,
+      int lodLevel) {
+    if (lodRebuilt > 0 && System.nanoTime() >= lodDeadline)
+      return false;
+    return visitLodColumn(key, chunkX, chunkY, chunkZ, lodLevel);
+  }
+  private boolean visitLodColumn(long key, int chunkX, int chunkY, int chunkZ,
+      int lodLevel) {
+    lodScanned++;
+    int chunkDist = Math.max(Math.abs(chunkX - lodPlayerChunkX),
+        Math.abs(chunkZ - lodPlayerChunkZ));
+    int desiredLod = MetalRenderConfig.getLodLevel(chunkDist, lodLevel);
+    if (chunkMesher.needsLodRebuild(chunkX, chunkY, chunkZ, desiredLod)) {
+      chunkMesher.buildMeshFromWorld(chunkX, chunkY, chunkZ, desiredLod);
+      lodRebuilt++;
     }
+    return true;
   }
   public int getGLTextureForCompositing() {
     MetalRenderer renderer = MetalRenderClient.getRenderer();
@@ -732,22 +840,42 @@ public class MetalWorldRenderer {
   public int getFrameCount() {
     return frameCount;
   }
-  private void pruneFarMeshes(MinecraftClient client,
-      org.joml.Vector3f camPos) {
+  private int pruneCenterX, pruneCenterZ;
+  private int pruneRange = -1;
+  private long prunedColumns, prunedSections;
+  private void pruneFarMeshes(MinecraftClient client) {
     if (client.player == null)
       return;
-    int renderDist = client.options.getViewDistance().getValue();
-    float maxDist = (renderDist + 2) * 16.0f;
-    float maxDistSq = maxDist * maxDist;
-    var iter = chunkMesher.getAllMeshes().iterator();
-    while (iter.hasNext()) {
-      CustomChunkMesher.ChunkMeshData mesh = iter.next();
-      float dx = mesh.chunkX * 16.0f + 8.0f - camPos.x;
-      float dz = mesh.chunkZ * 16.0f + 8.0f - camPos.z;
-      if (dx * dx + dz * dz > maxDistSq) {
-        chunkMesher.removeMesh(mesh.chunkX, mesh.chunkY, mesh.chunkZ);
+    int range = client.options.getViewDistance().getValue() + 2;
+    int playerChunkX = client.player.getChunkPos().x;
+    int playerChunkZ = client.player.getChunkPos().z;
+    if (pruneRange >= 0 && (playerChunkX != pruneCenterX ||
+        playerChunkZ != pruneCenterZ || range != pruneRange)) {
+      for (int cz = pruneCenterZ - pruneRange; cz <= pruneCenterZ + pruneRange; cz++) {
+        boolean rowKept = Math.abs(cz - playerChunkZ) <= range;
+        for (int cx = pruneCenterX - pruneRange; cx <= pruneCenterX + pruneRange; cx++) {
+          if (rowKept && Math.abs(cx - playerChunkX) <= range) {
+            cx = playerChunkX + range;
+            continue;
+          }
+          evictColumn(cx, cz);
+        }
       }
     }
+    pruneCenterX = playerChunkX;
+    pruneCenterZ = playerChunkZ;
+    pruneRange = range;
+  }
+  private boolean isInPruneRange(int cx, int cz) {
+    return pruneRange < 0 || Math.max(Math.abs(cx - pruneCenterX),
+        Math.abs(cz - pruneCenterZ)) <= pruneRange;
+  }
+  private void evictColumn(int cx, int cz) {
+    int removed = chunkMesher.removeColumn(cx, cz);
+    if (removed > 0) {
+      prunedColumns++;
+      prunedSections += removed;
+    }
   }
   public static boolean shouldBlitAt(String timingPoint) {
     return "flip_head".equals(timingPoint);
@@ -803,25 +931,30 @@ public class MetalWorldRenderer {
   public void onChunkLoaded(int chunkX, int chunkZ, net.minecraft.world.chunk.WorldChunk chunk) {
     if (!worldLoaded || !renderingActive)
       return;
+    if (MetalRenderClient.getConfig().enableZone2Lod)
+      farFieldRenderer.onChunkLoaded(chunk);
+    chunkMesher.invalidateBiomeColumn(chunkX, chunkZ);
+    boolean tracked = isTrackedColumn(chunkX, chunkZ);
     net.minecraft.world.chunk.ChunkSection[] sections = chunk.getSectionArray();
     for (int sy = 0; sy < sections.length; sy++) {
       net.minecraft.world.chunk.ChunkSection section = sections[sy];
       if (section == null || section.isEmpty())
         continue;
       int worldY = chunk.sectionIndexToCoord(sy);
-      if (!chunkMesher.hasMesh(chunkX, worldY, chunkZ)) {
-        if (pendingBuildSet.add(packChunkKey(chunkX, worldY, chunkZ))) {
-          sortedListDirty = true;
-        }
+      if (tracked && !chunkMesher.hasMesh(chunkX, worldY, chunkZ)) {
+        pendingBuilds.add(packChunkKey(chunkX, worldY, chunkZ));
       }
-      chunkMesher.markDirty(chunkX - 1, worldY, chunkZ);
-      chunkMesher.markDirty(chunkX + 1, worldY, chunkZ);
-      chunkMesher.markDirty(chunkX, worldY - 1, chunkZ);
-      chunkMesher.markDirty(chunkX, worldY + 1, chunkZ);
-      chunkMesher.markDirty(chunkX, worldY, chunkZ - 1);
-      chunkMesher.markDirty(chunkX, worldY, chunkZ + 1);
+      chunkMesher.onSectionLoaded(chunkX, worldY, chunkZ, section);
     }
   }
+  public void onChunkUnloaded(int chunkX, int chunkZ) {
+    if (!worldLoaded || !renderingActive)
+      return;
+    ClientWorld world = MinecraftClient.getInstance().world;
+    if (world != null)
+      visitColumn(world, chunkX, chunkZ, false);
+    evictColumn(chunkX, chunkZ);
+  }
   public void scheduleSectionRebuild(int blockX, int blockY, int blockZ) {
     if (!worldLoaded || !renderingActive) {
       return;
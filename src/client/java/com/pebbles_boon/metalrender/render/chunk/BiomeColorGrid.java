@@ -0,0 +1,143 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import net.minecraft.client.color.world.BiomeColors;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.registry.entry.RegistryEntry;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.biome.ColorResolver;
+final class BiomeColorGrid {
+  static final int TINTS = 3;
+  private static final int CELLS = 4;
+  private static final int SIDE = CELLS + 2;
+  private static final int LAYER = SIDE * SIDE;
+  private static final ColorResolver[] RESOLVERS = { BiomeColors.GRASS_COLOR,
+      BiomeColors.FOLIAGE_COLOR, BiomeColors.WATER_COLOR };
+  private static final int[] FALLBACK = { 0x7CBE3F, 0x4BA836, 0x3F76E4 };
+  final int chunkX;
+  final int chunkZ;
+  final int radius;
+  final long hash;
+  private final int minCellY;
+  private final int[][] layers;
+  private final int distinctLayers;
+  private BiomeColorGrid(int chunkX, int chunkZ, int radius, int minCellY,
+      int[][] layers, int distinctLayers, long hash) {
+    this.chunkX = chunkX;
+    this.chunkZ = chunkZ;
+    this.radius = radius;
+    this.minCellY = minCellY;
+    this.layers = layers;
+    this.distinctLayers = distinctLayers;
+    this.hash = hash;
+  }
+  static BiomeColorGrid sample(ClientWorld world, int chunkX, int chunkZ,
+      int radius) {
+    int minCellY = world.getBottomY() >> 2;
+    int cellsY = Math.max(1, (world.getTopYInclusive() >> 2) - minCellY + 1);
+    int window = SIDE + 2 * radius;
+    int originX = chunkX * CELLS - 1 - radius;
+    int originZ = chunkZ * CELLS - 1 - radius;
+    Biome[] biomes = new Biome[window * window];
+    Biome[] previous = new Biome[window * window];
+    int[] raw = new int[window * window];
+    int[] rowSums = new int[window * SIDE * 3];
+    int[][] layers = new int[cellsY][];
+    int distinct = 0;
+    long h = ContentHash.mix(ContentHash.SEED, radius);
+    for (int ly = 0; ly < cellsY; ly++) {
+      boolean same = ly > 0;
+      for (int j = 0; j < window; j++) {
+        for (int i = 0; i < window; i++) {
+          int w = j * window + i;
+          RegistryEntry<Biome> entry = world.getBiomeForNoiseGen(originX + i,
+              minCellY + ly, originZ + j);
+          biomes[w] = entry != null ? entry.value() : null;
+          same &= biomes[w] == previous[w];
+        }
+      }
+      if (same) {
+        layers[ly] = layers[ly - 1];
+        continue;
+      }
+      int[] layer = new int[TINTS * LAYER];
+      for (int t = 0; t < TINTS; t++) {
+        for (int w = 0; w < raw.length; w++) {
+          Biome biome = biomes[w];
+          raw[w] = biome != null
+              ? RESOLVERS[t].getColor(biome,
+                  ((originX + w % window) << 2) + 2,
+                  ((originZ + w / window) << 2) + 2)
+              : FALLBACK[t];
+        }
+        blur(raw, window, radius, rowSums, layer, t * LAYER);
+      }
+      layers[ly] = layer;
+      h = ContentHash.ints(ContentHash.mix(h, ly), layer, layer.length);
+      distinct++;
+      Biome[] swap = previous;
+      previous = biomes;
+      biomes = swap;
+    }
+    return new BiomeColorGrid(chunkX, chunkZ, radius, minCellY, layers,
+        distinct, ContentHash.finish(h));
+  }
+  private static void blur(int[] raw, int window, int radius, int[] rowSums,
+      int[] out, int outOffset) {
+    int span = 2 * radius + 1;
+    int area = span * span;
+    for (int j = 0; j < window; j++) {
+      for (int i = 0; i < SIDE; i++) {
+        int r = 0, g = 0, b = 0;
+        for (int k = 0; k < span; k++) {
+          int c = raw[j * window + i + k];
+          r += (c >> 16) & 0xFF;
+          g += (c >> 8) & 0xFF;
+          b += c & 0xFF;
+        }
+        int s = (j * SIDE + i) * 3;
+        rowSums[s] = r;
+        rowSums[s + 1] = g;
+        rowSums[s + 2] = b;
+      }
+    }
+    for (int j = 0; j < SIDE; j++) {
+      for (int i = 0; i < SIDE; i++) {
+        int r = 0, g = 0, b = 0;
+        for (int k = 0; k < span; k++) {
+          int s = ((j + k) * SIDE + i) * 3;
+          r += rowSums[s];
+          g += rowSums[s + 1];
+          b += rowSums[s + 2];
+        }
+        out[outOffset + j * SIDE + i] = ((r + area / 2) / area) << 16 |
+            ((g + area / 2) / area) << 8 | (b + area / 2) / area;
+      }
+    }
+  }
+  int color(int tintType, int x, int y, int z) {
+    int ly = Math.max(0, Math.min(layers.length - 1, (y >> 2) - minCellY));
+    int[] layer = layers[ly];
+    int base = (tintType - 1) * LAYER;
+    int fx = 2 * x + 5, fz = 2 * z + 5;
+    int i = fx >> 3, j = fz >> 3;
+    int wx = fx & 7, wz = fz & 7;
+    int p = base + j * SIDE + i;
+    int c00 = layer[p], c10 = layer[p + 1];
+    int c01 = layer[p + SIDE], c11 = layer[p + SIDE + 1];
+    if (c00 == c10 && c00 == c01 && c00 == c11)
+      return c00;
+    return (lerp(c00, c10, c01, c11, wx, wz, 16) << 16) |
+        (lerp(c00, c10, c01, c11, wx, wz, 8) << 8) |
+        lerp(c00, c10, c01, c11, wx, wz, 0);
+  }
+  private static int lerp(int c00, int c10, int c01, int c11, int wx, int wz,
+      int shift) {
+    int a = (c00 >> shift) & 0xFF, b = (c10 >> shift) & 0xFF;
+    int c = (c01 >> shift) & 0xFF, d = (c11 >> shift) & 0xFF;
+    int top = a * (8 - wx) + b * wx;
+    int bottom = c * (8 - wx) + d * wx;
+    return (top * (8 - wz) + bottom * wz + 32) >> 6;
+  }
+  int getDistinctLayers() {
+    return distinctLayers;
+  }
+}
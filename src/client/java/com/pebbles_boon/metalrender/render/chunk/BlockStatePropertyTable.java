@@ -0,0 +1,266 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import com.pebbles_boon.metalrender.util.MetalLogger;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.IntStream;
+import net.fabricmc.fabric.api.resource.ResourceManagerHelper;
+import net.fabricmc.fabric.api.resource.ResourceReloadListenerKeys;
+import net.fabricmc.fabric.api.resource.SimpleSynchronousResourceReloadListener;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.render.block.BlockModels;
+import net.minecraft.client.render.model.BakedQuad;
+import net.minecraft.client.render.model.BlockModelPart;
+import net.minecraft.client.render.model.BlockStateModel;
+import net.minecraft.client.texture.Sprite;
+import net.minecraft.resource.ResourceManager;
+import net.minecraft.resource.ResourceType;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.Direction;
+import net.minecraft.util.math.random.Random;
+public final class BlockStatePropertyTable {
+  static final byte F_AIR = 0x01;
+  static final byte F_LEAF = 0x02;
+  static final byte F_WATER = 0x04;
+  static final byte F_LAVA = 0x08;
+  static final byte F_FLUID = 0x10;
+  static final byte F_OPAQUE_FULL = 0x20;
+  static final byte F_FAST_WATER = 0x40;
+  static final byte F_FAST_DRAW = (byte) 0x80;
+  static final byte FACE_SPRITE = 0x01;
+  static final byte FACE_TINT = 0x02;
+  private static final Direction[] DIRECTIONS = Direction.values();
+  private static final Object BUILD_LOCK = new Object();
+  private static volatile BlockStatePropertyTable current;
+  final int size;
+  final boolean hasModels;
+  final List<String> resourcePacks;
+  final byte[] flags;
+  final byte[] opacity;
+  final byte[] lodMask;
+  final byte[] tintType;
+  final int[] blockColor;
+  final BlockStateModel[] models;
+  final QuadTemplate[] templates;
+  final short[] faceUMin;
+  final short[] faceUMax;
+  final short[] faceVMin;
+  final short[] faceVMax;
+  final byte[] faceFlags;
+  final boolean[] fastWater;
+  final boolean[] watery;
+  private final boolean[] occludersSolidLeaves;
+  private final boolean[] occludersClearLeaves;
+  BlockStatePropertyTable(int size, boolean hasModels,
+      List<String> resourcePacks) {
+    this.size = size;
+    this.hasModels = hasModels;
+    this.resourcePacks = resourcePacks;
+    this.flags = new byte[size];
+    this.opacity = new byte[size];
+    this.lodMask = new byte[size];
+    this.tintType = new byte[size];
+    this.blockColor = new int[size];
+    this.models = new BlockStateModel[size];
+    this.templates = new QuadTemplate[size];
+    this.faceUMin = new short[size * 6];
+    this.faceUMax = new short[size * 6];
+    this.faceVMin = new short[size * 6];
+    this.faceVMax = new short[size * 6];
+    this.faceFlags = new byte[size * 6];
+    this.fastWater = new boolean[size];
+    this.watery = new boolean[size];
+    this.occludersSolidLeaves = new boolean[size];
+    this.occludersClearLeaves = new boolean[size];
+  }
+  public static BlockStatePropertyTable get() {
+    BlockStatePropertyTable table = current;
+    if (table != null && table.size == Block.STATE_IDS.size() &&
+        (table.hasModels || currentModels() == null))
+      return table;
+    synchronized (BUILD_LOCK) {
+      table = current;
+      if (table == null || table.size != Block.STATE_IDS.size() ||
+          (!table.hasModels && currentModels() != null)) {
+        table = build();
+        current = table;
+      }
+      return table;
+    }
+  }
+  public static void rebuild() {
+    synchronized (BUILD_LOCK) {
+      current = build();
+    }
+  }
+  static BlockStatePropertyTable detached() {
+    BlockStatePropertyTable table = build();
+    if (table.hasModels)
+      return table;
+    for (int sid = 1; sid < table.size; sid++) {
+      byte f = table.flags[sid];
+      if ((f & (F_OPAQUE_FULL | F_LEAF)) != 0 && (f & F_FLUID) == 0)
+        table.templates[sid] = QuadTemplate.unitCube(
+            table.tintType[sid] != CustomChunkMesher.TINT_NONE);
+    }
+    return table;
+  }
+  public static void registerReloadListener() {
+    ResourceManagerHelper.get(ResourceType.CLIENT_RESOURCES)
+        .registerReloadListener(new SimpleSynchronousResourceReloadListener() {
+          @Override
+          public Identifier getFabricId() {
+            return Identifier.of("metalrender", "block_state_properties");
+          }
+          @Override
+          public Collection<Identifier> getFabricDependencies() {
+            return List.of(ResourceReloadListenerKeys.MODELS);
+          }
+          @Override
+          public void reload(ResourceManager manager) {
+            rebuild();
+          }
+        });
+  }
+  private static BlockModels currentModels() {
+    MinecraftClient mc = MinecraftClient.getInstance();
+    if (mc == null || mc.getBlockRenderManager() == null)
+      return null;
+    return mc.getBlockRenderManager().getModels();
+  }
+  private static List<String> currentResourcePacks() {
+    MinecraftClient mc = MinecraftClient.getInstance();
+    if (mc == null || mc.getResourcePackManager() == null)
+      return List.of();
+    return List.copyOf(mc.getResourcePackManager().getEnabledIds());
+  }
+  private static BlockStatePropertyTable build() {
+    long start = System.nanoTime();
+    BlockModels blockModels = currentModels();
+    int size = Block.STATE_IDS.size();
+    BlockStatePropertyTable table = new BlockStatePropertyTable(size, blockModels != null,
+        currentResourcePacks());
+    BlockState waterState = Blocks.WATER.getDefaultState();
+    IntStream.range(1, size).parallel().forEach(
+        sid -> table.fill(sid, blockModels, waterState));
+    table.flags[0] = F_AIR;
+    table.opacity[0] = CustomChunkMesher.OPACITY_TRANSPARENT;
+    int templated = 0;
+    for (QuadTemplate t : table.templates) {
+      if (t != null)
+        templated++;
+    }
+    MetalLogger.info("BlockStatePropertyTable: %d states (%d templated) in %.1fms (models=%s)",
+        size, templated, (System.nanoTime() - start) / 1e6, blockModels != null);
+    return table;
+  }
+  private void fill(int sid, BlockModels blockModels, BlockState waterState) {
+    BlockState bs = Block.getStateFromRawId(sid);
+    if (bs == null || bs.isAir()) {
+      flags[sid] = F_AIR;
+      opacity[sid] = CustomChunkMesher.OPACITY_TRANSPARENT;
+      return;
+    }
+    Block blk = bs.getBlock();
+    boolean isWater = blk == Blocks.WATER;
+    boolean isLava = blk == Blocks.LAVA;
+    boolean isLeaf = CustomChunkMesher.isLeafBlock(blk);
+    boolean hasFluid = !bs.getFluidState().isEmpty();
+    boolean opaqueFull = bs.isOpaqueFullCube();
+    boolean fastWater = isWater ||
+        (!opaqueFull && !isWater && !isLava && !isLeaf && hasFluid);
+    byte f = 0;
+    if (isLeaf)
+      f |= F_LEAF;
+    if (isWater)
+      f |= F_WATER;
+    if (isLava)
+      f |= F_LAVA;
+    if (hasFluid)
+      f |= F_FLUID;
+    if (opaqueFull)
+      f |= F_OPAQUE_FULL;
+    if (fastWater)
+      f |= F_FAST_WATER;
+    if (opaqueFull || isLeaf || isWater || isLava || fastWater)
+      f |= F_FAST_DRAW;
+    flags[sid] = f;
+    this.fastWater[sid] = fastWater;
+    watery[sid] = isWater || (hasFluid && !isLava);
+    byte op = CustomChunkMesher.computeOpacityFlag(sid);
+    opacity[sid] = op;
+    occludersSolidLeaves[sid] = op == CustomChunkMesher.OPACITY_OPAQUE ||
+        op == CustomChunkMesher.OPACITY_LEAF;
+    occludersClearLeaves[sid] = op == CustomChunkMesher.OPACITY_OPAQUE;
+    byte mask = 0;
+    for (int lod = 0; lod < 8; lod++) {
+      if (CustomChunkMesher.shouldRenderAtLod(bs, lod))
+        mask |= (byte) (1 << lod);
+    }
+    lodMask[sid] = mask;
+    tintType[sid] = CustomChunkMesher.getBiomeTintType(blk);
+    blockColor[sid] = CustomChunkMesher.getBlockColor(bs);
+    if (blockModels == null)
+      return;
+    try {
+      models[sid] = blockModels.getModel(bs);
+      templates[sid] = QuadTemplate.build(models[sid]);
+      BlockStateModel uvModel = (fastWater && !isWater)
+          ? blockModels.getModel(waterState)
+          : models[sid];
+      if (uvModel == null)
+        return;
+      Random rand = Random.create(42L);
+      List<BlockModelPart> parts = uvModel.getParts(rand);
+      Sprite fallbackSpr = uvModel.particleSprite();
+      boolean isFluid = isWater || isLava;
+      for (int d = 0; d < 6; d++) {
+        int uvIdx = sid * 6 + d;
+        boolean found = false;
+        for (BlockModelPart part : parts) {
+          List<BakedQuad> quads = part.getQuads(DIRECTIONS[d]);
+          if (quads != null && !quads.isEmpty()) {
+            BakedQuad q = quads.get(0);
+            float minU = Float.MAX_VALUE, maxU = -Float.MAX_VALUE;
+            float minV = Float.MAX_VALUE, maxV = -Float.MAX_VALUE;
+            for (int vi = 0; vi < 4; vi++) {
+              long packedUV = q.getTexcoords(vi);
+              float u = Float.intBitsToFloat((int) (packedUV >> 32));
+              float v = Float.intBitsToFloat((int) packedUV);
+              minU = Math.min(minU, u);
+              maxU = Math.max(maxU, u);
+              minV = Math.min(minV, v);
+              maxV = Math.max(maxV, v);
+            }
+            faceFlags[uvIdx] = (byte) (FACE_SPRITE | (q.hasTint() ? FACE_TINT : 0));
+            faceUMin[uvIdx] = (short) (minU * 65535.0f);
+            faceUMax[uvIdx] = (short) (maxU * 65535.0f);
+            faceVMin[uvIdx] = (short) (minV * 65535.0f);
+            faceVMax[uvIdx] = (short) (maxV * 65535.0f);
+            found = true;
+            break;
+          }
+        }
+        if (!found && fallbackSpr != null) {
+          faceFlags[uvIdx] = (byte) (FACE_SPRITE | (isFluid ? FACE_TINT : 0));
+          faceUMin[uvIdx] = (short) (fallbackSpr.getMinU() * 65535.0f);
+          faceUMax[uvIdx] = (short) (fallbackSpr.getMaxU() * 65535.0f);
+          faceVMin[uvIdx] = (short) (fallbackSpr.getMinV() * 65535.0f);
+          faceVMax[uvIdx] = (short) (fallbackSpr.getMaxV() * 65535.0f);
+        }
+      }
+    } catch (Exception ignored) {
+    }
+  }
+  boolean[] occluders(int leafMode) {
+    return leafMode == 1 ? occludersClearLeaves : occludersSolidLeaves;
+  }
+  boolean is(int sid, byte flag) {
+    return (flags[sid] & flag) != 0;
+  }
+  boolean rendersAtLod(int sid, int lodLevel) {
+    return (lodMask[sid] & (1 << Math.min(lodLevel, 7))) != 0;
+  }
+}
@@ -0,0 +1,130 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+final class CompactVertexFormat {
+  static final int FORMAT_STANDARD = 0;
+  static final int FORMAT_COMPACT = 1;
+  static final int STRIDE = 8;
+  static final int MAX_UVS = 1 << 12;
+  static final int MAX_COLORS = 1 << 9;
+  private static final int STANDARD_STRIDE = 16;
+  private static final int POS_BIAS = 2048;
+  private static final int POS_SHIFT = 3;
+  private static final int POS_MAX = 0x3FF;
+  private static final int TILED_BIT = 1 << 30;
+  private static final int TABLE_SIZE = 1 << 14;
+  final ByteBuffer output = ByteBuffer
+      .allocateDirect(CustomChunkMesher.MAX_QUADS * 4 * STRIDE +
+          (1 + MAX_UVS + MAX_COLORS) * 4)
+      .order(ByteOrder.nativeOrder());
+  private final long[] keys = new long[TABLE_SIZE];
+  private final int[] values = new int[TABLE_SIZE];
+  private final int[] uvs = new int[MAX_UVS];
+  private final int[] colors = new int[MAX_COLORS];
+  private int uvCount;
+  private int colorCount;
+  private int paletteOffset;
+  private boolean lossless;
+  int encode(ByteBuffer src, int quads) {
+    Arrays.fill(keys, -1L);
+    uvCount = 0;
+    colorCount = 0;
+    lossless = true;
+    output.clear();
+    int vertices = quads * 4;
+    for (int i = 0; i < vertices; i++) {
+      int b = i * STANDARD_STRIDE;
+      int px = packAxis(src.getShort(b));
+      int py = packAxis(src.getShort(b + 2));
+      int pz = packAxis(src.getShort(b + 4));
+      if (px < 0 || py < 0 || pz < 0)
+        return -1;
+      int uv = (src.getShort(b + 6) & 0xFFFF) |
+          ((src.getShort(b + 8) & 0xFFFF) << 16);
+      int uvIdx = intern(uv, 0);
+      int colorIdx = intern(src.getInt(b + 10), 1);
+      if (uvIdx < 0 || colorIdx < 0)
+        return -1;
+      int light = src.get(b + 14) & 0xFF;
+      int normal = src.get(b + 15) & 0xFF;
+      int w0 = px | (py << 10) | (pz << 20);
+      if ((normal & GreedyQuadMerger.TILED_FLAG) != 0)
+        w0 |= TILED_BIT;
+      int w1 = (normal & 0x7) | (light << 3) | (uvIdx << 11) | (colorIdx << 23);
+      output.putInt(w0);
+      output.putInt(w1);
+    }
+    paletteOffset = output.position();
+    output.putInt(uvCount);
+    for (int i = 0; i < uvCount; i++)
+      output.putInt(uvs[i]);
+    for (int i = 0; i < colorCount; i++)
+      output.putInt(colors[i]);
+    output.flip();
+    return output.limit();
+  }
+  int getPaletteOffset() {
+    return paletteOffset;
+  }
+  boolean isLossless() {
+    return lossless;
+  }
+  static void decode(ByteBuffer src, int quads, int paletteOffset,
+      ByteBuffer dst) {
+    int uvCount = src.getInt(paletteOffset);
+    int uvBase = paletteOffset + 4;
+    int colorBase = uvBase + uvCount * 4;
+    int vertices = quads * 4;
+    for (int i = 0; i < vertices; i++) {
+      int w0 = src.getInt(i * STRIDE);
+      int w1 = src.getInt(i * STRIDE + 4);
+      int uv = src.getInt(uvBase + ((w1 >>> 11) & 0xFFF) * 4);
+      dst.putShort(unpackAxis(w0));
+      dst.putShort(unpackAxis(w0 >>> 10));
+      dst.putShort(unpackAxis(w0 >>> 20));
+      dst.putShort((short) uv);
+      dst.putShort((short) (uv >>> 16));
+      dst.putInt(src.getInt(colorBase + (w1 >>> 23) * 4));
+      dst.put((byte) (w1 >>> 3));
+      int normal = w1 & 0x7;
+      if ((w0 & TILED_BIT) != 0)
+        normal |= GreedyQuadMerger.TILED_FLAG;
+      dst.put((byte) normal);
+    }
+  }
+  private int packAxis(short coord) {
+    int biased = coord + POS_BIAS;
+    if ((biased & ((1 << POS_SHIFT) - 1)) != 0)
+      lossless = false;
+    int packed = (biased + (1 << (POS_SHIFT - 1))) >> POS_SHIFT;
+    return packed < 0 || packed > POS_MAX ? -1 : packed;
+  }
+  private static short unpackAxis(int packed) {
+    return (short) (((packed & POS_MAX) << POS_SHIFT) - POS_BIAS);
+  }
+  private int intern(int value, int table) {
+    long key = ((long) table << 32) | (value & 0xFFFFFFFFL);
+    int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 50);
+    while (keys[slot] != -1L) {
+      if (keys[slot] == key)
+        return values[slot];
+      slot = (slot + 1) & (TABLE_SIZE - 1);
+    }
+    int idx;
+    if (table == 0) {
+      if (uvCount == MAX_UVS)
+        return -1;
+      idx = uvCount++;
+      uvs[idx] = value;
+    } else {
+      if (colorCount == MAX_COLORS)
+        return -1;
+      idx = colorCount++;
+      colors[idx] = value;
+    }
+    keys[slot] = key;
+    values[slot] = idx;
+    return idx;
+  }
+}
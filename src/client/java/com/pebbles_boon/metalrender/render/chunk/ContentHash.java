@@ -0,0 +1,57 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import java.nio.ByteBuffer;
+final class ContentHash {
+  static final long SEED = 0x9E3779B97F4A7C15L;
+  private static final long K1 = 0x87C37B91114253D5L;
+  private static final long K2 = 0x4CF5AD432745937FL;
+  private ContentHash() {
+  }
+  static long mix(long h, long v) {
+    h ^= Long.rotateLeft(v * K1, 31) * K2;
+    return Long.rotateLeft(h, 27) * 5 + 0x52DCE729;
+  }
+  static long ints(long h, int[] values, int length) {
+    int i = 0;
+    for (; i + 1 < length; i += 2)
+      h = mix(h, ((long) values[i] << 32) | (values[i + 1] & 0xFFFFFFFFL));
+    if (i < length)
+      h = mix(h, values[i]);
+    return mix(h, length);
+  }
+  static long shorts(long h, short[] values, int length) {
+    int i = 0;
+    for (; i + 3 < length; i += 4)
+      h = mix(h, ((long) values[i] << 48) | ((values[i + 1] & 0xFFFFL) << 32) |
+          ((values[i + 2] & 0xFFFFL) << 16) | (values[i + 3] & 0xFFFFL));
+    for (; i < length; i++)
+      h = mix(h, values[i]);
+    return mix(h, length);
+  }
+  static long bytes(long h, byte[] values, int length) {
+    int i = 0;
+    for (; i + 7 < length; i += 8) {
+      long v = 0;
+      for (int b = 0; b < 8; b++)
+        v = (v << 8) | (values[i + b] & 0xFFL);
+      h = mix(h, v);
+    }
+    for (; i < length; i++)
+      h = mix(h, values[i]);
+    return mix(h, length);
+  }
+  static long buffer(long h, ByteBuffer buf, int offset, int length) {
+    int i = 0;
+    for (; i + 7 < length; i += 8)
+      h = mix(h, buf.getLong(offset + i));
+    for (; i < length; i++)
+      h = mix(h, buf.get(offset + i));
+    return mix(h, length);
+  }
+  static long finish(long h) {
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    h *= 0xC4CEB9FE1A85EC53L;
+    return h ^ (h >>> 33);
+  }
+}
@@ -3,80 +3,169 @@ import com.pebbles_boon.metalrender.MetalRenderClient;
 import com.pebbles_boon.metalrender.config.MetalRenderConfig;
 import com.pebbles_boon.metalrender.nativebridge.NativeBridge;
 import com.pebbles_boon.metalrender.nativebridge.NativeMemory;
+import com.pebbles_boon.metalrender.util.BufferArena;
 import com.pebbles_boon.metalrender.util.MetalLogger;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.function.LongConsumer;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.color.block.BlockColors;
-import net.minecraft.client.render.block.BlockModels;
 import net.minecraft.client.render.model.BakedQuad;
-import net.minecraft.client.render.model.BlockModelPart;
 import net.minecraft.client.render.model.BlockStateModel;
 import net.minecraft.client.texture.Sprite;
 import net.minecraft.client.world.ClientWorld;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
-import net.minecraft.util.math.random.Random;
-import net.minecraft.world.LightType;
 import net.minecraft.world.biome.ColorResolver;
 import net.minecraft.world.chunk.ChunkSection;
 import net.minecraft.world.chunk.WorldChunk;
-import net.minecraft.world.chunk.light.LightingProvider;
 import org.joml.Vector3fc;
 public class CustomChunkMesher {
   private static final int VERTEX_STRIDE = 16;
   private static final int SECTION_SIZE = 16;
-  private static final int MAX_QUADS = SECTION_SIZE * SECTION_SIZE * SECTION_SIZE * 6;
-  private static final int VERTEX_BUF_SIZE = MAX_QUADS * 4 * VERTEX_STRIDE;
-  private static final ThreadLocal<ByteBuffer> VERTEX_BUF_POOL = ThreadLocal
-      .withInitial(() -> ByteBuffer.allocateDirect(VERTEX_BUF_SIZE)
-          .order(ByteOrder.nativeOrder()));
-  private static final ThreadLocal<ByteBuffer> WATER_BUF_POOL = ThreadLocal
-      .withInitial(() -> ByteBuffer.allocateDirect(VERTEX_BUF_SIZE)
-          .order(ByteOrder.nativeOrder()));
-  private final ConcurrentHashMap<Long, ChunkMeshData> meshCache;
-  private final Set<Long> pendingKeys = ConcurrentHashMap.newKeySet();
-  private final Set<Long> dirtyKeys = ConcurrentHashMap.newKeySet();
-  private final ConcurrentHashMap<Long, Long> dirtyGeneration = new ConcurrentHashMap<>();
+  static final int MAX_QUADS = SECTION_SIZE * SECTION_SIZE * SECTION_SIZE * 6;
+  static final int VERTEX_BUF_SIZE = MAX_QUADS * 4 * VERTEX_STRIDE;
+  public static final int FACE_UNALIGNED = 6;
+  public static final int FACE_BUCKETS = 7;
+  private static final boolean COMPACT_VERTICES = "compact".equalsIgnoreCase(
+      System.getProperty("metalrender.vertexFormat", "standard"));
+  private static final int ARENA_PAGE_BYTES = 8 * 1024 * 1024;
+  private static final int ARENA_MAX_PAGES = Integer.getInteger("metalrender.arenaMaxPages", 192);
+  private static final int ARENA_COMPACT_BUDGET = 2 * 1024 * 1024;
+  private static final long ARENA_COMPACT_INTERVAL_MS = 50;
+  private static final long NEIGHBOR_DEBOUNCE_NANOS =
+      Long.getLong("metalrender.neighborDebounceMs", 100) * 1_000_000L;
+  private static final int[][] NEIGHBOR_OFFSETS = { { 0, -1, 0 }, { 0, 1, 0 },
+      { 0, 0, -1 }, { 0, 0, 1 }, { -1, 0, 0 }, { 1, 0, 0 } };
+  private static final boolean DISK_CACHE = Boolean.getBoolean("metalrender.diskCache");
+  private static final long DISK_CACHE_BYTES = (long) Math.max(16,
+      Math.min(Integer.getInteger("metalrender.diskCacheMB", 512), 1536)) << 20;
+  private final SectionRegistry registry = new SectionRegistry(4096);
+  private final Object publishLock = new Object();
+  private final Set<Long> sectionRequests = ConcurrentHashMap.newKeySet();
+  private final Set<Long> publishedColumns = ConcurrentHashMap.newKeySet();
+  private final ConcurrentHashMap<Long, Long> buildRetries =
+      new ConcurrentHashMap<>();
+  private static final long RETRY_NANOS = 250_000_000L;
+  private static final long MAX_RETRY_NANOS = 8_000_000_000L;
+  private volatile long arenaRetryNanos = RETRY_NANOS;
+  private final ConcurrentHashMap<Long, Long> pendingNeighborRebuilds =
+      new ConcurrentHashMap<>();
+  private final int[] neighborScratch = new int[SectionSnapshot.VOLUME];
+  private long neighborRequests;
+  private long neighborUnchanged;
+  private long neighborCoalesced;
+  private long neighborRebuilds;
+  private final ConcurrentHashMap<Long, BiomeColorGrid> biomeGrids =
+      new ConcurrentHashMap<>();
+  private int biomeGridCenterX = Integer.MIN_VALUE;
+  private int biomeGridCenterZ = Integer.MIN_VALUE;
+  private static volatile long biomeGridsSampled = 0;
+  private static volatile long biomeGridLayers = 0;
+  private static volatile long biomeGridNanos = 0;
   private long deviceHandle;
   private boolean initialized;
   private long globalIndexBufferHandle;
-  private ExecutorService builderPool;
-  private ExecutorService dirtyRebuildPool;
+  private volatile BufferArena vertexArena;
+  private final MeshBuildScheduler scheduler;
+  private final TranslucentSorter translucentSorter;
+  private volatile MeshDiskCache diskCache;
+  private ClientWorld diskCacheWorld;
+  private final ConcurrentHashMap<Long, DiskLoad> pendingDiskLoads =
+      new ConcurrentHashMap<>();
+  private static final class DiskLoad {
+    final int chunkX;
+    final int chunkY;
+    final int chunkZ;
+    final long[] boundaryHashes;
+    final MeshBuildScheduler.Job job;
+    DiskLoad(int chunkX, int chunkY, int chunkZ, long[] boundaryHashes,
+        MeshBuildScheduler.Job job) {
+      this.chunkX = chunkX;
+      this.chunkY = chunkY;
+      this.chunkZ = chunkZ;
+      this.boundaryHashes = boundaryHashes;
+      this.job = job;
+    }
+  }
   public static class ChunkMeshData {
-    public final long bufferHandle;
+    public final BufferArena.Allocation allocation;
     public final int quadCount;
+    public final int opaqueQuadCount;
+    public final int[] faceQuadCounts;
+    public final int vertexFormat;
+    public final int paletteOffset;
     public final int chunkX;
     public final int chunkY;
     public final int chunkZ;
     public final int lodLevel;
-    public ChunkMeshData(long bufferHandle, int quadCount, int chunkX,
-        int chunkY, int chunkZ, int lodLevel) {
-      this.bufferHandle = bufferHandle;
+    public final float[] translucentCentroids;
+    public final long contentHash;
+    public volatile long[] boundaryHashes;
+    public volatile BufferArena.Allocation translucentIndices;
+    public ChunkMeshData(BufferArena.Allocation allocation, int quadCount,
+        int opaqueQuadCount, int[] faceQuadCounts, int vertexFormat,
+        int paletteOffset, int chunkX, int chunkY, int chunkZ, int lodLevel,
+        float[] translucentCentroids, long contentHash,
+        long[] boundaryHashes) {
+      this.allocation = allocation;
       this.quadCount = quadCount;
+      this.opaqueQuadCount = opaqueQuadCount;
+      this.faceQuadCounts = faceQuadCounts;
+      this.vertexFormat = vertexFormat;
+      this.paletteOffset = paletteOffset;
       this.chunkX = chunkX;
       this.chunkY = chunkY;
       this.chunkZ = chunkZ;
       this.lodLevel = lodLevel;
+      this.translucentCentroids = translucentCentroids;
+      this.contentHash = contentHash;
+      this.boundaryHashes = boundaryHashes;
+    }
+  }
+  static final class VertexPageBacking implements BufferArena.Backing {
+    private final long device;
+    VertexPageBacking(long device) {
+      this.device = device;
+    }
+    @Override
+    public long createPage(int bytes) {
+      return NativeBridge.nCreateBuffer(device, bytes,
+          NativeMemory.STORAGE_MODE_SHARED);
+    }
+    @Override
+    public void destroyPage(long pageHandle) {
+      NativeBridge.nDestroyBuffer(pageHandle);
+    }
+    @Override
+    public void write(long pageHandle, int offset, ByteBuffer src,
+        int srcOffset, int length) {
+      NativeBridge.nUploadBufferRange(pageHandle, offset, src, srcOffset,
+          length);
+    }
+    @Override
+    public void copy(long srcPage, int srcOffset, long dstPage, int dstOffset,
+        int length) {
+      NativeBridge.nCopyBufferRange(srcPage, srcOffset, dstPage, dstOffset,
+          length);
     }
   }
   public CustomChunkMesher() {
-    this.meshCache = new ConcurrentHashMap<>();
     int processors = Runtime.getRuntime().availableProcessors();
-    this.builderPool = Executors.newFixedThreadPool(Math.max(2, processors / 2));
-    this.dirtyRebuildPool = Executors.newFixedThreadPool(Math.max(2, processors / 4));
+    this.scheduler = new MeshBuildScheduler(
+        Math.max(2, processors / 2) + Math.max(2, processors / 4));
+    this.translucentSorter = new TranslucentSorter(registry,
+        this::publishTranslucentOrder);
   }
   public long getGlobalIndexBuffer() {
     return globalIndexBufferHandle;
@@ -103,20 +192,88 @@ public class CustomChunkMesher {
         deviceHandle, ibData.length, NativeMemory.STORAGE_MODE_SHARED);
     NativeBridge.nUploadBufferData(this.globalIndexBufferHandle, ibData, 0,
         ibData.length);
+    BufferArena arena = new BufferArena(new VertexPageBacking(device),
+        ARENA_PAGE_BYTES, ARENA_MAX_PAGES);
+    arena.setRelocationListener(this::onMeshRelocated);
+    arena.startCompactor(ARENA_COMPACT_INTERVAL_MS, ARENA_COMPACT_BUDGET);
+    this.vertexArena = arena;
     this.initialized = true;
-    MetalLogger.info("CustomChunkMesher initialized (maxQuads=%d, ibSize=%d)",
-        MAX_QUADS, ibData.length);
+    MetalLogger.info("CustomChunkMesher initialized (maxQuads=%d, ibSize=%d, arenaPages=%dx%dMB)",
+        MAX_QUADS, ibData.length, ARENA_MAX_PAGES, ARENA_PAGE_BYTES >> 20);
+  }
+  public void onFrameEnd() {
+    BufferArena arena = vertexArena;
+    if (arena != null)
+      arena.advanceEpoch();
+  }
+  private static void registerMesh(ChunkMeshData mesh) {
+    BufferArena.Allocation a = mesh.allocation;
+    NativeBridge.nRegisterChunkMeshRange(mesh.chunkX, mesh.chunkY, mesh.chunkZ,
+        a.getPageHandle(), a.getOffset(), mesh.quadCount, mesh.opaqueQuadCount,
+        mesh.faceQuadCounts, mesh.vertexFormat, mesh.paletteOffset,
+        mesh.lodLevel);
+    BufferArena.Allocation ti = mesh.translucentIndices;
+    if (ti != null)
+      NativeBridge.nSetChunkTranslucentIndices(mesh.chunkX, mesh.chunkY,
+          mesh.chunkZ, ti.getPageHandle(), ti.getOffset());
+  }
+  private void onMeshRelocated(BufferArena.Allocation allocation) {
+    synchronized (publishLock) {
+      ChunkMeshData mesh = registry.get(allocation.getTag());
+      if (mesh != null && (mesh.allocation == allocation ||
+          mesh.translucentIndices == allocation))
+        registerMesh(mesh);
+    }
+  }
+  private void publishTranslucentOrder(long key, ChunkMeshData mesh,
+      ByteBuffer indices, int bytes) {
+    BufferArena arena = vertexArena;
+    if (arena == null)
+      return;
+    BufferArena.Allocation allocation = arena.allocate(bytes, key);
+    if (allocation == null)
+      return;
+    arena.write(allocation, indices, 0);
+    BufferArena.Allocation replaced = allocation;
+    synchronized (publishLock) {
+      if (registry.get(key) == mesh) {
+        replaced = mesh.translucentIndices;
+        mesh.translucentIndices = allocation;
+        NativeBridge.nSetChunkTranslucentIndices(mesh.chunkX, mesh.chunkY,
+            mesh.chunkZ, allocation.getPageHandle(), allocation.getOffset());
+      }
+    }
+    arena.free(replaced);
+  }
+  private ChunkMeshData unpublish(long key) {
+    synchronized (publishLock) {
+      ChunkMeshData mesh = registry.remove(key);
+      if (mesh != null)
+        NativeBridge.nUnregisterChunkMesh(mesh.chunkX, mesh.chunkY, mesh.chunkZ);
+      return mesh;
+    }
+  }
+  private void freeMesh(ChunkMeshData mesh) {
+    BufferArena arena = vertexArena;
+    if (mesh == null)
+      return;
+    translucentSorter.forget(packChunkKey(mesh.chunkX, mesh.chunkY,
+        mesh.chunkZ));
+    if (arena != null) {
+      arena.free(mesh.allocation);
+      arena.free(mesh.translucentIndices);
+    }
   }
   private static long packChunkKey(int x, int y, int z) {
     return ((long) (x & 0x3FFFFF) << 42) | ((long) (y & 0xFFFFF) << 22) |
         (z & 0x3FFFFF);
   }
-  private static final byte OPACITY_OPAQUE = 0;
-  private static final byte OPACITY_TRANSPARENT = 1;
-  private static final byte OPACITY_LEAF = 2;
+  static final byte OPACITY_OPAQUE = 0;
+  static final byte OPACITY_TRANSPARENT = 1;
+  static final byte OPACITY_LEAF = 2;
   private static final ThreadLocal<HashMap<Integer, Byte>> OPACITY_CACHE = ThreadLocal
       .withInitial(() -> new HashMap<>(256));
-  private static byte computeOpacityFlag(int stateId) {
+  static byte computeOpacityFlag(int stateId) {
     if (stateId == 0)
       return OPACITY_TRANSPARENT;
     try {
@@ -178,166 +335,244 @@ public class CustomChunkMesher {
       return leafMode == 1;
     return flag == OPACITY_TRANSPARENT;
   }
-  private static boolean isTransparentFlat(int[] states, int x, int y, int z,
-      int leafMode, int[] nXNeg, int[] nXPos, int[] nYNeg, int[] nYPos,
-      int[] nZNeg, int[] nZPos, byte[] oFlag) {
-    int stateId = 0;
-    if (x >= 0 && x < 16 && y >= 0 && y < 16 && z >= 0 && z < 16) {
-      int idx = y * 256 + z * 16 + x;
-      if (states == null || states.length <= idx)
-        return true;
-      stateId = states[idx];
-    } else {
-      if (x < 0 && nXNeg != null)
-        stateId = nXNeg[y * 16 + z];
-      else if (x >= 16 && nXPos != null)
-        stateId = nXPos[y * 16 + z];
-      else if (y < 0 && nYNeg != null)
-        stateId = nYNeg[z * 16 + x];
-      else if (y >= 16 && nYPos != null)
-        stateId = nYPos[z * 16 + x];
-      else if (z < 0 && nZNeg != null)
-        stateId = nZNeg[y * 16 + x];
-      else if (z >= 16 && nZPos != null)
-        stateId = nZPos[y * 16 + x];
-      else
-        return true;
-    }
-    if (stateId == 0)
-      return true;
-    if (stateId >= oFlag.length)
-      return true; 
-    byte f = oFlag[stateId];
-    if (f == 0) {
-      f = (byte) (computeOpacityFlag(stateId) + 1);
-      oFlag[stateId] = f;
-    }
-    return f == 2 || (f == 3 && leafMode == 1); 
-  }
-  private static boolean isWaterAt(int[] blockStates, int x, int y, int z,
-      int[] nXNeg, int[] nXPos, int[] nYNeg, int[] nYPos, int[] nZNeg, int[] nZPos) {
-    int sid = 0;
-    if (x >= 0 && x < 16 && y >= 0 && y < 16 && z >= 0 && z < 16) {
-      sid = blockStates[y * 256 + z * 16 + x];
-    } else if (x < 0 && nXNeg != null) {
-      sid = nXNeg[y * 16 + z];
-    } else if (x >= 16 && nXPos != null) {
-      sid = nXPos[y * 16 + z];
-    } else if (y < 0 && nYNeg != null) {
-      sid = nYNeg[z * 16 + x];
-    } else if (y >= 16 && nYPos != null) {
-      sid = nYPos[z * 16 + x];
-    } else if (z < 0 && nZNeg != null) {
-      sid = nZNeg[y * 16 + x];
-    } else if (z >= 16 && nZPos != null) {
-      sid = nZPos[y * 16 + x];
-    }
-    if (sid == 0)
-      return false;
-    BlockState bs = Block.getStateFromRawId(sid);
-    if (bs.getBlock() == Blocks.WATER)
-      return true;
-    return !bs.getFluidState().isEmpty() && bs.getBlock() != Blocks.LAVA;
-  }
-  private static volatile int dbgBoundaryCullHit = 0;
-  private static volatile int dbgBoundaryWaterMiss = 0;
-  private static volatile int dbgBoundaryNullArr = 0;
-  private static volatile int dbgWaterBaked = 0;
-  private static volatile int dbgWaterFallback = 0;
-  private static volatile int dbgWaterBakedCull = 0;
-  private static volatile int dbgNonFullSkip = 0;
-  private static boolean shouldCullFace(boolean isWater,
-      int[] blockStates, int idx, int coord, int boundary,
-      boolean[] sidOpaque, boolean[] sidIsWater, int[] nArr, int nIdx) {
-    int nSid;
-    if (coord != boundary) {
-      nSid = blockStates[idx];
-    } else {
-      if (nArr == null) {
-        if (isWater)
-          dbgBoundaryNullArr++;
-        return false; 
-      }
-      nSid = nArr[nIdx];
-    }
-    if (nSid == 0)
-      return false; 
-    if (nSid < sidOpaque.length && sidOpaque[nSid])
-      return true;
-    if (isWater && nSid < sidIsWater.length && sidIsWater[nSid]) {
-      if (coord == boundary)
-        dbgBoundaryCullHit++;
-      return true;
-    }
-    if (isWater && coord == boundary)
-      dbgBoundaryWaterMiss++;
-    return false;
-  }
   public int getMeshCount() {
-    return meshCache.size();
+    return registry.size();
   }
   public int getPendingCount() {
-    return pendingKeys.size();
+    return scheduler.getPendingCount();
   }
   public boolean hasMesh(int cx, int cy, int cz) {
     long key = packChunkKey(cx, cy, cz);
-    if (dirtyKeys.contains(key))
+    if (registry.isDirty(key))
       return false;
-    return meshCache.containsKey(key) || pendingKeys.contains(key);
+    return registry.contains(key) || scheduler.isScheduled(key) ||
+        pendingDiskLoads.containsKey(key);
   }
   public boolean needsLodRebuild(int cx, int cy, int cz, int desiredLod) {
     long key = packChunkKey(cx, cy, cz);
-    ChunkMeshData mesh = meshCache.get(key);
+    ChunkMeshData mesh = registry.get(key);
     if (mesh == null)
       return false;
-    return mesh.lodLevel != desiredLod && !pendingKeys.contains(key);
+    return mesh.lodLevel != desiredLod && !scheduler.isScheduled(key);
   }
   public void markDirty(int cx, int cy, int cz) {
-    long key = packChunkKey(cx, cy, cz);
-    dirtyKeys.add(key);
-    dirtyGeneration.merge(key, 1L, Long::sum);
-    pendingKeys.remove(key);
+    markDirty(packChunkKey(cx, cy, cz));
+  }
+  private void markDirty(long key) {
+    registry.markDirty(key);
+    pendingDiskLoads.remove(key);
+    sectionRequests.add(key);
+    scheduler.cancel(key);
+  }
+  public void drainSectionRequests(LongConsumer consumer) {
+    drain(sectionRequests, consumer);
+    if (buildRetries.isEmpty())
+      return;
+    long now = System.nanoTime();
+    for (var entry : buildRetries.entrySet()) {
+      long key = entry.getKey();
+      long due = entry.getValue();
+      if (due - now > 0 || !buildRetries.remove(key, due))
+        continue;
+      publishedColumns.add(SectionRegistry.columnOf(key));
+      consumer.accept(key);
+    }
+  }
+  private void retryBuild(long key, long delayNanos) {
+    buildRetries.put(key, System.nanoTime() + delayNanos);
+    retriedBuilds++;
+  }
+  public void drainPublishedColumns(LongConsumer consumer) {
+    drain(publishedColumns, consumer);
+  }
+  private static void drain(Set<Long> keys, LongConsumer consumer) {
+    if (keys.isEmpty())
+      return;
+    var iter = keys.iterator();
+    while (iter.hasNext()) {
+      long key = iter.next();
+      iter.remove();
+      consumer.accept(key);
+    }
+  }
+  public void onSectionLoaded(int cx, int cy, int cz, ChunkSection section) {
+    BlockStatePropertyTable props = null;
+    boolean[] occluders = null;
+    LightSnapshot lights = null;
+    int uniform = 0;
+    for (int d = 0; d < 6; d++) {
+      int[] o = NEIGHBOR_OFFSETS[d];
+      long key = packChunkKey(cx + o[0], cy + o[1], cz + o[2]);
+      ChunkMeshData mesh = registry.get(key);
+      long[] seen = mesh != null ? mesh.boundaryHashes : null;
+      if (seen == null) {
+        if (mesh != null || scheduler.isScheduled(key))
+          requestNeighborRebuild(key);
+        continue;
+      }
+      if (props == null) {
+        props = BlockStatePropertyTable.get();
+        MetalRenderConfig cfg = MetalRenderClient.getConfig();
+        occluders = props.occluders(cfg != null ? cfg.leafCullingMode : 0);
+        uniform = SectionSnapshot.decode(section, neighborScratch);
+        MinecraftClient mc = MinecraftClient.getInstance();
+        if (mc != null && mc.world != null)
+          lights = LightSnapshot.capture(mc.world, cx, cy, cz);
+      }
+      int face = d ^ 1;
+      if (PaddedSectionVolume.boundaryHash(neighborScratch, uniform, lights,
+          face, props, occluders) == seen[face])
+        neighborUnchanged++;
+      else
+        requestNeighborRebuild(key);
+    }
+  }
+  private void requestNeighborRebuild(long key) {
+    neighborRequests++;
+    if (pendingNeighborRebuilds.putIfAbsent(key, System.nanoTime()) != null)
+      neighborCoalesced++;
+  }
+  private void flushNeighborRebuilds() {
+    if (pendingNeighborRebuilds.isEmpty())
+      return;
+    long now = System.nanoTime();
+    for (Map.Entry<Long, Long> e : pendingNeighborRebuilds.entrySet()) {
+      if (now - e.getValue() < NEIGHBOR_DEBOUNCE_NANOS)
+        continue;
+      if (pendingNeighborRebuilds.remove(e.getKey(), e.getValue())) {
+        markDirty(e.getKey());
+        neighborRebuilds++;
+      }
+    }
+  }
+  public void updateView(double camX, double camY, double camZ,
+      int retainRadius, MeshBuildScheduler.SectionVisibility visibility) {
+    scheduler.updateView(camX, camY, camZ, retainRadius, visibility);
+    translucentSorter.updateCamera(camX, camY, camZ);
+    flushNeighborRebuilds();
+    evictBiomeGrids(Math.floorDiv((int) Math.floor(camX), 16),
+        Math.floorDiv((int) Math.floor(camZ), 16), retainRadius);
+    if (DISK_CACHE) {
+      syncDiskCache();
+      drainDiskLoads();
+    }
+  }
+  private void evictBiomeGrids(int centerX, int centerZ, int retainRadius) {
+    if (centerX == biomeGridCenterX && centerZ == biomeGridCenterZ)
+      return;
+    biomeGridCenterX = centerX;
+    biomeGridCenterZ = centerZ;
+    biomeGrids.values().removeIf(g -> Math.max(Math.abs(g.chunkX - centerX),
+        Math.abs(g.chunkZ - centerZ)) - 1 > retainRadius);
+  }
+  public void invalidateBiomeColumn(int chunkX, int chunkZ) {
+    for (int dz = -1; dz <= 1; dz++)
+      for (int dx = -1; dx <= 1; dx++)
+        biomeGrids.remove(columnKey(chunkX + dx, chunkZ + dz));
+  }
+  private BiomeColorGrid biomeGrid(ClientWorld world, int chunkX,
+      int chunkZ) {
+    if (world == null)
+      return null;
+    MetalRenderConfig cfg = MetalRenderClient.getConfig();
+    int radius = cfg != null ? Math.max(0, Math.min(4, cfg.biomeTransitionDetail)) : 2;
+    long key = columnKey(chunkX, chunkZ);
+    BiomeColorGrid grid = biomeGrids.get(key);
+    if (grid != null && grid.radius == radius)
+      return grid;
+    long start = System.nanoTime();
+    try {
+      grid = BiomeColorGrid.sample(world, chunkX, chunkZ, radius);
+    } catch (Exception e) {
+      return null;
+    }
+    biomeGridNanos += System.nanoTime() - start;
+    biomeGridsSampled++;
+    biomeGridLayers += grid.getDistinctLayers();
+    biomeGrids.put(key, grid);
+    return grid;
+  }
+  private static long columnKey(int chunkX, int chunkZ) {
+    return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+  }
+  private void syncDiskCache() {
+    MinecraftClient mc = MinecraftClient.getInstance();
+    ClientWorld world = mc != null ? mc.world : null;
+    if (world == diskCacheWorld)
+      return;
+    diskCacheWorld = world;
+    MeshDiskCache old = diskCache;
+    diskCache = null;
+    if (old != null)
+      old.close();
+    pendingDiskLoads.keySet().forEach(sectionRequests::add);
+    pendingDiskLoads.clear();
+    if (world != null && mc.runDirectory != null)
+      diskCache = MeshDiskCache.open(mc.runDirectory.toPath()
+          .resolve("metalrender").resolve("meshcache")
+          .resolve(MeshDiskCache.worldId(mc, world)), DISK_CACHE_BYTES);
+  }
+  private void drainDiskLoads() {
+    MeshDiskCache disk = diskCache;
+    if (disk == null)
+      return;
+    MeshDiskCache.Load load;
+    while ((load = disk.pollLoaded()) != null) {
+      long key = load.section;
+      DiskLoad pending = (DiskLoad) load.attachment;
+      if (!pendingDiskLoads.remove(key, pending)) {
+        cancelledBuilds++;
+      } else if (!load.ok) {
+        retryBuild(key, 0);
+      } else if (pending.job != null && pending.job.isCancelled()) {
+        cancelledBuilds++;
+      } else {
+        MeshDiskCache.CachedMesh cached = load.mesh;
+        publishMesh(key, pending.chunkX, pending.chunkY, pending.chunkZ,
+            load.lod, cached.data, cached.dataLen, cached.quadCount,
+            cached.opaqueQuadCount, cached.faceQuadCounts.clone(),
+            cached.vertexFormat, cached.paletteOffset,
+            cached.translucentCentroids, pending.boundaryHashes);
+      }
+      disk.recycle(load);
+    }
   }
   public void markAllDirty() {
-    dirtyKeys.addAll(meshCache.keySet());
+    registry.markAllDirty(sectionRequests::add);
   }
-  private static final Direction[] ALL_DIRECTIONS = Direction.values();
   public void buildMeshAsync(int chunkX, int chunkY, int chunkZ,
       int[] blockStates, byte[] lightData) {
     if (!initialized)
       return;
     long key = packChunkKey(chunkX, chunkY, chunkZ);
-    pendingKeys.add(key);
-    builderPool.submit(() -> {
+    scheduler.submit(key, chunkX, chunkY, chunkZ, 0, false, job -> {
       try {
-        doMeshBuild(chunkX, chunkY, chunkZ, blockStates, lightData, key);
+        doMeshBuild(chunkX, chunkY, chunkZ, blockStates, lightData, key, job);
       } catch (Exception e) {
-        pendingKeys.remove(key);
         MetalLogger.error("Meshing error for chunk [%d,%d,%d]", chunkX, chunkY,
             chunkZ);
       }
     });
   }
   private void doMeshBuild(int chunkX, int chunkY, int chunkZ,
-      int[] blockStates, byte[] lightData, long key) {
-    int[] nXNeg = null, nXPos = null, nYNeg = null, nYPos = null, nZNeg = null, nZPos = null;
+      int[] blockStates, byte[] lightData, long key,
+      MeshBuildScheduler.Job job) {
+    PaddedSectionVolume volume = VOLUME_POOL.get();
+    volume.clear();
+    if (blockStates != null)
+      volume.loadStates(blockStates);
+    if (lightData != null)
+      volume.loadLight(lightData);
     try {
       MinecraftClient mc = MinecraftClient.getInstance();
       ClientWorld world = mc != null ? mc.world : null;
-      if (world != null) {
-        nXNeg = readNeighborFace(world, chunkX - 1, chunkY, chunkZ, 4);
-        nXPos = readNeighborFace(world, chunkX + 1, chunkY, chunkZ, 5);
-        nYNeg = readNeighborFace(world, chunkX, chunkY - 1, chunkZ, 0);
-        nYPos = readNeighborFace(world, chunkX, chunkY + 1, chunkZ, 1);
-        nZNeg = readNeighborFace(world, chunkX, chunkY, chunkZ - 1, 2);
-        nZPos = readNeighborFace(world, chunkX, chunkY, chunkZ + 1, 3);
-      }
+      if (world != null)
+        loadNeighborFaces(world, volume, chunkX, chunkY, chunkZ);
     } catch (Exception ignored) {
     }
-    doMeshBuild(chunkX, chunkY, chunkZ, blockStates, lightData, key, 0,
-        nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos);
+    doMeshBuild(chunkX, chunkY, chunkZ, volume, key, 0, job);
   }
-  private static boolean shouldRenderAtLod(BlockState state, int lodLevel) {
+  static boolean shouldRenderAtLod(BlockState state, int lodLevel) {
     if (lodLevel == 0)
       return true;
     if (state.isAir())
@@ -385,713 +620,108 @@ public class CustomChunkMesher {
   private static volatile int lodFastCount = 0;
   private static volatile long pipelineTimeAcc = 0;
   private static volatile int pipelineCount = 0;
-  private static final ThreadLocal<Random> REUSABLE_RANDOM = ThreadLocal.withInitial(() -> Random.create(0));
-  private static final ThreadLocal<int[]> BLOCK_STATES_POOL = ThreadLocal.withInitial(() -> new int[4096]);
-  private static final ThreadLocal<byte[]> LIGHT_DATA_POOL = ThreadLocal.withInitial(() -> new byte[4096]);
+  private static final ThreadLocal<PaddedSectionVolume> VOLUME_POOL = ThreadLocal.withInitial(PaddedSectionVolume::new);
+  private static final ThreadLocal<SectionMeshKernel> KERNEL_POOL = ThreadLocal.withInitial(SectionMeshKernel::new);
+  private static final ThreadLocal<CompactVertexFormat> COMPACT_POOL = ThreadLocal.withInitial(CompactVertexFormat::new);
+  private static volatile long compactMeshes = 0;
+  private static volatile long compactFallbacks = 0;
+  private static volatile long compactBytesSaved = 0;
+  private static volatile long cancelledBuilds = 0;
+  private static volatile long arenaFullBuilds = 0;
+  private static volatile long retriedBuilds = 0;
+  private static volatile long publishedRebuilds = 0;
+  private static volatile long identicalRebuilds = 0;
+  private static volatile long identicalBytesSkipped = 0;
   private void doMeshBuild(int chunkX, int chunkY, int chunkZ,
-      int[] blockStates, byte[] lightData, long key,
-      int lodLevel, int[] nXNeg, int[] nXPos, int[] nYNeg,
-      int[] nYPos, int[] nZNeg, int[] nZPos) {
+      PaddedSectionVolume volume, long key, int lodLevel,
+      MeshBuildScheduler.Job job) {
     long buildStart = System.nanoTime();
     try {
       meshBuildCount++;
-      ByteBuffer vertexBuffer = VERTEX_BUF_POOL.get();
-      ByteBuffer waterBuffer = WATER_BUF_POOL.get();
-      vertexBuffer.clear();
-      waterBuffer.clear();
-      int opaqueQuadCount = 0;
-      int waterQuadCount = 0;
-      int bakedQuadBlocks = 0;
-      int fallbackBlocks = 0;
       MinecraftClient mc = MinecraftClient.getInstance();
-      BlockModels blockModels = null;
-      if (mc != null && mc.getBlockRenderManager() != null) {
-        blockModels = mc.getBlockRenderManager().getModels();
-      }
       MetalRenderConfig leafCfg = MetalRenderClient.getConfig();
       int leafMode = (leafCfg != null) ? leafCfg.leafCullingMode : 0;
-      boolean useFastPath = (lodLevel >= 1);
-      boolean skipNonDirectionalQuads = (lodLevel >= 1);
-      boolean[] skipFace = null;
-      if (lodLevel >= 1 && mc != null && mc.player != null) {
-        skipFace = new boolean[6];
-        int pcx = mc.player.getChunkPos().x;
-        int pcz = mc.player.getChunkPos().z;
-        int pcy = (int) Math.floor(mc.player.getY()) >> 4;
-        skipFace[0] = (pcy > chunkY);
-        skipFace[1] = (pcy < chunkY);
-        skipFace[2] = (pcz > chunkZ);
-        skipFace[3] = (pcz < chunkZ);
-        skipFace[4] = (pcx > chunkX);
-        skipFace[5] = (pcx < chunkX);
+      int[] biomeColors = getSectionBiomeColors(
+          mc != null ? mc.world : null, chunkX, chunkY, chunkZ);
+      BiomeColorGrid biomeGrid = biomeGrid(mc != null ? mc.world : null,
+          chunkX, chunkZ);
+      Sprite waterSprite = lodLevel >= 1 ? null : getWaterSprite(mc);
+      BlockStatePropertyTable props = BlockStatePropertyTable.get();
+      boolean[] occluders = props.occluders(leafMode);
+      long[] boundaryHashes = new long[6];
+      for (int f = 0; f < 6; f++)
+        boundaryHashes[f] = volume.paddingHash(f, props, occluders);
+      MeshDiskCache disk = diskCache;
+      long contentHash = 0;
+      if (disk != null) {
+        disk.validate(props, (COMPACT_VERTICES ? 1 : 0) |
+            (SectionMeshKernel.LOD_DOWNSAMPLE ? 2 : 0));
+        contentHash = sectionContentHash(volume, lodLevel, leafMode,
+            biomeColors, biomeGrid, waterSprite);
+        DiskLoad pending = new DiskLoad(chunkX, chunkY, chunkZ,
+            boundaryHashes, job);
+        pendingDiskLoads.put(key, pending);
+        if (disk.requestLoad(key, lodLevel, contentHash, pending))
+          return;
+        pendingDiskLoads.remove(key, pending);
       }
-      if (useFastPath) {
-        int[] fastBiomeColors = getSectionBiomeColors(
-            mc != null ? mc.world : null, chunkX, chunkY, chunkZ);
-        int maxSid = 0;
-        for (int i = 0; i < 4096; i++) {
-          if (blockStates != null && blockStates[i] > maxSid)
-            maxSid = blockStates[i];
-        }
-        int[][] neighborArrays = { nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos };
-        for (int[] nArr : neighborArrays) {
-          if (nArr != null)
-            for (int s : nArr) {
-              if (s > maxSid)
-                maxSid = s;
-            }
-        }
-        boolean[] sidComputed = new boolean[maxSid + 1];
-        boolean[] sidSkip = new boolean[maxSid + 1]; 
-        boolean[] sidOpaque = new boolean[maxSid + 1]; 
-        byte[] sidR = new byte[maxSid + 1];
-        byte[] sidG = new byte[maxSid + 1];
-        byte[] sidB = new byte[maxSid + 1];
-        byte[] sidAlpha = new byte[maxSid + 1];
-        int uvSize = (maxSid + 1) * 6;
-        short[] sidFaceUMin = new short[uvSize];
-        short[] sidFaceUMax = new short[uvSize];
-        short[] sidFaceVMin = new short[uvSize];
-        short[] sidFaceVMax = new short[uvSize];
-        boolean[] sidFaceHasSprite = new boolean[uvSize];
-        boolean[] sidFaceHasTint = new boolean[uvSize]; 
-        boolean[] sidIsWater = new boolean[maxSid + 1]; 
-        sidSkip[0] = true; 
-        for (int i = 0; i < 4096; i++) {
-          int sid = blockStates != null ? blockStates[i] : 0;
-          if (sid == 0 || sidComputed[sid])
-            continue;
-          sidComputed[sid] = true;
-          BlockState bs = Block.getStateFromRawId(sid);
-          if (bs.isAir()) {
-            sidSkip[sid] = true;
-            continue;
-          }
-          if (lodLevel > 0 && !shouldRenderAtLod(bs, lodLevel)) {
-            sidSkip[sid] = true;
-            continue;
-          }
-          Block blk = bs.getBlock();
-          boolean isWater = (blk == Blocks.WATER);
-          boolean isLava = (blk == Blocks.LAVA);
-          boolean isFluid = isWater || isLava;
-          boolean isLeaf = isLeafBlock(blk);
-          sidIsWater[sid] = isWater;
-          if (!bs.isOpaqueFullCube() && !isFluid && !isLeaf) {
-            boolean isWaterlogged = !bs.getFluidState().isEmpty();
-            if (!isWaterlogged) {
-              sidOpaque[sid] = false;
-              sidSkip[sid] = true;
-              dbgNonFullSkip++;
-              continue;
-            }
-            sidIsWater[sid] = true;
-            sidOpaque[sid] = false;
-          }
-          if (isLeaf) {
-            sidOpaque[sid] = (leafMode != 1); 
-          } else if (isFluid) {
-            sidOpaque[sid] = !isWater; 
-          } else if (!sidIsWater[sid]) {
-            if (!bs.getFluidState().isEmpty()) {
-              sidOpaque[sid] = bs.isOpaqueFullCube();
-            } else {
-              sidOpaque[sid] = bs.isOpaqueFullCube();
-            }
-          }
-          int color;
-          if (sidIsWater[sid] && !isWater) {
-            color = fastBiomeColors[TINT_WATER];
-          } else {
-            byte tintType = getBiomeTintType(blk);
-            if (tintType != TINT_NONE && tintType < fastBiomeColors.length) {
-              color = fastBiomeColors[tintType];
-            } else {
-              color = getBlockColor(bs);
-            }
-          }
-          sidR[sid] = (byte) ((color >> 16) & 0xFF);
-          sidG[sid] = (byte) ((color >> 8) & 0xFF);
-          sidB[sid] = (byte) (color & 0xFF);
-          if (isWater || sidIsWater[sid]) {
-            sidAlpha[sid] = (byte) 220;
-          } else if (isLava) {
-            sidAlpha[sid] = (byte) 255;
-          } else {
-            sidAlpha[sid] = (byte) 255;
-          }
-          if (blockModels != null) {
-            try {
-              BlockState uvState = (sidIsWater[sid] && !isWater)
-                  ? Blocks.WATER.getDefaultState()
-                  : bs;
-              var model = blockModels.getModel(uvState);
-              if (model != null) {
-                Random rand = REUSABLE_RANDOM.get();
-                rand.setSeed(42L); 
-                List<BlockModelPart> parts = model.getParts(rand);
-                Sprite fallbackSpr = model.particleSprite();
-                for (int d = 0; d < 6; d++) {
-                  int uvIdx = sid * 6 + d;
-                  Direction dir = ALL_DIRECTIONS[d];
-                  boolean found = false;
-                  for (BlockModelPart part : parts) {
-                    List<BakedQuad> quads = part.getQuads(dir);
-                    if (quads != null && !quads.isEmpty()) {
-                      BakedQuad q = quads.get(0);
-                      float minU = Float.MAX_VALUE, maxU = -Float.MAX_VALUE;
-                      float minV = Float.MAX_VALUE, maxV = -Float.MAX_VALUE;
-                      for (int vi = 0; vi < 4; vi++) {
-                        long packedUV = q.getTexcoords(vi);
-                        float u = Float.intBitsToFloat((int) (packedUV >> 32));
-                        float v = Float.intBitsToFloat((int) packedUV);
-                        if (u < minU)
-                          minU = u;
-                        if (u > maxU)
-                          maxU = u;
-                        if (v < minV)
-                          minV = v;
-                        if (v > maxV)
-                          maxV = v;
-                      }
-                      sidFaceHasSprite[uvIdx] = true;
-                      sidFaceHasTint[uvIdx] = q.hasTint();
-                      sidFaceUMin[uvIdx] = (short) (minU * 65535.0f);
-                      sidFaceUMax[uvIdx] = (short) (maxU * 65535.0f);
-                      sidFaceVMin[uvIdx] = (short) (minV * 65535.0f);
-                      sidFaceVMax[uvIdx] = (short) (maxV * 65535.0f);
-                      found = true;
-                      break;
-                    }
-                  }
-                  if (!found && fallbackSpr != null) {
-                    sidFaceHasSprite[uvIdx] = true;
-                    if (isFluid)
-                      sidFaceHasTint[uvIdx] = true;
-                    sidFaceUMin[uvIdx] = (short) (fallbackSpr.getMinU() * 65535.0f);
-                    sidFaceUMax[uvIdx] = (short) (fallbackSpr.getMaxU() * 65535.0f);
-                    sidFaceVMin[uvIdx] = (short) (fallbackSpr.getMinV() * 65535.0f);
-                    sidFaceVMax[uvIdx] = (short) (fallbackSpr.getMaxV() * 65535.0f);
-                  }
-                }
-              }
-            } catch (Exception ignored) {
-            }
-          }
-        }
-        for (int[] nArr : neighborArrays) {
-          if (nArr == null)
-            continue;
-          for (int s : nArr) {
-            if (s == 0 || s >= sidComputed.length || sidComputed[s])
-              continue;
-            sidComputed[s] = true;
-            BlockState bs = Block.getStateFromRawId(s);
-            if (bs.isAir()) {
-              sidSkip[s] = true;
-              continue;
-            }
-            Block blk = bs.getBlock();
-            sidIsWater[s] = (blk == Blocks.WATER) ||
-                (!bs.getFluidState().isEmpty() && blk != Blocks.LAVA);
-            boolean isWaterN = sidIsWater[s];
-            if (isLeafBlock(blk)) {
-              sidOpaque[s] = (leafMode != 1);
-            } else if (!bs.getFluidState().isEmpty()) {
-              sidOpaque[s] = isWaterN ? false : bs.isOpaqueFullCube();
-            } else {
-              sidOpaque[s] = bs.isOpaqueFullCube();
-            }
-          }
-        }
-        for (int y = 0; y < SECTION_SIZE; y++) {
-          for (int z = 0; z < SECTION_SIZE; z++) {
-            for (int x = 0; x < SECTION_SIZE; x++) {
-              int idx = y * 256 + z * 16 + x;
-              int sid = blockStates != null ? blockStates[idx] : 0;
-              if (sid == 0 || sidSkip[sid])
-                continue;
-              byte light = lightData != null && idx < lightData.length ? lightData[idx] : 0;
-              byte pLight = (byte) ((light & 0xF) | (((light >> 4) & 0xF) << 4));
-              byte r = sidR[sid], g = sidG[sid], b = sidB[sid], a = sidAlpha[sid];
-              int sidBase = sid * 6; 
-              boolean isWater = sidIsWater[sid];
-              int waterDrop = isWater ? 32 : 0; 
-              boolean[] sf = isWater ? null : skipFace;
-              ByteBuffer targetBuf = isWater ? waterBuffer : vertexBuffer;
-              if ((sf == null || !sf[1]) &&
-                  !shouldCullFace(isWater, blockStates, idx + 256, y, 15, sidOpaque, sidIsWater, nYPos, z * 16 + x)) {
-                int uv = sidBase + 1;
-                byte fr = (sidFaceHasSprite[uv] && !sidFaceHasTint[uv]) ? (byte) 0xFF : r;
-                byte fg = (sidFaceHasSprite[uv] && !sidFaceHasTint[uv]) ? (byte) 0xFF : g;
-                byte fb = (sidFaceHasSprite[uv] && !sidFaceHasTint[uv]) ? (byte) 0xFF : b;
-                if (isWater)
-                  waterQuadCount++;
-                else
-                  opaqueQuadCount++;
-                emitFaceInlineWater(targetBuf, x, y, z, 1, pLight, fr, fg, fb, a,
-                    sidFaceHasSprite[uv], sidFaceUMin[uv], sidFaceUMax[uv], sidFaceVMin[uv], sidFaceVMax[uv],
-                    waterDrop);
-              }
-              if ((sf == null || !sf[0]) &&
-                  !shouldCullFace(isWater, blockStates, idx - 256, y, 0, sidOpaque, sidIsWater, nYNeg, z * 16 + x)) {
-                int uv = sidBase + 0;
-                byte fr = (sidFaceHasSprite[uv] && !sidFaceHasTint[uv]) ? (byte) 0xFF : r;
-                byte fg = (sidFaceHasSprite[uv] && !sidFaceHasTint[uv]) ? (byte) 0xFF : g;
-                byte fb = (sidFaceHasSprite[uv] && !sidFaceHasTint[uv]) ? (byte) 0xFF : b;
-                if (isWater)
-                  waterQuadCount++;
-                else
-                  opaqueQuadCount++;
-                emitFaceInlineWater(targetBuf, x, y, z, 0, pLight, fr, fg, fb, a,
-                    sidFaceHasSprite[uv], sidFaceUMin[uv], sidFaceUMax[uv], sidFaceVMin[uv], sidFaceVMax[uv], 0);
-              }
-              if ((sf == null || !sf[3]) &&
-                  !shouldCullFace(isWater, blockStates, idx + 16, z, 15, sidOpaque, sidIsWater, nZPos, y * 16 + x)) {
-                int uv = sidBase + 3;
-                byte fr = (sidFaceHasSprite[uv] && !sidFaceHasTint[uv]) ? (byte) 0xFF : r;
-                byte fg = (sidFaceHasSprite[uv] && !sidFaceHasTint[uv]) ? (byte) 0xFF : g;
-                byte fb = (sidFaceHasSprite[uv] && !sidFaceHasTint[uv]) ? (byte) 0xFF : b;
-                if (isWater)
-                  waterQuadCount++;
-                else
-                  opaqueQuadCount++;
-                emitFaceInlineWater(targetBuf, x, y, z, 3, pLight, fr, fg, fb, a,
-                    sidFaceHasSprite[uv], sidFaceUMin[uv], sidFaceUMax[uv], sidFaceVMin[uv], sidFaceVMax[uv],
-                    waterDrop);
-              }
-              if ((sf == null || !sf[2]) &&
-                  !shouldCullFace(isWater, blockStates, idx - 16, z, 0, sidOpaque, sidIsWater, nZNeg, y * 16 + x)) {
-                int uv = sidBase + 2;
-                byte fr = (sidFaceHasSprite[uv] && !sidFaceHasTint[uv]) ? (byte) 0xFF : r;
-                byte fg = (sidFaceHasSprite[uv] && !sidFaceHasTint[uv]) ? (byte) 0xFF : g;
-                byte fb = (sidFaceHasSprite[uv] && !sidFaceHasTint[uv]) ? (byte) 0xFF : b;
-                if (isWater)
-                  waterQuadCount++;
-                else
-                  opaqueQuadCount++;
-                emitFaceInlineWater(targetBuf, x, y, z, 2, pLight, fr, fg, fb, a,
-                    sidFaceHasSprite[uv], sidFaceUMin[uv], sidFaceUMax[uv], sidFaceVMin[uv], sidFaceVMax[uv],
-                    waterDrop);
-              }
-              if ((sf == null || !sf[5]) &&
-                  !shouldCullFace(isWater, blockStates, idx + 1, x, 15, sidOpaque, sidIsWater, nXPos, y * 16 + z)) {
-                int uv = sidBase + 5;
-                byte fr = (sidFaceHasSprite[uv] && !sidFaceHasTint[uv]) ? (byte) 0xFF : r;
-                byte fg = (sidFaceHasSprite[uv] && !sidFaceHasTint[uv]) ? (byte) 0xFF : g;
-                byte fb = (sidFaceHasSprite[uv] && !sidFaceHasTint[uv]) ? (byte) 0xFF : b;
-                if (isWater)
-                  waterQuadCount++;
-                else
-                  opaqueQuadCount++;
-                emitFaceInlineWater(targetBuf, x, y, z, 5, pLight, fr, fg, fb, a,
-                    sidFaceHasSprite[uv], sidFaceUMin[uv], sidFaceUMax[uv], sidFaceVMin[uv], sidFaceVMax[uv],
-                    waterDrop);
-              }
-              if ((sf == null || !sf[4]) &&
-                  !shouldCullFace(isWater, blockStates, idx - 1, x, 0, sidOpaque, sidIsWater, nXNeg, y * 16 + z)) {
-                int uv = sidBase + 4;
-                byte fr = (sidFaceHasSprite[uv] && !sidFaceHasTint[uv]) ? (byte) 0xFF : r;
-                byte fg = (sidFaceHasSprite[uv] && !sidFaceHasTint[uv]) ? (byte) 0xFF : g;
-                byte fb = (sidFaceHasSprite[uv] && !sidFaceHasTint[uv]) ? (byte) 0xFF : b;
-                if (isWater)
-                  waterQuadCount++;
-                else
-                  opaqueQuadCount++;
-                emitFaceInlineWater(targetBuf, x, y, z, 4, pLight, fr, fg, fb, a,
-                    sidFaceHasSprite[uv], sidFaceUMin[uv], sidFaceUMax[uv], sidFaceVMin[uv], sidFaceVMax[uv],
-                    waterDrop);
-              }
-            }
-          }
-        }
-        fallbackBlocks = 4096; 
-      } else {
-        int maxSidLod01 = 0;
-        if (blockStates != null)
-          for (int i = 0; i < 4096; i++) {
-            if (blockStates[i] > maxSidLod01)
-              maxSidLod01 = blockStates[i];
-          }
-        if (nXNeg != null)
-          for (int s : nXNeg) {
-            if (s > maxSidLod01)
-              maxSidLod01 = s;
-          }
-        if (nXPos != null)
-          for (int s : nXPos) {
-            if (s > maxSidLod01)
-              maxSidLod01 = s;
-          }
-        if (nYNeg != null)
-          for (int s : nYNeg) {
-            if (s > maxSidLod01)
-              maxSidLod01 = s;
-          }
-        if (nYPos != null)
-          for (int s : nYPos) {
-            if (s > maxSidLod01)
-              maxSidLod01 = s;
-          }
-        if (nZNeg != null)
-          for (int s : nZNeg) {
-            if (s > maxSidLod01)
-              maxSidLod01 = s;
-          }
-        if (nZPos != null)
-          for (int s : nZPos) {
-            if (s > maxSidLod01)
-              maxSidLod01 = s;
-          }
-        byte[] oFlag = new byte[maxSidLod01 + 1];
-        BlockState[] stateArr = new BlockState[maxSidLod01 + 1];
-        BlockStateModel[] modelArr = new BlockStateModel[maxSidLod01 + 1];
-        boolean[] modelComputed = new boolean[maxSidLod01 + 1];
-        boolean[] sidPropsComputed = new boolean[maxSidLod01 + 1];
-        boolean[] sidIsAir = new boolean[maxSidLod01 + 1];
-        boolean[] sidShouldSkip = new boolean[maxSidLod01 + 1]; 
-        byte[] sidTintR = new byte[maxSidLod01 + 1];
-        byte[] sidTintG = new byte[maxSidLod01 + 1];
-        byte[] sidTintB = new byte[maxSidLod01 + 1];
-        boolean[] sidIsLeaf = new boolean[maxSidLod01 + 1];
-        boolean[] sidForceOpaque = new boolean[maxSidLod01 + 1];
-        byte[] sidBlockAlpha = new byte[maxSidLod01 + 1];
-        boolean[] sidIsNonFull = new boolean[maxSidLod01 + 1];
-        boolean[] sidIsWaterLod0 = new boolean[maxSidLod01 + 1];
-        boolean[] sidIsWaterloggedLod0 = new boolean[maxSidLod01 + 1]; 
-        byte[] sidBiomeTintType = new byte[maxSidLod01 + 1]; 
-        Random rand = REUSABLE_RANDOM.get();
-        int[] sectionBiomeColors = getSectionBiomeColors(
-            mc.world, chunkX, chunkY, chunkZ);
-        sidShouldSkip[0] = true; 
-        if (blockStates != null) {
-          for (int i = 0; i < 4096; i++) {
-            int sid = blockStates[i];
-            if (sid == 0 || sidPropsComputed[sid])
-              continue;
-            sidPropsComputed[sid] = true;
-            BlockState bs = Block.getStateFromRawId(sid);
-            stateArr[sid] = bs;
-            if (bs.isAir()) {
-              sidShouldSkip[sid] = true;
-              sidIsAir[sid] = true;
-              continue;
-            }
-            if (lodLevel > 0 && !shouldRenderAtLod(bs, lodLevel)) {
-              sidShouldSkip[sid] = true;
-              continue;
-            }
-            Block blk = bs.getBlock();
-            boolean isLeaf = isLeafBlock(blk);
-            boolean isWater = (blk == Blocks.WATER);
-            boolean isLava = (blk == Blocks.LAVA);
-            boolean isFluid = isWater || isLava;
-            sidIsLeaf[sid] = isLeaf;
-            sidForceOpaque[sid] = isLeaf && leafMode == 0;
-            sidBlockAlpha[sid] = isWater ? (byte) 220 : (byte) 255;
-            sidIsNonFull[sid] = !bs.isOpaqueFullCube() && !isFluid && !isLeaf;
-            sidIsWaterLod0[sid] = isWater;
-            sidIsWaterloggedLod0[sid] = !isWater && !isLava && !bs.getFluidState().isEmpty();
-            byte tintType = getBiomeTintType(blk);
-            sidBiomeTintType[sid] = tintType;
-            int tintColor;
-            if (tintType != TINT_NONE && tintType < sectionBiomeColors.length) {
-              tintColor = sectionBiomeColors[tintType];
-            } else {
-              tintColor = getBlockColor(bs);
-            }
-            sidTintR[sid] = (byte) ((tintColor >> 16) & 0xFF);
-            sidTintG[sid] = (byte) ((tintColor >> 8) & 0xFF);
-            sidTintB[sid] = (byte) (tintColor & 0xFF);
-            if (blockModels != null) {
-              try {
-                modelArr[sid] = blockModels.getModel(bs);
-              } catch (Exception ignored) {
-              }
-              modelComputed[sid] = true;
-            }
-          }
-        }
-        Sprite waterSpriteLod0 = null;
-        if (blockModels != null) {
-          try {
-            var wModel = blockModels.getModel(Blocks.WATER.getDefaultState());
-            if (wModel != null)
-              waterSpriteLod0 = wModel.particleSprite();
-          } catch (Exception ignored) {
-          }
-        }
-        for (int y = 0; y < SECTION_SIZE; y++) {
-          for (int z = 0; z < SECTION_SIZE; z++) {
-            for (int x = 0; x < SECTION_SIZE; x++) {
-              int idx = y * 256 + z * 16 + x;
-              int stateId = blockStates != null && idx < blockStates.length
-                  ? blockStates[idx]
-                  : 0;
-              if (stateId == 0 || sidShouldSkip[stateId])
-                continue;
-              byte light = lightData != null && idx < lightData.length
-                  ? lightData[idx]
-                  : 0;
-              byte packedLight = (byte) ((light & 0xF) | ((light >> 4) & 0xF) << 4);
-              byte tintR = sidTintR[stateId];
-              byte tintG = sidTintG[stateId];
-              byte tintB = sidTintB[stateId];
-              boolean forceOpaque = sidForceOpaque[stateId];
-              byte blockAlpha = sidBlockAlpha[stateId];
-              boolean isNonFullBlock = sidIsNonFull[stateId];
-              boolean isWaterBaked = sidIsWaterLod0[stateId];
-              if (blockModels != null) {
-                try {
-                  BlockStateModel model = modelArr[stateId];
-                  if (model != null) {
-                    long seed = (long) (chunkX * 16 + x) * 3129871L ^
-                        (long) (chunkZ * 16 + z) * 116129781L ^
-                        (long) (chunkY * 16 + y);
-                    rand.setSeed(seed);
-                    int quadsThisBlock = 0;
-                    List<BlockModelPart> parts = model.getParts(rand);
-                    for (BlockModelPart part : parts) {
-                      for (Direction dir : ALL_DIRECTIONS) {
-                        if (skipFace != null && skipFace[dir.ordinal()])
-                          continue;
-                        int nx = x + dir.getOffsetX();
-                        int ny = y + dir.getOffsetY();
-                        int nz = z + dir.getOffsetZ();
-                        if (isWaterBaked && isWaterAt(blockStates, nx, ny, nz,
-                            nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos)) {
-                          dbgWaterBakedCull++;
-                          continue;
-                        }
-                        if (!isTransparentFlat(blockStates, nx, ny, nz, leafMode,
-                            nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos, oFlag))
-                          continue;
-                        List<BakedQuad> quads = part.getQuads(dir);
-                        if (quads != null) {
-                          for (BakedQuad quad : quads) {
-                            if (opaqueQuadCount + waterQuadCount >= MAX_QUADS)
-                              break;
-                            ByteBuffer tbuf = isWaterBaked ? waterBuffer : vertexBuffer;
-                            int emitted = emitBakedQuad(tbuf, quad, x, y,
-                                z, packedLight, tintR,
-                                tintG, tintB, forceOpaque,
-                                blockAlpha);
-                            if (isWaterBaked)
-                              waterQuadCount += emitted;
-                            else
-                              opaqueQuadCount += emitted;
-                            quadsThisBlock++;
-                          }
-                        }
-                      }
-                      if (!skipNonDirectionalQuads) {
-                        List<BakedQuad> nonDirQuads = part.getQuads(null);
-                        if (nonDirQuads != null) {
-                          for (BakedQuad quad : nonDirQuads) {
-                            if (opaqueQuadCount + waterQuadCount >= MAX_QUADS)
-                              break;
-                            ByteBuffer tbuf = isWaterBaked ? waterBuffer : vertexBuffer;
-                            int emitted = emitBakedQuad(tbuf, quad, x, y, z,
-                                packedLight, tintR, tintG,
-                                tintB, forceOpaque,
-                                blockAlpha);
-                            if (isWaterBaked)
-                              waterQuadCount += emitted;
-                            else
-                              opaqueQuadCount += emitted;
-                            quadsThisBlock++;
-                          }
-                        }
-                      }
-                    }
-                    if (quadsThisBlock > 0) {
-                      if (isWaterBaked)
-                        dbgWaterBaked++;
-                      bakedQuadBlocks++;
-                      if (sidIsWaterloggedLod0[stateId] && waterSpriteLod0 != null) {
-                        byte wAlpha = (byte) 220;
-                        int wDrop2 = 32;
-                        if (!isWaterAt(blockStates, x, y + 1, z, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos) &&
-                            isTransparentFlat(blockStates, x, y + 1, z, leafMode, nXNeg, nXPos, nYNeg, nYPos, nZNeg,
-                                nZPos, oFlag))
-                          waterQuadCount += emitFaceWater(waterBuffer, x, y, z, 1, waterSpriteLod0, packedLight, tintR,
-                              tintG, tintB, wAlpha, wDrop2);
-                        if (!isWaterAt(blockStates, x, y - 1, z, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos) &&
-                            isTransparentFlat(blockStates, x, y - 1, z, leafMode, nXNeg, nXPos, nYNeg, nYPos, nZNeg,
-                                nZPos, oFlag))
-                          waterQuadCount += emitFaceWater(waterBuffer, x, y, z, 0, waterSpriteLod0, packedLight, tintR,
-                              tintG, tintB, wAlpha, 0);
-                        if (!isWaterAt(blockStates, x, y, z + 1, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos) &&
-                            isTransparentFlat(blockStates, x, y, z + 1, leafMode, nXNeg, nXPos, nYNeg, nYPos, nZNeg,
-                                nZPos, oFlag))
-                          waterQuadCount += emitFaceWater(waterBuffer, x, y, z, 3, waterSpriteLod0, packedLight, tintR,
-                              tintG, tintB, wAlpha, wDrop2);
-                        if (!isWaterAt(blockStates, x, y, z - 1, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos) &&
-                            isTransparentFlat(blockStates, x, y, z - 1, leafMode, nXNeg, nXPos, nYNeg, nYPos, nZNeg,
-                                nZPos, oFlag))
-                          waterQuadCount += emitFaceWater(waterBuffer, x, y, z, 2, waterSpriteLod0, packedLight, tintR,
-                              tintG, tintB, wAlpha, wDrop2);
-                        if (!isWaterAt(blockStates, x + 1, y, z, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos) &&
-                            isTransparentFlat(blockStates, x + 1, y, z, leafMode, nXNeg, nXPos, nYNeg, nYPos, nZNeg,
-                                nZPos, oFlag))
-                          waterQuadCount += emitFaceWater(waterBuffer, x, y, z, 5, waterSpriteLod0, packedLight, tintR,
-                              tintG, tintB, wAlpha, wDrop2);
-                        if (!isWaterAt(blockStates, x - 1, y, z, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos) &&
-                            isTransparentFlat(blockStates, x - 1, y, z, leafMode, nXNeg, nXPos, nYNeg, nYPos, nZNeg,
-                                nZPos, oFlag))
-                          waterQuadCount += emitFaceWater(waterBuffer, x, y, z, 4, waterSpriteLod0, packedLight, tintR,
-                              tintG, tintB, wAlpha, wDrop2);
-                      }
-                      continue;
-                    }
-                  }
-                } catch (Exception e) {
-                }
-              }
-              fallbackBlocks++;
-              if (isWaterBaked)
-                dbgWaterFallback++;
-              if (isNonFullBlock) {
-                if (sidIsWaterloggedLod0[stateId] && waterSpriteLod0 != null) {
-                  byte wAlpha = (byte) 220;
-                  int wDrop2 = 32;
-                  if (!isWaterAt(blockStates, x, y + 1, z, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos) &&
-                      isTransparentFlat(blockStates, x, y + 1, z, leafMode, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos,
-                          oFlag))
-                    waterQuadCount += emitFaceWater(waterBuffer, x, y, z, 1, waterSpriteLod0, packedLight, tintR, tintG,
-                        tintB, wAlpha, wDrop2);
-                  if (!isWaterAt(blockStates, x, y - 1, z, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos) &&
-                      isTransparentFlat(blockStates, x, y - 1, z, leafMode, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos,
-                          oFlag))
-                    waterQuadCount += emitFaceWater(waterBuffer, x, y, z, 0, waterSpriteLod0, packedLight, tintR, tintG,
-                        tintB, wAlpha, 0);
-                  if (!isWaterAt(blockStates, x, y, z + 1, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos) &&
-                      isTransparentFlat(blockStates, x, y, z + 1, leafMode, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos,
-                          oFlag))
-                    waterQuadCount += emitFaceWater(waterBuffer, x, y, z, 3, waterSpriteLod0, packedLight, tintR, tintG,
-                        tintB, wAlpha, wDrop2);
-                  if (!isWaterAt(blockStates, x, y, z - 1, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos) &&
-                      isTransparentFlat(blockStates, x, y, z - 1, leafMode, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos,
-                          oFlag))
-                    waterQuadCount += emitFaceWater(waterBuffer, x, y, z, 2, waterSpriteLod0, packedLight, tintR, tintG,
-                        tintB, wAlpha, wDrop2);
-                  if (!isWaterAt(blockStates, x + 1, y, z, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos) &&
-                      isTransparentFlat(blockStates, x + 1, y, z, leafMode, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos,
-                          oFlag))
-                    waterQuadCount += emitFaceWater(waterBuffer, x, y, z, 5, waterSpriteLod0, packedLight, tintR, tintG,
-                        tintB, wAlpha, wDrop2);
-                  if (!isWaterAt(blockStates, x - 1, y, z, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos) &&
-                      isTransparentFlat(blockStates, x - 1, y, z, leafMode, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos,
-                          oFlag))
-                    waterQuadCount += emitFaceWater(waterBuffer, x, y, z, 4, waterSpriteLod0, packedLight, tintR, tintG,
-                        tintB, wAlpha, wDrop2);
-                }
-                continue;
-              }
-              Sprite sprite = (modelArr[stateId] != null) ? modelArr[stateId].particleSprite() : null;
-              boolean isWaterBlock = sidIsWaterLod0[stateId];
-              int wDrop = isWaterBlock ? 32 : 0;
-              ByteBuffer fbuf = isWaterBlock ? waterBuffer : vertexBuffer;
-              if ((!isWaterBlock || !isWaterAt(blockStates, x, y + 1, z, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos)) &&
-                  isTransparentFlat(blockStates, x, y + 1, z, leafMode, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos,
-                      oFlag)) {
-                int emitted = emitFaceWater(fbuf, x, y, z, 1, sprite, packedLight, tintR, tintG, tintB,
-                    blockAlpha, wDrop);
-                if (isWaterBlock)
-                  waterQuadCount += emitted;
-                else
-                  opaqueQuadCount += emitted;
-              }
-              if ((!isWaterBlock || !isWaterAt(blockStates, x, y - 1, z, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos)) &&
-                  isTransparentFlat(blockStates, x, y - 1, z, leafMode, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos,
-                      oFlag)) {
-                int emitted = emitFaceWater(fbuf, x, y, z, 0, sprite, packedLight, tintR, tintG, tintB,
-                    blockAlpha, wDrop);
-                if (isWaterBlock)
-                  waterQuadCount += emitted;
-                else
-                  opaqueQuadCount += emitted;
-              }
-              if ((!isWaterBlock || !isWaterAt(blockStates, x, y, z + 1, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos)) &&
-                  isTransparentFlat(blockStates, x, y, z + 1, leafMode, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos,
-                      oFlag)) {
-                int emitted = emitFaceWater(fbuf, x, y, z, 3, sprite, packedLight, tintR, tintG, tintB,
-                    blockAlpha, wDrop);
-                if (isWaterBlock)
-                  waterQuadCount += emitted;
-                else
-                  opaqueQuadCount += emitted;
-              }
-              if ((!isWaterBlock || !isWaterAt(blockStates, x, y, z - 1, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos)) &&
-                  isTransparentFlat(blockStates, x, y, z - 1, leafMode, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos,
-                      oFlag)) {
-                int emitted = emitFaceWater(fbuf, x, y, z, 2, sprite, packedLight, tintR, tintG, tintB,
-                    blockAlpha, wDrop);
-                if (isWaterBlock)
-                  waterQuadCount += emitted;
-                else
-                  opaqueQuadCount += emitted;
-              }
-              if ((!isWaterBlock || !isWaterAt(blockStates, x + 1, y, z, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos)) &&
-                  isTransparentFlat(blockStates, x + 1, y, z, leafMode, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos,
-                      oFlag)) {
-                int emitted = emitFaceWater(fbuf, x, y, z, 5, sprite, packedLight, tintR, tintG, tintB,
-                    blockAlpha, wDrop);
-                if (isWaterBlock)
-                  waterQuadCount += emitted;
-                else
-                  opaqueQuadCount += emitted;
-              }
-              if ((!isWaterBlock || !isWaterAt(blockStates, x - 1, y, z, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos)) &&
-                  isTransparentFlat(blockStates, x - 1, y, z, leafMode, nXNeg, nXPos, nYNeg, nYPos, nZNeg, nZPos,
-                      oFlag)) {
-                int emitted = emitFaceWater(fbuf, x, y, z, 4, sprite, packedLight, tintR, tintG, tintB,
-                    blockAlpha, wDrop);
-                if (isWaterBlock)
-                  waterQuadCount += emitted;
-                else
-                  opaqueQuadCount += emitted;
-              }
-            }
-          }
-        }
-      } 
-      int quadCount = opaqueQuadCount + waterQuadCount;
-      if (waterQuadCount > 0) {
-        waterBuffer.flip();
-        vertexBuffer.put(waterBuffer);
+      SectionMeshKernel kernel = KERNEL_POOL.get();
+      if (!kernel.build(volume, props, chunkX, chunkY,
+          chunkZ, lodLevel, leafMode, biomeColors, biomeGrid, waterSprite,
+          job)) {
+        cancelledBuilds++;
+        return;
       }
+      int opaqueQuadCount = kernel.opaqueQuadCount;
+      int waterQuadCount = kernel.waterQuadCount;
+      int bakedQuadBlocks = kernel.bakedQuadBlocks;
+      int fallbackBlocks = kernel.fallbackBlocks;
+      int quadCount = kernel.getQuadCount();
+      ByteBuffer vertexBuffer = kernel.vertexBuffer;
       if (meshBuildCount <= 3) {
         MetalLogger.info("[BUILD_V9 DIAG] chunk[%d,%d,%d] quads=%d opaque=%d water=%d baked=%d fallback=%d lod=%d",
             chunkX, chunkY, chunkZ, quadCount, opaqueQuadCount, waterQuadCount,
             bakedQuadBlocks, fallbackBlocks, lodLevel);
       }
       if (quadCount == 0) {
-        ChunkMeshData old = meshCache.remove(key);
-        if (old != null) {
-          NativeBridge.nUnregisterChunkMesh(chunkX, chunkY, chunkZ);
-          NativeBridge.nDestroyBuffer(old.bufferHandle);
-        }
+        freeMesh(unpublish(key));
         return;
       }
-      vertexBuffer.flip();
+      if (vertexArena == null)
+        return;
+      float[] translucentCentroids = waterQuadCount > 0
+          ? TranslucentSorter.centroids(vertexBuffer, opaqueQuadCount,
+              waterQuadCount)
+          : null;
       int dataLen = quadCount * 4 * VERTEX_STRIDE;
-      long bufferHandle = NativeBridge.nCreateBuffer(
-          deviceHandle, dataLen, NativeMemory.STORAGE_MODE_SHARED);
-      NativeBridge.nUploadBufferDataDirect(bufferHandle, vertexBuffer, 0,
-          dataLen);
-      ChunkMeshData mesh = new ChunkMeshData(bufferHandle, quadCount, chunkX,
-          chunkY, chunkZ, lodLevel);
-      ChunkMeshData old = meshCache.put(key, mesh);
-      NativeBridge.nRegisterChunkMesh(chunkX, chunkY, chunkZ,
-          bufferHandle, quadCount, opaqueQuadCount, lodLevel);
-      if (old != null) {
-        NativeBridge.nDestroyBuffer(old.bufferHandle);
+      int vertexFormat = CompactVertexFormat.FORMAT_STANDARD;
+      int paletteOffset = 0;
+      if (COMPACT_VERTICES) {
+        CompactVertexFormat compact = COMPACT_POOL.get();
+        int compactLen = compact.encode(vertexBuffer, quadCount);
+        if (compactLen > 0 && compactLen < dataLen && compact.isLossless()) {
+          compactMeshes++;
+          compactBytesSaved += dataLen - compactLen;
+          vertexBuffer = compact.output;
+          dataLen = compactLen;
+          vertexFormat = CompactVertexFormat.FORMAT_COMPACT;
+          paletteOffset = compact.getPaletteOffset();
+        } else {
+          compactFallbacks++;
+        }
       }
-      dirtyKeys.remove(key);
+      if (!publishMesh(key, chunkX, chunkY, chunkZ, lodLevel, vertexBuffer,
+          dataLen, quadCount, opaqueQuadCount, kernel.faceQuadCounts.clone(),
+          vertexFormat, paletteOffset, translucentCentroids, boundaryHashes))
+        return;
+      if (disk != null)
+        disk.store(key, lodLevel, contentHash, quadCount, opaqueQuadCount,
+            kernel.faceQuadCounts, vertexFormat, paletteOffset,
+            translucentCentroids, vertexBuffer, dataLen);
     } catch (Exception e) {
       MetalLogger.error("Meshing error for chunk [%d,%d,%d]", chunkX, chunkY,
           chunkZ);
+      retryBuild(key, RETRY_NANOS * 4);
     } finally {
       long buildElapsed = System.nanoTime() - buildStart;
       meshBuildTimeAcc += buildElapsed;
@@ -1112,97 +742,141 @@ public class CustomChunkMesher {
             avgMs, samples, slowAvg, lodSlowCount, fastAvg, lodFastCount,
             pipelineCount > 0 ? (pipelineTimeAcc / 1e6) / pipelineCount : 0.0, pipelineCount);
         MetalLogger.info(
-            "WATER_DBG: boundaryCullHit=%d boundaryWaterMiss=%d boundaryNullArr=%d | waterBaked=%d waterFallback=%d waterBakedFaceCull=%d nonFullSkip=%d",
-            dbgBoundaryCullHit, dbgBoundaryWaterMiss, dbgBoundaryNullArr,
-            dbgWaterBaked, dbgWaterFallback, dbgWaterBakedCull, dbgNonFullSkip);
+            "WATER_DBG: waterBaked=%d waterFallback=%d waterBakedFaceCull=%d nonFullSkip=%d",
+            SectionMeshKernel.dbgWaterBaked, SectionMeshKernel.dbgWaterFallback,
+            SectionMeshKernel.dbgWaterBakedCull, SectionMeshKernel.dbgNonFullSkip);
+        long facesIn = SectionMeshKernel.greedyFacesIn;
+        long quadsOut = SectionMeshKernel.greedyQuadsOut;
+        MetalLogger.info("GREEDY: facesIn=%d quadsOut=%d ratio=%.2f", facesIn,
+            quadsOut, quadsOut > 0 ? (double) facesIn / quadsOut : 0.0);
+        long lodSections = SectionMeshKernel.downsampledSections;
+        MetalLogger.info("LOD_DOWNSAMPLE: sections=%d avgCells=%.1f",
+            lodSections, lodSections > 0
+                ? (double) SectionMeshKernel.downsampledCells / lodSections
+                : 0.0);
+        MetalLogger.info("SNAPSHOT: %s | %s", SectionSnapshot.getDebugStats(),
+            LightSnapshot.getDebugStats());
+        MetalLogger.info("TEMPLATES: templateBlocks=%d seededModelBlocks=%d",
+            SectionMeshKernel.templateBlocks, SectionMeshKernel.seededModelBlocks);
+        MetalLogger.info("SCHEDULER: %s cancelledBuilds=%d",
+            scheduler.getDebugStats(), cancelledBuilds);
+        BufferArena arena = vertexArena;
+        if (arena != null)
+          MetalLogger.info("ARENA: %s arenaFullBuilds=%d retriedBuilds=%d pendingRetries=%d",
+              arena.getDebugStats(), arenaFullBuilds, retriedBuilds,
+              buildRetries.size());
+        MetalLogger.info("TRANSLUCENT_SORT: %s",
+            translucentSorter.getDebugStats());
+        long rebuilds = publishedRebuilds;
+        MetalLogger.info("MESH_HASH: rebuilds=%d identical=%d (%.1f%%) skipped=%.1fMB",
+            rebuilds, identicalRebuilds,
+            rebuilds > 0 ? 100.0 * identicalRebuilds / rebuilds : 0.0,
+            identicalBytesSkipped / 1048576.0);
+        MetalLogger.info("NEIGHBOR: requests=%d unchanged=%d coalesced=%d rebuilds=%d pending=%d",
+            neighborRequests, neighborUnchanged, neighborCoalesced,
+            neighborRebuilds, pendingNeighborRebuilds.size());
+        long grids = biomeGridsSampled;
+        MetalLogger.info("BIOME_GRID: sampled=%d cached=%d avgLayers=%.1f avg=%.3fms",
+            grids, biomeGrids.size(),
+            grids > 0 ? (double) biomeGridLayers / grids : 0.0,
+            grids > 0 ? biomeGridNanos / 1e6 / grids : 0.0);
+        MeshDiskCache disk = diskCache;
+        if (disk != null)
+          MetalLogger.info("DISK_CACHE: %s", disk.getDebugStats());
+        if (COMPACT_VERTICES)
+          MetalLogger.info("VERTEX_FMT: compact=%d fallback=%d saved=%.1fMB",
+              compactMeshes, compactFallbacks, compactBytesSaved / 1048576.0);
       }
-      pendingKeys.remove(key);
     }
   }
+  private boolean publishMesh(long key, int chunkX, int chunkY, int chunkZ,
+      int lodLevel, ByteBuffer vertexBuffer, int dataLen, int quadCount,
+      int opaqueQuadCount, int[] faceQuadCounts, int vertexFormat,
+      int paletteOffset, float[] translucentCentroids, long[] boundaryHashes) {
+    BufferArena arena = vertexArena;
+    if (arena == null)
+      return false;
+    long h = ContentHash.mix(ContentHash.SEED, ((long) quadCount << 32) |
+        opaqueQuadCount);
+    h = ContentHash.mix(h, ((long) vertexFormat << 32) | paletteOffset);
+    h = ContentHash.mix(h, lodLevel);
+    long contentHash = ContentHash.finish(
+        ContentHash.buffer(h, vertexBuffer, 0, dataLen));
+    ChunkMeshData current = registry.get(key);
+    if (current != null) {
+      publishedRebuilds++;
+      if (current.contentHash == contentHash && current.lodLevel == lodLevel) {
+        identicalRebuilds++;
+        identicalBytesSkipped += dataLen;
+        current.boundaryHashes = boundaryHashes;
+        registry.clearDirty(key);
+        return true;
+      }
+    }
+    BufferArena.Allocation allocation = arena.allocate(dataLen, key);
+    if (allocation == null) {
+      arenaFullBuilds++;
+      long delay = arenaRetryNanos;
+      arenaRetryNanos = Math.min(delay * 2, MAX_RETRY_NANOS);
+      retryBuild(key, delay);
+      return false;
+    }
+    arenaRetryNanos = RETRY_NANOS;
+    arena.write(allocation, vertexBuffer, 0);
+    ChunkMeshData mesh = new ChunkMeshData(allocation, quadCount,
+        opaqueQuadCount, faceQuadCounts, vertexFormat, paletteOffset, chunkX,
+        chunkY, chunkZ, lodLevel, translucentCentroids, contentHash,
+        boundaryHashes);
+    ChunkMeshData old;
+    synchronized (publishLock) {
+      old = registry.put(key, mesh);
+      registerMesh(mesh);
+    }
+    freeMesh(old);
+    publishedColumns.add(SectionRegistry.columnKey(chunkX, chunkZ));
+    if (translucentCentroids != null)
+      translucentSorter.track(key);
+    return true;
+  }
+  private static long sectionContentHash(PaddedSectionVolume volume,
+      int lodLevel, int leafMode, int[] biomeColors, BiomeColorGrid biomeGrid,
+      Sprite waterSprite) {
+    long h = ContentHash.mix(ContentHash.SEED, lodLevel | (leafMode << 8));
+    h = ContentHash.ints(h, volume.states, PaddedSectionVolume.CELLS);
+    h = ContentHash.bytes(h, volume.light, PaddedSectionVolume.CELLS);
+    h = ContentHash.ints(h, biomeColors, biomeColors.length);
+    if (biomeGrid != null)
+      h = ContentHash.mix(h, biomeGrid.hash);
+    if (waterSprite != null)
+      h = ContentHash.mix(h,
+          ((long) Float.floatToRawIntBits(waterSprite.getMinU()) << 32) |
+              Float.floatToRawIntBits(waterSprite.getMinV()));
+    return ContentHash.finish(h);
+  }
   public ChunkMeshData buildMesh(int chunkX, int chunkY, int chunkZ,
       int[] blockStates, byte[] lightData) {
     buildMeshAsync(chunkX, chunkY, chunkZ, blockStates, lightData);
     return null;
   }
-  private int[] readNeighborFace(ClientWorld world, int nCx, int nCy, int nCz,
-      int faceDir) {
-    if (world == null)
-      return null;
+  private static void loadNeighborFaces(ClientWorld world,
+      PaddedSectionVolume volume, int chunkX, int chunkY, int chunkZ) {
+    loadNeighborFace(world, volume, chunkX - 1, chunkY, chunkZ, 4);
+    loadNeighborFace(world, volume, chunkX + 1, chunkY, chunkZ, 5);
+    loadNeighborFace(world, volume, chunkX, chunkY - 1, chunkZ, 0);
+    loadNeighborFace(world, volume, chunkX, chunkY + 1, chunkZ, 1);
+    loadNeighborFace(world, volume, chunkX, chunkY, chunkZ - 1, 2);
+    loadNeighborFace(world, volume, chunkX, chunkY, chunkZ + 1, 3);
+  }
+  private static void loadNeighborFace(ClientWorld world,
+      PaddedSectionVolume volume, int nCx, int nCy, int nCz, int faceDir) {
     WorldChunk nChunk = world.getChunkManager().getWorldChunk(nCx, nCz);
     if (nChunk == null)
-      return null;
+      return;
     int sectionIdx = nCy - nChunk.getBottomSectionCoord();
     ChunkSection[] sections = nChunk.getSectionArray();
     if (sectionIdx < 0 || sectionIdx >= sections.length)
-      return null;
-    ChunkSection section = sections[sectionIdx];
-    if (section == null || section.isEmpty())
-      return null;
-    int[] face = new int[256];
-    boolean hasAny = false;
-    switch (faceDir) {
-      case 0:
-        for (int z = 0; z < 16; z++)
-          for (int x = 0; x < 16; x++) {
-            BlockState bs = section.getBlockState(x, 15, z);
-            if (!bs.isAir()) {
-              face[z * 16 + x] = Block.getRawIdFromState(bs);
-              hasAny = true;
-            }
-          }
-        break;
-      case 1:
-        for (int z = 0; z < 16; z++)
-          for (int x = 0; x < 16; x++) {
-            BlockState bs = section.getBlockState(x, 0, z);
-            if (!bs.isAir()) {
-              face[z * 16 + x] = Block.getRawIdFromState(bs);
-              hasAny = true;
-            }
-          }
-        break;
-      case 2:
-        for (int y = 0; y < 16; y++)
-          for (int x = 0; x < 16; x++) {
-            BlockState bs = section.getBlockState(x, y, 15);
-            if (!bs.isAir()) {
-              face[y * 16 + x] = Block.getRawIdFromState(bs);
-              hasAny = true;
-            }
-          }
-        break;
-      case 3:
-        for (int y = 0; y < 16; y++)
-          for (int x = 0; x < 16; x++) {
-            BlockState bs = section.getBlockState(x, y, 0);
-            if (!bs.isAir()) {
-              face[y * 16 + x] = Block.getRawIdFromState(bs);
-              hasAny = true;
-            }
-          }
-        break;
-      case 4:
-        for (int y = 0; y < 16; y++)
-          for (int z = 0; z < 16; z++) {
-            BlockState bs = section.getBlockState(15, y, z);
-            if (!bs.isAir()) {
-              face[y * 16 + z] = Block.getRawIdFromState(bs);
-              hasAny = true;
-            }
-          }
-        break;
-      case 5:
-        for (int y = 0; y < 16; y++)
-          for (int z = 0; z < 16; z++) {
-            BlockState bs = section.getBlockState(0, y, z);
-            if (!bs.isAir()) {
-              face[y * 16 + z] = Block.getRawIdFromState(bs);
-              hasAny = true;
-            }
-          }
-        break;
-    }
-    return hasAny ? face : null;
+      return;
+    volume.loadNeighbor(faceDir, sections[sectionIdx]);
   }
   public void buildMeshFromWorld(int chunkX, int chunkY, int chunkZ) {
     buildMeshFromWorld(chunkX, chunkY, chunkZ, 0);
@@ -1216,110 +890,52 @@ public class CustomChunkMesher {
     if (!initialized)
       return;
     long key = packChunkKey(chunkX, chunkY, chunkZ);
-    boolean wasDirty = dirtyKeys.contains(key);
-    long genAtSubmit = dirtyGeneration.getOrDefault(key, 0L);
-    if (!pendingKeys.add(key)) {
-      return;
-    }
-    ExecutorService pool;
-    if (highPriority) {
-      pool = builderPool; 
-    } else {
-      pool = wasDirty ? dirtyRebuildPool : builderPool;
-    }
-    pool.submit(() -> {
-      long genNow = dirtyGeneration.getOrDefault(key, 0L);
-      if (genNow != genAtSubmit) {
-        pendingKeys.remove(key);
-        return;
-      }
+    scheduler.submit(key, chunkX, chunkY, chunkZ, lodLevel, highPriority, job -> {
       try {
         long pipelineStart = System.nanoTime();
         MinecraftClient mc = MinecraftClient.getInstance();
         if (mc == null) {
-          pendingKeys.remove(key);
           return;
         }
         ClientWorld world = mc.world;
         if (world == null) {
-          pendingKeys.remove(key);
           return;
         }
         WorldChunk chunk = world.getChunkManager().getWorldChunk(chunkX, chunkZ);
         if (chunk == null) {
-          pendingKeys.remove(key);
           return;
         }
         int sectionIdx = chunkY - chunk.getBottomSectionCoord();
         ChunkSection[] chunkSections = chunk.getSectionArray();
         if (sectionIdx < 0 || sectionIdx >= chunkSections.length) {
-          pendingKeys.remove(key);
           return;
         }
         ChunkSection section = chunkSections[sectionIdx];
         if (section == null || section.isEmpty()) {
-          pendingKeys.remove(key);
           return;
         }
-        int[] blockStates = BLOCK_STATES_POOL.get();
-        java.util.Arrays.fill(blockStates, 0); 
-        boolean hasAnyBlock = false;
-        for (int y = 0; y < 16; y++) {
-          for (int z = 0; z < 16; z++) {
-            for (int x = 0; x < 16; x++) {
-              BlockState bs = section.getBlockState(x, y, z);
-              if (!bs.isAir()) {
-                blockStates[y * 256 + z * 16 + x] = Block.getRawIdFromState(bs);
-                hasAnyBlock = true;
-              }
-            }
-          }
-        }
-        if (!hasAnyBlock) {
-          pendingKeys.remove(key);
+        SectionSnapshot snapshot = SectionSnapshot.capture(section);
+        if (snapshot.isEmpty()) {
           return;
         }
-        int[] neighborXNeg = null, neighborXPos = null;
-        int[] neighborYNeg = null, neighborYPos = null;
-        int[] neighborZNeg = null, neighborZPos = null;
-        neighborXNeg = readNeighborFace(world, chunkX - 1, chunkY, chunkZ, 4);
-        neighborXPos = readNeighborFace(world, chunkX + 1, chunkY, chunkZ, 5);
-        neighborYNeg = readNeighborFace(world, chunkX, chunkY - 1, chunkZ, 0);
-        neighborYPos = readNeighborFace(world, chunkX, chunkY + 1, chunkZ, 1);
-        neighborZNeg = readNeighborFace(world, chunkX, chunkY, chunkZ - 1, 2);
-        neighborZPos = readNeighborFace(world, chunkX, chunkY, chunkZ + 1, 3);
-        byte[] lightData = LIGHT_DATA_POOL.get();
-        try {
-          LightingProvider lightProvider = world.getLightingProvider();
-          BlockPos.Mutable mutablePos = new BlockPos.Mutable();
-          int baseX = chunkX * 16, baseY = chunkY * 16, baseZ = chunkZ * 16;
-          for (int y = 0; y < 16; y++) {
-            for (int z = 0; z < 16; z++) {
-              for (int x = 0; x < 16; x++) {
-                mutablePos.set(baseX + x, baseY + y, baseZ + z);
-                int bl = lightProvider.get(LightType.BLOCK).getLightLevel(mutablePos);
-                int sl = lightProvider.get(LightType.SKY).getLightLevel(mutablePos);
-                lightData[y * 256 + z * 16 + x] = (byte) ((bl & 0xF) | ((sl & 0xF) << 4));
-              }
-            }
-          }
-        } catch (Exception e) {
-          java.util.Arrays.fill(lightData, (byte) 0xF0);
-        }
-        doMeshBuild(chunkX, chunkY, chunkZ, blockStates, lightData, key,
-            lodLevel, neighborXNeg, neighborXPos, neighborYNeg, neighborYPos,
-            neighborZNeg, neighborZPos);
+        PaddedSectionVolume volume = VOLUME_POOL.get();
+        volume.clear();
+        volume.loadStates(snapshot);
+        loadNeighborFaces(world, volume, chunkX, chunkY, chunkZ);
+        volume.loadLight(LightSnapshot.capture(world, chunkX, chunkY, chunkZ));
+        if (job.isCancelled())
+          return;
+        doMeshBuild(chunkX, chunkY, chunkZ, volume, key, lodLevel, job);
         long pipeElapsed = System.nanoTime() - pipelineStart;
         pipelineTimeAcc += pipeElapsed;
         pipelineCount++;
       } catch (Exception e) {
-        pendingKeys.remove(key);
         MetalLogger.error("Async mesh build error for [%d,%d,%d]: %s", chunkX,
             chunkY, chunkZ, e.getMessage());
       }
     });
   }
-  private int emitBakedQuad(ByteBuffer buf, BakedQuad quad, int blockX,
+  static int emitBakedQuad(ByteBuffer buf, BakedQuad quad, int blockX,
       int blockY, int blockZ, byte packedLight,
       byte tintR, byte tintG, byte tintB,
       boolean forceOpaque, byte vertAlpha) {
@@ -1368,6 +984,55 @@ public class CustomChunkMesher {
     }
     return 1;
   }
+  static boolean addMergeableBakedQuad(GreedyQuadMerger merger,
+      int stateId, BakedQuad quad, Direction dir, int x,
+      int y, int z, byte packedLight, byte tintR, byte tintG, byte tintB,
+      byte blockAlpha) {
+    int d = dirToNormalIndex(dir);
+    short[] uv = merger.uvScratch;
+    if (!QuadTemplate.canonicalFaceUv(quad, d, uv))
+      return false;
+    float shade = quad.shade() ? getFaceShade((byte) d) : 1.0f;
+    boolean tinted = quad.hasTint();
+    byte light = packedLight;
+    int emission = quad.lightEmission();
+    if (emission > 0) {
+      int bl = Math.max(light & 0xF, emission);
+      int sl = (light >> 4) & 0xF;
+      light = (byte) ((bl & 0xF) | ((sl & 0xF) << 4));
+    }
+    addMergedFace(merger, stateId, d, x, y, z, uv[0], uv[1], uv[2], uv[3],
+        (byte) ((tinted ? tintR & 0xFF : 255) * shade),
+        (byte) ((tinted ? tintG & 0xFF : 255) * shade),
+        (byte) ((tinted ? tintB & 0xFF : 255) * shade), blockAlpha, light);
+    return true;
+  }
+  static void addTemplateFace(GreedyQuadMerger merger,
+      QuadTemplate template, int q, int stateId, int d, int x, int y, int z,
+      byte packedLight, byte tintR, byte tintG, byte tintB, byte blockAlpha) {
+    boolean tinted = (template.quadFlags[q] & QuadTemplate.Q_TINT) != 0;
+    float shade = template.shade[q];
+    int u = q * 4;
+    addMergedFace(merger, stateId, d, x, y, z, template.mergeUv[u],
+        template.mergeUv[u + 1], template.mergeUv[u + 2], template.mergeUv[u + 3],
+        (byte) ((tinted ? tintR & 0xFF : 255) * shade),
+        (byte) ((tinted ? tintG & 0xFF : 255) * shade),
+        (byte) ((tinted ? tintB & 0xFF : 255) * shade), blockAlpha,
+        template.light(q, packedLight));
+  }
+  private static void addMergedFace(GreedyQuadMerger merger, int stateId,
+      int d, int x, int y, int z, short uMin, short uMax, short vMin,
+      short vMax, byte sr, byte sg, byte sb, byte blockAlpha, byte light) {
+    int slot = stateId * 6 + d;
+    int material = merger.cachedMaterial(slot);
+    if (material < 0 ||
+        !merger.materialMatches(material, uMin, uMax, vMin, vMax, sr, sg, sb)) {
+      material = merger.findOrAddMaterial(sr, sg, sb, blockAlpha, uMin, uMax,
+          vMin, vMax, false, 0);
+      merger.cacheMaterial(slot, material);
+    }
+    merger.addFace(d, x, y, z, material, light);
+  }
   private static byte dirToNormalIndex(Direction dir) {
     if (dir == null)
       return 1;
@@ -1394,17 +1059,56 @@ public class CustomChunkMesher {
       byte b, byte alpha) {
     return emitFaceScaled(buf, x, y, z, normalIndex, sprite, packedLight, r, g, b, alpha, 1, 0);
   }
-  private int emitFaceWater(ByteBuffer buf, int x, int y, int z, int normalIndex,
+  static int emitFaceWater(ByteBuffer buf, int x, int y, int z, int normalIndex,
       Sprite sprite, byte packedLight, byte r, byte g,
       byte b, byte alpha, int topDrop) {
     return emitFaceScaled(buf, x, y, z, normalIndex, sprite, packedLight, r, g, b, alpha, 1, topDrop);
   }
-  private static final float[] FACE_SHADE = { 0.5f, 1.0f, 0.8f, 0.8f, 0.6f, 0.6f };
+  static final float[] FACE_SHADE = { 0.5f, 1.0f, 0.8f, 0.8f, 0.6f, 0.6f };
   private static void emitFaceInline(ByteBuffer buf, int x, int y, int z,
       int normalIdx, byte light, byte r, byte g, byte b, byte a,
       boolean hasSpr, short uMin, short uMax, short vMin, short vMax) {
     emitFaceInlineWater(buf, x, y, z, normalIdx, light, r, g, b, a, hasSpr, uMin, uMax, vMin, vMax, 0);
   }
+  static int fastMaterial(GreedyQuadMerger merger,
+      BlockStatePropertyTable props, int[] biomeColors, int sid, int normalIdx,
+      boolean isWater, int topDrop) {
+    int uv = sid * 6 + normalIdx;
+    int color = faceColor(props, biomeColors, sid, normalIdx, isWater);
+    int id = merger.cachedMaterial(uv, color);
+    if (id >= 0)
+      return id;
+    boolean hasSprite =
+        (props.faceFlags[uv] & BlockStatePropertyTable.FACE_SPRITE) != 0;
+    float shade = FACE_SHADE[normalIdx];
+    byte sr = (byte) (((color >> 16) & 0xFF) * shade);
+    byte sg = (byte) (((color >> 8) & 0xFF) * shade);
+    byte sb = (byte) ((color & 0xFF) * shade);
+    byte a = isWater ? (byte) 220 : (byte) 255;
+    if (hasSprite) {
+      id = merger.findOrAddMaterial(sr, sg, sb, a, props.faceUMin[uv],
+          props.faceUMax[uv], props.faceVMin[uv], props.faceVMax[uv], isWater,
+          topDrop);
+    } else {
+      id = merger.findOrAddMaterial(sr, sg, sb, a, (short) 0, (short) 65535,
+          (short) 0, (short) 65535, isWater, topDrop);
+    }
+    merger.cacheMaterial(uv, color, id);
+    return id;
+  }
+  static int faceColor(BlockStatePropertyTable props, int[] biomeColors,
+      int sid, int normalIdx, boolean isWater) {
+    byte faceFlags = props.faceFlags[sid * 6 + normalIdx];
+    if ((faceFlags & BlockStatePropertyTable.FACE_SPRITE) != 0 &&
+        (faceFlags & BlockStatePropertyTable.FACE_TINT) == 0)
+      return 0xFFFFFF;
+    if (isWater && !props.is(sid, BlockStatePropertyTable.F_WATER))
+      return biomeColors[TINT_WATER];
+    byte tintType = props.tintType[sid];
+    return tintType != TINT_NONE && tintType < biomeColors.length
+        ? biomeColors[tintType]
+        : props.blockColor[sid];
+  }
   private static void emitFaceInlineWater(ByteBuffer buf, int x, int y, int z,
       int normalIdx, byte light, byte r, byte g, byte b, byte a,
       boolean hasSpr, short uMin, short uMax, short vMin, short vMax,
@@ -1422,60 +1126,10 @@ public class CustomChunkMesher {
     }
     short sx = (short) (x * 256), sy = (short) (y * 256), sz = (short) (z * 256);
     short ex = (short) ((x + 1) * 256), ey = (short) ((y + 1) * 256 - topDrop), ez = (short) ((z + 1) * 256);
-    switch (normalIdx) {
-      case 1: 
-        emitVertex(buf, sx, ey, sz, uMin, vMin, sr, sg, sb, a, light, nIdx);
-        emitVertex(buf, sx, ey, ez, uMin, vMax, sr, sg, sb, a, light, nIdx);
-        emitVertex(buf, ex, ey, ez, uMax, vMax, sr, sg, sb, a, light, nIdx);
-        emitVertex(buf, ex, ey, sz, uMax, vMin, sr, sg, sb, a, light, nIdx);
-        break;
-      case 0: 
-        emitVertex(buf, sx, sy, ez, uMin, vMin, sr, sg, sb, a, light, nIdx);
-        emitVertex(buf, sx, sy, sz, uMin, vMax, sr, sg, sb, a, light, nIdx);
-        emitVertex(buf, ex, sy, sz, uMax, vMax, sr, sg, sb, a, light, nIdx);
-        emitVertex(buf, ex, sy, ez, uMax, vMin, sr, sg, sb, a, light, nIdx);
-        break;
-      case 3: 
-        emitVertex(buf, sx, ey, ez, uMin, vMin, sr, sg, sb, a, light, nIdx);
-        emitVertex(buf, sx, sy, ez, uMin, vMax, sr, sg, sb, a, light, nIdx);
-        emitVertex(buf, ex, sy, ez, uMax, vMax, sr, sg, sb, a, light, nIdx);
-        emitVertex(buf, ex, ey, ez, uMax, vMin, sr, sg, sb, a, light, nIdx);
-        break;
-      case 2: 
-        emitVertex(buf, ex, ey, sz, uMin, vMin, sr, sg, sb, a, light, nIdx);
-        emitVertex(buf, ex, sy, sz, uMin, vMax, sr, sg, sb, a, light, nIdx);
-        emitVertex(buf, sx, sy, sz, uMax, vMax, sr, sg, sb, a, light, nIdx);
-        emitVertex(buf, sx, ey, sz, uMax, vMin, sr, sg, sb, a, light, nIdx);
-        break;
-      case 5: 
-        emitVertex(buf, ex, ey, ez, uMin, vMin, sr, sg, sb, a, light, nIdx);
-        emitVertex(buf, ex, sy, ez, uMin, vMax, sr, sg, sb, a, light, nIdx);
-        emitVertex(buf, ex, sy, sz, uMax, vMax, sr, sg, sb, a, light, nIdx);
-        emitVertex(buf, ex, ey, sz, uMax, vMin, sr, sg, sb, a, light, nIdx);
-        break;
-      case 4: 
-        emitVertex(buf, sx, ey, sz, uMin, vMin, sr, sg, sb, a, light, nIdx);
-        emitVertex(buf, sx, sy, sz, uMin, vMax, sr, sg, sb, a, light, nIdx);
-        emitVertex(buf, sx, sy, ez, uMax, vMax, sr, sg, sb, a, light, nIdx);
-        emitVertex(buf, sx, ey, ez, uMax, vMin, sr, sg, sb, a, light, nIdx);
-        break;
-    }
+    GreedyQuadMerger.emitShadedQuad(buf, normalIdx, sx, sy, sz, ex, ey, ez,
+        uMin, uMax, vMin, vMax, sr, sg, sb, a, light, nIdx);
   }
-  private static void emitVertex(ByteBuffer buf, short px, short py, short pz,
-      short u, short v, byte r, byte g, byte b, byte a, byte light, byte nIdx) {
-    buf.putShort(px);
-    buf.putShort(py);
-    buf.putShort(pz);
-    buf.putShort(u);
-    buf.putShort(v);
-    buf.put(r);
-    buf.put(g);
-    buf.put(b);
-    buf.put(a);
-    buf.put(light);
-    buf.put(nIdx);
-  }
-  private int emitFaceScaled(ByteBuffer buf, int x, int y, int z, int normalIndex,
+  private static int emitFaceScaled(ByteBuffer buf, int x, int y, int z, int normalIndex,
       Sprite sprite, byte packedLight, byte r, byte g,
       byte b, byte alpha, int scale, int topDrop) {
     short[][] positions = getFaceVerticesScaled(x, y, z, normalIndex, scale, topDrop);
@@ -1524,7 +1178,7 @@ public class CustomChunkMesher {
     }
     return 1;
   }
-  private static boolean isLeafBlock(Block block) {
+  static boolean isLeafBlock(Block block) {
     return block == Blocks.OAK_LEAVES || block == Blocks.BIRCH_LEAVES ||
         block == Blocks.SPRUCE_LEAVES || block == Blocks.JUNGLE_LEAVES ||
         block == Blocks.ACACIA_LEAVES || block == Blocks.DARK_OAK_LEAVES ||
@@ -1534,10 +1188,10 @@ public class CustomChunkMesher {
   }
   private static final Map<Block, Integer> BLOCK_COLORS = new IdentityHashMap<>();
   private static final int DEFAULT_BLOCK_COLOR = 0xB0B0B0;
-  private static final byte TINT_NONE = 0;
+  static final byte TINT_NONE = 0;
   private static final byte TINT_GRASS = 1;    
   private static final byte TINT_FOLIAGE = 2;  
-  private static final byte TINT_WATER = 3;    
+  static final byte TINT_WATER = 3;    
   private static final IdentityHashMap<Block, Byte> BIOME_TINT_TYPE = new IdentityHashMap<>();
   static {
     BLOCK_COLORS.put(Blocks.GRASS_BLOCK, 0x7CBE3F);
@@ -1641,7 +1295,7 @@ public class CustomChunkMesher {
     } catch (Exception ignored) {
     }
   }
-  private static byte getBiomeTintType(Block block) {
+  static byte getBiomeTintType(Block block) {
     Byte type = BIOME_TINT_TYPE.get(block);
     return type != null ? type : TINT_NONE;
   }
@@ -1661,7 +1315,18 @@ public class CustomChunkMesher {
       return DEFAULT_BLOCK_COLOR;
     }
   }
-  private static int[] getSectionBiomeColors(ClientWorld world, int chunkX, int chunkY, int chunkZ) {
+  private static Sprite getWaterSprite(MinecraftClient mc) {
+    if (mc == null || mc.getBlockRenderManager() == null)
+      return null;
+    try {
+      BlockStateModel model = mc.getBlockRenderManager().getModels()
+          .getModel(Blocks.WATER.getDefaultState());
+      return model != null ? model.particleSprite() : null;
+    } catch (Exception e) {
+      return null;
+    }
+  }
+  static int[] getSectionBiomeColors(ClientWorld world, int chunkX, int chunkY, int chunkZ) {
     int[] colors = new int[4]; 
     colors[0] = DEFAULT_BLOCK_COLOR;
     if (world == null)
@@ -1679,7 +1344,7 @@ public class CustomChunkMesher {
     }
     return colors;
   }
-  private static int getBlockColor(BlockState state) {
+  static int getBlockColor(BlockState state) {
     if (state == null)
       return 0xC8C8C8;
     return BLOCK_COLORS.getOrDefault(state.getBlock(), DEFAULT_BLOCK_COLOR);
@@ -1687,7 +1352,7 @@ public class CustomChunkMesher {
   private short[][] getFaceVertices(int x, int y, int z, int normalIndex) {
     return getFaceVerticesScaled(x, y, z, normalIndex, 1, 0);
   }
-  private short[][] getFaceVerticesScaled(int x, int y, int z, int normalIndex, int scale, int topDrop) {
+  private static short[][] getFaceVerticesScaled(int x, int y, int z, int normalIndex, int scale, int topDrop) {
     short sx = (short) (x * 256), sy = (short) (y * 256), sz = (short) (z * 256);
     short nex = (short) ((x + scale) * 256), ney = (short) ((y + scale) * 256 - topDrop),
         nez = (short) ((z + scale) * 256);
@@ -1713,27 +1378,57 @@ public class CustomChunkMesher {
         { sx, sy, sz }, { sx, sy, sz }, { sx, sy, sz }, { sx, sy, sz } };
   }
   public ChunkMeshData getMesh(int cx, int cy, int cz) {
-    return meshCache.get(packChunkKey(cx, cy, cz));
+    return registry.get(packChunkKey(cx, cy, cz));
   }
   public void removeMesh(int cx, int cy, int cz) {
-    ChunkMeshData mesh = meshCache.remove(packChunkKey(cx, cy, cz));
-    if (mesh != null) {
-      NativeBridge.nUnregisterChunkMesh(cx, cy, cz);
-      NativeBridge.nDestroyBuffer(mesh.bufferHandle);
+    long key = packChunkKey(cx, cy, cz);
+    pendingDiskLoads.remove(key);
+    freeMesh(unpublish(key));
+  }
+  public int removeColumn(int cx, int cz) {
+    long column = SectionRegistry.columnKey(cx, cz);
+    pendingDiskLoads.keySet().removeIf(
+        key -> SectionRegistry.columnOf(key) == column);
+    List<ChunkMeshData> removed;
+    synchronized (publishLock) {
+      removed = registry.removeColumn(cx, cz);
+      for (ChunkMeshData mesh : removed)
+        NativeBridge.nUnregisterChunkMesh(mesh.chunkX, mesh.chunkY, mesh.chunkZ);
     }
+    for (ChunkMeshData mesh : removed)
+      freeMesh(mesh);
+    return removed.size();
   }
   public void clear() {
-    for (ChunkMeshData mesh : meshCache.values()) {
-      NativeBridge.nUnregisterChunkMesh(mesh.chunkX, mesh.chunkY, mesh.chunkZ);
-      NativeBridge.nDestroyBuffer(mesh.bufferHandle);
+    scheduler.cancelAll();
+    translucentSorter.clear();
+    pendingNeighborRebuilds.clear();
+    sectionRequests.clear();
+    publishedColumns.clear();
+    buildRetries.clear();
+    pendingDiskLoads.clear();
+    biomeGrids.clear();
+    biomeGridCenterX = Integer.MIN_VALUE;
+    biomeGridCenterZ = Integer.MIN_VALUE;
+    MeshDiskCache disk = diskCache;
+    diskCache = null;
+    diskCacheWorld = null;
+    if (disk != null)
+      disk.close();
+    synchronized (publishLock) {
+      registry.clear(mesh -> NativeBridge.nUnregisterChunkMesh(mesh.chunkX,
+          mesh.chunkY, mesh.chunkZ));
     }
-    meshCache.clear();
+    BufferArena arena = vertexArena;
+    vertexArena = null;
+    if (arena != null)
+      arena.close();
     if (globalIndexBufferHandle != 0) {
       NativeBridge.nDestroyBuffer(globalIndexBufferHandle);
       globalIndexBufferHandle = 0;
     }
   }
-  public Collection<ChunkMeshData> getAllMeshes() {
-    return meshCache.values();
+  public SectionRegistry getRegistry() {
+    return registry;
   }
 }
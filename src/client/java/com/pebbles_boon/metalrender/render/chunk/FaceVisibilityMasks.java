@@ -0,0 +1,64 @@
+package com.pebbles_boon.metalrender.render.chunk;
+final class FaceVisibilityMasks {
+  static final int ROWS = 256;
+  private static final int PAD = PaddedSectionVolume.SIZE;
+  private final int[] occluderRows = new int[PAD * PAD];
+  private final int[] waterRows = new int[PAD * PAD];
+  private final int[] open = new int[6 * ROWS];
+  private final int[] openWater = new int[6 * ROWS];
+  void compute(PaddedSectionVolume volume, boolean[] occludes,
+      boolean[] water) {
+    int[] occ = occluderRows;
+    int[] wat = waterRows;
+    int[] states = volume.states;
+    for (int row = 0; row < PAD * PAD; row++) {
+      int base = row * PAD;
+      int o = 0, w = 0;
+      for (int x = 0; x < PAD; x++) {
+        int sid = states[base + x];
+        if (sid == 0)
+          continue;
+        if (sid < occludes.length && occludes[sid])
+          o |= 1 << x;
+        if (sid < water.length && water[sid])
+          w |= 1 << x;
+      }
+      occ[row] = o;
+      wat[row] = w;
+    }
+    for (int y = 0; y < 16; y++) {
+      for (int z = 0; z < 16; z++) {
+        int out = y * 16 + z;
+        int row = (y + 1) * PAD + z + 1;
+        store(out, 0, occ[row - PAD] >>> 1, wat[row - PAD] >>> 1);
+        store(out, 1, occ[row + PAD] >>> 1, wat[row + PAD] >>> 1);
+        store(out, 2, occ[row - 1] >>> 1, wat[row - 1] >>> 1);
+        store(out, 3, occ[row + 1] >>> 1, wat[row + 1] >>> 1);
+        store(out, 4, occ[row], wat[row]);
+        store(out, 5, occ[row] >>> 2, wat[row] >>> 2);
+      }
+    }
+  }
+  private void store(int out, int dir, int occ, int wat) {
+    int visible = ~occ & 0xFFFF;
+    open[dir * ROWS + out] = visible;
+    openWater[dir * ROWS + out] = visible & ~wat;
+  }
+  boolean isOpen(int dir, int x, int y, int z) {
+    return ((open[dir * ROWS + y * 16 + z] >>> x) & 1) != 0;
+  }
+  boolean isOpenForWater(int dir, int x, int y, int z) {
+    return ((openWater[dir * ROWS + y * 16 + z] >>> x) & 1) != 0;
+  }
+  boolean isVisible(boolean water, int dir, int x, int y, int z) {
+    return water ? isOpenForWater(dir, x, y, z) : isOpen(dir, x, y, z);
+  }
+  int faceBits(boolean water, int x, int y, int z) {
+    int[] masks = water ? openWater : open;
+    int row = y * 16 + z;
+    int bits = 0;
+    for (int d = 0; d < 6; d++)
+      bits |= ((masks[d * ROWS + row] >>> x) & 1) << d;
+    return bits;
+  }
+}
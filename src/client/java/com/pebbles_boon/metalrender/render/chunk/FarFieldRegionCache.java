@@ -0,0 +1,114 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+final class FarFieldRegionCache {
+  static final int REGION_SHIFT = 5;
+  static final int REGION_CHUNKS = 1 << REGION_SHIFT;
+  static final int COLUMNS = 16 * 16;
+  private static final int HEIGHT_BIAS = 2048;
+  private static final int HEIGHT_MASK = 0xFFF;
+  private static final class Region {
+    final int[][] columns = new int[REGION_CHUNKS * REGION_CHUNKS][];
+    final int[][] tints = new int[REGION_CHUNKS * REGION_CHUNKS][];
+    int count;
+  }
+  private final HashMap<Long, Region> regions = new HashMap<>();
+  private long lastRegionKey = Long.MIN_VALUE;
+  private Region lastRegion;
+  private int chunks;
+  static int pack(int height, int stateId) {
+    return (stateId << 12) | ((height + HEIGHT_BIAS) & HEIGHT_MASK);
+  }
+  static int height(int column) {
+    return (column & HEIGHT_MASK) - HEIGHT_BIAS;
+  }
+  static int stateId(int column) {
+    return column >>> 12;
+  }
+  private static long regionKey(int rx, int rz) {
+    return ((long) rx << 32) | (rz & 0xFFFFFFFFL);
+  }
+  private static int slot(int cx, int cz) {
+    return ((cz & (REGION_CHUNKS - 1)) << REGION_SHIFT) |
+        (cx & (REGION_CHUNKS - 1));
+  }
+  private Region region(int cx, int cz, boolean create) {
+    long key = regionKey(cx >> REGION_SHIFT, cz >> REGION_SHIFT);
+    if (key == lastRegionKey && lastRegion != null)
+      return lastRegion;
+    Region region = regions.get(key);
+    if (region == null && create) {
+      region = new Region();
+      regions.put(key, region);
+    }
+    if (region != null) {
+      lastRegionKey = key;
+      lastRegion = region;
+    }
+    return region;
+  }
+  void put(int cx, int cz, int[] columns, int[] tints) {
+    Region region = region(cx, cz, true);
+    int s = slot(cx, cz);
+    if (region.columns[s] == null) {
+      region.count++;
+      chunks++;
+    }
+    region.columns[s] = columns;
+    region.tints[s] = tints;
+  }
+  int[] columns(int cx, int cz) {
+    Region region = region(cx, cz, false);
+    return region != null ? region.columns[slot(cx, cz)] : null;
+  }
+  int[] tints(int cx, int cz) {
+    Region region = region(cx, cz, false);
+    return region != null ? region.tints[slot(cx, cz)] : null;
+  }
+  boolean hasAny(int minCx, int minCz, int size) {
+    for (int cz = minCz; cz < minCz + size; cz++) {
+      for (int cx = minCx; cx < minCx + size; cx++) {
+        if (columns(cx, cz) != null)
+          return true;
+      }
+    }
+    return false;
+  }
+  int evictOutside(int centerCx, int centerCz, int radius) {
+    int minRx = (centerCx - radius) >> REGION_SHIFT;
+    int maxRx = (centerCx + radius) >> REGION_SHIFT;
+    int minRz = (centerCz - radius) >> REGION_SHIFT;
+    int maxRz = (centerCz + radius) >> REGION_SHIFT;
+    int evicted = 0;
+    Iterator<Map.Entry<Long, Region>> it = regions.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<Long, Region> e = it.next();
+      long key = e.getKey();
+      int rx = (int) (key >> 32);
+      int rz = (int) key;
+      if (rx >= minRx && rx <= maxRx && rz >= minRz && rz <= maxRz)
+        continue;
+      chunks -= e.getValue().count;
+      evicted += e.getValue().count;
+      it.remove();
+    }
+    if (evicted > 0) {
+      lastRegionKey = Long.MIN_VALUE;
+      lastRegion = null;
+    }
+    return evicted;
+  }
+  void clear() {
+    regions.clear();
+    lastRegionKey = Long.MIN_VALUE;
+    lastRegion = null;
+    chunks = 0;
+  }
+  int getChunkCount() {
+    return chunks;
+  }
+  int getRegionCount() {
+    return regions.size();
+  }
+}
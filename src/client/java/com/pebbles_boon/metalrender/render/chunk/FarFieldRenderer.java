@@ -0,0 +1,302 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import com.pebbles_boon.metalrender.nativebridge.NativeBridge;
+import com.pebbles_boon.metalrender.util.BufferArena;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.Heightmap;
+import net.minecraft.world.chunk.WorldChunk;
+public class FarFieldRenderer {
+  private static final int ARENA_PAGE_BYTES = 4 * 1024 * 1024;
+  private static final int ARENA_MAX_PAGES = Integer.getInteger("metalrender.farFieldMaxPages", 32);
+  private static final int REGION_MARGIN = 2 * FarFieldRegionCache.REGION_CHUNKS;
+  private static final class FarTile {
+    final int tileCx;
+    final int tileCz;
+    final int sectionY;
+    final BufferArena.Allocation allocation;
+    final int quadCount;
+    final int extentY;
+    final int step;
+    final int exclusion;
+    FarTile(int tileCx, int tileCz, int sectionY,
+        BufferArena.Allocation allocation, int quadCount, int extentY,
+        int step, int exclusion) {
+      this.tileCx = tileCx;
+      this.tileCz = tileCz;
+      this.sectionY = sectionY;
+      this.allocation = allocation;
+      this.quadCount = quadCount;
+      this.extentY = extentY;
+      this.step = step;
+      this.exclusion = exclusion;
+    }
+  }
+  private final FarFieldRegionCache cache = new FarFieldRegionCache();
+  private final FarFieldTileMesher mesher = new FarFieldTileMesher(cache);
+  private final ConcurrentHashMap<Long, FarTile> tiles = new ConcurrentHashMap<>();
+  private final ArrayDeque<Long> queue = new ArrayDeque<>();
+  private final Set<Long> queued = new HashSet<>();
+  private final Set<Long> dirtyTiles = new HashSet<>();
+  private final BlockPos.Mutable capturePos = new BlockPos.Mutable();
+  private volatile BufferArena arena;
+  private boolean haveCenter;
+  private int centerCx;
+  private int centerCz;
+  private int loadedRadius;
+  private int farRadius;
+  private long captures;
+  private long builds;
+  private long buildNanos;
+  private long allocFailures;
+  public void initialize(long device) {
+    BufferArena a = new BufferArena(
+        new CustomChunkMesher.VertexPageBacking(device), ARENA_PAGE_BYTES,
+        ARENA_MAX_PAGES);
+    a.setRelocationListener(this::onTileRelocated);
+    this.arena = a;
+  }
+  public void onFrameEnd() {
+    BufferArena a = arena;
+    if (a != null)
+      a.advanceEpoch();
+  }
+  public void onChunkLoaded(WorldChunk chunk) {
+    if (arena == null)
+      return;
+    int cx = chunk.getPos().x, cz = chunk.getPos().z;
+    Heightmap heightmap = chunk.getHeightmap(Heightmap.Type.MOTION_BLOCKING);
+    if (heightmap == null)
+      return;
+    int bottomY = chunk.getBottomSectionCoord() * 16;
+    int[] columns = new int[FarFieldRegionCache.COLUMNS];
+    int surfaceY = bottomY;
+    for (int z = 0; z < 16; z++) {
+      for (int x = 0; x < 16; x++) {
+        int h = heightmap.get(x, z);
+        if (h <= bottomY)
+          continue;
+        BlockState state = chunk.getBlockState(
+            capturePos.set(cx * 16 + x, h - 1, cz * 16 + z));
+        columns[(z << 4) | x] = FarFieldRegionCache.pack(h,
+            Block.getRawIdFromState(state));
+        if (x == 8 && z == 8)
+          surfaceY = h - 1;
+      }
+    }
+    int[] tints = CustomChunkMesher.getSectionBiomeColors(
+        chunk.getWorld() instanceof ClientWorld cw ? cw : null, cx,
+        surfaceY >> 4, cz);
+    cache.put(cx, cz, columns, tints);
+    captures++;
+    int tileCx = Math.floorDiv(cx, FarFieldTileMesher.TILE_CHUNKS)
+        * FarFieldTileMesher.TILE_CHUNKS;
+    int tileCz = Math.floorDiv(cz, FarFieldTileMesher.TILE_CHUNKS)
+        * FarFieldTileMesher.TILE_CHUNKS;
+    markDirty(tileCx, tileCz);
+    int lx = cx - tileCx, lz = cz - tileCz;
+    int last = FarFieldTileMesher.TILE_CHUNKS - 1;
+    if (lx == 0)
+      markDirty(tileCx - FarFieldTileMesher.TILE_CHUNKS, tileCz);
+    if (lx == last)
+      markDirty(tileCx + FarFieldTileMesher.TILE_CHUNKS, tileCz);
+    if (lz == 0)
+      markDirty(tileCx, tileCz - FarFieldTileMesher.TILE_CHUNKS);
+    if (lz == last)
+      markDirty(tileCx, tileCz + FarFieldTileMesher.TILE_CHUNKS);
+  }
+  private void markDirty(int tileCx, int tileCz) {
+    long key = tileKey(tileCx, tileCz);
+    if (!tiles.containsKey(key) && !cache.hasAny(tileCx, tileCz,
+        FarFieldTileMesher.TILE_CHUNKS))
+      return;
+    dirtyTiles.add(key);
+    if (queued.add(key))
+      queue.addFirst(key);
+  }
+  public void update(double camX, double camZ, int loadedRadius, int farRadius,
+      long budgetNanos) {
+    if (arena == null)
+      return;
+    int cx = (int) Math.floor(camX) >> 4;
+    int cz = (int) Math.floor(camZ) >> 4;
+    if (!haveCenter || cx != centerCx || cz != centerCz ||
+        loadedRadius != this.loadedRadius || farRadius != this.farRadius) {
+      haveCenter = true;
+      centerCx = cx;
+      centerCz = cz;
+      this.loadedRadius = loadedRadius;
+      this.farRadius = farRadius;
+      rescan();
+    }
+    long deadline = System.nanoTime() + budgetNanos;
+    BlockStatePropertyTable props = null;
+    while (!queue.isEmpty() && System.nanoTime() < deadline) {
+      long key = queue.pollFirst();
+      queued.remove(key);
+      if (props == null)
+        props = BlockStatePropertyTable.get();
+      refresh(props, key);
+    }
+  }
+  private void rescan() {
+    for (FarTile tile : new ArrayList<>(tiles.values())) {
+      if (tileDistance(tile.tileCx, tile.tileCz) > farRadius)
+        removeTile(tileKey(tile.tileCx, tile.tileCz));
+    }
+    cache.evictOutside(centerCx, centerCz, farRadius + REGION_MARGIN);
+    int t = FarFieldTileMesher.TILE_CHUNKS;
+    int minTx = Math.floorDiv(centerCx - farRadius, t) * t;
+    int minTz = Math.floorDiv(centerCz - farRadius, t) * t;
+    ArrayList<long[]> candidates = new ArrayList<>();
+    for (int tz = minTz; tz <= centerCz + farRadius; tz += t) {
+      for (int tx = minTx; tx <= centerCx + farRadius; tx += t) {
+        int d = tileDistance(tx, tz);
+        if (d > farRadius)
+          continue;
+        long key = tileKey(tx, tz);
+        FarTile tile = tiles.get(key);
+        if (tile == null ? !cache.hasAny(tx, tz, t)
+            : tile.step == stepFor(d) && tile.exclusion == exclusion(tx, tz))
+          continue;
+        candidates.add(new long[] { d, key });
+      }
+    }
+    candidates.sort((a, b) -> Long.compare(a[0], b[0]));
+    for (long[] c : candidates) {
+      if (queued.add(c[1]))
+        queue.addLast(c[1]);
+    }
+  }
+  private void refresh(BlockStatePropertyTable props, long key) {
+    int tx = (int) (key >> 32), tz = (int) key;
+    int d = tileDistance(tx, tz);
+    if (d > farRadius) {
+      dirtyTiles.remove(key);
+      removeTile(key);
+      return;
+    }
+    int step = stepFor(d);
+    int exclusion = exclusion(tx, tz);
+    FarTile current = tiles.get(key);
+    boolean dirty = dirtyTiles.remove(key);
+    if (current != null && !dirty && current.step == step &&
+        current.exclusion == exclusion)
+      return;
+    long start = System.nanoTime();
+    int quads = mesher.build(props, tx, tz, step, centerCx - loadedRadius,
+        centerCz - loadedRadius, centerCx + loadedRadius,
+        centerCz + loadedRadius);
+    BufferArena a = arena;
+    BufferArena.Allocation allocation = null;
+    if (quads > 0) {
+      allocation = a.allocate(quads * 64, key);
+      if (allocation == null) {
+        allocFailures++;
+        return;
+      }
+      a.write(allocation, mesher.getBuffer(), 0);
+    }
+    FarTile next = new FarTile(tx, tz, mesher.getOriginSectionY(), allocation,
+        quads, mesher.getExtentY(), step, exclusion);
+    FarTile[] replaced = new FarTile[1];
+    tiles.compute(key, (k, prev) -> {
+      replaced[0] = prev;
+      if (prev != null && prev.allocation != null &&
+          (next.allocation == null || prev.sectionY != next.sectionY))
+        NativeBridge.nUnregisterFarFieldTile(prev.tileCx, prev.sectionY,
+            prev.tileCz);
+      if (next.allocation != null)
+        registerTile(next);
+      return next;
+    });
+    if (replaced[0] != null)
+      a.free(replaced[0].allocation);
+    builds++;
+    buildNanos += System.nanoTime() - start;
+  }
+  private void removeTile(long key) {
+    FarTile tile = tiles.remove(key);
+    if (tile == null)
+      return;
+    if (tile.allocation != null)
+      NativeBridge.nUnregisterFarFieldTile(tile.tileCx, tile.sectionY,
+          tile.tileCz);
+    BufferArena a = arena;
+    if (a != null)
+      a.free(tile.allocation);
+  }
+  private static void registerTile(FarTile tile) {
+    BufferArena.Allocation a = tile.allocation;
+    NativeBridge.nRegisterFarFieldTile(tile.tileCx, tile.sectionY,
+        tile.tileCz, a.getPageHandle(), a.getOffset(), tile.quadCount,
+        FarFieldTileMesher.TILE_BLOCKS, tile.extentY);
+  }
+  private void onTileRelocated(BufferArena.Allocation allocation) {
+    tiles.computeIfPresent(allocation.getTag(), (k, tile) -> {
+      if (tile.allocation == allocation)
+        registerTile(tile);
+      return tile;
+    });
+  }
+  private int tileDistance(int tileCx, int tileCz) {
+    int half = FarFieldTileMesher.TILE_CHUNKS / 2;
+    return Math.max(Math.abs(tileCx + half - centerCx),
+        Math.abs(tileCz + half - centerCz));
+  }
+  private int stepFor(int distance) {
+    if (distance < farRadius / 4)
+      return FarFieldTileMesher.MIN_STEP;
+    if (distance < farRadius / 2)
+      return FarFieldTileMesher.MIN_STEP * 2;
+    return FarFieldTileMesher.MIN_STEP * 4;
+  }
+  private int exclusion(int tileCx, int tileCz) {
+    int lo = -1, hi = FarFieldTileMesher.TILE_CHUNKS;
+    int minX = Math.max(centerCx - loadedRadius - tileCx, lo);
+    int maxX = Math.min(centerCx + loadedRadius - tileCx, hi);
+    int minZ = Math.max(centerCz - loadedRadius - tileCz, lo);
+    int maxZ = Math.min(centerCz + loadedRadius - tileCz, hi);
+    if (minX > maxX || minZ > maxZ)
+      return -1;
+    return ((minX - lo) << 9) | ((maxX - lo) << 6) | ((minZ - lo) << 3) |
+        (maxZ - lo);
+  }
+  private static long tileKey(int tileCx, int tileCz) {
+    return ((long) tileCx << 32) | (tileCz & 0xFFFFFFFFL);
+  }
+  public String getDebugStats() {
+    long quads = 0;
+    for (FarTile tile : tiles.values())
+      quads += tile.quadCount;
+    BufferArena a = arena;
+    return String.format(
+        "tiles=%d quads=%d captured=%d regions=%d captures=%d queued=%d builds=%d avg=%.3fms allocFail=%d %s",
+        tiles.size(), quads, cache.getChunkCount(), cache.getRegionCount(),
+        captures, queue.size(), builds,
+        builds > 0 ? buildNanos / 1e6 / builds : 0.0, allocFailures,
+        a != null ? a.getDebugStats() : "");
+  }
+  public void clearTiles() {
+    for (Long key : new ArrayList<>(tiles.keySet()))
+      removeTile(key);
+    queue.clear();
+    queued.clear();
+    dirtyTiles.clear();
+    cache.clear();
+    haveCenter = false;
+  }
+  public void clear() {
+    clearTiles();
+    BufferArena a = arena;
+    arena = null;
+    if (a != null)
+      a.close();
+  }
+}
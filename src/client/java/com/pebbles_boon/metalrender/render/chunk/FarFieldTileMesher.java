@@ -0,0 +1,160 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+final class FarFieldTileMesher {
+  static final int TILE_CHUNKS = 4;
+  static final int TILE_BLOCKS = TILE_CHUNKS * 16;
+  static final int MIN_STEP = 4;
+  private static final int MAX_SPAN = 127;
+  private static final int MISSING = Integer.MIN_VALUE;
+  private static final int EXCLUDED = Integer.MIN_VALUE + 1;
+  private static final byte FAR_LIGHT = (byte) 0xF0;
+  private static final int[] SIDE_DX = { 0, 0, -1, 1 };
+  private static final int[] SIDE_DZ = { -1, 1, 0, 0 };
+  private static final int[] SIDE_NORMAL = { 2, 3, 4, 5 };
+  private final FarFieldRegionCache cache;
+  private final int[] heights;
+  private final int[] states;
+  private final int[][] tints;
+  private final ByteBuffer buffer;
+  private int cellsPerSide;
+  private int quadCount;
+  private int originSectionY;
+  private int extentY;
+  FarFieldTileMesher(FarFieldRegionCache cache) {
+    this.cache = cache;
+    int padded = TILE_BLOCKS / MIN_STEP + 2;
+    this.heights = new int[padded * padded];
+    this.states = new int[padded * padded];
+    this.tints = new int[padded * padded][];
+    int n = TILE_BLOCKS / MIN_STEP;
+    this.buffer = ByteBuffer.allocateDirect(n * n * 5 * 64)
+        .order(ByteOrder.nativeOrder());
+  }
+  ByteBuffer getBuffer() {
+    return buffer;
+  }
+  int getQuadCount() {
+    return quadCount;
+  }
+  int getOriginSectionY() {
+    return originSectionY;
+  }
+  int getExtentY() {
+    return extentY;
+  }
+  int build(BlockStatePropertyTable props, int tileCx, int tileCz, int step,
+      int exMinCx, int exMinCz, int exMaxCx, int exMaxCz) {
+    buffer.clear();
+    quadCount = 0;
+    int n = TILE_BLOCKS / step;
+    cellsPerSide = n;
+    int baseX = tileCx * 16, baseZ = tileCz * 16;
+    int minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+    for (int j = -1; j <= n; j++) {
+      for (int i = -1; i <= n; i++) {
+        int p = index(i, j);
+        sample(props, baseX + i * step + step / 2, baseZ + j * step + step / 2,
+            exMinCx, exMinCz, exMaxCx, exMaxCz, p);
+        if (i < 0 || j < 0 || i >= n || j >= n || heights[p] <= EXCLUDED)
+          continue;
+        int h = heights[p];
+        maxY = Math.max(maxY, h);
+        minY = Math.min(minY, h - step);
+      }
+    }
+    if (maxY == Integer.MIN_VALUE) {
+      buffer.flip();
+      return 0;
+    }
+    originSectionY = Math.floorDiv(minY, 16);
+    int originY = originSectionY * 16;
+    int limit = originY + MAX_SPAN;
+    extentY = Math.min(maxY, limit) - originY + 1;
+    for (int j = 0; j < n; j++) {
+      int i = 0;
+      while (i < n) {
+        int p = index(i, j);
+        int h = heights[p];
+        if (h <= EXCLUDED) {
+          i++;
+          continue;
+        }
+        int w = 1;
+        while (i + w < n && heights[p + w] == h && states[p + w] == states[p] &&
+            tints[p + w] == tints[p])
+          w++;
+        int top = Math.min(h, limit) - originY;
+        emit(props, 1, states[p], tints[p], i * step, top, j * step,
+            (i + w) * step, top, (j + 1) * step);
+        i += w;
+      }
+    }
+    for (int j = 0; j < n; j++) {
+      for (int i = 0; i < n; i++) {
+        int p = index(i, j);
+        int h = heights[p];
+        if (h <= EXCLUDED)
+          continue;
+        int top = Math.min(h, limit) - originY;
+        for (int s = 0; s < 4; s++) {
+          int nh = heights[index(i + SIDE_DX[s], j + SIDE_DZ[s])];
+          if (nh == EXCLUDED)
+            continue;
+          int low = nh == MISSING ? h - step : nh;
+          if (low >= h)
+            continue;
+          int bottom = Math.max(low, originY) - originY;
+          if (bottom >= top)
+            continue;
+          emit(props, SIDE_NORMAL[s], states[p], tints[p], i * step, bottom,
+              j * step, (i + 1) * step, top, (j + 1) * step);
+        }
+      }
+    }
+    buffer.flip();
+    return quadCount;
+  }
+  private int index(int i, int j) {
+    return (j + 1) * (cellsPerSide + 2) + i + 1;
+  }
+  private void sample(BlockStatePropertyTable props, int wx, int wz,
+      int exMinCx, int exMinCz, int exMaxCx, int exMaxCz, int p) {
+    int cx = wx >> 4, cz = wz >> 4;
+    tints[p] = null;
+    if (cx >= exMinCx && cx <= exMaxCx && cz >= exMinCz && cz <= exMaxCz) {
+      heights[p] = EXCLUDED;
+      return;
+    }
+    int[] columns = cache.columns(cx, cz);
+    int column = columns != null ? columns[((wz & 15) << 4) | (wx & 15)] : 0;
+    int sid = FarFieldRegionCache.stateId(column);
+    if (sid <= 0 || sid >= props.size) {
+      heights[p] = MISSING;
+      return;
+    }
+    heights[p] = FarFieldRegionCache.height(column);
+    states[p] = sid;
+    tints[p] = cache.tints(cx, cz);
+  }
+  private void emit(BlockStatePropertyTable props, int normalIdx, int sid,
+      int[] biomeColors, int x0, int y0, int z0, int x1, int y1, int z1) {
+    int uv = sid * 6 + normalIdx;
+    int color = CustomChunkMesher.faceColor(props, biomeColors, sid,
+        normalIdx, false);
+    float shade = CustomChunkMesher.FACE_SHADE[normalIdx];
+    boolean hasSprite =
+        (props.faceFlags[uv] & BlockStatePropertyTable.FACE_SPRITE) != 0;
+    GreedyQuadMerger.emitShadedQuad(buffer, normalIdx, (short) (x0 * 256),
+        (short) (y0 * 256), (short) (z0 * 256), (short) (x1 * 256),
+        (short) (y1 * 256), (short) (z1 * 256),
+        hasSprite ? props.faceUMin[uv] : 0,
+        hasSprite ? props.faceUMax[uv] : (short) 65535,
+        hasSprite ? props.faceVMin[uv] : 0,
+        hasSprite ? props.faceVMax[uv] : (short) 65535,
+        (byte) (((color >> 16) & 0xFF) * shade),
+        (byte) (((color >> 8) & 0xFF) * shade), (byte) ((color & 0xFF) * shade),
+        (byte) 255, FAR_LIGHT, (byte) (normalIdx | GreedyQuadMerger.TILED_FLAG));
+    quadCount++;
+  }
+}
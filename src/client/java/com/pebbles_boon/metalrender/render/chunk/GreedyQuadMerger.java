@@ -0,0 +1,293 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+final class GreedyQuadMerger {
+  static final int TILED_FLAG = 0x08;
+  private static final int SLICE_CELLS = 256;
+  private static final int DIR_CELLS = 16 * SLICE_CELLS;
+  private final int[] cells = new int[6 * DIR_CELLS];
+  private final int[] sliceFaceCount = new int[6 * 16];
+  private int pendingFaces;
+  private int materialCount;
+  private byte[] matR = new byte[64];
+  private byte[] matG = new byte[64];
+  private byte[] matB = new byte[64];
+  private byte[] matA = new byte[64];
+  private short[] matUMin = new short[64];
+  private short[] matUMax = new short[64];
+  private short[] matVMin = new short[64];
+  private short[] matVMax = new short[64];
+  private boolean[] matWater = new boolean[64];
+  private int[] matTopDrop = new int[64];
+  private int mergedQuads;
+  private int mergedWaterQuads;
+  private int[] slotMaterial = new int[0];
+  private int[] slotStamp = new int[0];
+  private int[] slotColor = new int[0];
+  private int stamp;
+  private int scale = 1;
+  final short[] uvScratch = new short[QuadTemplate.UV_SCRATCH];
+  void reset() {
+    if (pendingFaces > 0)
+      Arrays.fill(cells, 0);
+    Arrays.fill(sliceFaceCount, 0);
+    pendingFaces = 0;
+    materialCount = 0;
+    mergedQuads = 0;
+    mergedWaterQuads = 0;
+    scale = 1;
+    if (++stamp == 0) {
+      Arrays.fill(slotStamp, 0);
+      stamp = 1;
+    }
+  }
+  void ensureMaterialSlots(int slots) {
+    if (slotStamp.length < slots) {
+      slotMaterial = new int[slots];
+      slotStamp = new int[slots];
+      slotColor = new int[slots];
+    }
+  }
+  int cachedMaterial(int slot) {
+    return slotStamp[slot] == stamp ? slotMaterial[slot] : -1;
+  }
+  int cachedMaterial(int slot, int color) {
+    return slotStamp[slot] == stamp && slotColor[slot] == color
+        ? slotMaterial[slot] : -1;
+  }
+  void cacheMaterial(int slot, int material) {
+    slotMaterial[slot] = material;
+    slotStamp[slot] = stamp;
+  }
+  void cacheMaterial(int slot, int color, int material) {
+    slotColor[slot] = color;
+    cacheMaterial(slot, material);
+  }
+  void setScale(int scale) {
+    this.scale = scale;
+  }
+  int getPendingFaceCount() {
+    return pendingFaces;
+  }
+  int getMergedQuadCount() {
+    return mergedQuads;
+  }
+  int getMergedWaterQuadCount() {
+    return mergedWaterQuads;
+  }
+  int addMaterial(byte r, byte g, byte b, byte a, short uMin, short uMax,
+      short vMin, short vMax, boolean water, int topDrop) {
+    if (materialCount == matR.length)
+      growMaterials();
+    int id = materialCount++;
+    matR[id] = r;
+    matG[id] = g;
+    matB[id] = b;
+    matA[id] = a;
+    matUMin[id] = uMin;
+    matUMax[id] = uMax;
+    matVMin[id] = vMin;
+    matVMax[id] = vMax;
+    matWater[id] = water;
+    matTopDrop[id] = topDrop;
+    return id;
+  }
+  int findOrAddMaterial(byte r, byte g, byte b, byte a, short uMin, short uMax,
+      short vMin, short vMax, boolean water, int topDrop) {
+    for (int id = 0; id < materialCount; id++) {
+      if (matR[id] == r && matG[id] == g && matB[id] == b && matA[id] == a &&
+          matUMin[id] == uMin && matUMax[id] == uMax && matVMin[id] == vMin &&
+          matVMax[id] == vMax && matWater[id] == water &&
+          matTopDrop[id] == topDrop)
+        return id;
+    }
+    return addMaterial(r, g, b, a, uMin, uMax, vMin, vMax, water, topDrop);
+  }
+  boolean materialMatches(int id, short uMin, short uMax, short vMin,
+      short vMax, byte r, byte g, byte b) {
+    return matUMin[id] == uMin && matUMax[id] == uMax && matVMin[id] == vMin &&
+        matVMax[id] == vMax && matR[id] == r && matG[id] == g && matB[id] == b;
+  }
+  void addFace(int normalIdx, int x, int y, int z, int material, byte light) {
+    int slice, u, v;
+    switch (normalIdx) {
+      case 0, 1 -> {
+        slice = y;
+        u = x;
+        v = z;
+      }
+      case 2, 3 -> {
+        slice = z;
+        u = x;
+        v = y;
+      }
+      default -> {
+        slice = x;
+        u = z;
+        v = y;
+      }
+    }
+    int cell = normalIdx * DIR_CELLS + slice * SLICE_CELLS + v * 16 + u;
+    if (cells[cell] == 0) {
+      pendingFaces++;
+      sliceFaceCount[normalIdx * 16 + slice]++;
+    }
+    cells[cell] = ((material + 1) << 8) | (light & 0xFF);
+  }
+  int emit(ByteBuffer opaqueBuf, ByteBuffer waterBuf, int quadBudget) {
+    int emitted = 0;
+    for (int d = 0; d < 6; d++) {
+      boolean sideFace = d >= 2;
+      for (int slice = 0; slice < 16; slice++) {
+        if (sliceFaceCount[d * 16 + slice] == 0)
+          continue;
+        int base = d * DIR_CELLS + slice * SLICE_CELLS;
+        for (int v = 0; v < 16; v++) {
+          for (int u = 0; u < 16; u++) {
+            int key = cells[base + v * 16 + u];
+            if (key == 0)
+              continue;
+            if (emitted >= quadBudget)
+              return emitted;
+            int material = (key >>> 8) - 1;
+            int w = 1;
+            while (u + w < 16 && cells[base + v * 16 + u + w] == key)
+              w++;
+            int h = 1;
+            if (!sideFace || matTopDrop[material] == 0) {
+              grow: while (v + h < 16) {
+                int row = base + (v + h) * 16 + u;
+                for (int k = 0; k < w; k++) {
+                  if (cells[row + k] != key)
+                    break grow;
+                }
+                h++;
+              }
+            }
+            for (int dv = 0; dv < h; dv++)
+              Arrays.fill(cells, base + (v + dv) * 16 + u,
+                  base + (v + dv) * 16 + u + w, 0);
+            boolean water = matWater[material];
+            emitRect(water ? waterBuf : opaqueBuf, d, slice, u, v, w, h,
+                material, (byte) key);
+            if (water)
+              mergedWaterQuads++;
+            else
+              mergedQuads++;
+            emitted++;
+          }
+        }
+      }
+    }
+    pendingFaces = 0;
+    return emitted;
+  }
+  private void emitRect(ByteBuffer buf, int d, int slice, int u, int v, int w,
+      int h, int material, byte light) {
+    int x0, y0, z0, x1, y1, z1;
+    switch (d) {
+      case 0, 1 -> {
+        x0 = u;
+        x1 = u + w;
+        y0 = slice;
+        y1 = slice + 1;
+        z0 = v;
+        z1 = v + h;
+      }
+      case 2, 3 -> {
+        x0 = u;
+        x1 = u + w;
+        y0 = v;
+        y1 = v + h;
+        z0 = slice;
+        z1 = slice + 1;
+      }
+      default -> {
+        x0 = slice;
+        x1 = slice + 1;
+        y0 = v;
+        y1 = v + h;
+        z0 = u;
+        z1 = u + w;
+      }
+    }
+    byte nIdx = (byte) (w > 1 || h > 1 || scale > 1 ? d | TILED_FLAG : d);
+    int unit = 256 * scale;
+    emitShadedQuad(buf, d, (short) (x0 * unit),
+        (short) (y0 * unit), (short) (z0 * unit), (short) (x1 * unit),
+        (short) (y1 * unit - matTopDrop[material]), (short) (z1 * unit),
+        matUMin[material], matUMax[material], matVMin[material],
+        matVMax[material], matR[material], matG[material], matB[material],
+        matA[material], light, nIdx);
+  }
+  static void emitShadedQuad(ByteBuffer buf, int normalIdx, short sx, short sy,
+      short sz, short ex, short ey, short ez, short uMin, short uMax,
+      short vMin, short vMax, byte sr, byte sg, byte sb, byte a, byte light,
+      byte nIdx) {
+    switch (normalIdx) {
+      case 1: 
+        emitVertex(buf, sx, ey, sz, uMin, vMin, sr, sg, sb, a, light, nIdx);
+        emitVertex(buf, sx, ey, ez, uMin, vMax, sr, sg, sb, a, light, nIdx);
+        emitVertex(buf, ex, ey, ez, uMax, vMax, sr, sg, sb, a, light, nIdx);
+        emitVertex(buf, ex, ey, sz, uMax, vMin, sr, sg, sb, a, light, nIdx);
+        break;
+      case 0: 
+        emitVertex(buf, sx, sy, ez, uMin, vMin, sr, sg, sb, a, light, nIdx);
+        emitVertex(buf, sx, sy, sz, uMin, vMax, sr, sg, sb, a, light, nIdx);
+        emitVertex(buf, ex, sy, sz, uMax, vMax, sr, sg, sb, a, light, nIdx);
+        emitVertex(buf, ex, sy, ez, uMax, vMin, sr, sg, sb, a, light, nIdx);
+        break;
+      case 3: 
+        emitVertex(buf, sx, ey, ez, uMin, vMin, sr, sg, sb, a, light, nIdx);
+        emitVertex(buf, sx, sy, ez, uMin, vMax, sr, sg, sb, a, light, nIdx);
+        emitVertex(buf, ex, sy, ez, uMax, vMax, sr, sg, sb, a, light, nIdx);
+        emitVertex(buf, ex, ey, ez, uMax, vMin, sr, sg, sb, a, light, nIdx);
+        break;
+      case 2: 
+        emitVertex(buf, ex, ey, sz, uMin, vMin, sr, sg, sb, a, light, nIdx);
+        emitVertex(buf, ex, sy, sz, uMin, vMax, sr, sg, sb, a, light, nIdx);
+        emitVertex(buf, sx, sy, sz, uMax, vMax, sr, sg, sb, a, light, nIdx);
+        emitVertex(buf, sx, ey, sz, uMax, vMin, sr, sg, sb, a, light, nIdx);
+        break;
+      case 5: 
+        emitVertex(buf, ex, ey, ez, uMin, vMin, sr, sg, sb, a, light, nIdx);
+        emitVertex(buf, ex, sy, ez, uMin, vMax, sr, sg, sb, a, light, nIdx);
+        emitVertex(buf, ex, sy, sz, uMax, vMax, sr, sg, sb, a, light, nIdx);
+        emitVertex(buf, ex, ey, sz, uMax, vMin, sr, sg, sb, a, light, nIdx);
+        break;
+      case 4: 
+        emitVertex(buf, sx, ey, sz, uMin, vMin, sr, sg, sb, a, light, nIdx);
+        emitVertex(buf, sx, sy, sz, uMin, vMax, sr, sg, sb, a, light, nIdx);
+        emitVertex(buf, sx, sy, ez, uMax, vMax, sr, sg, sb, a, light, nIdx);
+        emitVertex(buf, sx, ey, ez, uMax, vMin, sr, sg, sb, a, light, nIdx);
+        break;
+    }
+  }
+  private static void emitVertex(ByteBuffer buf, short px, short py, short pz,
+      short u, short v, byte r, byte g, byte b, byte a, byte light, byte nIdx) {
+    buf.putShort(px);
+    buf.putShort(py);
+    buf.putShort(pz);
+    buf.putShort(u);
+    buf.putShort(v);
+    buf.put(r);
+    buf.put(g);
+    buf.put(b);
+    buf.put(a);
+    buf.put(light);
+    buf.put(nIdx);
+  }
+  private void growMaterials() {
+    int n = matR.length * 2;
+    matR = Arrays.copyOf(matR, n);
+    matG = Arrays.copyOf(matG, n);
+    matB = Arrays.copyOf(matB, n);
+    matA = Arrays.copyOf(matA, n);
+    matUMin = Arrays.copyOf(matUMin, n);
+    matUMax = Arrays.copyOf(matUMax, n);
+    matVMin = Arrays.copyOf(matVMin, n);
+    matVMax = Arrays.copyOf(matVMax, n);
+    matWater = Arrays.copyOf(matWater, n);
+    matTopDrop = Arrays.copyOf(matTopDrop, n);
+  }
+}
@@ -0,0 +1,166 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import java.util.Arrays;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.LightType;
+import net.minecraft.world.chunk.ChunkNibbleArray;
+import net.minecraft.world.chunk.light.ChunkLightingView;
+import net.minecraft.world.chunk.light.LightingProvider;
+public final class LightSnapshot {
+  public static final int VOLUME = 4096;
+  private static final byte FALLBACK_LIGHT = (byte) 0xF0;
+  private static final int[][] FACE_OFFSETS = {
+      { 0, -1, 0 }, { 0, 1, 0 }, { 0, 0, -1 }, { 0, 0, 1 }, { -1, 0, 0 }, { 1, 0, 0 } };
+  private static final Nibbles DARK = new Nibbles(null, false, 0);
+  private static final Nibbles BRIGHT = new Nibbles(null, false, 15);
+  private static volatile long bulkSections = 0;
+  private static volatile long uniformSections = 0;
+  private static volatile long fallbackSections = 0;
+  private final byte[] packed;
+  private final byte uniformLight;
+  private final byte[] faces;
+  private LightSnapshot(byte[] packed, byte uniformLight, byte[] faces) {
+    this.packed = packed;
+    this.uniformLight = uniformLight;
+    this.faces = faces;
+  }
+  public static LightSnapshot capture(ClientWorld world, int chunkX, int chunkY,
+      int chunkZ) {
+    try {
+      LightingProvider provider = world.getLightingProvider();
+      ChunkLightingView blockView = provider.get(LightType.BLOCK);
+      ChunkLightingView skyView = world.getDimension().hasSkyLight()
+          ? provider.get(LightType.SKY)
+          : null;
+      int topSection = world.getTopYInclusive() >> 4;
+      Nibbles block = resolveBlock(blockView, chunkX, chunkY, chunkZ);
+      Nibbles sky = resolveSky(skyView, chunkX, chunkY, chunkZ, topSection);
+      byte[] faces = new byte[6 * 256];
+      for (int f = 0; f < 6; f++) {
+        int[] o = FACE_OFFSETS[f];
+        int nx = chunkX + o[0], ny = chunkY + o[1], nz = chunkZ + o[2];
+        extractFace(resolveBlock(blockView, nx, ny, nz),
+            resolveSky(skyView, nx, ny, nz, topSection), f, faces);
+      }
+      if (block.bytes == null && sky.bytes == null) {
+        uniformSections++;
+        return new LightSnapshot(null, pack(block.constant, sky.constant), faces);
+      }
+      byte[] packed = new byte[VOLUME];
+      block.unpack(packed, 0);
+      sky.unpack(packed, 4);
+      bulkSections++;
+      return new LightSnapshot(packed, (byte) 0, faces);
+    } catch (RuntimeException e) {
+      fallbackSections++;
+      byte[] faces = new byte[6 * 256];
+      Arrays.fill(faces, FALLBACK_LIGHT);
+      return new LightSnapshot(null, FALLBACK_LIGHT, faces);
+    }
+  }
+  private static Nibbles resolveBlock(ChunkLightingView view, int x, int y,
+      int z) {
+    if (view == null)
+      return DARK;
+    return Nibbles.of(view.getLightSection(ChunkSectionPos.from(x, y, z)), false);
+  }
+  private static Nibbles resolveSky(ChunkLightingView view, int x, int y, int z,
+      int topSection) {
+    if (view == null)
+      return DARK;
+    for (int sy = y; sy <= topSection; sy++) {
+      ChunkNibbleArray arr = view.getLightSection(ChunkSectionPos.from(x, sy, z));
+      if (arr != null)
+        return Nibbles.of(arr, sy != y);
+    }
+    return BRIGHT;
+  }
+  private static byte pack(int blockLight, int skyLight) {
+    return (byte) ((blockLight & 0xF) | ((skyLight & 0xF) << 4));
+  }
+  private static void extractFace(Nibbles block, Nibbles sky, int faceDir,
+      byte[] out) {
+    int base = faceDir * 256;
+    for (int a = 0; a < 16; a++) {
+      for (int b = 0; b < 16; b++) {
+        int idx = switch (faceDir) {
+          case 0 -> 15 * 256 + a * 16 + b;
+          case 1 -> a * 16 + b;
+          case 2 -> a * 256 + 15 * 16 + b;
+          case 3 -> a * 256 + b;
+          case 4 -> a * 256 + b * 16 + 15;
+          default -> a * 256 + b * 16;
+        };
+        out[base + a * 16 + b] = pack(block.get(idx), sky.get(idx));
+      }
+    }
+  }
+  public boolean isUniform() {
+    return packed == null;
+  }
+  public byte get(int index) {
+    return packed != null ? packed[index] : uniformLight;
+  }
+  public byte get(int x, int y, int z) {
+    return get(y * 256 + z * 16 + x);
+  }
+  public byte getFace(int faceDir, int index) {
+    return faces[faceDir * 256 + index];
+  }
+  public void copyTo(byte[] out) {
+    if (packed != null)
+      System.arraycopy(packed, 0, out, 0, VOLUME);
+    else
+      Arrays.fill(out, 0, VOLUME, uniformLight);
+  }
+  public static String getDebugStats() {
+    return String.format("light: bulk=%d uniform=%d fallback=%d",
+        bulkSections, uniformSections, fallbackSections);
+  }
+  private static final class Nibbles {
+    final byte[] bytes;
+    final boolean column;
+    final int constant;
+    Nibbles(byte[] bytes, boolean column, int constant) {
+      this.bytes = bytes;
+      this.column = column;
+      this.constant = constant;
+    }
+    static Nibbles of(ChunkNibbleArray arr, boolean column) {
+      if (arr == null)
+        return DARK;
+      if (arr.isUninitialized())
+        return new Nibbles(null, false, arr.get(0, 0, 0));
+      return new Nibbles(arr.asByteArray(), column, 0);
+    }
+    int get(int index) {
+      if (bytes == null)
+        return constant;
+      int i = column ? index & 0xFF : index;
+      return (bytes[i >> 1] >> ((i & 1) << 2)) & 0xF;
+    }
+    void unpack(byte[] out, int shift) {
+      if (bytes == null) {
+        byte v = (byte) (constant << shift);
+        if (shift == 0) {
+          Arrays.fill(out, 0, VOLUME, v);
+        } else {
+          for (int i = 0; i < VOLUME; i++)
+            out[i] |= v;
+        }
+      } else if (column) {
+        for (int i = 0; i < 256; i++) {
+          byte v = (byte) (((bytes[i >> 1] >> ((i & 1) << 2)) & 0xF) << shift);
+          for (int y = 0; y < VOLUME; y += 256)
+            out[y + i] |= v;
+        }
+      } else {
+        for (int i = 0; i < VOLUME / 2; i++) {
+          int b = bytes[i];
+          out[i * 2] |= (byte) ((b & 0xF) << shift);
+          out[i * 2 + 1] |= (byte) (((b >> 4) & 0xF) << shift);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import java.util.Arrays;
+final class LongSlotIndex {
+  private static final int EMPTY = -1;
+  private long[] keys;
+  private int[] slots;
+  private int mask;
+  private int size;
+  LongSlotIndex(int expected) {
+    int cap = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+    keys = new long[cap];
+    slots = new int[cap];
+    Arrays.fill(slots, EMPTY);
+    mask = cap - 1;
+  }
+  int size() {
+    return size;
+  }
+  int get(long key) {
+    for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+      int s = slots[i];
+      if (s == EMPTY)
+        return EMPTY;
+      if (keys[i] == key)
+        return s;
+    }
+  }
+  int find(long key) {
+    long[] k = keys;
+    int[] sl = slots;
+    int n = Math.min(k.length, sl.length);
+    int i = hash(key) & (n - 1);
+    for (int probes = 0; probes < n; probes++, i = (i + 1) & (n - 1)) {
+      int s = sl[i];
+      if (s == EMPTY)
+        return EMPTY;
+      if (k[i] == key)
+        return s;
+    }
+    return EMPTY;
+  }
+  void put(long key, int slot) {
+    if ((size + 1) * 2 > keys.length)
+      resize(keys.length << 1);
+    for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+      if (slots[i] == EMPTY) {
+        keys[i] = key;
+        slots[i] = slot;
+        size++;
+        return;
+      }
+      if (keys[i] == key) {
+        slots[i] = slot;
+        return;
+      }
+    }
+  }
+  int remove(long key) {
+    for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+      int s = slots[i];
+      if (s == EMPTY)
+        return EMPTY;
+      if (keys[i] == key) {
+        shiftBack(i);
+        size--;
+        return s;
+      }
+    }
+  }
+  void clear() {
+    Arrays.fill(slots, EMPTY);
+    size = 0;
+  }
+  private void shiftBack(int gap) {
+    for (int i = (gap + 1) & mask;; i = (i + 1) & mask) {
+      if (slots[i] == EMPTY)
+        break;
+      int home = hash(keys[i]) & mask;
+      if (((i - home) & mask) >= ((i - gap) & mask)) {
+        keys[gap] = keys[i];
+        slots[gap] = slots[i];
+        gap = i;
+      }
+    }
+    slots[gap] = EMPTY;
+  }
+  private void resize(int cap) {
+    long[] oldKeys = keys;
+    int[] oldSlots = slots;
+    keys = new long[cap];
+    slots = new int[cap];
+    Arrays.fill(slots, EMPTY);
+    mask = cap - 1;
+    size = 0;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldSlots[i] != EMPTY)
+        put(oldKeys[i], oldSlots[i]);
+    }
+  }
+  private static int hash(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+}
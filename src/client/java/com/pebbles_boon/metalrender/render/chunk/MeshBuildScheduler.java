@@ -0,0 +1,323 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import com.pebbles_boon.metalrender.util.MetalLogger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.LongSupplier;
+public final class MeshBuildScheduler {
+  public interface BuildTask {
+    void run(Job job);
+  }
+  public interface SectionVisibility {
+    boolean isVisible(int chunkX, int chunkY, int chunkZ);
+  }
+  public static final class Job {
+    final long key;
+    final int chunkX;
+    final int chunkY;
+    final int chunkZ;
+    final int lodLevel;
+    final boolean edit;
+    final BuildTask task;
+    final long enqueuedAt;
+    final long seq;
+    long priority;
+    private volatile boolean cancelled;
+    private Job(long key, int chunkX, int chunkY, int chunkZ, int lodLevel,
+        boolean edit, BuildTask task, long enqueuedAt, long seq) {
+      this.key = key;
+      this.chunkX = chunkX;
+      this.chunkY = chunkY;
+      this.chunkZ = chunkZ;
+      this.lodLevel = lodLevel;
+      this.edit = edit;
+      this.task = task;
+      this.enqueuedAt = enqueuedAt;
+      this.seq = seq;
+    }
+    public boolean isCancelled() {
+      return cancelled;
+    }
+    public int getLodLevel() {
+      return lodLevel;
+    }
+    public boolean isEdit() {
+      return edit;
+    }
+  }
+  private static final long BAND_EDIT = 0;
+  private static final long BAND_VISIBLE = 1;
+  private static final long BAND_HIDDEN = 2;
+  private static final long REPRIORITIZE_INTERVAL_NANOS = 100_000_000L;
+  private final Object lock = new Object();
+  private final LongSupplier clock;
+  private final int workerCount;
+  private final PriorityQueue<Job> heap = new PriorityQueue<>(
+      (a, b) -> a.priority != b.priority ? Long.compare(a.priority, b.priority)
+          : Long.compare(a.seq, b.seq));
+  private final HashMap<Long, Job> queued = new HashMap<>();
+  private final HashMap<Long, Job> running = new HashMap<>();
+  private long nextSeq;
+  private boolean shutdown;
+  private int camSectionX, camSectionY, camSectionZ;
+  private int retainRadius = Integer.MAX_VALUE;
+  private SectionVisibility visibility;
+  private long lastReprioritize;
+  private long submitted, superseded, droppedStale, cancelledRunning,
+      preempted, completed, waitNanos;
+  public MeshBuildScheduler(int workerCount) {
+    this(workerCount, System::nanoTime);
+  }
+  public MeshBuildScheduler(int workerCount, LongSupplier clock) {
+    this.workerCount = workerCount;
+    this.clock = clock;
+    for (int i = 0; i < workerCount; i++) {
+      Thread t = new Thread(this::workerLoop, "MetalRender-MeshBuild-" + i);
+      t.setDaemon(true);
+      t.setPriority(Thread.NORM_PRIORITY - 1);
+      t.start();
+    }
+  }
+  public void submit(long key, int chunkX, int chunkY, int chunkZ,
+      int lodLevel, boolean edit, BuildTask task) {
+    synchronized (lock) {
+      if (shutdown)
+        return;
+      Job prev = queued.get(key);
+      if (prev != null) {
+        if (prev.lodLevel == lodLevel && (prev.edit || !edit))
+          return;
+        prev.cancelled = true;
+        superseded++;
+        edit |= prev.edit;
+      }
+      Job active = running.get(key);
+      if (active != null && !active.cancelled) {
+        if (active.lodLevel == lodLevel && !edit && prev == null)
+          return;
+        active.cancelled = true;
+        cancelledRunning++;
+      }
+      Job job = new Job(key, chunkX, chunkY, chunkZ, lodLevel, edit, task,
+          clock.getAsLong(), nextSeq++);
+      job.priority = priorityOf(job);
+      queued.put(key, job);
+      heap.add(job);
+      submitted++;
+      if (edit)
+        preemptFarWorkLocked();
+      lock.notify();
+    }
+  }
+  public void cancel(long key) {
+    synchronized (lock) {
+      Job q = queued.remove(key);
+      if (q != null) {
+        q.cancelled = true;
+        droppedStale++;
+      }
+      Job r = running.get(key);
+      if (r != null && !r.cancelled) {
+        r.cancelled = true;
+        cancelledRunning++;
+      }
+    }
+  }
+  public void cancelAll() {
+    synchronized (lock) {
+      for (Job q : queued.values())
+        q.cancelled = true;
+      droppedStale += queued.size();
+      queued.clear();
+      heap.clear();
+      for (Job r : running.values())
+        r.cancelled = true;
+    }
+  }
+  public void updateView(double camX, double camY, double camZ,
+      int retainRadius, SectionVisibility visibility) {
+    int sx = (int) Math.floor(camX) >> 4;
+    int sy = (int) Math.floor(camY) >> 4;
+    int sz = (int) Math.floor(camZ) >> 4;
+    synchronized (lock) {
+      boolean moved = sx != camSectionX || sy != camSectionY || sz != camSectionZ ||
+          retainRadius != this.retainRadius;
+      camSectionX = sx;
+      camSectionY = sy;
+      camSectionZ = sz;
+      this.retainRadius = retainRadius;
+      this.visibility = visibility;
+      long now = clock.getAsLong();
+      if (!moved && now - lastReprioritize < REPRIORITIZE_INTERVAL_NANOS)
+        return;
+      lastReprioritize = now;
+      heap.clear();
+      var iter = queued.values().iterator();
+      while (iter.hasNext()) {
+        Job job = iter.next();
+        if (isOutOfRange(job)) {
+          job.cancelled = true;
+          droppedStale++;
+          iter.remove();
+          continue;
+        }
+        job.priority = priorityOf(job);
+        heap.add(job);
+      }
+    }
+  }
+  public boolean isScheduled(long key) {
+    synchronized (lock) {
+      return queued.containsKey(key) || running.containsKey(key);
+    }
+  }
+  public int getPendingCount() {
+    synchronized (lock) {
+      return queued.size() + running.size();
+    }
+  }
+  public int drain(int maxJobs) {
+    int ran = 0;
+    while (ran < maxJobs) {
+      Job job;
+      synchronized (lock) {
+        job = pollLocked();
+        if (job == null)
+          break;
+        running.put(job.key, job);
+      }
+      execute(job);
+      ran++;
+    }
+    return ran;
+  }
+  public void shutdown() {
+    synchronized (lock) {
+      shutdown = true;
+      lock.notifyAll();
+    }
+    cancelAll();
+  }
+  public String getDebugStats() {
+    synchronized (lock) {
+      return String.format(
+          "sched: queued=%d running=%d submitted=%d superseded=%d stale=%d cancelled=%d preempted=%d done=%d avgWait=%.2fms",
+          queued.size(), running.size(), submitted, superseded, droppedStale,
+          cancelledRunning, preempted, completed,
+          completed > 0 ? waitNanos / 1e6 / completed : 0.0);
+    }
+  }
+  private void workerLoop() {
+    while (true) {
+      Job job;
+      synchronized (lock) {
+        while (true) {
+          if (shutdown)
+            return;
+          job = pollLocked();
+          if (job != null)
+            break;
+          try {
+            lock.wait();
+          } catch (InterruptedException e) {
+            return;
+          }
+        }
+        running.put(job.key, job);
+      }
+      execute(job);
+    }
+  }
+  private void execute(Job job) {
+    long start = clock.getAsLong();
+    try {
+      if (!job.cancelled)
+        job.task.run(job);
+    } catch (Throwable t) {
+      MetalLogger.error("Mesh build job failed for [%d,%d,%d]: %s", job.chunkX,
+          job.chunkY, job.chunkZ, t.getMessage());
+    } finally {
+      synchronized (lock) {
+        if (running.get(job.key) == job)
+          running.remove(job.key);
+        completed++;
+        waitNanos += start - job.enqueuedAt;
+        if (queued.containsKey(job.key))
+          lock.notify();
+      }
+    }
+  }
+  private Job pollLocked() {
+    List<Job> deferred = null;
+    Job picked = null;
+    while (!heap.isEmpty()) {
+      Job job = heap.poll();
+      if (job.cancelled || queued.get(job.key) != job)
+        continue;
+      if (isOutOfRange(job)) {
+        queued.remove(job.key);
+        job.cancelled = true;
+        droppedStale++;
+        continue;
+      }
+      if (running.containsKey(job.key)) {
+        if (deferred == null)
+          deferred = new ArrayList<>();
+        deferred.add(job);
+        continue;
+      }
+      queued.remove(job.key);
+      picked = job;
+      break;
+    }
+    if (deferred != null)
+      heap.addAll(deferred);
+    return picked;
+  }
+  private void preemptFarWorkLocked() {
+    if (workerCount == 0 || running.size() < workerCount)
+      return;
+    Job victim = null;
+    for (Job r : running.values()) {
+      if (r.edit || r.cancelled || r.lodLevel == 0)
+        continue;
+      if (victim == null || r.priority > victim.priority)
+        victim = r;
+    }
+    if (victim == null)
+      return;
+    victim.cancelled = true;
+    preempted++;
+    if (!queued.containsKey(victim.key)) {
+      Job again = new Job(victim.key, victim.chunkX, victim.chunkY,
+          victim.chunkZ, victim.lodLevel, false, victim.task, clock.getAsLong(),
+          nextSeq++);
+      again.priority = priorityOf(again);
+      queued.put(again.key, again);
+      heap.add(again);
+    }
+  }
+  private boolean isOutOfRange(Job job) {
+    if (job.edit)
+      return false;
+    int dx = Math.abs(job.chunkX - camSectionX);
+    int dz = Math.abs(job.chunkZ - camSectionZ);
+    return Math.max(dx, dz) > retainRadius;
+  }
+  private long priorityOf(Job job) {
+    long dx = job.chunkX - camSectionX;
+    long dy = job.chunkY - camSectionY;
+    long dz = job.chunkZ - camSectionZ;
+    long distSq = dx * dx + dy * dy + dz * dz;
+    long band;
+    if (job.edit)
+      band = BAND_EDIT;
+    else if (visibility == null ||
+        visibility.isVisible(job.chunkX, job.chunkY, job.chunkZ))
+      band = BAND_VISIBLE;
+    else
+      band = BAND_HIDDEN;
+    return (band << 40) | Math.min(distSq, (1L << 40) - 1);
+  }
+}
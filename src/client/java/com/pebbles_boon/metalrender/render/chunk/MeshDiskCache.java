@@ -0,0 +1,472 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import com.pebbles_boon.metalrender.util.MetalLogger;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32C;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.world.ClientWorld;
+final class MeshDiskCache {
+  static final int FORMAT_VERSION = 2;
+  private static final int RECORD_MAGIC = 0x4D52534D;
+  private static final int INDEX_MAGIC = 0x4D524958;
+  private static final int RECORD_HEADER = 80;
+  private static final int INDEX_HEADER = 32;
+  private static final int INDEX_ENTRY = 36;
+  private static final int INDEX_FLUSH_INTERVAL = 4096;
+  private static final int PROMOTE_DIVISOR = 4;
+  private static final int MAX_PENDING_LOADS = 64;
+  static final class CachedMesh {
+    int quadCount;
+    int opaqueQuadCount;
+    final int[] faceQuadCounts = new int[7];
+    int vertexFormat;
+    int paletteOffset;
+    float[] translucentCentroids;
+    int dataLen;
+    ByteBuffer data = ByteBuffer.allocateDirect(0);
+  }
+  static final class Load {
+    long section;
+    int lod;
+    long contentHash;
+    Object attachment;
+    boolean ok;
+    final CachedMesh mesh = new CachedMesh();
+  }
+  private record SectionLod(long section, int lod) {
+  }
+  private static final class Entry {
+    final long section;
+    final int lod;
+    final long contentHash;
+    final long offset;
+    final int length;
+    Entry(long section, int lod, long contentHash, long offset, int length) {
+      this.section = section;
+      this.lod = lod;
+      this.contentHash = contentHash;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+  private final Path dir;
+  private final FileChannel channel;
+  private final MappedByteBuffer data;
+  private final long capacity;
+  private final HashMap<SectionLod, Entry> index = new HashMap<>();
+  private final TreeMap<Long, Entry> byOffset = new TreeMap<>();
+  private final Object indexWriteLock = new Object();
+  private final LinkedBlockingQueue<Load> requests = new LinkedBlockingQueue<>();
+  private final ConcurrentLinkedQueue<Load> completed = new ConcurrentLinkedQueue<>();
+  private final ConcurrentLinkedQueue<Load> freeLoads = new ConcurrentLinkedQueue<>();
+  private final Thread reader;
+  private long head;
+  private long fingerprint;
+  private volatile BlockStatePropertyTable validatedProps;
+  private int storesSinceFlush;
+  private volatile long hits;
+  private volatile long misses;
+  private volatile long stale;
+  private volatile long stores;
+  private volatile long evictions;
+  private volatile long promotions;
+  private volatile long corrupt;
+  private volatile long deferred;
+  private volatile long loadNanos;
+  private MeshDiskCache(Path dir, FileChannel channel, MappedByteBuffer data,
+      long capacity) {
+    this.dir = dir;
+    this.channel = channel;
+    this.data = data;
+    this.capacity = capacity;
+    for (int i = 0; i < MAX_PENDING_LOADS; i++)
+      freeLoads.add(new Load());
+    this.reader = new Thread(this::readLoop, "MetalRender-MeshDiskCache");
+    this.reader.setDaemon(true);
+  }
+  static MeshDiskCache open(Path dir, long capacity) {
+    try {
+      Files.createDirectories(dir);
+      FileChannel channel = FileChannel.open(dir.resolve("meshes.bin"),
+          StandardOpenOption.CREATE, StandardOpenOption.READ,
+          StandardOpenOption.WRITE);
+      MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+          capacity);
+      data.order(ByteOrder.LITTLE_ENDIAN);
+      MeshDiskCache cache = new MeshDiskCache(dir, channel, data, capacity);
+      cache.readIndex();
+      cache.reader.start();
+      MetalLogger.info("Mesh disk cache opened at %s (%d entries, %dMB)", dir,
+          cache.index.size(), capacity >> 20);
+      return cache;
+    } catch (IOException | RuntimeException e) {
+      MetalLogger.error("Mesh disk cache unavailable at %s: %s", dir, e);
+      return null;
+    }
+  }
+  static String worldId(MinecraftClient mc, ClientWorld world) {
+    String source = "unknown";
+    try {
+      if (mc.getServer() != null)
+        source = "local-" + mc.getServer().getSaveProperties().getLevelName();
+      else if (mc.getCurrentServerEntry() != null)
+        source = "remote-" + mc.getCurrentServerEntry().address;
+    } catch (RuntimeException ignored) {
+    }
+    String id = source + "-" + world.getRegistryKey().getValue();
+    return id.replaceAll("[^A-Za-z0-9._-]", "_");
+  }
+  static long fingerprint(BlockStatePropertyTable props, long settings) {
+    long h = ContentHash.mix(ContentHash.SEED, FORMAT_VERSION);
+    h = ContentHash.mix(h, settings);
+    h = ContentHash.mix(h, props.size);
+    h = ContentHash.bytes(h, props.flags, props.size);
+    h = ContentHash.bytes(h, props.lodMask, props.size);
+    h = ContentHash.bytes(h, props.tintType, props.size);
+    h = ContentHash.ints(h, props.blockColor, props.size);
+    h = ContentHash.bytes(h, props.faceFlags, props.faceFlags.length);
+    h = ContentHash.shorts(h, props.faceUMin, props.faceUMin.length);
+    h = ContentHash.shorts(h, props.faceUMax, props.faceUMax.length);
+    h = ContentHash.shorts(h, props.faceVMin, props.faceVMin.length);
+    h = ContentHash.shorts(h, props.faceVMax, props.faceVMax.length);
+    for (int sid = 0; sid < props.size; sid++) {
+      QuadTemplate t = props.templates[sid];
+      if (t != null)
+        h = t.hash(ContentHash.mix(h, sid));
+      else if (props.models[sid] != null)
+        h = QuadTemplate.hashQuads(ContentHash.mix(h, ~sid), props.models[sid]);
+    }
+    for (String pack : props.resourcePacks) {
+      byte[] id = pack.getBytes(StandardCharsets.UTF_8);
+      h = ContentHash.bytes(h, id, id.length);
+    }
+    return ContentHash.finish(h);
+  }
+  void validate(BlockStatePropertyTable props, long settings) {
+    if (props == validatedProps)
+      return;
+    long fp = fingerprint(props, settings);
+    synchronized (this) {
+      if (props == validatedProps)
+        return;
+      if (fp != fingerprint) {
+        if (!index.isEmpty())
+          MetalLogger.info("Mesh disk cache invalidated (fingerprint %016x -> %016x, %d entries dropped)",
+              fingerprint, fp, index.size());
+        index.clear();
+        byOffset.clear();
+        head = 0;
+        fingerprint = fp;
+      }
+      validatedProps = props;
+    }
+  }
+  boolean requestLoad(long section, int lod, long contentHash,
+      Object attachment) {
+    synchronized (this) {
+      Entry e = index.get(new SectionLod(section, lod));
+      if (e == null) {
+        misses++;
+        return false;
+      }
+      if (e.contentHash != contentHash) {
+        stale++;
+        return false;
+      }
+    }
+    Load load = freeLoads.poll();
+    if (load == null) {
+      deferred++;
+      return false;
+    }
+    load.section = section;
+    load.lod = lod;
+    load.contentHash = contentHash;
+    load.attachment = attachment;
+    load.ok = false;
+    requests.add(load);
+    return true;
+  }
+  Load pollLoaded() {
+    return completed.poll();
+  }
+  void recycle(Load load) {
+    load.attachment = null;
+    freeLoads.add(load);
+  }
+  private void readLoop() {
+    try {
+      while (true) {
+        Load load = requests.take();
+        long start = System.nanoTime();
+        load.ok = read(load);
+        if (load.ok)
+          loadNanos += System.nanoTime() - start;
+        completed.add(load);
+      }
+    } catch (InterruptedException ignored) {
+    }
+  }
+  private boolean read(Load load) {
+    SectionLod key = new SectionLod(load.section, load.lod);
+    Entry e;
+    boolean promote;
+    synchronized (this) {
+      e = index.get(key);
+      promote = e != null &&
+          Math.floorMod(e.offset - head, capacity) < capacity / PROMOTE_DIVISOR;
+    }
+    if (e == null || e.contentHash != load.contentHash) {
+      misses++;
+      return false;
+    }
+    CachedMesh out = load.mesh;
+    boolean valid = readRecord(e, out);
+    synchronized (this) {
+      if (index.get(key) != e) {
+        misses++;
+        return false;
+      }
+      if (!valid) {
+        dropEntry(e);
+        corrupt++;
+        return false;
+      }
+    }
+    if (promote && append(load.section, load.lod, load.contentHash,
+        out.quadCount, out.opaqueQuadCount, out.faceQuadCounts,
+        out.vertexFormat, out.paletteOffset, out.translucentCentroids,
+        out.data, out.dataLen, e))
+      promotions++;
+    hits++;
+    return true;
+  }
+  void store(long section, int lod, long contentHash, int quadCount,
+      int opaqueQuadCount, int[] faceQuadCounts, int vertexFormat,
+      int paletteOffset, float[] translucentCentroids, ByteBuffer vertices,
+      int dataLen) {
+    if (!append(section, lod, contentHash, quadCount, opaqueQuadCount,
+        faceQuadCounts, vertexFormat, paletteOffset, translucentCentroids,
+        vertices, dataLen, null))
+      return;
+    ByteBuffer snapshot = null;
+    synchronized (this) {
+      stores++;
+      if (++storesSinceFlush >= INDEX_FLUSH_INTERVAL)
+        snapshot = indexSnapshot();
+    }
+    if (snapshot != null)
+      writeIndex(snapshot);
+  }
+  private boolean append(long section, int lod, long contentHash,
+      int quadCount, int opaqueQuadCount, int[] faceQuadCounts,
+      int vertexFormat, int paletteOffset, float[] translucentCentroids,
+      ByteBuffer vertices, int dataLen, Entry promoted) {
+    int centroidCount = translucentCentroids != null
+        ? translucentCentroids.length : 0;
+    int length = (RECORD_HEADER + centroidCount * 4 + dataLen + 15) & ~15;
+    if (length > capacity / 2)
+      return false;
+    SectionLod key = new SectionLod(section, lod);
+    Entry e;
+    synchronized (this) {
+      if (head + length > capacity)
+        head = 0;
+      evictRange(head, head + length);
+      e = new Entry(section, lod, contentHash, head, length);
+      byOffset.put(head, e);
+      head += length;
+    }
+    int p = (int) e.offset;
+    data.putInt(p, RECORD_MAGIC);
+    data.putLong(p + 4, section);
+    data.putInt(p + 12, lod);
+    data.putLong(p + 16, contentHash);
+    data.putInt(p + 24, quadCount);
+    data.putInt(p + 28, opaqueQuadCount);
+    for (int i = 0; i < 7; i++)
+      data.putInt(p + 32 + i * 4, faceQuadCounts[i]);
+    data.putInt(p + 60, vertexFormat);
+    data.putInt(p + 64, paletteOffset);
+    data.putInt(p + 68, centroidCount);
+    data.putInt(p + 72, dataLen);
+    int q = p + RECORD_HEADER;
+    for (int i = 0; i < centroidCount; i++, q += 4)
+      data.putFloat(q, translucentCentroids[i]);
+    data.put(q, vertices, 0, dataLen);
+    data.putInt(p + 76, checksum(p, q + dataLen));
+    synchronized (this) {
+      if (byOffset.get(e.offset) != e)
+        return false;
+      if (promoted != null && index.get(key) != promoted) {
+        byOffset.remove(e.offset);
+        return false;
+      }
+      Entry previous = index.put(key, e);
+      if (previous != null)
+        byOffset.remove(previous.offset, previous);
+    }
+    return true;
+  }
+  private boolean readRecord(Entry e, CachedMesh out) {
+    int p = (int) e.offset;
+    if (data.getInt(p) != RECORD_MAGIC || data.getLong(p + 4) != e.section ||
+        data.getInt(p + 12) != e.lod || data.getLong(p + 16) != e.contentHash)
+      return false;
+    int centroidCount = data.getInt(p + 68);
+    int dataLen = data.getInt(p + 72);
+    if (centroidCount < 0 || dataLen <= 0 ||
+        RECORD_HEADER + centroidCount * 4L + dataLen > e.length)
+      return false;
+    int end = p + RECORD_HEADER + centroidCount * 4 + dataLen;
+    if (data.getInt(p + 76) != checksum(p, end))
+      return false;
+    out.quadCount = data.getInt(p + 24);
+    out.opaqueQuadCount = data.getInt(p + 28);
+    for (int i = 0; i < 7; i++)
+      out.faceQuadCounts[i] = data.getInt(p + 32 + i * 4);
+    out.vertexFormat = data.getInt(p + 60);
+    out.paletteOffset = data.getInt(p + 64);
+    int q = p + RECORD_HEADER;
+    if (centroidCount > 0) {
+      float[] centroids = new float[centroidCount];
+      for (int i = 0; i < centroidCount; i++, q += 4)
+        centroids[i] = data.getFloat(q);
+      out.translucentCentroids = centroids;
+    } else {
+      out.translucentCentroids = null;
+    }
+    if (out.data.capacity() < dataLen)
+      out.data = ByteBuffer.allocateDirect(Math.max(dataLen,
+          out.data.capacity() * 2)).order(ByteOrder.nativeOrder());
+    out.data.clear();
+    out.data.put(0, data, q, dataLen);
+    out.data.limit(dataLen);
+    out.dataLen = dataLen;
+    return true;
+  }
+  private int checksum(int record, int end) {
+    CRC32C crc = new CRC32C();
+    crc.update(data.slice(record + 4, 72));
+    crc.update(data.slice(record + RECORD_HEADER, end - record - RECORD_HEADER));
+    return (int) crc.getValue();
+  }
+  private void evictRange(long start, long end) {
+    Map.Entry<Long, Entry> before = byOffset.lowerEntry(start);
+    if (before != null && before.getValue().offset + before.getValue().length > start)
+      dropEntry(before.getValue());
+    while (true) {
+      Map.Entry<Long, Entry> next = byOffset.ceilingEntry(start);
+      if (next == null || next.getKey() >= end)
+        break;
+      dropEntry(next.getValue());
+    }
+  }
+  private void dropEntry(Entry e) {
+    byOffset.remove(e.offset);
+    index.remove(new SectionLod(e.section, e.lod), e);
+    evictions++;
+  }
+  private void readIndex() {
+    Path file = dir.resolve("index.bin");
+    if (!Files.isRegularFile(file))
+      return;
+    try {
+      ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file))
+          .order(ByteOrder.LITTLE_ENDIAN);
+      if (buf.remaining() < INDEX_HEADER || buf.getInt(0) != INDEX_MAGIC ||
+          buf.getInt(4) != FORMAT_VERSION || buf.getLong(8) != capacity)
+        return;
+      fingerprint = buf.getLong(16);
+      head = buf.getLong(24);
+      for (int p = INDEX_HEADER; p + INDEX_ENTRY <= buf.limit(); p += INDEX_ENTRY) {
+        Entry e = new Entry(buf.getLong(p), buf.getInt(p + 8),
+            buf.getLong(p + 12), buf.getLong(p + 20), buf.getInt(p + 28));
+        if (e.offset < 0 || e.offset + e.length > capacity)
+          continue;
+        index.put(new SectionLod(e.section, e.lod), e);
+        byOffset.put(e.offset, e);
+      }
+      if (head < 0 || head > capacity)
+        head = 0;
+    } catch (IOException | RuntimeException e) {
+      index.clear();
+      byOffset.clear();
+      head = 0;
+    }
+  }
+  private ByteBuffer indexSnapshot() {
+    storesSinceFlush = 0;
+    ByteBuffer buf = ByteBuffer.allocate(INDEX_HEADER + index.size() * INDEX_ENTRY)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    buf.putInt(INDEX_MAGIC).putInt(FORMAT_VERSION).putLong(capacity)
+        .putLong(fingerprint).putLong(head);
+    for (Entry e : index.values()) {
+      buf.putLong(e.section).putInt(e.lod).putLong(e.contentHash)
+          .putLong(e.offset).putInt(e.length).putInt(0);
+    }
+    return buf.flip();
+  }
+  private void writeIndex(ByteBuffer buf) {
+    Path tmp = dir.resolve("index.bin.tmp");
+    synchronized (indexWriteLock) {
+      try {
+        data.force();
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+          while (buf.hasRemaining())
+            out.write(buf);
+        }
+        Files.move(tmp, dir.resolve("index.bin"),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException e) {
+        MetalLogger.error("Mesh disk cache index write failed: %s", e);
+      }
+    }
+  }
+  void close() {
+    reader.interrupt();
+    try {
+      reader.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    ByteBuffer snapshot;
+    synchronized (this) {
+      snapshot = indexSnapshot();
+    }
+    writeIndex(snapshot);
+    try {
+      channel.close();
+    } catch (IOException ignored) {
+    }
+  }
+  String getDebugStats() {
+    long h = hits, lookups = h + misses + stale;
+    return String.format(
+        "entries=%d hits=%d misses=%d stale=%d corrupt=%d hitRate=%.1f%% avgLoad=%.3fms pending=%d deferred=%d stores=%d evictions=%d promotions=%d used=%.1f/%dMB",
+        index.size(), h, misses, stale, corrupt,
+        lookups > 0 ? 100.0 * h / lookups : 0.0,
+        h > 0 ? loadNanos / 1e6 / h : 0.0, requests.size(), deferred, stores,
+        evictions, promotions, usedBytes() / 1048576.0, capacity >> 20);
+  }
+  private synchronized long usedBytes() {
+    long used = 0;
+    for (Entry e : byOffset.values())
+      used += e.length;
+    return used;
+  }
+}
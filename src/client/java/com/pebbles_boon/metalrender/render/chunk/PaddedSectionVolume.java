@@ -0,0 +1,137 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import java.util.Arrays;
+import net.minecraft.world.chunk.ChunkSection;
+final class PaddedSectionVolume {
+  static final int SIZE = 18;
+  static final int STRIDE_Z = SIZE;
+  static final int STRIDE_Y = SIZE * SIZE;
+  static final int CELLS = SIZE * SIZE * SIZE;
+  final int[] states = new int[CELLS];
+  final byte[] light = new byte[CELLS];
+  private final int[] scratch = new int[SectionSnapshot.VOLUME];
+  private final byte[] lightScratch = new byte[LightSnapshot.VOLUME];
+  private final int[][] neighbors = new int[6][SectionSnapshot.VOLUME];
+  private final int[] neighborUniform = new int[6];
+  static int index(int x, int y, int z) {
+    return (y + 1) * STRIDE_Y + (z + 1) * STRIDE_Z + x + 1;
+  }
+  void clear() {
+    Arrays.fill(states, 0);
+    Arrays.fill(light, (byte) 0);
+    Arrays.fill(neighborUniform, 0);
+  }
+  void loadStates(SectionSnapshot snapshot) {
+    snapshot.copyTo(scratch);
+    loadStates(scratch);
+  }
+  void loadStates(int[] src) {
+    for (int y = 0; y < 16; y++) {
+      for (int z = 0; z < 16; z++)
+        System.arraycopy(src, y * 256 + z * 16, states, index(0, y, z), 16);
+    }
+  }
+  void loadLight(LightSnapshot snapshot) {
+    snapshot.copyTo(lightScratch);
+    loadLight(lightScratch);
+    for (int f = 0; f < 6; f++) {
+      for (int i = 0; i < 256; i++)
+        light[faceIndex(f, i >> 4, i & 15)] = snapshot.getFace(f, i);
+    }
+  }
+  void loadLight(byte[] src) {
+    for (int y = 0; y < 16; y++) {
+      for (int z = 0; z < 16; z++)
+        System.arraycopy(src, y * 256 + z * 16, light, index(0, y, z), 16);
+    }
+  }
+  void loadNeighbor(int faceDir, ChunkSection section) {
+    if (section == null || section.isEmpty())
+      return;
+    int uniform = SectionSnapshot.decode(section, neighbors[faceDir]);
+    if (uniform == 0)
+      return;
+    neighborUniform[faceDir] = uniform;
+    fillPadding(faceDir);
+  }
+  void loadNeighbor(int faceDir, int[] src) {
+    System.arraycopy(src, 0, neighbors[faceDir], 0, SectionSnapshot.VOLUME);
+    neighborUniform[faceDir] = -1;
+    fillPadding(faceDir);
+  }
+  private void fillPadding(int faceDir) {
+    for (int a = 0; a < 16; a++) {
+      for (int b = 0; b < 16; b++)
+        states[faceIndex(faceDir, a, b)] = neighborState(faceDir, a, b, 0);
+    }
+  }
+  boolean hasNeighbor(int faceDir) {
+    return neighborUniform[faceDir] != 0;
+  }
+  int neighborState(int faceDir, int a, int b, int depth) {
+    int uniform = neighborUniform[faceDir];
+    return uniform > 0 ? uniform
+        : neighbors[faceDir][neighborIndex(faceDir, a, b, depth)];
+  }
+  static int boundaryIndex(int faceDir, int a, int b) {
+    return neighborIndex(faceDir, a, b, 0);
+  }
+  private static int neighborIndex(int faceDir, int a, int b, int depth) {
+    return switch (faceDir) {
+      case 0 -> (15 - depth) * 256 + a * 16 + b;
+      case 1 -> depth * 256 + a * 16 + b;
+      case 2 -> a * 256 + (15 - depth) * 16 + b;
+      case 3 -> a * 256 + depth * 16 + b;
+      case 4 -> a * 256 + b * 16 + 15 - depth;
+      default -> a * 256 + b * 16 + depth;
+    };
+  }
+  long paddingHash(int faceDir, BlockStatePropertyTable props,
+      boolean[] occluders) {
+    long h = ContentHash.mix(ContentHash.SEED, faceDir);
+    long acc = 0;
+    for (int i = 0; i < 256; i++) {
+      int p = faceIndex(faceDir, i >> 4, i & 15);
+      acc = (acc << 12) | boundaryCell(props, occluders, states[p], light[p]);
+      if (i % 5 == 4) {
+        h = ContentHash.mix(h, acc);
+        acc = 0;
+      }
+    }
+    return ContentHash.finish(ContentHash.mix(h, acc));
+  }
+  static long boundaryHash(int[] decoded, int uniform, LightSnapshot lights,
+      int faceDir, BlockStatePropertyTable props, boolean[] occluders) {
+    long h = ContentHash.mix(ContentHash.SEED, faceDir);
+    long acc = 0;
+    for (int i = 0; i < 256; i++) {
+      int idx = boundaryIndex(faceDir, i >> 4, i & 15);
+      int sid = uniform >= 0 ? uniform : decoded[idx];
+      acc = (acc << 12) | boundaryCell(props, occluders, sid,
+          lights != null ? lights.get(idx) : 0);
+      if (i % 5 == 4) {
+        h = ContentHash.mix(h, acc);
+        acc = 0;
+      }
+    }
+    return ContentHash.finish(ContentHash.mix(h, acc));
+  }
+  private static int boundaryCell(BlockStatePropertyTable props,
+      boolean[] occluders, int sid, byte light) {
+    if (sid <= 0 || sid >= props.size)
+      return light & 0xFF;
+    if (sid < occluders.length && occluders[sid])
+      return 1 << 8;
+    int c = 8 | (props.fastWater[sid] ? 2 : 0) | (props.watery[sid] ? 4 : 0);
+    return (c << 8) | (light & 0xFF);
+  }
+  private static int faceIndex(int faceDir, int a, int b) {
+    return switch (faceDir) {
+      case 0 -> index(b, -1, a);
+      case 1 -> index(b, 16, a);
+      case 2 -> index(b, a, -1);
+      case 3 -> index(b, a, 16);
+      case 4 -> index(-1, a, b);
+      default -> index(16, a, b);
+    };
+  }
+}
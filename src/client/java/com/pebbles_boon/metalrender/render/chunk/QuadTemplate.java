@@ -0,0 +1,299 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import net.minecraft.client.render.model.BakedQuad;
+import net.minecraft.client.render.model.BlockModelPart;
+import net.minecraft.client.render.model.BlockStateModel;
+import net.minecraft.util.math.Direction;
+import net.minecraft.util.math.random.LocalRandom;
+import net.minecraft.util.math.random.Random;
+import org.joml.Vector3fc;
+final class QuadTemplate {
+  static final int NON_DIRECTIONAL = 6;
+  static final byte Q_TINT = 0x01;
+  static final byte Q_MERGE = 0x02;
+  static final int UV_SCRATCH = 8;
+  private static final Direction[] DIRECTIONS = Direction.values();
+  private static final float[] FACE_SHADE = { 0.5f, 1.0f, 0.8f, 0.8f, 0.6f, 0.6f };
+  private static final int MAX_VARIANT_BOUND = 256;
+  private static final byte[][] CUBE_CORNERS = {
+      { 0, 0, 1, 0, 0, 0, 1, 0, 0, 1, 0, 1 },
+      { 0, 1, 0, 0, 1, 1, 1, 1, 1, 1, 1, 0 },
+      { 1, 1, 0, 1, 0, 0, 0, 0, 0, 0, 1, 0 },
+      { 0, 1, 1, 0, 0, 1, 1, 0, 1, 1, 1, 1 },
+      { 0, 1, 0, 0, 0, 0, 0, 0, 1, 0, 1, 1 },
+      { 1, 1, 1, 1, 0, 1, 1, 0, 0, 1, 1, 0 } };
+  final int[] listStart = new int[8];
+  final short[] pos;
+  final short[] uv;
+  final short[] mergeUv;
+  final byte[] normal;
+  final byte[] quadFlags;
+  final byte[] emission;
+  final float[] shade;
+  private QuadTemplate(int quadCount) {
+    this.pos = new short[quadCount * 12];
+    this.uv = new short[quadCount * 8];
+    this.mergeUv = new short[quadCount * 4];
+    this.normal = new byte[quadCount];
+    this.quadFlags = new byte[quadCount];
+    this.emission = new byte[quadCount];
+    this.shade = new float[quadCount];
+  }
+  static QuadTemplate build(BlockStateModel model) {
+    if (model == null)
+      return null;
+    try {
+      VariantRandom variants = new VariantRandom();
+      List<BakedQuad>[] lists = collect(model.getParts(variants));
+      for (int k = 1; k < variants.maxBound; k++) {
+        if (variants.maxBound > MAX_VARIANT_BOUND)
+          return null;
+        variants.choice = k;
+        if (!sameQuads(lists, collect(model.getParts(variants))))
+          return null;
+      }
+      if (variants.maxBound > MAX_VARIANT_BOUND)
+        return null;
+      int total = 0;
+      for (List<BakedQuad> list : lists)
+        total += list.size();
+      QuadTemplate t = new QuadTemplate(total);
+      int q = 0;
+      short[] scratch = new short[UV_SCRATCH];
+      for (int l = 0; l <= NON_DIRECTIONAL; l++) {
+        t.listStart[l] = q;
+        for (BakedQuad quad : lists[l]) {
+          t.store(q, quad, l < NON_DIRECTIONAL ? l : -1, scratch);
+          q++;
+        }
+      }
+      t.listStart[7] = q;
+      return t;
+    } catch (RuntimeException e) {
+      return null;
+    }
+  }
+  static QuadTemplate unitCube(boolean tinted) {
+    QuadTemplate t = new QuadTemplate(6);
+    for (int d = 0; d < 6; d++) {
+      t.listStart[d] = d;
+      for (int v = 0; v < 4; v++) {
+        for (int a = 0; a < 3; a++)
+          t.pos[d * 12 + v * 3 + a] = (short) (CUBE_CORNERS[d][v * 3 + a] * 256);
+        t.uv[d * 8 + v * 2] = (short) (v < 2 ? 0 : 65535);
+        t.uv[d * 8 + v * 2 + 1] = (short) (v == 1 || v == 2 ? 65535 : 0);
+      }
+      t.mergeUv[d * 4 + 1] = (short) 65535;
+      t.mergeUv[d * 4 + 3] = (short) 65535;
+      t.normal[d] = (byte) d;
+      t.shade[d] = FACE_SHADE[d];
+      t.quadFlags[d] = (byte) (Q_MERGE | (tinted ? Q_TINT : 0));
+    }
+    t.listStart[NON_DIRECTIONAL] = 6;
+    t.listStart[7] = 6;
+    return t;
+  }
+  @SuppressWarnings("unchecked")
+  private static List<BakedQuad>[] collect(List<BlockModelPart> parts) {
+    List<BakedQuad>[] lists = new List[NON_DIRECTIONAL + 1];
+    for (int l = 0; l <= NON_DIRECTIONAL; l++) {
+      lists[l] = new ArrayList<>();
+      Direction dir = l < NON_DIRECTIONAL ? DIRECTIONS[l] : null;
+      for (BlockModelPart part : parts) {
+        List<BakedQuad> quads = part.getQuads(dir);
+        if (quads != null)
+          lists[l].addAll(quads);
+      }
+    }
+    return lists;
+  }
+  private static boolean sameQuads(List<BakedQuad>[] a, List<BakedQuad>[] b) {
+    for (int l = 0; l < a.length; l++) {
+      if (a[l].size() != b[l].size())
+        return false;
+      for (int i = 0; i < a[l].size(); i++) {
+        if (a[l].get(i) != b[l].get(i))
+          return false;
+      }
+    }
+    return true;
+  }
+  private void store(int q, BakedQuad quad, int cullDir, short[] scratch) {
+    Direction face = quad.face();
+    int n = face == null ? 1 : face.ordinal();
+    for (int v = 0; v < 4; v++) {
+      Vector3fc p = quad.getPosition(v);
+      pos[q * 12 + v * 3] = (short) (p.x() * 256.0f);
+      pos[q * 12 + v * 3 + 1] = (short) (p.y() * 256.0f);
+      pos[q * 12 + v * 3 + 2] = (short) (p.z() * 256.0f);
+      long packedUV = quad.getTexcoords(v);
+      uv[q * 8 + v * 2] = (short) (Float.intBitsToFloat((int) (packedUV >> 32)) * 65535.0f);
+      uv[q * 8 + v * 2 + 1] = (short) (Float.intBitsToFloat((int) packedUV) * 65535.0f);
+    }
+    normal[q] = (byte) n;
+    shade[q] = quad.shade() ? FACE_SHADE[n] : 1.0f;
+    emission[q] = (byte) quad.lightEmission();
+    byte f = quad.hasTint() ? Q_TINT : 0;
+    if (cullDir >= 0 && canonicalFaceUv(quad, cullDir, scratch)) {
+      System.arraycopy(scratch, 0, mergeUv, q * 4, 4);
+      f |= Q_MERGE;
+    }
+    quadFlags[q] = f;
+  }
+  long hash(long h) {
+    h = ContentHash.ints(h, listStart, listStart.length);
+    h = ContentHash.shorts(h, pos, pos.length);
+    h = ContentHash.shorts(h, uv, uv.length);
+    h = ContentHash.shorts(h, mergeUv, mergeUv.length);
+    h = ContentHash.bytes(h, normal, normal.length);
+    h = ContentHash.bytes(h, quadFlags, quadFlags.length);
+    return ContentHash.bytes(h, emission, emission.length);
+  }
+  static long hashQuads(long h, BlockStateModel model) {
+    List<BakedQuad>[] lists = collect(model.getParts(Random.create(42L)));
+    for (int l = 0; l <= NON_DIRECTIONAL; l++) {
+      h = ContentHash.mix(h, l | ((long) lists[l].size() << 8));
+      for (BakedQuad quad : lists[l]) {
+        Direction face = quad.face();
+        h = ContentHash.mix(h, (face == null ? -1 : face.ordinal()) |
+            (quad.hasTint() ? 0x100 : 0) | (quad.shade() ? 0x200 : 0) |
+            ((long) quad.lightEmission() << 16));
+        for (int v = 0; v < 4; v++) {
+          Vector3fc p = quad.getPosition(v);
+          h = ContentHash.mix(h, ((long) Float.floatToRawIntBits(p.x()) << 32) |
+              (Float.floatToRawIntBits(p.y()) & 0xFFFFFFFFL));
+          h = ContentHash.mix(h, ((long) Float.floatToRawIntBits(p.z()) << 32) |
+              (quad.getTexcoords(v) & 0xFFFFFFFFL));
+          h = ContentHash.mix(h, quad.getTexcoords(v) >>> 32);
+        }
+      }
+    }
+    return h;
+  }
+  int start(int list) {
+    return listStart[list];
+  }
+  int end(int list) {
+    return listStart[list + 1];
+  }
+  byte light(int q, byte packedLight) {
+    int e = emission[q];
+    if (e <= 0)
+      return packedLight;
+    int bl = Math.max(packedLight & 0xF, e);
+    return (byte) ((bl & 0xF) | (packedLight & 0xF0));
+  }
+  void emit(ByteBuffer buf, int q, int blockX, int blockY, int blockZ,
+      byte packedLight, byte tintR, byte tintG, byte tintB, byte alpha) {
+    boolean tinted = (quadFlags[q] & Q_TINT) != 0;
+    float s = shade[q];
+    byte sr = (byte) ((tinted ? tintR & 0xFF : 255) * s);
+    byte sg = (byte) ((tinted ? tintG & 0xFF : 255) * s);
+    byte sb = (byte) ((tinted ? tintB & 0xFF : 255) * s);
+    byte light = light(q, packedLight);
+    byte n = normal[q];
+    int ox = blockX * 256, oy = blockY * 256, oz = blockZ * 256;
+    int p = q * 12, t = q * 8;
+    for (int v = 0; v < 4; v++, p += 3, t += 2) {
+      buf.putShort((short) (pos[p] + ox));
+      buf.putShort((short) (pos[p + 1] + oy));
+      buf.putShort((short) (pos[p + 2] + oz));
+      buf.putShort(uv[t]);
+      buf.putShort(uv[t + 1]);
+      buf.put(sr);
+      buf.put(sg);
+      buf.put(sb);
+      buf.put(alpha);
+      buf.put(light);
+      buf.put(n);
+    }
+  }
+  static boolean canonicalFaceUv(BakedQuad quad, int d, short[] out) {
+    if (quad.face() == null || quad.face().ordinal() != d)
+      return false;
+    int corners = 0;
+    for (int vi = 0; vi < 4; vi++) {
+      Vector3fc pos = quad.getPosition(vi);
+      float px = pos.x(), py = pos.y(), pz = pos.z();
+      if ((px != 0.0f && px != 1.0f) || (py != 0.0f && py != 1.0f) ||
+          (pz != 0.0f && pz != 1.0f))
+        return false;
+      boolean onPlane;
+      boolean uLow, vLow;
+      switch (d) {
+        case 0 -> {
+          onPlane = py == 0.0f;
+          uLow = px == 0.0f;
+          vLow = pz == 1.0f;
+        }
+        case 1 -> {
+          onPlane = py == 1.0f;
+          uLow = px == 0.0f;
+          vLow = pz == 0.0f;
+        }
+        case 2 -> {
+          onPlane = pz == 0.0f;
+          uLow = px == 1.0f;
+          vLow = py == 1.0f;
+        }
+        case 3 -> {
+          onPlane = pz == 1.0f;
+          uLow = px == 0.0f;
+          vLow = py == 1.0f;
+        }
+        case 4 -> {
+          onPlane = px == 0.0f;
+          uLow = pz == 0.0f;
+          vLow = py == 1.0f;
+        }
+        default -> {
+          onPlane = px == 1.0f;
+          uLow = pz == 1.0f;
+          vLow = py == 1.0f;
+        }
+      }
+      if (!onPlane)
+        return false;
+      int corner = (uLow ? 0 : 1) | (vLow ? 0 : 2);
+      if ((corners & (1 << corner)) != 0)
+        return false;
+      corners |= 1 << corner;
+      long packedUV = quad.getTexcoords(vi);
+      out[corner] = (short) (Float.intBitsToFloat((int) (packedUV >> 32)) * 65535.0f);
+      out[4 + corner] = (short) (Float.intBitsToFloat((int) packedUV) * 65535.0f);
+    }
+    if (corners != 0xF || out[0] != out[2] || out[1] != out[3] ||
+        out[4] != out[5] || out[6] != out[7] || out[0] == out[1] ||
+        out[4] == out[6])
+      return false;
+    out[2] = out[4];
+    out[3] = out[6];
+    return true;
+  }
+  private static final class VariantRandom extends LocalRandom {
+    int choice;
+    int maxBound;
+    VariantRandom() {
+      super(0L);
+    }
+    @Override
+    public void setSeed(long seed) {
+    }
+    @Override
+    public int nextInt(int bound) {
+      maxBound = Math.max(maxBound, bound);
+      return Math.min(choice, bound - 1);
+    }
+    @Override
+    public long nextLong() {
+      return choice;
+    }
+    @Override
+    public int next(int bits) {
+      maxBound = MAX_VARIANT_BOUND + 1;
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,201 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import java.util.Arrays;
+public final class SectionBuildQueue {
+  private static final int DIST_BUCKETS = 256;
+  private static final int BUCKETS = DIST_BUCKETS * 2;
+  private static final int NONE = -1;
+  private static final float RETIER_COS = 0.866f;
+  private final LongSlotIndex index;
+  private final int[] head = new int[BUCKETS];
+  private final int[] tail = new int[BUCKETS];
+  private long[] keys;
+  private int[] bucket;
+  private int[] epochOf;
+  private int[] prev;
+  private int[] next;
+  private int freeHead = NONE;
+  private int highWater;
+  private int size;
+  private int lowest = BUCKETS;
+  private int epoch;
+  private int centerX, centerZ;
+  private float tierForwardX, tierForwardZ = 1.0f;
+  private int rebucketCursor;
+  private long inserted, rebucketed, lazyMoves;
+  public SectionBuildQueue(int initialCapacity) {
+    int cap = Math.max(16, initialCapacity);
+    index = new LongSlotIndex(cap);
+    keys = new long[cap];
+    bucket = new int[cap];
+    epochOf = new int[cap];
+    prev = new int[cap];
+    next = new int[cap];
+    Arrays.fill(head, NONE);
+    Arrays.fill(tail, NONE);
+  }
+  public int size() {
+    return size;
+  }
+  public boolean isEmpty() {
+    return size == 0;
+  }
+  public boolean contains(long key) {
+    return index.get(key) != NONE;
+  }
+  public void setView(int centerX, int centerZ, float forwardX,
+      float forwardZ) {
+    boolean retier = forwardX * tierForwardX + forwardZ * tierForwardZ < RETIER_COS;
+    if (centerX == this.centerX && centerZ == this.centerZ && !retier)
+      return;
+    this.centerX = centerX;
+    this.centerZ = centerZ;
+    tierForwardX = forwardX;
+    tierForwardZ = forwardZ;
+    epoch++;
+    rebucketCursor = 0;
+  }
+  public boolean add(long key) {
+    int s = index.get(key);
+    if (s != NONE) {
+      if (epochOf[s] != epoch)
+        rebucketSlot(s);
+      return false;
+    }
+    s = allocSlot();
+    keys[s] = key;
+    index.put(key, s);
+    link(s, bucketOf(key));
+    size++;
+    inserted++;
+    return true;
+  }
+  public boolean remove(long key) {
+    int s = index.remove(key);
+    if (s == NONE)
+      return false;
+    unlink(s);
+    freeSlot(s);
+    return true;
+  }
+  public long poll() {
+    while (lowest < BUCKETS) {
+      int s = head[lowest];
+      if (s == NONE) {
+        lowest++;
+        continue;
+      }
+      if (epochOf[s] != epoch) {
+        int b = bucketOf(keys[s]);
+        epochOf[s] = epoch;
+        if (b != bucket[s]) {
+          unlink(s);
+          link(s, b);
+          lazyMoves++;
+          continue;
+        }
+      }
+      long key = keys[s];
+      index.remove(key);
+      unlink(s);
+      freeSlot(s);
+      return key;
+    }
+    throw new IllegalStateException("poll on empty build queue");
+  }
+  public int rebucket(int maxSlots) {
+    int moved = 0;
+    int end = Math.min(highWater, rebucketCursor + maxSlots);
+    for (; rebucketCursor < end; rebucketCursor++) {
+      int s = rebucketCursor;
+      if (bucket[s] != NONE && epochOf[s] != epoch) {
+        rebucketSlot(s);
+        moved++;
+      }
+    }
+    return moved;
+  }
+  public void clear() {
+    index.clear();
+    Arrays.fill(head, NONE);
+    Arrays.fill(tail, NONE);
+    freeHead = NONE;
+    highWater = 0;
+    size = 0;
+    lowest = BUCKETS;
+    rebucketCursor = 0;
+  }
+  public String getDebugStats() {
+    return String.format("queue: size=%d inserted=%d rebucketed=%d lazyMoves=%d",
+        size, inserted, rebucketed, lazyMoves);
+  }
+  private void rebucketSlot(int s) {
+    int b = bucketOf(keys[s]);
+    epochOf[s] = epoch;
+    if (b == bucket[s])
+      return;
+    unlink(s);
+    link(s, b);
+    rebucketed++;
+  }
+  private int bucketOf(long key) {
+    int dx = (int) ((key >> 42) & 0x3FFFFF);
+    if ((dx & 0x200000) != 0)
+      dx |= ~0x3FFFFF;
+    int dz = (int) (key & 0x3FFFFF);
+    if ((dz & 0x200000) != 0)
+      dz |= ~0x3FFFFF;
+    dx -= centerX;
+    dz -= centerZ;
+    int dist = Math.min(Math.abs(dx) + Math.abs(dz), DIST_BUCKETS - 1);
+    boolean front = dx * tierForwardX + dz * tierForwardZ >= 0;
+    return front ? dist : DIST_BUCKETS + dist;
+  }
+  private void link(int s, int b) {
+    bucket[s] = b;
+    epochOf[s] = epoch;
+    prev[s] = tail[b];
+    next[s] = NONE;
+    if (tail[b] != NONE)
+      next[tail[b]] = s;
+    else
+      head[b] = s;
+    tail[b] = s;
+    if (b < lowest)
+      lowest = b;
+  }
+  private void unlink(int s) {
+    int b = bucket[s];
+    int p = prev[s], n = next[s];
+    if (p != NONE)
+      next[p] = n;
+    else
+      head[b] = n;
+    if (n != NONE)
+      prev[n] = p;
+    else
+      tail[b] = p;
+    bucket[s] = NONE;
+  }
+  private int allocSlot() {
+    if (freeHead != NONE) {
+      int s = freeHead;
+      freeHead = next[s];
+      return s;
+    }
+    if (highWater == keys.length)
+      grow(keys.length << 1);
+    return highWater++;
+  }
+  private void freeSlot(int s) {
+    next[s] = freeHead;
+    freeHead = s;
+    size--;
+  }
+  private void grow(int cap) {
+    keys = Arrays.copyOf(keys, cap);
+    bucket = Arrays.copyOf(bucket, cap);
+    epochOf = Arrays.copyOf(epochOf, cap);
+    prev = Arrays.copyOf(prev, cap);
+    next = Arrays.copyOf(next, cap);
+  }
+}
@@ -0,0 +1,508 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+import net.minecraft.client.render.model.BakedQuad;
+import net.minecraft.client.render.model.BlockModelPart;
+import net.minecraft.client.render.model.BlockStateModel;
+import net.minecraft.client.texture.Sprite;
+import net.minecraft.util.math.Direction;
+import net.minecraft.util.math.random.Random;
+final class SectionMeshKernel {
+  private static final int SECTION_SIZE = 16;
+  private static final int QUAD_BYTES = 64;
+  private static final Direction[] ALL_DIRECTIONS = Direction.values();
+  static final boolean LOD_DOWNSAMPLE = Boolean.parseBoolean(
+      System.getProperty("metalrender.lodDownsample", "true"));
+  static volatile int dbgWaterBaked = 0;
+  static volatile int dbgWaterFallback = 0;
+  static volatile int dbgWaterBakedCull = 0;
+  static volatile int dbgNonFullSkip = 0;
+  static volatile long greedyFacesIn = 0;
+  static volatile long greedyQuadsOut = 0;
+  static volatile long templateBlocks = 0;
+  static volatile long seededModelBlocks = 0;
+  static volatile long downsampledSections = 0;
+  static volatile long downsampledCells = 0;
+  final ByteBuffer vertexBuffer = ByteBuffer
+      .allocateDirect(CustomChunkMesher.VERTEX_BUF_SIZE)
+      .order(ByteOrder.nativeOrder());
+  private final ByteBuffer waterBuffer = ByteBuffer
+      .allocateDirect(CustomChunkMesher.VERTEX_BUF_SIZE)
+      .order(ByteOrder.nativeOrder());
+  private final FaceVisibilityMasks faceMasks = new FaceVisibilityMasks();
+  private final GreedyQuadMerger merger = new GreedyQuadMerger();
+  private final VoxelDownsampler downsampler = new VoxelDownsampler();
+  private final Random rand = Random.create(0);
+  private final byte[] quadFace = new byte[CustomChunkMesher.MAX_QUADS];
+  private final byte[] scratch = new byte[CustomChunkMesher.VERTEX_BUF_SIZE];
+  private final int[] blockTints = new int[BiomeColorGrid.TINTS + 1];
+  private final int[] faceCursor = new int[CustomChunkMesher.FACE_BUCKETS];
+  final int[] faceQuadCounts = new int[CustomChunkMesher.FACE_BUCKETS];
+  int opaqueQuadCount;
+  int waterQuadCount;
+  int bakedQuadBlocks;
+  int fallbackBlocks;
+  boolean build(PaddedSectionVolume volume, BlockStatePropertyTable props,
+      int chunkX, int chunkY, int chunkZ, int lodLevel, int leafMode,
+      int[] biomeColors, BiomeColorGrid biomeGrid, Sprite waterSprite,
+      MeshBuildScheduler.Job job) {
+    vertexBuffer.clear();
+    waterBuffer.clear();
+    opaqueQuadCount = 0;
+    waterQuadCount = 0;
+    bakedQuadBlocks = 0;
+    fallbackBlocks = 0;
+    System.arraycopy(biomeColors, 0, blockTints, 0, blockTints.length);
+    boolean useFastPath = (lodLevel >= 1);
+    boolean skipNonDirectionalQuads = (lodLevel >= 1);
+    if (useFastPath && LOD_DOWNSAMPLE) {
+      emitDownsampled(volume, props, chunkY, lodLevel, leafMode, biomeColors,
+          biomeGrid);
+      fallbackBlocks = 4096;
+    } else if (useFastPath) {
+      faceMasks.compute(volume, props.occluders(leafMode), props.fastWater);
+      merger.reset();
+      merger.ensureMaterialSlots(props.size * 6);
+      for (int y = 0; y < SECTION_SIZE; y++) {
+        if (job != null && job.isCancelled())
+          break;
+        for (int z = 0; z < SECTION_SIZE; z++) {
+          for (int x = 0; x < SECTION_SIZE; x++) {
+            int p = PaddedSectionVolume.index(x, y, z);
+            int sid = volume.states[p];
+            if (sid == 0 || sid >= props.size)
+              continue;
+            byte sflags = props.flags[sid];
+            if ((sflags & BlockStatePropertyTable.F_FAST_DRAW) == 0) {
+              if ((sflags & BlockStatePropertyTable.F_AIR) == 0)
+                dbgNonFullSkip++;
+              continue;
+            }
+            if (!props.rendersAtLod(sid, lodLevel))
+              continue;
+            byte light = volume.light[p];
+            byte pLight = (byte) ((light & 0xF) | (((light >> 4) & 0xF) << 4));
+            boolean isWater = (sflags & BlockStatePropertyTable.F_FAST_WATER) != 0;
+            int waterDrop = isWater ? 32 : 0; 
+            int faces = faceMasks.faceBits(isWater, x, y, z);
+            if (faces == 0)
+              continue;
+            int[] tints = tintsAt(biomeColors, biomeGrid, props.tintType[sid],
+                isWater, x, chunkY * SECTION_SIZE + y, z);
+            if ((faces & 2) != 0) {
+              merger.addFace(1, x, y, z, CustomChunkMesher.fastMaterial(merger, props, tints, sid,
+                  1, isWater, waterDrop), pLight);
+            }
+            if ((faces & 1) != 0) {
+              merger.addFace(0, x, y, z, CustomChunkMesher.fastMaterial(merger, props, tints, sid,
+                  0, isWater, 0), pLight);
+            }
+            if ((faces & 8) != 0) {
+              merger.addFace(3, x, y, z, CustomChunkMesher.fastMaterial(merger, props, tints, sid,
+                  3, isWater, waterDrop), pLight);
+            }
+            if ((faces & 4) != 0) {
+              merger.addFace(2, x, y, z, CustomChunkMesher.fastMaterial(merger, props, tints, sid,
+                  2, isWater, waterDrop), pLight);
+            }
+            if ((faces & 32) != 0) {
+              merger.addFace(5, x, y, z, CustomChunkMesher.fastMaterial(merger, props, tints, sid,
+                  5, isWater, waterDrop), pLight);
+            }
+            if ((faces & 16) != 0) {
+              merger.addFace(4, x, y, z, CustomChunkMesher.fastMaterial(merger, props, tints, sid,
+                  4, isWater, waterDrop), pLight);
+            }
+          }
+        }
+      }
+      int facesIn = merger.getPendingFaceCount();
+      int quadsOut = merger.emit(vertexBuffer, waterBuffer,
+          CustomChunkMesher.MAX_QUADS);
+      opaqueQuadCount += merger.getMergedQuadCount();
+      waterQuadCount += merger.getMergedWaterQuadCount();
+      greedyFacesIn += facesIn;
+      greedyQuadsOut += quadsOut;
+      fallbackBlocks = 4096; 
+    } else {
+      merger.reset();
+      merger.ensureMaterialSlots(props.size * 6);
+      faceMasks.compute(volume, props.occluders(leafMode), props.watery);
+      for (int y = 0; y < SECTION_SIZE; y++) {
+        if (job != null && job.isCancelled())
+          break;
+        for (int z = 0; z < SECTION_SIZE; z++) {
+          for (int x = 0; x < SECTION_SIZE; x++) {
+            int p = PaddedSectionVolume.index(x, y, z);
+            int stateId = volume.states[p];
+            if (stateId == 0 || stateId >= props.size)
+              continue;
+            byte sflags = props.flags[stateId];
+            if ((sflags & BlockStatePropertyTable.F_AIR) != 0)
+              continue;
+            byte light = volume.light[p];
+            byte packedLight = (byte) ((light & 0xF) | ((light >> 4) & 0xF) << 4);
+            byte tintType = props.tintType[stateId];
+            int tintColor = tintType != CustomChunkMesher.TINT_NONE && tintType < biomeColors.length
+                ? biomeGrid != null
+                    ? biomeGrid.color(tintType, x, chunkY * SECTION_SIZE + y, z)
+                    : biomeColors[tintType]
+                : props.blockColor[stateId];
+            byte tintR = (byte) ((tintColor >> 16) & 0xFF);
+            byte tintG = (byte) ((tintColor >> 8) & 0xFF);
+            byte tintB = (byte) (tintColor & 0xFF);
+            boolean isLeaf = (sflags & BlockStatePropertyTable.F_LEAF) != 0;
+            boolean isWaterBaked = (sflags & BlockStatePropertyTable.F_WATER) != 0;
+            boolean isWaterlogged = (sflags & (BlockStatePropertyTable.F_FLUID |
+                BlockStatePropertyTable.F_WATER | BlockStatePropertyTable.F_LAVA)) == BlockStatePropertyTable.F_FLUID;
+            boolean forceOpaque = isLeaf && leafMode == 0;
+            byte blockAlpha = isWaterBaked ? (byte) 220 : (byte) 255;
+            boolean isNonFullBlock = (sflags & (BlockStatePropertyTable.F_OPAQUE_FULL | BlockStatePropertyTable.F_LEAF |
+                BlockStatePropertyTable.F_WATER | BlockStatePropertyTable.F_LAVA)) == 0;
+            boolean mergeable = (sflags & (BlockStatePropertyTable.F_OPAQUE_FULL | BlockStatePropertyTable.F_LEAF |
+                BlockStatePropertyTable.F_FLUID)) == BlockStatePropertyTable.F_OPAQUE_FULL;
+            BlockStateModel model = props.models[stateId];
+            QuadTemplate template = props.templates[stateId];
+            if (model != null || template != null) {
+              try {
+                int quadsThisBlock = 0;
+                if (template != null) {
+                  templateBlocks++;
+                  byte tAlpha = forceOpaque ? (byte) 254 : blockAlpha;
+                  ByteBuffer tbuf = isWaterBaked ? waterBuffer : vertexBuffer;
+                  for (int d = 0; d < 6; d++) {
+                    int qEnd = template.end(d);
+                    if (template.start(d) == qEnd || !faceMasks.isOpen(d, x, y, z))
+                      continue;
+                    if (isWaterBaked && !faceMasks.isOpenForWater(d, x, y, z)) {
+                      dbgWaterBakedCull++;
+                      continue;
+                    }
+                    for (int q = template.start(d); q < qEnd; q++) {
+                      if (opaqueQuadCount + waterQuadCount + merger.getPendingFaceCount() >= CustomChunkMesher.MAX_QUADS)
+                        break;
+                      if (mergeable && (template.quadFlags[q] & QuadTemplate.Q_MERGE) != 0) {
+                        CustomChunkMesher.addTemplateFace(merger, template, q, stateId, d, x, y, z,
+                            packedLight, tintR, tintG, tintB, blockAlpha);
+                      } else {
+                        template.emit(tbuf, q, x, y, z, packedLight, tintR,
+                            tintG, tintB, tAlpha);
+                        if (isWaterBaked)
+                          waterQuadCount++;
+                        else
+                          opaqueQuadCount++;
+                      }
+                      quadsThisBlock++;
+                    }
+                  }
+                  if (!skipNonDirectionalQuads) {
+                    int qEnd = template.end(QuadTemplate.NON_DIRECTIONAL);
+                    for (int q = template.start(QuadTemplate.NON_DIRECTIONAL); q < qEnd; q++) {
+                      if (opaqueQuadCount + waterQuadCount + merger.getPendingFaceCount() >= CustomChunkMesher.MAX_QUADS)
+                        break;
+                      template.emit(tbuf, q, x, y, z, packedLight, tintR,
+                          tintG, tintB, tAlpha);
+                      if (isWaterBaked)
+                        waterQuadCount++;
+                      else
+                        opaqueQuadCount++;
+                      quadsThisBlock++;
+                    }
+                  }
+                } else {
+                  long seed = (long) (chunkX * 16 + x) * 3129871L ^
+                      (long) (chunkZ * 16 + z) * 116129781L ^
+                      (long) (chunkY * 16 + y);
+                  rand.setSeed(seed);
+                  seededModelBlocks++;
+                  List<BlockModelPart> parts = model.getParts(rand);
+                  for (BlockModelPart part : parts) {
+                    for (Direction dir : ALL_DIRECTIONS) {
+                      int d = dir.ordinal();
+                      if (!faceMasks.isOpen(d, x, y, z))
+                        continue;
+                      if (isWaterBaked && !faceMasks.isOpenForWater(d, x, y, z)) {
+                        dbgWaterBakedCull++;
+                        continue;
+                      }
+                      List<BakedQuad> quads = part.getQuads(dir);
+                      if (quads != null) {
+                        for (BakedQuad quad : quads) {
+                          if (opaqueQuadCount + waterQuadCount + merger.getPendingFaceCount() >= CustomChunkMesher.MAX_QUADS)
+                            break;
+                          if (mergeable && CustomChunkMesher.addMergeableBakedQuad(merger,
+                              stateId, quad, dir, x, y, z, packedLight,
+                              tintR, tintG, tintB, blockAlpha)) {
+                            quadsThisBlock++;
+                            continue;
+                          }
+                          ByteBuffer tbuf = isWaterBaked ? waterBuffer : vertexBuffer;
+                          int emitted = CustomChunkMesher.emitBakedQuad(tbuf, quad, x, y,
+                              z, packedLight, tintR,
+                              tintG, tintB, forceOpaque,
+                              blockAlpha);
+                          if (isWaterBaked)
+                            waterQuadCount += emitted;
+                          else
+                            opaqueQuadCount += emitted;
+                          quadsThisBlock++;
+                        }
+                      }
+                    }
+                    if (!skipNonDirectionalQuads) {
+                      List<BakedQuad> nonDirQuads = part.getQuads(null);
+                      if (nonDirQuads != null) {
+                        for (BakedQuad quad : nonDirQuads) {
+                          if (opaqueQuadCount + waterQuadCount + merger.getPendingFaceCount() >= CustomChunkMesher.MAX_QUADS)
+                            break;
+                          ByteBuffer tbuf = isWaterBaked ? waterBuffer : vertexBuffer;
+                          int emitted = CustomChunkMesher.emitBakedQuad(tbuf, quad, x, y, z,
+                              packedLight, tintR, tintG,
+                              tintB, forceOpaque,
+                              blockAlpha);
+                          if (isWaterBaked)
+                            waterQuadCount += emitted;
+                          else
+                            opaqueQuadCount += emitted;
+                          quadsThisBlock++;
+                        }
+                      }
+                    }
+                  }
+                }
+                if (quadsThisBlock > 0) {
+                  if (isWaterBaked)
+                    dbgWaterBaked++;
+                  bakedQuadBlocks++;
+                  if (isWaterlogged && waterSprite != null) {
+                    byte wAlpha = (byte) 220;
+                    int wDrop2 = 32;
+                    if (faceMasks.isOpenForWater(1, x, y, z))
+                      waterQuadCount += CustomChunkMesher.emitFaceWater(waterBuffer, x, y, z, 1, waterSprite, packedLight, tintR,
+                          tintG, tintB, wAlpha, wDrop2);
+                    if (faceMasks.isOpenForWater(0, x, y, z))
+                      waterQuadCount += CustomChunkMesher.emitFaceWater(waterBuffer, x, y, z, 0, waterSprite, packedLight, tintR,
+                          tintG, tintB, wAlpha, 0);
+                    if (faceMasks.isOpenForWater(3, x, y, z))
+                      waterQuadCount += CustomChunkMesher.emitFaceWater(waterBuffer, x, y, z, 3, waterSprite, packedLight, tintR,
+                          tintG, tintB, wAlpha, wDrop2);
+                    if (faceMasks.isOpenForWater(2, x, y, z))
+                      waterQuadCount += CustomChunkMesher.emitFaceWater(waterBuffer, x, y, z, 2, waterSprite, packedLight, tintR,
+                          tintG, tintB, wAlpha, wDrop2);
+                    if (faceMasks.isOpenForWater(5, x, y, z))
+                      waterQuadCount += CustomChunkMesher.emitFaceWater(waterBuffer, x, y, z, 5, waterSprite, packedLight, tintR,
+                          tintG, tintB, wAlpha, wDrop2);
+                    if (faceMasks.isOpenForWater(4, x, y, z))
+                      waterQuadCount += CustomChunkMesher.emitFaceWater(waterBuffer, x, y, z, 4, waterSprite, packedLight, tintR,
+                          tintG, tintB, wAlpha, wDrop2);
+                  }
+                  continue;
+                }
+              } catch (Exception e) {
+              }
+            }
+            fallbackBlocks++;
+            if (isWaterBaked)
+              dbgWaterFallback++;
+            if (isNonFullBlock) {
+              if (isWaterlogged && waterSprite != null) {
+                byte wAlpha = (byte) 220;
+                int wDrop2 = 32;
+                if (faceMasks.isOpenForWater(1, x, y, z))
+                  waterQuadCount += CustomChunkMesher.emitFaceWater(waterBuffer, x, y, z, 1, waterSprite, packedLight, tintR, tintG,
+                      tintB, wAlpha, wDrop2);
+                if (faceMasks.isOpenForWater(0, x, y, z))
+                  waterQuadCount += CustomChunkMesher.emitFaceWater(waterBuffer, x, y, z, 0, waterSprite, packedLight, tintR, tintG,
+                      tintB, wAlpha, 0);
+                if (faceMasks.isOpenForWater(3, x, y, z))
+                  waterQuadCount += CustomChunkMesher.emitFaceWater(waterBuffer, x, y, z, 3, waterSprite, packedLight, tintR, tintG,
+                      tintB, wAlpha, wDrop2);
+                if (faceMasks.isOpenForWater(2, x, y, z))
+                  waterQuadCount += CustomChunkMesher.emitFaceWater(waterBuffer, x, y, z, 2, waterSprite, packedLight, tintR, tintG,
+                      tintB, wAlpha, wDrop2);
+                if (faceMasks.isOpenForWater(5, x, y, z))
+                  waterQuadCount += CustomChunkMesher.emitFaceWater(waterBuffer, x, y, z, 5, waterSprite, packedLight, tintR, tintG,
+                      tintB, wAlpha, wDrop2);
+                if (faceMasks.isOpenForWater(4, x, y, z))
+                  waterQuadCount += CustomChunkMesher.emitFaceWater(waterBuffer, x, y, z, 4, waterSprite, packedLight, tintR, tintG,
+                      tintB, wAlpha, wDrop2);
+              }
+              continue;
+            }
+            Sprite sprite = (props.models[stateId] != null) ? props.models[stateId].particleSprite() : null;
+            boolean isWaterBlock = isWaterBaked;
+            int wDrop = isWaterBlock ? 32 : 0;
+            ByteBuffer fbuf = isWaterBlock ? waterBuffer : vertexBuffer;
+            if (faceMasks.isVisible(isWaterBlock, 1, x, y, z)) {
+              int emitted = CustomChunkMesher.emitFaceWater(fbuf, x, y, z, 1, sprite, packedLight, tintR, tintG, tintB,
+                  blockAlpha, wDrop);
+              if (isWaterBlock)
+                waterQuadCount += emitted;
+              else
+                opaqueQuadCount += emitted;
+            }
+            if (faceMasks.isVisible(isWaterBlock, 0, x, y, z)) {
+              int emitted = CustomChunkMesher.emitFaceWater(fbuf, x, y, z, 0, sprite, packedLight, tintR, tintG, tintB,
+                  blockAlpha, wDrop);
+              if (isWaterBlock)
+                waterQuadCount += emitted;
+              else
+                opaqueQuadCount += emitted;
+            }
+            if (faceMasks.isVisible(isWaterBlock, 3, x, y, z)) {
+              int emitted = CustomChunkMesher.emitFaceWater(fbuf, x, y, z, 3, sprite, packedLight, tintR, tintG, tintB,
+                  blockAlpha, wDrop);
+              if (isWaterBlock)
+                waterQuadCount += emitted;
+              else
+                opaqueQuadCount += emitted;
+            }
+            if (faceMasks.isVisible(isWaterBlock, 2, x, y, z)) {
+              int emitted = CustomChunkMesher.emitFaceWater(fbuf, x, y, z, 2, sprite, packedLight, tintR, tintG, tintB,
+                  blockAlpha, wDrop);
+              if (isWaterBlock)
+                waterQuadCount += emitted;
+              else
+                opaqueQuadCount += emitted;
+            }
+            if (faceMasks.isVisible(isWaterBlock, 5, x, y, z)) {
+              int emitted = CustomChunkMesher.emitFaceWater(fbuf, x, y, z, 5, sprite, packedLight, tintR, tintG, tintB,
+                  blockAlpha, wDrop);
+              if (isWaterBlock)
+                waterQuadCount += emitted;
+              else
+                opaqueQuadCount += emitted;
+            }
+            if (faceMasks.isVisible(isWaterBlock, 4, x, y, z)) {
+              int emitted = CustomChunkMesher.emitFaceWater(fbuf, x, y, z, 4, sprite, packedLight, tintR, tintG, tintB,
+                  blockAlpha, wDrop);
+              if (isWaterBlock)
+                waterQuadCount += emitted;
+              else
+                opaqueQuadCount += emitted;
+            }
+          }
+        }
+      }
+      int facesIn = merger.getPendingFaceCount();
+      int quadsOut = merger.emit(vertexBuffer, waterBuffer,
+          CustomChunkMesher.MAX_QUADS - opaqueQuadCount - waterQuadCount);
+      opaqueQuadCount += merger.getMergedQuadCount();
+      waterQuadCount += merger.getMergedWaterQuadCount();
+      greedyFacesIn += facesIn;
+      greedyQuadsOut += quadsOut;
+    }
+    if (job != null && job.isCancelled())
+      return false;
+    bucketOpaqueByFace();
+    if (waterQuadCount > 0) {
+      waterBuffer.flip();
+      vertexBuffer.put(waterBuffer);
+    }
+    vertexBuffer.flip();
+    return true;
+  }
+  int getQuadCount() {
+    return opaqueQuadCount + waterQuadCount;
+  }
+  private int[] tintsAt(int[] biomeColors, BiomeColorGrid biomeGrid,
+      byte tintType, boolean isWater, int x, int y, int z) {
+    if (biomeGrid == null)
+      return biomeColors;
+    if (isWater)
+      blockTints[CustomChunkMesher.TINT_WATER] =
+          biomeGrid.color(CustomChunkMesher.TINT_WATER, x, y, z);
+    if (tintType != CustomChunkMesher.TINT_NONE && tintType < blockTints.length)
+      blockTints[tintType] = biomeGrid.color(tintType, x, y, z);
+    return blockTints;
+  }
+  private void emitDownsampled(PaddedSectionVolume volume,
+      BlockStatePropertyTable props, int chunkY, int lodLevel, int leafMode,
+      int[] biomeColors, BiomeColorGrid biomeGrid) {
+    int occupied = downsampler.downsample(volume, props, lodLevel,
+        props.occluders(leafMode));
+    downsampledSections++;
+    downsampledCells += occupied;
+    merger.reset();
+    merger.ensureMaterialSlots(props.size * 6);
+    merger.setScale(downsampler.getFactor());
+    if (occupied == 0)
+      return;
+    byte[] kind = downsampler.kind;
+    byte[] light = downsampler.light;
+    int n = downsampler.getCells();
+    int factor = downsampler.getFactor();
+    for (int cy = 0; cy < n; cy++) {
+      for (int cz = 0; cz < n; cz++) {
+        for (int cx = 0; cx < n; cx++) {
+          int idx = VoxelDownsampler.index(cx, cy, cz);
+          byte k = kind[idx];
+          if (k == VoxelDownsampler.EMPTY)
+            continue;
+          boolean isWater = k == VoxelDownsampler.WATER;
+          int sid = downsampler.material[idx];
+          int[] tints = tintsAt(biomeColors, biomeGrid, props.tintType[sid],
+              isWater, cx * factor + factor / 2,
+              chunkY * SECTION_SIZE + cy * factor + factor / 2,
+              cz * factor + factor / 2);
+          for (int d = 0; d < 6; d++) {
+            if (!downsampler.exposed(idx, d))
+              continue;
+            int nIdx = idx + VoxelDownsampler.NEIGHBOR_OFFSET[d];
+            int own = light[idx], adj = light[nIdx];
+            byte faceLight = (byte) (Math.max(own & 0xF, adj & 0xF) |
+                (Math.max(own & 0xF0, adj & 0xF0)));
+            int topDrop = isWater && d != 0 ? 32 : 0;
+            merger.addFace(d, cx, cy, cz, CustomChunkMesher.fastMaterial(merger,
+                props, tints, sid, d, isWater, topDrop), faceLight);
+          }
+        }
+      }
+    }
+    int facesIn = merger.getPendingFaceCount();
+    int quadsOut = merger.emit(vertexBuffer, waterBuffer,
+        CustomChunkMesher.MAX_QUADS);
+    opaqueQuadCount += merger.getMergedQuadCount();
+    waterQuadCount += merger.getMergedWaterQuadCount();
+    greedyFacesIn += facesIn;
+    greedyQuadsOut += quadsOut;
+  }
+  private void bucketOpaqueByFace() {
+    Arrays.fill(faceQuadCounts, 0);
+    int quads = opaqueQuadCount;
+    for (int q = 0; q < quads; q++) {
+      int face = faceOf(q * QUAD_BYTES);
+      quadFace[q] = (byte) face;
+      faceQuadCounts[face]++;
+    }
+    int start = 0;
+    boolean sorted = true;
+    for (int f = 0; f < faceCursor.length; f++) {
+      faceCursor[f] = start;
+      start += faceQuadCounts[f];
+    }
+    for (int q = 1; q < quads && sorted; q++)
+      sorted = quadFace[q - 1] <= quadFace[q];
+    if (sorted)
+      return;
+    vertexBuffer.get(0, scratch, 0, quads * QUAD_BYTES);
+    for (int q = 0; q < quads; q++) {
+      vertexBuffer.put(faceCursor[quadFace[q]]++ * QUAD_BYTES, scratch,
+          q * QUAD_BYTES, QUAD_BYTES);
+    }
+  }
+  private int faceOf(int base) {
+    int n = vertexBuffer.get(base + 15) & ~GreedyQuadMerger.TILED_FLAG;
+    if (n < 0 || n > 5)
+      return CustomChunkMesher.FACE_UNALIGNED;
+    int axis = n < 2 ? 2 : n < 4 ? 4 : 0;
+    short plane = vertexBuffer.getShort(base + axis);
+    for (int v = 1; v < 4; v++) {
+      if (vertexBuffer.getShort(base + v * 16 + axis) != plane)
+        return CustomChunkMesher.FACE_UNALIGNED;
+    }
+    return n;
+  }
+}
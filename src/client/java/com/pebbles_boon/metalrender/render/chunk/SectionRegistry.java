@@ -0,0 +1,385 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+public final class SectionRegistry {
+  public interface Visitor {
+    boolean visit(long key, int chunkX, int chunkY, int chunkZ, int lodLevel);
+  }
+  private static final int NONE = -1;
+  private static final byte F_LIVE = 1;
+  private static final byte F_DIRTY = 2;
+  private static final ThreadLocal<Batch> BATCH = ThreadLocal.withInitial(
+      Batch::new);
+  private final StampedLock lock = new StampedLock();
+  private final LongSlotIndex index;
+  private final LongSlotIndex columns;
+  private long[] keys;
+  private int[] chunkX;
+  private int[] chunkY;
+  private int[] chunkZ;
+  private byte[] lodLevel;
+  private byte[] flags;
+  private int[] quadCount;
+  private int[] freeNext;
+  private int[] columnNext;
+  private int[] columnPrev;
+  private CustomChunkMesher.ChunkMeshData[] meshes;
+  private int freeHead = NONE;
+  private int highWater;
+  private int size;
+  private volatile long optimisticRetries;
+  private static final class Batch {
+    int count;
+    int[] slots = new int[64];
+    long[] keys = new long[64];
+    int[] x = new int[64];
+    int[] y = new int[64];
+    int[] z = new int[64];
+    byte[] lod = new byte[64];
+    void ensure(int n) {
+      if (n <= slots.length)
+        return;
+      int cap = Math.max(n, slots.length << 1);
+      slots = Arrays.copyOf(slots, cap);
+      keys = Arrays.copyOf(keys, cap);
+      x = Arrays.copyOf(x, cap);
+      y = Arrays.copyOf(y, cap);
+      z = Arrays.copyOf(z, cap);
+      lod = Arrays.copyOf(lod, cap);
+    }
+  }
+  SectionRegistry(int initialCapacity) {
+    int cap = Math.max(16, initialCapacity);
+    index = new LongSlotIndex(cap);
+    columns = new LongSlotIndex(cap / 16);
+    keys = new long[cap];
+    chunkX = new int[cap];
+    chunkY = new int[cap];
+    chunkZ = new int[cap];
+    lodLevel = new byte[cap];
+    flags = new byte[cap];
+    quadCount = new int[cap];
+    freeNext = new int[cap];
+    columnNext = new int[cap];
+    columnPrev = new int[cap];
+    meshes = new CustomChunkMesher.ChunkMeshData[cap];
+  }
+  public int size() {
+    long stamp = lock.tryOptimisticRead();
+    int n = size;
+    if (lock.validate(stamp))
+      return n;
+    stamp = lock.readLock();
+    try {
+      return size;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+  public int scan(int fromSlot, int maxSlots, Visitor visitor) {
+    Batch batch = BATCH.get();
+    int end;
+    int high;
+    long stamp = lock.readLock();
+    try {
+      high = highWater;
+      end = (int) Math.min(high, (long) Math.max(0, fromSlot) + maxSlots);
+      batch.count = 0;
+      for (int s = Math.max(0, fromSlot); s < end; s++) {
+        if ((flags[s] & F_LIVE) != 0)
+          collect(batch, s);
+      }
+    } finally {
+      lock.unlockRead(stamp);
+    }
+    for (int i = 0; i < batch.count; i++) {
+      if (!visitor.visit(batch.keys[i], batch.x[i], batch.y[i], batch.z[i],
+          batch.lod[i]))
+        return batch.slots[i] + 1;
+    }
+    return end >= high ? 0 : end;
+  }
+  public void scanColumn(int chunkX, int chunkZ, Visitor visitor) {
+    Batch batch = BATCH.get();
+    long stamp = lock.readLock();
+    try {
+      batch.count = 0;
+      for (int s = columns.get(columnKey(chunkX, chunkZ)); s != NONE;
+          s = columnNext[s])
+        collect(batch, s);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+    for (int i = 0; i < batch.count; i++) {
+      if (!visitor.visit(batch.keys[i], batch.x[i], batch.y[i], batch.z[i],
+          batch.lod[i]))
+        return;
+    }
+  }
+  public int columnCount() {
+    long stamp = lock.readLock();
+    try {
+      return columns.size();
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+  CustomChunkMesher.ChunkMeshData get(long key) {
+    long stamp = lock.tryOptimisticRead();
+    if (stamp != 0) {
+      CustomChunkMesher.ChunkMeshData[] m = meshes;
+      int s = index.find(key);
+      CustomChunkMesher.ChunkMeshData mesh = s >= 0 && s < m.length ? m[s]
+          : null;
+      if (lock.validate(stamp))
+        return mesh;
+    }
+    optimisticRetries++;
+    stamp = lock.readLock();
+    try {
+      int s = index.get(key);
+      return s != NONE ? meshes[s] : null;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+  boolean contains(long key) {
+    long stamp = lock.tryOptimisticRead();
+    if (stamp != 0) {
+      boolean found = index.find(key) != NONE;
+      if (lock.validate(stamp))
+        return found;
+    }
+    optimisticRetries++;
+    stamp = lock.readLock();
+    try {
+      return index.get(key) != NONE;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+  boolean isDirty(long key) {
+    long stamp = lock.tryOptimisticRead();
+    if (stamp != 0) {
+      byte[] f = flags;
+      int s = index.find(key);
+      boolean dirty = s >= 0 && s < f.length && (f[s] & F_DIRTY) != 0;
+      if (lock.validate(stamp))
+        return dirty;
+    }
+    optimisticRetries++;
+    stamp = lock.readLock();
+    try {
+      int s = index.get(key);
+      return s != NONE && (flags[s] & F_DIRTY) != 0;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+  void markDirty(long key) {
+    long stamp = lock.writeLock();
+    try {
+      int s = index.get(key);
+      if (s != NONE)
+        flags[s] |= F_DIRTY;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+  void clearDirty(long key) {
+    long stamp = lock.writeLock();
+    try {
+      int s = index.get(key);
+      if (s != NONE)
+        flags[s] &= ~F_DIRTY;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+  void markAllDirty(LongConsumer each) {
+    long[] marked;
+    int count = 0;
+    long stamp = lock.writeLock();
+    try {
+      marked = new long[size];
+      for (int s = 0; s < highWater; s++) {
+        if ((flags[s] & F_LIVE) == 0)
+          continue;
+        flags[s] |= F_DIRTY;
+        marked[count++] = keys[s];
+      }
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+    for (int i = 0; i < count; i++)
+      each.accept(marked[i]);
+  }
+  CustomChunkMesher.ChunkMeshData put(long key,
+      CustomChunkMesher.ChunkMeshData mesh) {
+    long stamp = lock.writeLock();
+    try {
+      int s = index.get(key);
+      CustomChunkMesher.ChunkMeshData previous = null;
+      if (s == NONE) {
+        s = allocSlot();
+        index.put(key, s);
+        keys[s] = key;
+        size++;
+      } else {
+        previous = meshes[s];
+      }
+      meshes[s] = mesh;
+      chunkX[s] = mesh.chunkX;
+      chunkY[s] = mesh.chunkY;
+      chunkZ[s] = mesh.chunkZ;
+      if (previous == null)
+        linkColumn(s);
+      lodLevel[s] = (byte) mesh.lodLevel;
+      quadCount[s] = mesh.quadCount;
+      flags[s] = F_LIVE;
+      return previous;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+  CustomChunkMesher.ChunkMeshData remove(long key) {
+    long stamp = lock.writeLock();
+    try {
+      int s = index.remove(key);
+      if (s == NONE)
+        return null;
+      unlinkColumn(s);
+      return releaseSlot(s);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+  List<CustomChunkMesher.ChunkMeshData> removeColumn(int chunkX, int chunkZ) {
+    List<CustomChunkMesher.ChunkMeshData> removed = new ArrayList<>();
+    long stamp = lock.writeLock();
+    try {
+      int s = columns.remove(columnKey(chunkX, chunkZ));
+      while (s != NONE) {
+        int n = columnNext[s];
+        index.remove(keys[s]);
+        removed.add(releaseSlot(s));
+        s = n;
+      }
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+    return removed;
+  }
+  void clear(Consumer<CustomChunkMesher.ChunkMeshData> each) {
+    List<CustomChunkMesher.ChunkMeshData> live = new ArrayList<>();
+    long stamp = lock.writeLock();
+    try {
+      for (int s = 0; s < highWater; s++) {
+        if ((flags[s] & F_LIVE) != 0)
+          live.add(meshes[s]);
+      }
+      index.clear();
+      columns.clear();
+      Arrays.fill(meshes, 0, highWater, null);
+      Arrays.fill(flags, 0, highWater, (byte) 0);
+      freeHead = NONE;
+      highWater = 0;
+      size = 0;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+    live.forEach(each);
+  }
+  public String getDebugStats() {
+    long stamp = lock.readLock();
+    try {
+      long quads = 0;
+      for (int s = 0; s < highWater; s++) {
+        if ((flags[s] & F_LIVE) != 0)
+          quads += quadCount[s];
+      }
+      return String.format(
+          "registry: sections=%d columns=%d slots=%d capacity=%d quads=%d lockedReads=%d",
+          size, columns.size(), highWater, keys.length, quads,
+          optimisticRetries);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+  static long columnKey(int chunkX, int chunkZ) {
+    return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+  }
+  static long columnOf(long sectionKey) {
+    return columnKey((int) (sectionKey >> 42), (int) (sectionKey << 42 >> 42));
+  }
+  private void collect(Batch batch, int s) {
+    int i = batch.count;
+    batch.ensure(i + 1);
+    batch.slots[i] = s;
+    batch.keys[i] = keys[s];
+    batch.x[i] = chunkX[s];
+    batch.y[i] = chunkY[s];
+    batch.z[i] = chunkZ[s];
+    batch.lod[i] = lodLevel[s];
+    batch.count = i + 1;
+  }
+  private void linkColumn(int s) {
+    long column = columnKey(chunkX[s], chunkZ[s]);
+    int head = columns.get(column);
+    columnPrev[s] = NONE;
+    columnNext[s] = head;
+    if (head != NONE)
+      columnPrev[head] = s;
+    columns.put(column, s);
+  }
+  private void unlinkColumn(int s) {
+    int p = columnPrev[s], n = columnNext[s];
+    if (n != NONE)
+      columnPrev[n] = p;
+    if (p != NONE) {
+      columnNext[p] = n;
+      return;
+    }
+    long column = columnKey(chunkX[s], chunkZ[s]);
+    if (n != NONE)
+      columns.put(column, n);
+    else
+      columns.remove(column);
+  }
+  private CustomChunkMesher.ChunkMeshData releaseSlot(int s) {
+    CustomChunkMesher.ChunkMeshData mesh = meshes[s];
+    meshes[s] = null;
+    flags[s] = 0;
+    freeNext[s] = freeHead;
+    freeHead = s;
+    size--;
+    return mesh;
+  }
+  private int allocSlot() {
+    if (freeHead != NONE) {
+      int s = freeHead;
+      freeHead = freeNext[s];
+      return s;
+    }
+    if (highWater == keys.length)
+      grow(keys.length << 1);
+    return highWater++;
+  }
+  private void grow(int cap) {
+    keys = Arrays.copyOf(keys, cap);
+    chunkX = Arrays.copyOf(chunkX, cap);
+    chunkY = Arrays.copyOf(chunkY, cap);
+    chunkZ = Arrays.copyOf(chunkZ, cap);
+    lodLevel = Arrays.copyOf(lodLevel, cap);
+    flags = Arrays.copyOf(flags, cap);
+    quadCount = Arrays.copyOf(quadCount, cap);
+    freeNext = Arrays.copyOf(freeNext, cap);
+    columnNext = Arrays.copyOf(columnNext, cap);
+    columnPrev = Arrays.copyOf(columnPrev, cap);
+    meshes = Arrays.copyOf(meshes, cap);
+  }
+}
@@ -0,0 +1,137 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import java.util.Arrays;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.collection.PaletteStorage;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.IdListPalette;
+import net.minecraft.world.chunk.Palette;
+import net.minecraft.world.chunk.PalettedContainer;
+public final class SectionSnapshot {
+  public static final int VOLUME = 4096;
+  private static final ThreadLocal<int[]> INDEX_POOL = ThreadLocal.withInitial(() -> new int[VOLUME]);
+  private static final ThreadLocal<int[]> DECODE_POOL = ThreadLocal.withInitial(() -> new int[VOLUME]);
+  private static volatile long paletteDecodes = 0;
+  private static volatile long uniformSnapshots = 0;
+  private static volatile long fallbackSnapshots = 0;
+  private final int[] states;
+  private final int uniformState;
+  private final int nonAirCount;
+  private SectionSnapshot(int[] states, int uniformState, int nonAirCount) {
+    this.states = states;
+    this.uniformState = uniformState;
+    this.nonAirCount = nonAirCount;
+  }
+  public static SectionSnapshot capture(ChunkSection section) {
+    if (section == null || section.isEmpty())
+      return new SectionSnapshot(null, 0, 0);
+    int[] scratch = DECODE_POOL.get();
+    int uniform = decode(section, scratch);
+    if (uniform >= 0)
+      return new SectionSnapshot(null, uniform, uniform == 0 ? 0 : VOLUME);
+    int nonAir = 0;
+    for (int i = 0; i < VOLUME; i++) {
+      if (scratch[i] != 0)
+        nonAir++;
+    }
+    if (nonAir == 0)
+      return new SectionSnapshot(null, 0, 0);
+    return new SectionSnapshot(Arrays.copyOf(scratch, VOLUME), 0, nonAir);
+  }
+  static int decode(ChunkSection section, int[] out) {
+    try {
+      PalettedContainer.Data<BlockState> data = section.getBlockStateContainer().data;
+      Palette<BlockState> palette = data.palette();
+      PaletteStorage storage = data.storage();
+      int paletteSize = palette.getSize();
+      if (paletteSize == 1) {
+        uniformSnapshots++;
+        return rawId(palette.get(0));
+      }
+      int[] indices = INDEX_POOL.get();
+      storage.writePaletteIndices(indices);
+      if (palette instanceof IdListPalette) {
+        for (int i = 0; i < VOLUME; i++) {
+          int id = indices[i];
+          out[i] = palette.get(id).isAir() ? 0 : id;
+        }
+      } else {
+        int[] idMap = new int[paletteSize];
+        for (int p = 0; p < paletteSize; p++)
+          idMap[p] = rawId(palette.get(p));
+        for (int i = 0; i < VOLUME; i++)
+          out[i] = idMap[indices[i]];
+      }
+      paletteDecodes++;
+      return -1;
+    } catch (RuntimeException e) {
+      fallbackSnapshots++;
+      for (int y = 0; y < 16; y++) {
+        for (int z = 0; z < 16; z++) {
+          for (int x = 0; x < 16; x++) {
+            out[y * 256 + z * 16 + x] = rawId(section.getBlockState(x, y, z));
+          }
+        }
+      }
+      return -1;
+    }
+  }
+  private static int rawId(BlockState bs) {
+    return bs == null || bs.isAir() ? 0 : Block.getRawIdFromState(bs);
+  }
+  private static boolean extractFace(int[] src, int faceDir, int[] face) {
+    boolean hasAny = false;
+    for (int a = 0; a < 16; a++) {
+      for (int b = 0; b < 16; b++) {
+        int idx = switch (faceDir) {
+          case 0 -> 15 * 256 + a * 16 + b;
+          case 1 -> a * 16 + b;
+          case 2 -> a * 256 + 15 * 16 + b;
+          case 3 -> a * 256 + b;
+          case 4 -> a * 256 + b * 16 + 15;
+          default -> a * 256 + b * 16;
+        };
+        int sid = src[idx];
+        face[a * 16 + b] = sid;
+        if (sid != 0)
+          hasAny = true;
+      }
+    }
+    return hasAny;
+  }
+  public boolean isEmpty() {
+    return nonAirCount == 0;
+  }
+  public boolean isUniform() {
+    return states == null;
+  }
+  public int getNonAirCount() {
+    return nonAirCount;
+  }
+  public int get(int index) {
+    return states != null ? states[index] : uniformState;
+  }
+  public int get(int x, int y, int z) {
+    return get(y * 256 + z * 16 + x);
+  }
+  public void copyTo(int[] out) {
+    if (states != null)
+      System.arraycopy(states, 0, out, 0, VOLUME);
+    else
+      Arrays.fill(out, 0, VOLUME, uniformState);
+  }
+  public int[] readFace(int faceDir) {
+    if (nonAirCount == 0)
+      return null;
+    int[] face = new int[256];
+    if (states == null) {
+      Arrays.fill(face, uniformState);
+      return face;
+    }
+    return extractFace(states, faceDir, face) ? face : null;
+  }
+  public static String getDebugStats() {
+    return String.format("snapshots: palette=%d uniform=%d fallback=%d",
+        paletteDecodes, uniformSnapshots, fallbackSnapshots);
+  }
+}
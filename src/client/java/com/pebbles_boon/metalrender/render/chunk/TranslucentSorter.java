@@ -0,0 +1,307 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import com.pebbles_boon.metalrender.util.MetalLogger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+final class TranslucentSorter {
+  interface Sink {
+    void publish(long key, CustomChunkMesher.ChunkMeshData mesh,
+        ByteBuffer indices, int bytes);
+  }
+  private static final long PASS_INTERVAL_MS = 20;
+  private static final float MIN_MOVE = 0.5f;
+  private static final float MOVE_PER_DISTANCE = 0.0625f;
+  private static final int INSERTION_LIMIT = 32;
+  private static final int MAX_SHIFTS_PER_QUAD = 4;
+  private static final int RADIX_BITS = 11;
+  private static final int RADIX_SIZE = 1 << RADIX_BITS;
+  private static final class SortState {
+    final CustomChunkMesher.ChunkMeshData mesh;
+    final int[] order;
+    float camX;
+    float camY;
+    float camZ;
+    SortState(CustomChunkMesher.ChunkMeshData mesh, int quads) {
+      this.mesh = mesh;
+      this.order = new int[quads];
+    }
+  }
+  private final SectionRegistry meshes;
+  private final Sink sink;
+  private final Set<Long> tracked = ConcurrentHashMap.newKeySet();
+  private final ConcurrentHashMap<Long, SortState> states = new ConcurrentHashMap<>();
+  private final Object signal = new Object();
+  private final Thread worker;
+  private volatile double camX;
+  private volatile double camY;
+  private volatile double camZ;
+  private volatile boolean haveCamera;
+  private final DepthSort depthSort = new DepthSort();
+  private int[] previousOrder = new int[0];
+  private ByteBuffer indexBuffer = ByteBuffer.allocateDirect(0);
+  private volatile long passes;
+  private volatile long sorted;
+  private volatile long incremental;
+  private volatile long radix;
+  private volatile long unchanged;
+  private volatile long sortNanos;
+  TranslucentSorter(SectionRegistry meshes, Sink sink) {
+    this.meshes = meshes;
+    this.sink = sink;
+    this.worker = new Thread(this::run, "MetalRender-TranslucentSort");
+    worker.setDaemon(true);
+    worker.setPriority(Thread.NORM_PRIORITY - 1);
+    worker.start();
+  }
+  void track(long key) {
+    tracked.add(key);
+    synchronized (signal) {
+      signal.notify();
+    }
+  }
+  void forget(long key) {
+    tracked.remove(key);
+    states.remove(key);
+  }
+  void clear() {
+    haveCamera = false;
+    tracked.clear();
+    states.clear();
+  }
+  void updateCamera(double x, double y, double z) {
+    camX = x;
+    camY = y;
+    camZ = z;
+    haveCamera = true;
+  }
+  String getDebugStats() {
+    long n = sorted;
+    return String.format(
+        "tracked=%d passes=%d sorted=%d incremental=%d radix=%d unchanged=%d avg=%.3fms",
+        tracked.size(), passes, n, incremental, radix, unchanged,
+        n > 0 ? sortNanos / 1e6 / n : 0.0);
+  }
+  private void run() {
+    while (!Thread.currentThread().isInterrupted()) {
+      synchronized (signal) {
+        try {
+          signal.wait(PASS_INTERVAL_MS);
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+      if (!haveCamera || tracked.isEmpty())
+        continue;
+      try {
+        pass(camX, camY, camZ);
+      } catch (RuntimeException e) {
+        MetalLogger.error("Translucent sort pass failed: %s", e);
+      }
+    }
+  }
+  private void pass(double cx, double cy, double cz) {
+    ArrayList<CustomChunkMesher.ChunkMeshData> due = new ArrayList<>();
+    ArrayList<Long> dueKeys = new ArrayList<>();
+    for (Long key : tracked) {
+      CustomChunkMesher.ChunkMeshData mesh = meshes.get(key);
+      if (mesh == null || mesh.translucentCentroids == null) {
+        forget(key);
+        continue;
+      }
+      float lx = (float) (cx - mesh.chunkX * 16.0);
+      float ly = (float) (cy - mesh.chunkY * 16.0);
+      float lz = (float) (cz - mesh.chunkZ * 16.0);
+      SortState state = states.get(key);
+      if (state != null && state.mesh == mesh) {
+        float dx = lx - state.camX;
+        float dy = ly - state.camY;
+        float dz = lz - state.camZ;
+        float threshold = Math.max(MIN_MOVE,
+            sectionDistance(lx, ly, lz) * MOVE_PER_DISTANCE);
+        if (dx * dx + dy * dy + dz * dz < threshold * threshold)
+          continue;
+      }
+      due.add(mesh);
+      dueKeys.add(key);
+    }
+    if (due.isEmpty())
+      return;
+    passes++;
+    long[] byDistance = new long[due.size()];
+    for (int i = 0; i < byDistance.length; i++) {
+      CustomChunkMesher.ChunkMeshData mesh = due.get(i);
+      float d = sectionDistance((float) (cx - mesh.chunkX * 16.0),
+          (float) (cy - mesh.chunkY * 16.0), (float) (cz - mesh.chunkZ * 16.0));
+      byDistance[i] = ((long) Float.floatToRawIntBits(d) << 32) | i;
+    }
+    Arrays.sort(byDistance);
+    for (long packed : byDistance) {
+      if (!haveCamera)
+        return;
+      int i = (int) packed;
+      sortSection(dueKeys.get(i), due.get(i), cx, cy, cz);
+    }
+  }
+  private void sortSection(long key, CustomChunkMesher.ChunkMeshData mesh,
+      double cx, double cy, double cz) {
+    long start = System.nanoTime();
+    float[] centroids = mesh.translucentCentroids;
+    int quads = centroids.length / 3;
+    float lx = (float) (cx - mesh.chunkX * 16.0);
+    float ly = (float) (cy - mesh.chunkY * 16.0);
+    float lz = (float) (cz - mesh.chunkZ * 16.0);
+    SortState state = states.get(key);
+    boolean fresh = state == null || state.mesh != mesh;
+    if (fresh)
+      state = new SortState(mesh, quads);
+    int[] previous = null;
+    if (!fresh) {
+      if (previousOrder.length < quads)
+        previousOrder = new int[quads];
+      System.arraycopy(state.order, 0, previousOrder, 0, quads);
+      previous = previousOrder;
+    }
+    boolean usedIncremental = depthSort.sortBackToFront(centroids, quads, lx,
+        ly, lz, state.order, !fresh);
+    state.camX = lx;
+    state.camY = ly;
+    state.camZ = lz;
+    states.put(key, state);
+    if (usedIncremental)
+      incremental++;
+    else
+      radix++;
+    if (previous != null && Arrays.equals(previous, 0, quads, state.order, 0,
+        quads)) {
+      unchanged++;
+      return;
+    }
+    int bytes = writeIndices(state.order, quads);
+    sink.publish(key, mesh, indexBuffer, bytes);
+    sorted++;
+    sortNanos += System.nanoTime() - start;
+  }
+  private int writeIndices(int[] order, int quads) {
+    int bytes = quads * 6 * 4;
+    if (indexBuffer.capacity() < bytes)
+      indexBuffer = ByteBuffer.allocateDirect(Math.max(bytes,
+          indexBuffer.capacity() * 2)).order(ByteOrder.nativeOrder());
+    indexBuffer.clear();
+    for (int i = 0; i < quads; i++) {
+      int v = order[i] * 4;
+      indexBuffer.putInt(v);
+      indexBuffer.putInt(v + 1);
+      indexBuffer.putInt(v + 2);
+      indexBuffer.putInt(v);
+      indexBuffer.putInt(v + 2);
+      indexBuffer.putInt(v + 3);
+    }
+    indexBuffer.flip();
+    return bytes;
+  }
+  private static float sectionDistance(float lx, float ly, float lz) {
+    float dx = lx - 8f;
+    float dy = ly - 8f;
+    float dz = lz - 8f;
+    return (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+  }
+  static float[] centroids(ByteBuffer vertices, int firstQuad, int quads) {
+    float[] out = new float[quads * 3];
+    for (int q = 0; q < quads; q++) {
+      int base = (firstQuad + q) * 64;
+      int sx = 0, sy = 0, sz = 0;
+      for (int v = 0; v < 4; v++) {
+        int b = base + v * 16;
+        sx += vertices.getShort(b);
+        sy += vertices.getShort(b + 2);
+        sz += vertices.getShort(b + 4);
+      }
+      out[q * 3] = sx / 1024f;
+      out[q * 3 + 1] = sy / 1024f;
+      out[q * 3 + 2] = sz / 1024f;
+    }
+    return out;
+  }
+  static final class DepthSort {
+    private float[] keys = new float[0];
+    private int[] scratch = new int[0];
+    private int[] radixKeys = new int[0];
+    private final int[] counts = new int[RADIX_SIZE];
+    boolean sortBackToFront(float[] centroids, int quads, float cx, float cy,
+        float cz, int[] order, boolean reuseOrder) {
+      if (keys.length < quads)
+        keys = new float[quads];
+      for (int i = 0; i < quads; i++) {
+        float dx = centroids[i * 3] - cx;
+        float dy = centroids[i * 3 + 1] - cy;
+        float dz = centroids[i * 3 + 2] - cz;
+        keys[i] = dx * dx + dy * dy + dz * dz;
+      }
+      if (reuseOrder && insertionSort(order, quads, keys,
+          quads <= INSERTION_LIMIT ? Long.MAX_VALUE
+              : (long) quads * MAX_SHIFTS_PER_QUAD))
+        return true;
+      if (quads <= INSERTION_LIMIT) {
+        for (int i = 0; i < quads; i++)
+          order[i] = i;
+        insertionSort(order, quads, keys, Long.MAX_VALUE);
+        return false;
+      }
+      radixSort(order, quads, keys);
+      return false;
+    }
+    private static boolean insertionSort(int[] order, int n, float[] keys,
+        long maxShifts) {
+      long shifts = 0;
+      for (int i = 1; i < n; i++) {
+        int q = order[i];
+        float k = keys[q];
+        int j = i - 1;
+        while (j >= 0 && keys[order[j]] < k) {
+          order[j + 1] = order[j];
+          j--;
+          if (++shifts > maxShifts) {
+            order[j + 1] = q;
+            return false;
+          }
+        }
+        order[j + 1] = q;
+      }
+      return true;
+    }
+    private void radixSort(int[] order, int n, float[] keys) {
+      if (radixKeys.length < n)
+        radixKeys = new int[n];
+      if (scratch.length < n)
+        scratch = new int[n];
+      int[] k = radixKeys;
+      for (int i = 0; i < n; i++) {
+        k[i] = ~Float.floatToRawIntBits(keys[i]) & 0x7FFFFFFF;
+        order[i] = i;
+      }
+      int[] src = order;
+      int[] dst = scratch;
+      for (int shift = 0; shift < 31; shift += RADIX_BITS) {
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < n; i++)
+          counts[(k[src[i]] >>> shift) & (RADIX_SIZE - 1)]++;
+        int sum = 0;
+        for (int b = 0; b < RADIX_SIZE; b++) {
+          int c = counts[b];
+          counts[b] = sum;
+          sum += c;
+        }
+        for (int i = 0; i < n; i++)
+          dst[counts[(k[src[i]] >>> shift) & (RADIX_SIZE - 1)]++] = src[i];
+        int[] t = src;
+        src = dst;
+        dst = t;
+      }
+      if (src != order)
+        System.arraycopy(src, 0, order, 0, n);
+    }
+  }
+}
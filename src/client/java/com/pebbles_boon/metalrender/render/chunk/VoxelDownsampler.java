@@ -0,0 +1,196 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import java.util.Arrays;
+final class VoxelDownsampler {
+  static final byte EMPTY = 0;
+  static final byte SOLID = 1;
+  static final byte WATER = 2;
+  static final int MAX_LOD = 4;
+  static final int SIZE = 16 / 2 + 2;
+  static final int STRIDE_Z = SIZE;
+  static final int STRIDE_Y = SIZE * SIZE;
+  static final int[] NEIGHBOR_OFFSET = { -STRIDE_Y, STRIDE_Y, -STRIDE_Z,
+      STRIDE_Z, -1, 1 };
+  private static final int SURFACE_WEIGHT = 4;
+  final byte[] kind = new byte[SIZE * SIZE * SIZE];
+  final int[] material = new int[SIZE * SIZE * SIZE];
+  final byte[] light = new byte[SIZE * SIZE * SIZE];
+  private int[] weights = new int[0];
+  private final int[] touched = new int[16 * 16 * 16];
+  private int cells;
+  private int factor;
+  static int factorFor(int lodLevel) {
+    return 1 << Math.max(1, Math.min(lodLevel, MAX_LOD));
+  }
+  static int index(int x, int y, int z) {
+    return (y + 1) * STRIDE_Y + (z + 1) * STRIDE_Z + x + 1;
+  }
+  int getCells() {
+    return cells;
+  }
+  int getFactor() {
+    return factor;
+  }
+  int downsample(PaddedSectionVolume volume, BlockStatePropertyTable props,
+      int lodLevel, boolean[] occluders) {
+    factor = factorFor(lodLevel);
+    cells = 16 / factor;
+    if (weights.length < props.size)
+      weights = new int[props.size];
+    Arrays.fill(kind, EMPTY);
+    Arrays.fill(light, (byte) 0);
+    int occupied = 0;
+    for (int cy = 0; cy < cells; cy++) {
+      for (int cz = 0; cz < cells; cz++) {
+        for (int cx = 0; cx < cells; cx++) {
+          if (sampleCell(volume, props, lodLevel, cx, cy, cz))
+            occupied++;
+        }
+      }
+    }
+    for (int dir = 0; dir < 6; dir++)
+      sampleBorder(volume, props, lodLevel, occluders, dir);
+    return occupied;
+  }
+  private boolean sampleCell(PaddedSectionVolume volume,
+      BlockStatePropertyTable props, int lodLevel, int cx, int cy, int cz) {
+    int[] states = volume.states;
+    byte[] lights = volume.light;
+    int f = factor;
+    int solid = 0, water = 0, touchedCount = 0;
+    int maxBlock = 0, maxSky = 0;
+    for (int y = cy * f; y < cy * f + f; y++) {
+      for (int z = cz * f; z < cz * f + f; z++) {
+        int p = PaddedSectionVolume.index(cx * f, y, z);
+        for (int x = 0; x < f; x++, p++) {
+          int l = lights[p];
+          maxBlock = Math.max(maxBlock, l & 0xF);
+          maxSky = Math.max(maxSky, (l >> 4) & 0xF);
+          int sid = states[p];
+          byte c = classify(props, lodLevel, sid);
+          if (c == EMPTY)
+            continue;
+          int w = 1;
+          if (c == SOLID) {
+            solid++;
+            if (classify(props, lodLevel,
+                states[p + PaddedSectionVolume.STRIDE_Y]) != SOLID)
+              w = SURFACE_WEIGHT;
+          } else {
+            water++;
+          }
+          if (weights[sid] == 0)
+            touched[touchedCount++] = sid;
+          weights[sid] += w;
+        }
+      }
+    }
+    byte k = coarseKind(solid, water, f * f * f);
+    int best = 0, bestWeight = 0;
+    for (int i = 0; i < touchedCount; i++) {
+      int sid = touched[i];
+      int w = weights[sid];
+      weights[sid] = 0;
+      if (k != EMPTY && w > bestWeight && classify(props, lodLevel, sid) == k) {
+        best = sid;
+        bestWeight = w;
+      }
+    }
+    int idx = index(cx, cy, cz);
+    kind[idx] = k;
+    material[idx] = best;
+    light[idx] = (byte) (maxBlock | (maxSky << 4));
+    return k != EMPTY;
+  }
+  boolean exposed(int idx, int dir) {
+    byte nk = kind[idx + NEIGHBOR_OFFSET[dir]];
+    return kind[idx] == WATER ? nk == EMPTY : nk != SOLID;
+  }
+  private static byte coarseKind(int solid, int water, int volumeCells) {
+    if (solid * 2 >= volumeCells)
+      return SOLID;
+    if (water > 0 && (solid + water) * 2 >= volumeCells)
+      return WATER;
+    return EMPTY;
+  }
+  private void sampleBorder(PaddedSectionVolume volume,
+      BlockStatePropertyTable props, int lodLevel, boolean[] occluders,
+      int dir) {
+    int[] states = volume.states;
+    byte[] lights = volume.light;
+    boolean loaded = volume.hasNeighbor(dir);
+    int f = factor;
+    for (int a = 0; a < cells; a++) {
+      for (int b = 0; b < cells; b++) {
+        int maxBlock = 0, maxSky = 0;
+        boolean allWet = true, anyWater = false;
+        for (int i = 0; i < f; i++) {
+          for (int j = 0; j < f; j++) {
+            int p = borderVoxel(dir, a * f + i, b * f + j);
+            int l = lights[p];
+            maxBlock = Math.max(maxBlock, l & 0xF);
+            maxSky = Math.max(maxSky, (l >> 4) & 0xF);
+            int sid = states[p];
+            boolean occ = sid > 0 && sid < occluders.length && occluders[sid];
+            boolean wet = !occ && classify(props, lodLevel, sid) == WATER;
+            allWet &= occ || wet;
+            anyWater |= wet;
+          }
+        }
+        int idx = borderCell(dir, a, b);
+        if (loaded)
+          kind[idx] = neighborKind(volume, props, lodLevel, dir, a, b);
+        else if (allWet && anyWater)
+          kind[idx] = WATER;
+        light[idx] = (byte) (maxBlock | (maxSky << 4));
+      }
+    }
+  }
+  private byte neighborKind(PaddedSectionVolume volume,
+      BlockStatePropertyTable props, int lodLevel, int dir, int a, int b) {
+    int f = factor;
+    int solid = 0, water = 0;
+    for (int depth = 0; depth < f; depth++) {
+      for (int i = 0; i < f; i++) {
+        for (int j = 0; j < f; j++) {
+          byte c = classify(props, lodLevel,
+              volume.neighborState(dir, a * f + i, b * f + j, depth));
+          if (c == SOLID)
+            solid++;
+          else if (c == WATER)
+            water++;
+        }
+      }
+    }
+    return coarseKind(solid, water, f * f * f);
+  }
+  private static int borderVoxel(int dir, int a, int b) {
+    return switch (dir) {
+      case 0 -> PaddedSectionVolume.index(b, -1, a);
+      case 1 -> PaddedSectionVolume.index(b, 16, a);
+      case 2 -> PaddedSectionVolume.index(b, a, -1);
+      case 3 -> PaddedSectionVolume.index(b, a, 16);
+      case 4 -> PaddedSectionVolume.index(-1, a, b);
+      default -> PaddedSectionVolume.index(16, a, b);
+    };
+  }
+  private int borderCell(int dir, int a, int b) {
+    int n = cells;
+    return switch (dir) {
+      case 0 -> index(b, -1, a);
+      case 1 -> index(b, n, a);
+      case 2 -> index(b, a, -1);
+      case 3 -> index(b, a, n);
+      case 4 -> index(-1, a, b);
+      default -> index(n, a, b);
+    };
+  }
+  static byte classify(BlockStatePropertyTable props, int lodLevel, int sid) {
+    if (sid <= 0 || sid >= props.size)
+      return EMPTY;
+    byte flags = props.flags[sid];
+    if ((flags & BlockStatePropertyTable.F_FAST_DRAW) == 0 ||
+        !props.rendersAtLod(sid, lodLevel))
+      return EMPTY;
+    return (flags & BlockStatePropertyTable.F_FAST_WATER) != 0 ? WATER : SOLID;
+  }
+}
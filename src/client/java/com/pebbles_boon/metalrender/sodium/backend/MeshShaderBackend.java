@@ -1,7 +1,6 @@
 package com.pebbles_boon.metalrender.sodium.backend;
 import com.pebbles_boon.metalrender.MetalRenderClient;
 import com.pebbles_boon.metalrender.backend.MetalRenderer;
-import com.pebbles_boon.metalrender.nativebridge.MeshShaderNative;
 import com.pebbles_boon.metalrender.nativebridge.MetalHardwareChecker;
 import com.pebbles_boon.metalrender.nativebridge.NativeBridge;
 import com.pebbles_boon.metalrender.util.MetalLogger;
@@ -27,7 +26,7 @@ public class MeshShaderBackend {
     meshShadersAvailable = MetalHardwareChecker.supportsMeshShaders();
     long library = renderer.getBackend().getShaderLibraryHandle();
     if (meshShadersAvailable && library != 0) {
-      long[] handles = MeshShaderNative.createTerrainMeshPipelines(library);
+      long[] handles = NativeBridge.nCreateTerrainMeshPipelines(library);
       if (handles != null && handles.length >= 3) {
         terrainPipelineHandles[0] = handles[0]; 
         terrainPipelineHandles[1] = handles[1]; 
@@ -39,7 +38,7 @@ public class MeshShaderBackend {
       }
       if (terrainPipelineHandles[0] == 0) {
         long device = renderer.getBackend().getDeviceHandle();
-        fallbackPipelineHandle = MeshShaderNative.createMeshPipeline(
+        fallbackPipelineHandle = NativeBridge.nCreateMeshPipeline(
             device, library, "object_terrain", "mesh_terrain",
             "fragment_terrain_mesh_opaque");
       }
@@ -52,7 +51,7 @@ public class MeshShaderBackend {
     MetalLogger.info("Mesh shader backend initialized (mesh shaders: %s, GPU-driven: %s, pipelines: %d)",
         meshShadersAvailable ? "supported" : "unsupported",
         gpuDrivenEnabled ? "enabled" : "disabled",
-        MeshShaderNative.getActivePipelineCount());
+        NativeBridge.nGetActivePipelineCount());
   }
   public void prepareMeshlets(int[] meshletVertexOffsets, int[] meshletIndexOffsets,
       int[] meshletVertexCounts, int[] meshletTriangleCounts,
@@ -76,7 +75,7 @@ public class MeshShaderBackend {
       meshletUploadBuffer.putInt(0); 
     }
     meshletUploadBuffer.flip();
-    MeshShaderNative.uploadMeshletBuffer(0, meshletUploadBuffer, count);
+    NativeBridge.nUploadMeshletBuffer(0, meshletUploadBuffer, count);
     currentMeshletCount = count;
   }
   public void drawChunkMesh(long frameContext, long argumentBuffer,
@@ -85,7 +84,7 @@ public class MeshShaderBackend {
       return;
     long pipeline = getPipeline(0); 
     if (pipeline != 0) {
-      MeshShaderNative.drawMeshThreadgroups(
+      NativeBridge.nDrawMeshThreadgroups(
           frameContext, pipeline, objectThreadgroups,
           meshThreadsPerGroup, argumentBuffer);
       lastDispatchedThreadgroups = objectThreadgroups;
@@ -98,7 +97,7 @@ public class MeshShaderBackend {
       return;
     long pipeline = getPipeline(passIndex);
     if (pipeline != 0) {
-      MeshShaderNative.drawMeshThreadgroups(
+      NativeBridge.nDrawMeshThreadgroups(
           frameContext, pipeline, threadgroups, 256, argumentBuffer);
     }
   }
@@ -108,7 +107,7 @@ public class MeshShaderBackend {
     int visibleCount = NativeBridge.nGetGPUVisibleCount(handle);
     lastVisibleCount = visibleCount;
     if (visibleCount > 0) {
-      MeshShaderNative.dispatchTerrain(handle, visibleCount, argumentBuffer);
+      NativeBridge.nDispatchTerrain(handle, visibleCount, argumentBuffer);
     }
   }
   private long getPipeline(int passIndex) {
@@ -123,18 +122,18 @@ public class MeshShaderBackend {
       lastStatsLogMs = now;
       MetalLogger.info("MeshShader: visible=%d, threadgroups=%d, meshlets=%d, pipelines=%d",
           lastVisibleCount, lastDispatchedThreadgroups, currentMeshletCount,
-          MeshShaderNative.getActivePipelineCount());
+          NativeBridge.nGetActivePipelineCount());
     }
   }
   public void shutdown() {
     for (int i = 0; i < 3; i++) {
       if (terrainPipelineHandles[i] != 0) {
-        MeshShaderNative.destroyMeshPipeline(terrainPipelineHandles[i]);
+        NativeBridge.nDestroyMeshPipeline(terrainPipelineHandles[i]);
         terrainPipelineHandles[i] = 0;
       }
     }
     if (fallbackPipelineHandle != 0) {
-      MeshShaderNative.destroyMeshPipeline(fallbackPipelineHandle);
+      NativeBridge.nDestroyMeshPipeline(fallbackPipelineHandle);
       fallbackPipelineHandle = 0;
     }
     meshletUploadBuffer = null;
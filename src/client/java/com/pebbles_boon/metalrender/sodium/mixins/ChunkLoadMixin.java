@@ -3,10 +3,12 @@ import com.pebbles_boon.metalrender.MetalRenderClient;
 import com.pebbles_boon.metalrender.render.MetalWorldRenderer;
 import net.minecraft.client.world.ClientChunkManager;
 import net.minecraft.network.PacketByteBuf;
+import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.chunk.WorldChunk;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 import java.util.Map;
 import java.util.function.Consumer;
@@ -26,4 +28,13 @@ public class ChunkLoadMixin {
             wr.onChunkLoaded(x, z, chunk);
         }
     }
+    @Inject(method = "unload", at = @At("RETURN"), require = 0)
+    private void metalrender$onChunkUnloaded(ChunkPos pos, CallbackInfo ci) {
+        if (!MetalRenderClient.isEnabled())
+            return;
+        MetalWorldRenderer wr = MetalWorldRenderer.getInstance();
+        if (wr == null || !wr.isReady())
+            return;
+        wr.onChunkUnloaded(pos.x, pos.z);
+    }
 }
@@ -1,43 +1,452 @@
 package com.pebbles_boon.metalrender.util;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 public class BufferArena {
-  private final long capacityBytes;
-  private final AtomicLong used = new AtomicLong();
-  private final int blockSize;
-  public BufferArena(long capacityBytes) {
-    this(capacityBytes, 4096);
+  public static final int UNIT = 256;
+  private static final int RETIRE_EPOCHS = 3;
+  private static final double COMPACT_OCCUPANCY = 0.5;
+  public interface Backing {
+    long createPage(int bytes);
+    void destroyPage(long pageHandle);
+    void write(long pageHandle, int offset, ByteBuffer src, int srcOffset,
+        int length);
+    void copy(long srcPage, int srcOffset, long dstPage, int dstOffset,
+        int length);
   }
-  public BufferArena(long capacityBytes, int blockSize) {
-    this.capacityBytes = capacityBytes;
-    this.blockSize = Math.max(256, blockSize);
+  public interface RelocationListener {
+    void onRelocated(Allocation allocation);
+  }
+  public static final class Allocation {
+    private final long tag;
+    private final int length;
+    private final int units;
+    private volatile Page page;
+    private volatile int offset;
+    private boolean sealed;
+    private boolean freed;
+    private Allocation(long tag, int length, int units, Page page, int offset) {
+      this.tag = tag;
+      this.length = length;
+      this.units = units;
+      this.page = page;
+      this.offset = offset;
+    }
+    public long getTag() {
+      return tag;
+    }
+    public int getPage() {
+      return page.index;
+    }
+    public long getPageHandle() {
+      return page.handle;
+    }
+    public int getOffset() {
+      return offset;
+    }
+    public int getLength() {
+      return length;
+    }
+  }
+  private static final class Page {
+    final int index;
+    final long handle;
+    final TreeMap<Integer, Integer> free = new TreeMap<>();
+    final HashSet<Allocation> live = new HashSet<>();
+    int freeUnits;
+    int liveUnits;
+    int retiredUnits;
+    Page(int index, long handle) {
+      this.index = index;
+      this.handle = handle;
+    }
+  }
+  private record Retired(Page page, int offset, int units, long epoch) {
+  }
+  private final Object lock = new Object();
+  private final Backing backing;
+  private final int pageBytes;
+  private final int pageUnits;
+  private final int maxPages;
+  private final TreeSet<Long>[] freeLists;
+  private final ArrayDeque<Retired> retired = new ArrayDeque<>();
+  private final ArrayDeque<Integer> freePageSlots = new ArrayDeque<>();
+  private Page[] pages = new Page[8];
+  private int pageCount;
+  private int pageSlots;
+  private long epoch;
+  private long liveUnits;
+  private RelocationListener listener;
+  private Thread compactor;
+  private boolean closed;
+  private long allocations, frees, failures, moves, movedBytes;
+  @SuppressWarnings("unchecked")
+  public BufferArena(Backing backing, int pageBytes, int maxPages) {
+    if (pageBytes < UNIT || pageBytes % UNIT != 0)
+      throw new IllegalArgumentException("pageBytes must be a multiple of " + UNIT);
+    this.backing = backing;
+    this.pageBytes = pageBytes;
+    this.pageUnits = pageBytes / UNIT;
+    this.maxPages = Math.max(1, maxPages);
+    this.freeLists = new TreeSet[sizeClass(pageUnits) + 1];
+    for (int c = 0; c < freeLists.length; c++)
+      freeLists[c] = new TreeSet<>();
+  }
+  public void setRelocationListener(RelocationListener listener) {
+    synchronized (lock) {
+      this.listener = listener;
+    }
   }
   public boolean canAllocate(long bytes) {
-    return used.get() + bytes <= capacityBytes;
+    if (bytes <= 0 || bytes > pageBytes)
+      return false;
+    synchronized (lock) {
+      if (pageCount < maxPages)
+        return true;
+      int units = unitsFor((int) bytes);
+      for (int c = sizeClass(units) + 1; c < freeLists.length; c++) {
+        if (!freeLists[c].isEmpty())
+          return true;
+      }
+      return findFit(units, -1) >= 0;
+    }
+  }
+  public Allocation allocate(int bytes, long tag) {
+    if (bytes <= 0 || bytes > pageBytes)
+      return null;
+    int units = unitsFor(bytes);
+    synchronized (lock) {
+      if (closed)
+        return null;
+      long at = findFit(units, -1);
+      if (at < 0 && addPage() != null)
+        at = findFit(units, -1);
+      if (at < 0) {
+        failures++;
+        return null;
+      }
+      Page page = pages[(int) (at >>> 32)];
+      int off = (int) at;
+      takeFree(page, off, units);
+      Allocation a = new Allocation(tag, bytes, units, page, off * UNIT);
+      page.live.add(a);
+      page.liveUnits += units;
+      liveUnits += units;
+      allocations++;
+      return a;
+    }
+  }
+  public void write(Allocation allocation, ByteBuffer src, int srcOffset) {
+    backing.write(allocation.page.handle, allocation.offset, src, srcOffset,
+        allocation.length);
+    synchronized (lock) {
+      allocation.sealed = true;
+    }
   }
-  public long allocate(long bytes) {
-    long prev = used.get();
-    if (prev + bytes > capacityBytes)
-      return -1;
-    used.addAndGet(bytes);
-    return prev;
+  public void free(Allocation allocation) {
+    if (allocation == null)
+      return;
+    synchronized (lock) {
+      if (allocation.freed || closed)
+        return;
+      allocation.freed = true;
+      Page page = allocation.page;
+      page.live.remove(allocation);
+      page.liveUnits -= allocation.units;
+      liveUnits -= allocation.units;
+      retire(page, allocation.offset / UNIT, allocation.units);
+      frees++;
+    }
   }
-  public void free(long handle, long bytes) {
-    used.addAndGet(-bytes);
+  public void advanceEpoch() {
+    synchronized (lock) {
+      epoch++;
+      while (!retired.isEmpty() && retired.peek().epoch() + RETIRE_EPOCHS <= epoch) {
+        Retired r = retired.poll();
+        r.page().retiredUnits -= r.units();
+        addFree(r.page(), r.offset(), r.units());
+      }
+      for (int i = 0; i < pageSlots && pageCount > 1; i++) {
+        Page p = pages[i];
+        if (p != null && p.liveUnits == 0 && p.retiredUnits == 0)
+          removePage(p);
+      }
+    }
   }
-  public ByteBuffer acquire() {
-    return ByteBuffer.allocateDirect(blockSize).order(ByteOrder.LITTLE_ENDIAN);
+  public int compactStep(int budgetBytes) {
+    List<Allocation> moved = new ArrayList<>();
+    RelocationListener l;
+    synchronized (lock) {
+      l = listener;
+      Page src = pickCompactionSource();
+      if (src != null) {
+        int budget = budgetBytes;
+        for (Allocation a : new ArrayList<>(src.live)) {
+          if (budget <= 0)
+            break;
+          if (!a.sealed)
+            continue;
+          long at = findFit(a.units, src.index);
+          if (at < 0)
+            break;
+          Page dst = pages[(int) (at >>> 32)];
+          int off = (int) at;
+          takeFree(dst, off, a.units);
+          backing.copy(src.handle, a.offset, dst.handle, off * UNIT, a.length);
+          src.live.remove(a);
+          src.liveUnits -= a.units;
+          retire(src, a.offset / UNIT, a.units);
+          dst.live.add(a);
+          dst.liveUnits += a.units;
+          a.page = dst;
+          a.offset = off * UNIT;
+          moved.add(a);
+          budget -= a.length;
+          moves++;
+          movedBytes += a.length;
+        }
+      }
+    }
+    if (l != null) {
+      for (Allocation a : moved)
+        l.onRelocated(a);
+    }
+    return moved.size();
   }
-  public void release(ByteBuffer buf) {
+  public void startCompactor(long intervalMillis, int budgetBytes) {
+    synchronized (lock) {
+      if (compactor != null || closed)
+        return;
+      compactor = new Thread(() -> {
+        while (!Thread.currentThread().isInterrupted()) {
+          try {
+            Thread.sleep(intervalMillis);
+          } catch (InterruptedException e) {
+            return;
+          }
+          compactStep(budgetBytes);
+        }
+      }, "MetalRender-ArenaCompactor");
+      compactor.setDaemon(true);
+      compactor.setPriority(Thread.MIN_PRIORITY);
+      compactor.start();
+    }
+  }
+  public void close() {
+    Thread t;
+    synchronized (lock) {
+      closed = true;
+      t = compactor;
+      compactor = null;
+      for (int i = 0; i < pageSlots; i++) {
+        if (pages[i] != null)
+          backing.destroyPage(pages[i].handle);
+        pages[i] = null;
+      }
+      for (TreeSet<Long> list : freeLists)
+        list.clear();
+      retired.clear();
+      freePageSlots.clear();
+      pageCount = 0;
+      pageSlots = 0;
+      liveUnits = 0;
+    }
+    if (t != null)
+      t.interrupt();
   }
   public long getUsedBytes() {
-    return used.get();
+    synchronized (lock) {
+      return liveUnits * UNIT;
+    }
+  }
+  public long getCommittedBytes() {
+    synchronized (lock) {
+      return (long) pageCount * pageBytes;
+    }
   }
   public long getCapacityBytes() {
-    return capacityBytes;
+    return (long) maxPages * pageBytes;
+  }
+  public int getPageBytes() {
+    return pageBytes;
+  }
+  public double getFragmentation() {
+    synchronized (lock) {
+      long free = 0;
+      for (int i = 0; i < pageSlots; i++) {
+        if (pages[i] != null)
+          free += pages[i].freeUnits;
+      }
+      return free == 0 ? 0.0 : 1.0 - (double) largestFreeLocked() / free;
+    }
+  }
+  public String getDebugStats() {
+    synchronized (lock) {
+      long free = 0, held = 0;
+      for (int i = 0; i < pageSlots; i++) {
+        if (pages[i] != null) {
+          free += pages[i].freeUnits;
+          held += pages[i].retiredUnits;
+        }
+      }
+      long largest = largestFreeLocked();
+      return String.format(
+          "arena: pages=%d/%d used=%.1fMB free=%.1fMB retired=%.1fMB largestFree=%.0fKB frag=%.2f allocs=%d frees=%d failed=%d moved=%d (%.1fMB)",
+          pageCount, maxPages, liveUnits * UNIT / 1048576.0,
+          free * UNIT / 1048576.0, held * UNIT / 1048576.0,
+          largest * UNIT / 1024.0, free == 0 ? 0.0 : 1.0 - (double) largest / free,
+          allocations, frees, failures, moves, movedBytes / 1048576.0);
+    }
+  }
+  private static int unitsFor(int bytes) {
+    return (bytes + UNIT - 1) / UNIT;
+  }
+  private static int sizeClass(int units) {
+    return 31 - Integer.numberOfLeadingZeros(units);
+  }
+  private static long key(Page page, int offset) {
+    return ((long) page.index << 32) | offset;
+  }
+  private long findFit(int units, int excludePage) {
+    for (int c = sizeClass(units); c < freeLists.length; c++) {
+      for (long k : freeLists[c]) {
+        int pageIndex = (int) (k >>> 32);
+        if (pageIndex == excludePage)
+          continue;
+        if (pages[pageIndex].free.get((int) k) >= units)
+          return k;
+      }
+    }
+    return -1;
+  }
+  private void takeFree(Page page, int offset, int units) {
+    int len = page.free.get(offset);
+    removeFree(page, offset, len);
+    if (len > units)
+      insertFree(page, offset + units, len - units);
+  }
+  private void addFree(Page page, int offset, int units) {
+    Map.Entry<Integer, Integer> lo = page.free.lowerEntry(offset);
+    if (lo != null && lo.getKey() + lo.getValue() == offset) {
+      removeFree(page, lo.getKey(), lo.getValue());
+      offset = lo.getKey();
+      units += lo.getValue();
+    }
+    Integer hi = page.free.get(offset + units);
+    if (hi != null) {
+      removeFree(page, offset + units, hi);
+      units += hi;
+    }
+    insertFree(page, offset, units);
+  }
+  private void insertFree(Page page, int offset, int units) {
+    page.free.put(offset, units);
+    page.freeUnits += units;
+    freeLists[sizeClass(units)].add(key(page, offset));
+  }
+  private void removeFree(Page page, int offset, int units) {
+    page.free.remove(offset);
+    page.freeUnits -= units;
+    freeLists[sizeClass(units)].remove(key(page, offset));
+  }
+  private void retire(Page page, int offset, int units) {
+    page.retiredUnits += units;
+    retired.add(new Retired(page, offset, units, epoch));
+  }
+  private Page addPage() {
+    if (pageCount >= maxPages)
+      return null;
+    long handle = backing.createPage(pageBytes);
+    if (handle == 0)
+      return null;
+    int index;
+    if (!freePageSlots.isEmpty()) {
+      index = freePageSlots.poll();
+    } else {
+      if (pageSlots == pages.length)
+        pages = Arrays.copyOf(pages, pageSlots * 2);
+      index = pageSlots++;
+    }
+    Page page = new Page(index, handle);
+    pages[index] = page;
+    pageCount++;
+    insertFree(page, 0, pageUnits);
+    return page;
+  }
+  private void removePage(Page page) {
+    removeFree(page, 0, pageUnits);
+    pages[page.index] = null;
+    freePageSlots.add(page.index);
+    pageCount--;
+    backing.destroyPage(page.handle);
+  }
+  private Page pickCompactionSource() {
+    if (pageCount < 2)
+      return null;
+    long totalFree = 0;
+    for (int i = 0; i < pageSlots; i++) {
+      if (pages[i] != null)
+        totalFree += pages[i].freeUnits;
+    }
+    Page best = null;
+    for (int i = 0; i < pageSlots; i++) {
+      Page p = pages[i];
+      if (p == null || p.liveUnits == 0 ||
+          p.liveUnits >= pageUnits * COMPACT_OCCUPANCY ||
+          totalFree - p.freeUnits < p.liveUnits)
+        continue;
+      if (best == null || p.liveUnits < best.liveUnits)
+        best = p;
+    }
+    return best;
+  }
+  private long largestFreeLocked() {
+    for (int c = freeLists.length - 1; c >= 0; c--) {
+      if (freeLists[c].isEmpty())
+        continue;
+      long largest = 0;
+      for (long k : freeLists[c])
+        largest = Math.max(largest, pages[(int) (k >>> 32)].free.get((int) k));
+      return largest;
+    }
+    return 0;
   }
-  public long upload(ByteBuffer data) {
-    return 0L;
+  public static final class OffHeapBacking implements Backing {
+    private final AtomicLong nextHandle = new AtomicLong(1);
+    private final ConcurrentHashMap<Long, ByteBuffer> pages =
+        new ConcurrentHashMap<>();
+    @Override
+    public long createPage(int bytes) {
+      long handle = nextHandle.getAndIncrement();
+      pages.put(handle,
+          ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder()));
+      return handle;
+    }
+    @Override
+    public void destroyPage(long pageHandle) {
+      pages.remove(pageHandle);
+    }
+    @Override
+    public void write(long pageHandle, int offset, ByteBuffer src,
+        int srcOffset, int length) {
+      pages.get(pageHandle).put(offset, src, srcOffset, length);
+    }
+    @Override
+    public void copy(long srcPage, int srcOffset, long dstPage, int dstOffset,
+        int length) {
+      pages.get(dstPage).put(dstOffset, pages.get(srcPage), srcOffset, length);
+    }
+    public ByteBuffer page(long pageHandle) {
+      return pages.get(pageHandle);
+    }
   }
 }
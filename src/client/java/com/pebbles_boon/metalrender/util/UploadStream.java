@@ -1,13 +1,33 @@
 package com.pebbles_boon.metalrender.util;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ConcurrentLinkedQueue;
 public class UploadStream {
   private final BufferArena arena;
   private final int blockSize;
+  private final ConcurrentLinkedQueue<ByteBuffer> staging =
+      new ConcurrentLinkedQueue<>();
   public UploadStream(BufferArena arena, int blockSize) {
     this.arena = arena;
     this.blockSize = blockSize;
   }
-  public ByteBuffer begin() { return arena.acquire(); }
-  public long commit(ByteBuffer buf) { return arena.upload(buf); }
+  public ByteBuffer begin() {
+    ByteBuffer buf = staging.poll();
+    if (buf == null)
+      buf = ByteBuffer.allocateDirect(blockSize).order(ByteOrder.nativeOrder());
+    buf.clear();
+    return buf;
+  }
+  public BufferArena.Allocation commit(ByteBuffer buf, long tag) {
+    try {
+      int length = buf.position();
+      BufferArena.Allocation allocation = arena.allocate(length, tag);
+      if (allocation != null)
+        arena.write(allocation, buf, 0);
+      return allocation;
+    } finally {
+      staging.offer(buf);
+    }
+  }
   public int getBlockSize() { return blockSize; }
 }
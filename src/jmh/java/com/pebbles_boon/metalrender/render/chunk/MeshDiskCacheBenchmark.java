@@ -0,0 +1,94 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Thread)
+public class MeshDiskCacheBenchmark {
+  private static final int[] FACES = { 64, 64, 64, 64, 64, 64, 0 };
+  @Param({ "64", "384", "1536" })
+  public int quads;
+  @Param({ "2048" })
+  public int sections;
+  private Path dir;
+  private MeshDiskCache cache;
+  private ByteBuffer vertices;
+  private final SplittableRandom random = new SplittableRandom(0xD15CL);
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Lookups {
+    public long hits;
+    public long misses;
+    @Setup(Level.Iteration)
+    public void reset() {
+      hits = 0;
+      misses = 0;
+    }
+  }
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    dir = Files.createTempDirectory("metalrender-meshcache");
+    cache = MeshDiskCache.open(dir, 256L << 20);
+    vertices = ByteBuffer.allocateDirect(quads * 64)
+        .order(ByteOrder.nativeOrder());
+    for (int i = 0; i < vertices.capacity(); i++)
+      vertices.put(i, (byte) random.nextInt());
+    for (int s = 0; s < sections; s++)
+      cache.store(s, 0, s, quads, quads, FACES, 0, 0, null, vertices,
+          quads * 64);
+  }
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    cache.close();
+    try (var files = Files.list(dir)) {
+      for (Path p : (Iterable<Path>) files::iterator)
+        Files.deleteIfExists(p);
+    }
+    Files.deleteIfExists(dir);
+  }
+  @Benchmark
+  public int load(Lookups lookups) {
+    int s = random.nextInt(sections * 5 / 4);
+    if (!cache.requestLoad(s, 0, s, null)) {
+      lookups.misses++;
+      return 0;
+    }
+    MeshDiskCache.Load load;
+    while ((load = cache.pollLoaded()) == null)
+      Thread.onSpinWait();
+    int len = load.ok ? load.mesh.dataLen : 0;
+    cache.recycle(load);
+    if (len > 0)
+      lookups.hits++;
+    else
+      lookups.misses++;
+    return len;
+  }
+  @Benchmark
+  public long hashSection() {
+    return ContentHash.finish(ContentHash.buffer(ContentHash.SEED, vertices, 0,
+        quads * 64));
+  }
+}
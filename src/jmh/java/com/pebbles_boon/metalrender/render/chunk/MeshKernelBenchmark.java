@@ -0,0 +1,71 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Thread)
+public class MeshKernelBenchmark {
+  private static final long SEED = 0x5EC7_10E5L;
+  private static final int[] BIOME_COLORS = { 0xB0B0B0, 0x7CBE3F, 0x4BA836,
+      0x3F76E4 };
+  private static BlockStatePropertyTable props;
+  @Param({ "air", "stone", "caves", "foliage", "water", "ore" })
+  public String scenario;
+  @Param({ "0", "1", "2", "3", "4" })
+  public int lodLevel;
+  private PaddedSectionVolume volume;
+  private SectionMeshKernel kernel;
+  private VoxelDownsampler downsampler;
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Emitted {
+    public long quads;
+    public long bytes;
+    @Setup(Level.Iteration)
+    public void reset() {
+      quads = 0;
+      bytes = 0;
+    }
+  }
+  @Setup(Level.Trial)
+  public void setup() {
+    SyntheticSections.bootstrap();
+    synchronized (MeshKernelBenchmark.class) {
+      if (props == null)
+        props = BlockStatePropertyTable.detached();
+    }
+    volume = new PaddedSectionVolume();
+    SyntheticSections.fill(scenario, volume, SEED);
+    kernel = new SectionMeshKernel();
+    downsampler = new VoxelDownsampler();
+  }
+  @Benchmark
+  public int meshSection(Emitted emitted) {
+    kernel.build(volume, props, 0, 4, 0, lodLevel, 0, BIOME_COLORS, null, null,
+        null);
+    int quads = kernel.getQuadCount();
+    emitted.quads += quads;
+    emitted.bytes += kernel.vertexBuffer.limit();
+    return quads;
+  }
+  @Benchmark
+  public int downsampleSection() {
+    return downsampler.downsample(volume, props, Math.max(1, lodLevel),
+        props.occluders(0));
+  }
+}
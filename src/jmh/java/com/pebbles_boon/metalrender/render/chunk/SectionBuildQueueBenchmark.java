@@ -0,0 +1,56 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Thread)
+public class SectionBuildQueueBenchmark {
+  @Param({ "12", "32" })
+  public int renderDistance;
+  private long[] keys;
+  private SectionBuildQueue queue;
+  private int step;
+  @Setup(Level.Trial)
+  public void setup() {
+    SplittableRandom random = new SplittableRandom(0xB0C4L);
+    int side = renderDistance * 2 + 1;
+    keys = new long[side * side * 4];
+    for (int i = 0; i < keys.length; i++) {
+      int cx = random.nextInt(side) - renderDistance;
+      int cy = random.nextInt(24) - 4;
+      int cz = random.nextInt(side) - renderDistance;
+      keys[i] = ((long) (cx & 0x3FFFFF) << 42) | ((long) (cy & 0xFFFFF) << 22) |
+          (cz & 0x3FFFFF);
+    }
+    queue = new SectionBuildQueue(keys.length);
+  }
+  @Benchmark
+  public long fillMoveDrain() {
+    queue.clear();
+    queue.setView(0, 0, 0.0f, 1.0f);
+    for (long key : keys)
+      queue.add(key);
+    step++;
+    queue.setView(step & 1, 0, 0.0f, 1.0f);
+    queue.rebucket(4096);
+    long sum = 0;
+    for (int i = 0; i < 500 && !queue.isEmpty(); i++)
+      sum += queue.poll();
+    return sum;
+  }
+}
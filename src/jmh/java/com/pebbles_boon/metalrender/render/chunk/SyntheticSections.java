@@ -0,0 +1,100 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+final class SyntheticSections {
+  private static final byte SKY = (byte) 0xF0;
+  private static boolean bootstrapped;
+  private SyntheticSections() {
+  }
+  static synchronized void bootstrap() {
+    if (bootstrapped)
+      return;
+    SharedConstants.createGameVersion();
+    Bootstrap.initialize();
+    bootstrapped = true;
+  }
+  static void fill(String scenario, PaddedSectionVolume volume, long seed) {
+    volume.clear();
+    int stone = id(Blocks.STONE.getDefaultState());
+    int[] ores = {
+        id(Blocks.COAL_ORE.getDefaultState()),
+        id(Blocks.IRON_ORE.getDefaultState()),
+        id(Blocks.COPPER_ORE.getDefaultState()),
+        id(Blocks.GRANITE.getDefaultState()),
+        id(Blocks.DIORITE.getDefaultState()),
+        id(Blocks.ANDESITE.getDefaultState()),
+        id(Blocks.DEEPSLATE.getDefaultState()) };
+    int grass = id(Blocks.GRASS_BLOCK.getDefaultState());
+    int shortGrass = id(Blocks.SHORT_GRASS.getDefaultState());
+    int log = id(Blocks.OAK_LOG.getDefaultState());
+    int leaves = id(Blocks.OAK_LEAVES.getDefaultState());
+    int sand = id(Blocks.SAND.getDefaultState());
+    int water = id(Blocks.WATER.getDefaultState());
+    for (int y = -1; y <= 16; y++) {
+      for (int z = -1; z <= 16; z++) {
+        for (int x = -1; x <= 16; x++) {
+          int sid = switch (scenario) {
+            case "air" -> 0;
+            case "stone" -> stone;
+            case "caves" -> caveNoise(x, y, z, seed) > 0.55f ? 0 : stone;
+            case "foliage" -> {
+              if (y <= 1)
+                yield grass;
+              boolean trunk = (hash(x, 0, z, seed) & 31) == 0;
+              if (trunk && y <= 9)
+                yield log;
+              if (y >= 7 && y <= 12 && (hash(x, y, z, seed) & 3) != 0)
+                yield leaves;
+              if (y == 2 && hash(x, y, z, seed) % 3 == 0)
+                yield shortGrass;
+              yield 0;
+            }
+            case "water" -> y < 4 ? sand : y < 12 ? water : 0;
+            case "ore" -> {
+              long h = hash(x, y, z, seed);
+              yield Math.floorMod(h, 100) < 15
+                  ? ores[(int) Math.floorMod(h >> 8, ores.length)]
+                  : stone;
+            }
+            default -> throw new IllegalArgumentException(scenario);
+          };
+          int p = PaddedSectionVolume.index(x, y, z);
+          volume.states[p] = sid;
+          volume.light[p] = sid == 0 || sid == water ? SKY : 0;
+        }
+      }
+    }
+  }
+  private static int id(BlockState state) {
+    return Block.getRawIdFromState(state);
+  }
+  private static long hash(int x, int y, int z, long seed) {
+    long h = seed ^ (x * 0x9E3779B97F4A7C15L) ^ (y * 0xC2B2AE3D27D4EB4FL) ^
+        (z * 0x165667B19E3779F9L);
+    h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+    h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+    return (h ^ (h >>> 31)) & Long.MAX_VALUE;
+  }
+  private static float lattice(int x, int y, int z, long seed) {
+    return (hash(x, y, z, seed) & 0xFFFF) / 65535.0f;
+  }
+  private static float caveNoise(int x, int y, int z, long seed) {
+    int cx = Math.floorDiv(x, 4), cy = Math.floorDiv(y, 4), cz = Math.floorDiv(z, 4);
+    float fx = Math.floorMod(x, 4) / 4.0f;
+    float fy = Math.floorMod(y, 4) / 4.0f;
+    float fz = Math.floorMod(z, 4) / 4.0f;
+    float[] c = new float[8];
+    for (int i = 0; i < 8; i++)
+      c[i] = lattice(cx + (i & 1), cy + ((i >> 1) & 1), cz + (i >> 2), seed);
+    float x00 = c[0] + (c[1] - c[0]) * fx;
+    float x10 = c[2] + (c[3] - c[2]) * fx;
+    float x01 = c[4] + (c[5] - c[4]) * fx;
+    float x11 = c[6] + (c[7] - c[6]) * fx;
+    float y0 = x00 + (x10 - x00) * fy;
+    float y1 = x01 + (x11 - x01) * fy;
+    return y0 + (y1 - y0) * fz;
+  }
+}
@@ -0,0 +1,47 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Thread)
+public class TranslucentSortBenchmark {
+  @Param({ "16", "256", "4096" })
+  public int quads;
+  @Param({ "false", "true" })
+  public boolean incremental;
+  private final TranslucentSorter.DepthSort sort = new TranslucentSorter.DepthSort();
+  private float[] centroids;
+  private int[] order;
+  private float step;
+  @Setup
+  public void setup() {
+    SplittableRandom random = new SplittableRandom(0x7A11L);
+    centroids = new float[quads * 3];
+    for (int i = 0; i < centroids.length; i++)
+      centroids[i] = (float) random.nextDouble(16.0);
+    order = new int[quads];
+    sort.sortBackToFront(centroids, quads, 8f, 24f, 8f, order, false);
+  }
+  @Benchmark
+  public int sortSection() {
+    step += 0.25f;
+    if (step > 16f)
+      step = 0f;
+    sort.sortBackToFront(centroids, quads, step, 24f, 8f, order, incremental);
+    return order[0];
+  }
+}
@@ -0,0 +1,102 @@
+package com.pebbles_boon.metalrender.util;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Thread)
+public class BufferArenaBenchmark {
+  private static final int PAGE_BYTES = 8 * 1024 * 1024;
+  private static final int LIVE_SECTIONS = 4096;
+  private static final int OPS_PER_FRAME = 64;
+  @Param({ "false", "true" })
+  public boolean compact;
+  private BufferArena arena;
+  private ByteBuffer mesh;
+  private SplittableRandom random;
+  private final ArrayList<BufferArena.Allocation> live = new ArrayList<>();
+  private long ops;
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Outcomes {
+    public long allocated;
+    public long failed;
+    @Setup(Level.Iteration)
+    public void reset() {
+      allocated = 0;
+      failed = 0;
+    }
+  }
+  @Setup
+  public void setup() {
+    arena = new BufferArena(new BufferArena.OffHeapBacking(), PAGE_BYTES, 256);
+    mesh = ByteBuffer.allocateDirect(1 << 21).order(ByteOrder.nativeOrder());
+    random = new SplittableRandom(0xA3E4AL);
+    for (int i = 0; i < LIVE_SECTIONS; i++)
+      step();
+  }
+  @TearDown
+  public void tearDown() {
+    arena.close();
+  }
+  @Benchmark
+  public int churn(Outcomes outcomes) {
+    BufferArena.Allocation a = step();
+    if (a == null) {
+      outcomes.failed++;
+      return 0;
+    }
+    outcomes.allocated++;
+    return a.getOffset();
+  }
+  private BufferArena.Allocation step() {
+    int slot = live.size() < LIVE_SECTIONS ? -1 : random.nextInt(live.size());
+    if (slot >= 0)
+      arena.free(live.get(slot));
+    BufferArena.Allocation a = arena.allocate(sectionBytes(), ops);
+    if (a != null)
+      arena.write(a, mesh, 0);
+    if (slot < 0) {
+      if (a != null)
+        live.add(a);
+    } else if (a != null) {
+      live.set(slot, a);
+    } else {
+      live.set(slot, live.get(live.size() - 1));
+      live.remove(live.size() - 1);
+    }
+    if (++ops % OPS_PER_FRAME == 0) {
+      arena.advanceEpoch();
+      if (compact)
+        arena.compactStep(1 << 20);
+    }
+    return a;
+  }
+  private int sectionBytes() {
+    int roll = random.nextInt(100);
+    if (roll < 60)
+      return 1024 + random.nextInt(24 * 1024);
+    if (roll < 95)
+      return 32 * 1024 + random.nextInt(160 * 1024);
+    return 256 * 1024 + random.nextInt(1280 * 1024);
+  }
+}
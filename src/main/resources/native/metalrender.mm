@@ -124,6 +124,7 @@ static void *megaGetPointer(uint64_t handle) {
 }
 static id<MTLRenderPipelineState> g_pipelineOpaque = nil;
 static id<MTLRenderPipelineState> g_pipelineInhouse = nil;
+static id<MTLRenderPipelineState> g_pipelineCompact = nil;
 static id<MTLRenderPipelineState> g_pipelineCutout = nil;
 static id<MTLRenderPipelineState> g_pipelineTranslucent = nil;
 static id<MTLRenderPipelineState> g_pipelineEntity = nil;
@@ -225,9 +226,43 @@ struct NativeMesh {
   int32_t opaqueQuadCount; 
   int32_t lodLevel;
   bool active;
+  uint64_t byteOffset;
+  int32_t faceQuads[7];
+  int32_t vertexFormat;
+  uint32_t paletteOffset;
+  uint64_t sortedIndexHandle;
+  uint64_t sortedIndexOffset;
+  float extentXZ;
+  float extentY;
 };
+static const float SECTION_EXTENT = 16.0f;
+static const int VERTEX_FORMAT_COMPACT = 1;
+static inline int vertexStrideFor(int vertexFormat) {
+  return vertexFormat == VERTEX_FORMAT_COMPACT ? 8 : 16;
+}
+struct QuadRun {
+  int first;
+  int count;
+};
+static int opaqueQuadRuns(const int32_t *faceQuads, uint32_t faceMask,
+                          QuadRun *out) {
+  int runs = 0;
+  int start = 0;
+  for (int f = 0; f < 7; f++) {
+    int n = faceQuads[f];
+    if (n > 0 && (f == 6 || (faceMask & (1u << f)))) {
+      if (runs > 0 && out[runs - 1].first + out[runs - 1].count == start)
+        out[runs - 1].count += n;
+      else
+        out[runs++] = {start, n};
+    }
+    start += n;
+  }
+  return runs;
+}
 static std::vector<NativeMesh> g_nativeMeshes;
 static std::unordered_map<int64_t, size_t> g_meshKeyToIdx;
+static std::unordered_map<int64_t, size_t> g_farTileKeyToIdx;
 static std::vector<size_t> g_meshFreeSlots;
 static std::shared_mutex g_meshRegMutex;
 static int g_activeMeshCount = 0;
@@ -355,6 +390,8 @@ struct SimpleVertexOut {
 	float2 texCoord;
 	float4 color;
 	float light;
+	float2 tileUV;
+	float4 spriteRect [[flat]];
 };
 vertex SimpleVertexOut vertex_terrain_inhouse(
 	device const InhouseTerrainVertex* vertices   [[buffer(0)]],
@@ -374,6 +411,8 @@ vertex SimpleVertexOut vertex_terrain_inhouse(
 			out.texCoord = float2(0.0);
 			out.color    = float4(0.0);
 			out.light    = 0.0;
+			out.tileUV   = float2(0.0);
+			out.spriteRect = float4(0.0);
 			return out;
 		}
 	}
@@ -386,6 +425,85 @@ vertex SimpleVertexOut vertex_terrain_inhouse(
 	float blockLight = float(v.packedLight & 0xF) / 15.0;
 	float skyLight   = float((v.packedLight >> 4) & 0xF) / 15.0;
 	out.light    = max(blockLight, skyLight);
+	out.tileUV   = float2(0.0);
+	out.spriteRect = float4(0.0);
+	if ((v.normalIndex & 0x8) != 0) {
+		uint nIdx = v.normalIndex & 0x7;
+		uint quadBase = vid & ~3u;
+		InhouseTerrainVertex c0 = vertices[quadBase];
+		InhouseTerrainVertex c2 = vertices[quadBase + 2];
+		float2 uv0 = float2(c0.texCoord) / 65535.0;
+		float2 uv2 = float2(c2.texCoord) / 65535.0;
+		float2 spriteMin = min(uv0, uv2);
+		float2 spriteSize = max(abs(uv2 - uv0), float2(1e-6));
+		float3 span = abs(float3(short3(c2.position)) - float3(short3(c0.position))) / 256.0;
+		float2 extent = nIdx < 2 ? span.xz : (nIdx < 4 ? span.xy : span.zy);
+		out.tileUV = (out.texCoord - spriteMin) / spriteSize * extent;
+		out.spriteRect = float4(spriteMin, spriteSize);
+	}
+	return out;
+}
+struct CompactTerrainVertex {
+	uint posFlags;
+	uint attribs;
+};
+static float3 compactPosition(uint w) {
+	return float3(float(w & 0x3FFu), float((w >> 10) & 0x3FFu),
+	              float((w >> 20) & 0x3FFu)) / 32.0 - 8.0;
+}
+vertex SimpleVertexOut vertex_terrain_compact(
+	device const CompactTerrainVertex* vertices   [[buffer(0)]],
+	constant float4x4& projectionMatrix           [[buffer(1)]],
+	constant float4x4& modelViewMatrix            [[buffer(2)]],
+	constant float4& cameraPosition               [[buffer(3)]],
+	constant float4* chunkOffsets                 [[buffer(4)]],
+	constant uint* paletteBases                   [[buffer(5)]],
+	uint vid [[vertex_id]],
+	uint iid [[instance_id]]
+) {
+	CompactTerrainVertex v = vertices[vid];
+	device const uint* palette = (device const uint*)vertices + paletteBases[iid];
+	uint uvCount = palette[0];
+	SimpleVertexOut out;
+	float4 chunkOffset = chunkOffsets[iid];
+	uint faceMask = as_type<uint>(chunkOffset.w);
+	uint nIdx = v.attribs & 0x7u;
+	float4 color = unpack_unorm4x8_to_float(palette[1 + uvCount + (v.attribs >> 23)]);
+	if (faceMask != 0 && color.a >= 254.0 / 255.0 && nIdx < 6 &&
+	    ((faceMask >> nIdx) & 1) == 0) {
+		out.position = float4(0.0, 0.0, -2.0, 1.0);
+		out.texCoord = float2(0.0);
+		out.color    = float4(0.0);
+		out.light    = 0.0;
+		out.tileUV   = float2(0.0);
+		out.spriteRect = float4(0.0);
+		return out;
+	}
+	uint uv = palette[1 + ((v.attribs >> 11) & 0xFFFu)];
+	float3 worldPos = compactPosition(v.posFlags) + chunkOffset.xyz;
+	float4 viewPos = modelViewMatrix * float4(worldPos, 1.0);
+	out.position = projectionMatrix * viewPos;
+	out.texCoord = float2(uv & 0xFFFFu, uv >> 16) / 65535.0;
+	out.color    = color;
+	uint packedLight = (v.attribs >> 3) & 0xFFu;
+	out.light    = max(float(packedLight & 0xF) / 15.0, float(packedLight >> 4) / 15.0);
+	out.tileUV   = float2(0.0);
+	out.spriteRect = float4(0.0);
+	if ((v.posFlags & (1u << 30)) != 0) {
+		uint quadBase = vid & ~3u;
+		CompactTerrainVertex c0 = vertices[quadBase];
+		CompactTerrainVertex c2 = vertices[quadBase + 2];
+		uint t0 = palette[1 + ((c0.attribs >> 11) & 0xFFFu)];
+		uint t2 = palette[1 + ((c2.attribs >> 11) & 0xFFFu)];
+		float2 uv0 = float2(t0 & 0xFFFFu, t0 >> 16) / 65535.0;
+		float2 uv2 = float2(t2 & 0xFFFFu, t2 >> 16) / 65535.0;
+		float2 spriteMin = min(uv0, uv2);
+		float2 spriteSize = max(abs(uv2 - uv0), float2(1e-6));
+		float3 span = abs(compactPosition(c2.posFlags) - compactPosition(c0.posFlags));
+		float2 extent = nIdx < 2 ? span.xz : (nIdx < 4 ? span.xy : span.zy);
+		out.tileUV = (out.texCoord - spriteMin) / spriteSize * extent;
+		out.spriteRect = float4(spriteMin, spriteSize);
+	}
 	return out;
 }
 fragment float4 fragment_terrain(
@@ -393,7 +511,8 @@ fragment float4 fragment_terrain(
 	texture2d<float> blockAtlas [[texture(0)]]
 ) {
 	constexpr sampler s(filter::nearest, address::clamp_to_edge);
-	float4 texColor = blockAtlas.sample(s, in.texCoord);
+	float2 uv = in.spriteRect.z > 0.0 ? in.spriteRect.xy + fract(in.tileUV) * in.spriteRect.zw : in.texCoord;
+	float4 texColor = blockAtlas.sample(s, uv);
 	if (texColor.a < 0.5 && in.color.a >= 0.998) discard_fragment();
 	float4 baseColor = texColor * in.color;
 	float lightFactor = clamp(in.light * 0.8 + 0.2, 0.2, 1.0);
@@ -533,6 +652,18 @@ fragment float4 fragment_entity_emissive(
           [[error localizedDescription] UTF8String]);
     }
     g_pipelineOpaque = g_pipelineInhouse;
+    id<MTLFunction> compactFn =
+        [g_shaderLibrary newFunctionWithName:@"vertex_terrain_compact"];
+    if (compactFn) {
+      desc.vertexFunction = compactFn;
+      desc.label = @"InhouseTerrainCompact";
+      g_pipelineCompact = [g_device newRenderPipelineStateWithDescriptor:desc
+                                                                   error:&error];
+      if (!g_pipelineCompact) {
+        dbg("WARN: Compact terrain pipeline creation failed: %s\n",
+            [[error localizedDescription] UTF8String]);
+      }
+    }
     id<MTLFunction> fragIcbFn =
         [g_shaderLibrary newFunctionWithName:@"fragment_terrain_icb"];
     if (vertexFn && fragIcbFn) {
@@ -842,13 +973,13 @@ static void ensure_offscreen() {
   }
 }
 extern "C" JNIEXPORT jboolean JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nIsAvailable(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nIsAvailable(
     JNIEnv *, jclass) {
   ensure_device();
   return (g_available && g_device) ? JNI_TRUE : JNI_FALSE;
 }
 extern "C" JNIEXPORT jlong JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nInit(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nInit(
     JNIEnv *, jclass, jint width, jint height, jfloat scale) {
   ensure_device();
   g_rtWidth = (int)width;
@@ -860,7 +991,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nInit(
   return (g_device != nil) ? (jlong)0x1 : (jlong)0;
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nResize(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nResize(
     JNIEnv *, jclass, jlong handle, jint width, jint height, jfloat scale) {
   (void)handle;
   g_rtWidth = (int)width;
@@ -870,12 +1001,12 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nResize(
 }
 static bool g_reuseTerrainFrame = false;
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nSetReuseTerrainFrame(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nSetReuseTerrainFrame(
     JNIEnv *, jclass, jboolean reuse) {
   g_reuseTerrainFrame = (bool)reuse;
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nBeginFrame(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nBeginFrame(
     JNIEnv *, jclass, jlong handle, jfloatArray proj, jfloatArray view,
     jfloat fogStart, jfloat fogEnd) {
   (void)handle;
@@ -887,16 +1018,16 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nBeginFrame(
   ensure_offscreen();
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawTerrain(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nDrawTerrain(
     JNIEnv *, jclass, jlong handle, jint layerId) {}
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawOverlay(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nDrawOverlay(
     JNIEnv *, jclass, jlong handle, jint layerId) {}
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nOnWorldLoaded(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nOnWorldLoaded(
     JNIEnv *, jclass, jlong handle) {}
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nOnWorldUnloaded(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nOnWorldUnloaded(
     JNIEnv *, jclass, jlong handle) {
   g_shuttingDown = true;
   if (g_frameSemaphore) {
@@ -904,7 +1035,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nOnWorldUnloaded(
   }
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDestroy(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nDestroy(
     JNIEnv *, jclass, jlong handle) {
   g_shuttingDown = true;
   if (g_frameSemaphore) {
@@ -912,7 +1043,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDestroy(
   }
 }
 extern "C" JNIEXPORT jstring JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nGetDeviceName(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nGetDeviceName(
     JNIEnv *env, jclass) {
   ensure_device();
   if (!g_device)
@@ -921,12 +1052,12 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nGetDeviceName(
   return env->NewStringUTF([name UTF8String]);
 }
 extern "C" JNIEXPORT jboolean JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nSupportsIndirect(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nSupportsIndirect(
     JNIEnv *, jclass) {
   return JNI_TRUE;
 }
 extern "C" JNIEXPORT jboolean JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nSupportsMeshShaders(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nSupportsMeshShaders(
     JNIEnv *, jclass) {
   return JNI_TRUE;
 }
@@ -1072,7 +1203,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_MetalBackend_destroyBuffer(
   g_deferredDeletions.push_back({h, g_frameCount, isMegaHandle(h)});
 }
 extern "C" JNIEXPORT jlong JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nCreateBuffer(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nCreateBuffer(
     JNIEnv *, jclass, jlong deviceHandle, jint sizeBytes, jint storageMode) {
   (void)deviceHandle;
   (void)storageMode;
@@ -1091,7 +1222,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nCreateBuffer(
   return (jlong)store_buffer(buf);
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nUploadBufferData(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nUploadBufferData(
     JNIEnv *env, jclass, jlong bufferHandle, jbyteArray data, jint offset,
     jint length) {
   uint64_t h = (uint64_t)bufferHandle;
@@ -1116,7 +1247,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nUploadBufferData(
   env->ReleaseByteArrayElements(data, bytes, JNI_ABORT);
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nUploadBufferDataDirect(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nUploadBufferDataDirect(
     JNIEnv *env, jclass, jlong bufferHandle, jobject directBuffer, jint offset,
     jint length) {
   uint64_t h = (uint64_t)bufferHandle;
@@ -1139,7 +1270,39 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nUploadBufferDataDi
   }
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDestroyBuffer(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nUploadBufferRange(
+    JNIEnv *env, jclass, jlong bufferHandle, jint dstOffset,
+    jobject directBuffer, jint srcOffset, jint length) {
+  if (!directBuffer || length <= 0 || dstOffset < 0)
+    return;
+  ResolvedBuf dst = resolve_buffer((uint64_t)bufferHandle);
+  if (!dst.buf)
+    return;
+  void *ptr = env->GetDirectBufferAddress(directBuffer);
+  if (ptr && dst.offset + (size_t)dstOffset + (size_t)length <= [dst.buf length]) {
+    memcpy((uint8_t *)[dst.buf contents] + dst.offset + dstOffset,
+           (uint8_t *)ptr + srcOffset, (size_t)length);
+  }
+}
+extern "C" JNIEXPORT void JNICALL
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nCopyBufferRange(
+    JNIEnv *, jclass, jlong srcBuffer, jint srcOffset, jlong dstBuffer,
+    jint dstOffset, jint length) {
+  if (length <= 0 || srcOffset < 0 || dstOffset < 0)
+    return;
+  ResolvedBuf src = resolve_buffer((uint64_t)srcBuffer);
+  ResolvedBuf dst = resolve_buffer((uint64_t)dstBuffer);
+  if (!src.buf || !dst.buf)
+    return;
+  if (src.offset + (size_t)srcOffset + (size_t)length > [src.buf length] ||
+      dst.offset + (size_t)dstOffset + (size_t)length > [dst.buf length])
+    return;
+  memmove((uint8_t *)[dst.buf contents] + dst.offset + dstOffset,
+          (uint8_t *)[src.buf contents] + src.offset + srcOffset,
+          (size_t)length);
+}
+extern "C" JNIEXPORT void JNICALL
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nDestroyBuffer(
     JNIEnv *, jclass, jlong bufferHandle) {
   uint64_t h = (uint64_t)bufferHandle;
   std::lock_guard<std::mutex> lock(g_deferredMutex);
@@ -1153,7 +1316,7 @@ static double g_camX = 0, g_camY = 0, g_camZ = 0;
 id<MTLRenderCommandEncoder> g_currentEncoder = nil;
 static id<MTLCommandBuffer> g_currentCmdBuffer = nil;
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nSetPipelineState(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nSetPipelineState(
     JNIEnv *, jclass, jlong frameContext, jlong pipelineHandle) {
   (void)frameContext;
   if (g_currentEncoder && pipelineHandle != 0) {
@@ -1175,7 +1338,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nSetPipelineState(
   }
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nSetChunkOffset(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nSetChunkOffset(
     JNIEnv *, jclass, jlong frameContext, jfloat x, jfloat y, jfloat z) {
   (void)frameContext;
   g_chunkOffsetX = x;
@@ -1187,7 +1350,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nSetChunkOffset(
   }
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawIndexedBuffer(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nDrawIndexedBuffer(
     JNIEnv *, jclass, jlong frameContext, jlong vertexBuffer, jlong indexBuffer,
     jint indexCount, jint baseIndex) {
   (void)frameContext;
@@ -1241,7 +1404,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawIndexedBuffer(
   g_drawCallCount++;
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawIndexedBatch(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nDrawIndexedBatch(
     JNIEnv *env, jclass, jlong frameContext, jlong indexBuffer,
     jfloatArray drawData, jint drawCount) {
   (void)frameContext;
@@ -1653,20 +1816,33 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawIndexedBatch(
         canICB ? "YES" : "NO", g_megaVBHead / (1024 * 1024));
   }
 }
-extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nRegisterChunkMesh(
-    JNIEnv *, jclass, jint cx, jint cy, jint cz, jlong bufferHandle,
-    jint quadCount, jint opaqueQuadCount, jint lodLevel) {
+static void registerChunkMesh(std::unordered_map<int64_t, size_t> &keyMap,
+                              jint cx, jint cy, jint cz, jlong bufferHandle,
+                              jint byteOffset, jint quadCount,
+                              jint opaqueQuadCount, const int32_t *faceQuads,
+                              jint vertexFormat, jint paletteOffset,
+                              jint lodLevel, float extentXZ, float extentY) {
+  int32_t faces[7] = {0, 0, 0, 0, 0, 0, opaqueQuadCount};
+  if (faceQuads)
+    memcpy(faces, faceQuads, sizeof(faces));
   int64_t key = packMeshKey(cx, cy, cz);
   std::unique_lock<std::shared_mutex> lock(g_meshRegMutex);
-  auto it = g_meshKeyToIdx.find(key);
-  if (it != g_meshKeyToIdx.end()) {
+  auto it = keyMap.find(key);
+  if (it != keyMap.end()) {
     NativeMesh &m = g_nativeMeshes[it->second];
     m.bufferHandle = (uint64_t)bufferHandle;
     m.quadCount = quadCount;
     m.opaqueQuadCount = opaqueQuadCount;
     m.lodLevel = lodLevel;
     m.active = true;
+    m.byteOffset = (uint64_t)byteOffset;
+    memcpy(m.faceQuads, faces, sizeof(faces));
+    m.vertexFormat = vertexFormat;
+    m.paletteOffset = (uint32_t)paletteOffset;
+    m.sortedIndexHandle = 0;
+    m.sortedIndexOffset = 0;
+    m.extentXZ = extentXZ;
+    m.extentY = extentY;
     return;
   }
   size_t idx;
@@ -1680,8 +1856,14 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nRegisterChunkMesh(
   g_nativeMeshes[idx] = {(int32_t)cx,        (int32_t)cy,
                          (int32_t)cz,        (uint64_t)bufferHandle,
                          (int32_t)quadCount, (int32_t)opaqueQuadCount,
-                         (int32_t)lodLevel,  true};
-  g_meshKeyToIdx[key] = idx;
+                         (int32_t)lodLevel,  true,
+                         (uint64_t)byteOffset};
+  memcpy(g_nativeMeshes[idx].faceQuads, faces, sizeof(faces));
+  g_nativeMeshes[idx].vertexFormat = vertexFormat;
+  g_nativeMeshes[idx].paletteOffset = (uint32_t)paletteOffset;
+  g_nativeMeshes[idx].extentXZ = extentXZ;
+  g_nativeMeshes[idx].extentY = extentY;
+  keyMap[key] = idx;
   g_activeMeshCount++;
   if (g_activeMeshCount <= 5 || g_activeMeshCount % 2000 == 0) {
     dbg("MeshReg: registered (%d,%d,%d) handle=%llu total=%d\n", cx, cy, cz,
@@ -1689,21 +1871,74 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nRegisterChunkMesh(
   }
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nUnregisterChunkMesh(
-    JNIEnv *, jclass, jint cx, jint cy, jint cz) {
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nRegisterChunkMesh(
+    JNIEnv *, jclass, jint cx, jint cy, jint cz, jlong bufferHandle,
+    jint quadCount, jint opaqueQuadCount, jint lodLevel) {
+  registerChunkMesh(g_meshKeyToIdx, cx, cy, cz, bufferHandle, 0, quadCount,
+                    opaqueQuadCount, nullptr, 0, 0, lodLevel, SECTION_EXTENT,
+                    SECTION_EXTENT);
+}
+extern "C" JNIEXPORT void JNICALL
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nRegisterChunkMeshRange(
+    JNIEnv *env, jclass, jint cx, jint cy, jint cz, jlong bufferHandle,
+    jint byteOffset, jint quadCount, jint opaqueQuadCount,
+    jintArray faceQuadCounts, jint vertexFormat, jint paletteOffset,
+    jint lodLevel) {
+  int32_t faces[7];
+  bool haveFaces = faceQuadCounts && env->GetArrayLength(faceQuadCounts) >= 7;
+  if (haveFaces)
+    env->GetIntArrayRegion(faceQuadCounts, 0, 7, (jint *)faces);
+  registerChunkMesh(g_meshKeyToIdx, cx, cy, cz, bufferHandle, byteOffset,
+                    quadCount, opaqueQuadCount, haveFaces ? faces : nullptr,
+                    vertexFormat, paletteOffset, lodLevel, SECTION_EXTENT,
+                    SECTION_EXTENT);
+}
+static void unregisterChunkMesh(std::unordered_map<int64_t, size_t> &keyMap,
+                                jint cx, jint cy, jint cz) {
   int64_t key = packMeshKey(cx, cy, cz);
   std::unique_lock<std::shared_mutex> lock(g_meshRegMutex);
-  auto it = g_meshKeyToIdx.find(key);
-  if (it == g_meshKeyToIdx.end())
+  auto it = keyMap.find(key);
+  if (it == keyMap.end())
     return;
   size_t idx = it->second;
   g_nativeMeshes[idx].active = false;
   g_meshFreeSlots.push_back(idx);
-  g_meshKeyToIdx.erase(it);
+  keyMap.erase(it);
   g_activeMeshCount--;
 }
+extern "C" JNIEXPORT void JNICALL
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nUnregisterChunkMesh(
+    JNIEnv *, jclass, jint cx, jint cy, jint cz) {
+  unregisterChunkMesh(g_meshKeyToIdx, cx, cy, cz);
+}
+extern "C" JNIEXPORT void JNICALL
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nRegisterFarFieldTile(
+    JNIEnv *, jclass, jint cx, jint cy, jint cz, jlong bufferHandle,
+    jint byteOffset, jint quadCount, jint extentXZ, jint extentY) {
+  registerChunkMesh(g_farTileKeyToIdx, cx, cy, cz, bufferHandle, byteOffset,
+                    quadCount, quadCount, nullptr, 0, 0, 0, (float)extentXZ,
+                    (float)extentY);
+}
+extern "C" JNIEXPORT void JNICALL
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nUnregisterFarFieldTile(
+    JNIEnv *, jclass, jint cx, jint cy, jint cz) {
+  unregisterChunkMesh(g_farTileKeyToIdx, cx, cy, cz);
+}
+extern "C" JNIEXPORT void JNICALL
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nSetChunkTranslucentIndices(
+    JNIEnv *, jclass, jint cx, jint cy, jint cz, jlong bufferHandle,
+    jint byteOffset) {
+  int64_t key = packMeshKey(cx, cy, cz);
+  std::unique_lock<std::shared_mutex> lock(g_meshRegMutex);
+  auto it = g_meshKeyToIdx.find(key);
+  if (it == g_meshKeyToIdx.end())
+    return;
+  NativeMesh &m = g_nativeMeshes[it->second];
+  m.sortedIndexHandle = (uint64_t)bufferHandle;
+  m.sortedIndexOffset = (uint64_t)byteOffset;
+}
 extern "C" JNIEXPORT jint JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawAllVisibleChunks(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nDrawAllVisibleChunks(
     JNIEnv *, jclass, jlong frameContext, jlong indexBuffer) {
   (void)frameContext;
   uint64_t _prof_t0 = mach_absolute_time();
@@ -1744,6 +1979,13 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawAllVisibleChun
     float distSq;
     float ox, oy, oz;
     bool isMega;
+    float extentXZ, extentY;
+    uint32_t faceMask;
+    int32_t faceQuads[7];
+    int vertexFormat;
+    uint32_t paletteOffset;
+    uint64_t sortedIndexHandle;
+    uint64_t sortedIndexOffset;
   };
   static DrawCmd *s_cmds = nullptr;
   static int s_cmdsCapacity = 0;
@@ -1771,10 +2013,11 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawAllVisibleChun
       float ox = nm.chunkX * 16.0f - camX;
       float oy = nm.chunkY * 16.0f - camY;
       float oz = nm.chunkZ * 16.0f - camZ;
-      if (!frustumTestAABB(frustumPlanes, ox, oy, oz, ox + 16.0f, oy + 16.0f,
-                           oz + 16.0f))
+      float exz = nm.extentXZ, ey = nm.extentY;
+      if (!frustumTestAABB(frustumPlanes, ox, oy, oz, ox + exz, oy + ey,
+                           oz + exz))
         continue;
-      float cx = ox + 8.0f, cy = oy + 8.0f, cz = oz + 8.0f;
+      float cx = ox + exz * 0.5f, cy = oy + ey * 0.5f, cz = oz + exz * 0.5f;
       int idxCount = nm.quadCount * 6;
       int opaqueIdxCount = nm.opaqueQuadCount * 6;
       float distSq = cx * cx + cy * cy + cz * cz;
@@ -1784,7 +2027,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawAllVisibleChun
         if (it == g_megaAllocs.end())
           continue;
         s_cmds[validCount] = {nm.bufferHandle,
-                              it->second.offset,
+                              it->second.offset + nm.byteOffset,
                               idxCount,
                               opaqueIdxCount,
                               distSq,
@@ -1795,7 +2038,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawAllVisibleChun
         megaCount++;
       } else {
         s_cmds[validCount] = {nm.bufferHandle,
-                              0,
+                              nm.byteOffset,
                               idxCount,
                               opaqueIdxCount,
                               distSq,
@@ -1804,6 +2047,13 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawAllVisibleChun
                               oz,
                               false};
       }
+      memcpy(s_cmds[validCount].faceQuads, nm.faceQuads, sizeof(nm.faceQuads));
+      s_cmds[validCount].vertexFormat = nm.vertexFormat;
+      s_cmds[validCount].paletteOffset = nm.paletteOffset;
+      s_cmds[validCount].sortedIndexHandle = nm.sortedIndexHandle;
+      s_cmds[validCount].sortedIndexOffset = nm.sortedIndexOffset;
+      s_cmds[validCount].extentXZ = exz;
+      s_cmds[validCount].extentY = ey;
       validCount++;
     }
   } 
@@ -1827,7 +2077,8 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawAllVisibleChun
     int occluded = 0;
     for (int i = 0; i < validCount; i++) {
       float minX = s_cmds[i].ox, minY = s_cmds[i].oy, minZ = s_cmds[i].oz;
-      float maxX = minX + 16.0f, maxY = minY + 16.0f, maxZ = minZ + 16.0f;
+      float maxX = minX + s_cmds[i].extentXZ, maxY = minY + s_cmds[i].extentY,
+            maxZ = minZ + s_cmds[i].extentXZ;
       float ssMinX = 1e10f, ssMinY = 1e10f;
       float ssMaxX = -1e10f, ssMaxY = -1e10f;
       float nearestDepth = 1.0f;
@@ -1931,32 +2182,128 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawAllVisibleChun
     offBuf[i * 4 + 0] = s_cmds[i].ox;
     offBuf[i * 4 + 1] = s_cmds[i].oy;
     offBuf[i * 4 + 2] = s_cmds[i].oz;
-    float cx = s_cmds[i].ox + 8.0f; 
-    float cy = s_cmds[i].oy + 8.0f;
-    float cz = s_cmds[i].oz + 8.0f;
+    float hxz = s_cmds[i].extentXZ * 0.5f;
+    float hy = s_cmds[i].extentY * 0.5f;
+    float cx = s_cmds[i].ox + hxz; 
+    float cy = s_cmds[i].oy + hy;
+    float cz = s_cmds[i].oz + hxz;
     uint32_t faceMask = 0x3F; 
-    const float margin = 8.0f;
-    if (cy > margin)
+    if (cy > hy)
       faceMask &= ~(1u << 1); 
-    if (cy < -margin)
+    if (cy < -hy)
       faceMask &= ~(1u << 0); 
-    if (cz < -margin)
+    if (cz < -hxz)
       faceMask &= ~(1u << 2); 
-    if (cz > margin)
+    if (cz > hxz)
       faceMask &= ~(1u << 3); 
-    if (cx < -margin)
+    if (cx < -hxz)
       faceMask &= ~(1u << 4); 
-    if (cx > margin)
+    if (cx > hxz)
       faceMask &= ~(1u << 5); 
     float maskAsFloat;
     memcpy(&maskAsFloat, &faceMask, sizeof(float));
     offBuf[i * 4 + 3] = maskAsFloat;
+    s_cmds[i].faceMask = faceMask;
+  }
+  QuadRun runs[4];
+  int megaRunCount = 0;
+  int compactCount = 0;
+  for (int i = 0; i < validCount; i++) {
+    if (s_cmds[i].vertexFormat == VERTEX_FORMAT_COMPACT)
+      compactCount++;
+    else if (s_cmds[i].isMega)
+      megaRunCount +=
+          opaqueQuadRuns(s_cmds[i].faceQuads, s_cmds[i].faceMask, runs);
+  }
+  static id<MTLBuffer> s_paletteBaseBuf = nil;
+  if (compactCount > 0 &&
+      (!s_paletteBaseBuf || [s_paletteBaseBuf length] < (size_t)validCount * 4)) {
+    s_paletteBaseBuf =
+        [g_device newBufferWithLength:(size_t)validCount * 8
+                              options:MTLResourceStorageModeShared];
   }
+  if (compactCount > 0) {
+    uint32_t *paletteBases = (uint32_t *)[s_paletteBaseBuf contents];
+    for (int i = 0; i < validCount; i++) {
+      size_t base = s_cmds[i].isMega ? s_cmds[i].megaOffset : 0;
+      paletteBases[i] = (uint32_t)((base + s_cmds[i].paletteOffset) / 4);
+    }
+  }
+  auto waterIndexBuffer = [&](const DrawCmd &cmd, id<MTLBuffer> *outBuf,
+                              NSUInteger *outOffset) {
+    *outBuf = ib;
+    *outOffset = ibOffset;
+    if (cmd.sortedIndexHandle == 0)
+      return;
+    ResolvedBuf res = resolve_buffer(cmd.sortedIndexHandle);
+    if (!res.buf)
+      return;
+    *outBuf = res.buf;
+    *outOffset = (NSUInteger)(res.offset + cmd.sortedIndexOffset);
+  };
+  auto drawCompactPass = [&](bool water) {
+    if (compactCount == 0 || !g_pipelineCompact)
+      return;
+    id<MTLRenderPipelineState> previous = g_currentPipeline;
+    [g_currentEncoder setRenderPipelineState:g_pipelineCompact];
+    [g_currentEncoder setVertexBuffer:s_paletteBaseBuf offset:0 atIndex:5];
+    for (int n = 0; n < validCount; n++) {
+      int i = water ? validCount - 1 - n : n;
+      const DrawCmd &cmd = s_cmds[i];
+      if (cmd.vertexFormat != VERTEX_FORMAT_COMPACT)
+        continue;
+      int runCount;
+      id<MTLBuffer> runIB = ib;
+      NSUInteger runIBOffset = ibOffset;
+      if (water) {
+        int waterQuads = (cmd.idxCount - cmd.opaqueIdxCount) / 6;
+        if (waterQuads <= 0)
+          continue;
+        runs[0] = {cmd.opaqueIdxCount / 6, waterQuads};
+        runCount = 1;
+        waterIndexBuffer(cmd, &runIB, &runIBOffset);
+      } else {
+        runCount = opaqueQuadRuns(cmd.faceQuads, cmd.faceMask, runs);
+      }
+      if (runCount == 0)
+        continue;
+      NSInteger baseVertex = 0;
+      if (cmd.isMega) {
+        baseVertex = (NSInteger)(cmd.megaOffset /
+                                 vertexStrideFor(VERTEX_FORMAT_COMPACT));
+      } else {
+        ResolvedBuf vbRes = resolve_buffer(cmd.bufHandle);
+        if (!vbRes.buf)
+          continue;
+        [g_currentEncoder setVertexBuffer:vbRes.buf
+                                   offset:(NSUInteger)(vbRes.offset +
+                                                       cmd.megaOffset)
+                                  atIndex:0];
+      }
+      for (int r = 0; r < runCount; r++) {
+        [g_currentEncoder drawIndexedPrimitives:MTLPrimitiveTypeTriangle
+                                     indexCount:(NSUInteger)(runs[r].count * 6)
+                                      indexType:MTLIndexTypeUInt32
+                                    indexBuffer:runIB
+                              indexBufferOffset:runIBOffset
+                                  instanceCount:1
+                                     baseVertex:baseVertex + runs[r].first * 4
+                                   baseInstance:(NSUInteger)i];
+        g_drawCallCount++;
+      }
+      if (!cmd.isMega && g_megaVB) {
+        [g_currentEncoder setVertexBuffer:g_megaVB offset:0 atIndex:0];
+      }
+    }
+    if (previous) {
+      [g_currentEncoder setRenderPipelineState:previous];
+    }
+  };
   if (g_megaVB) {
     [g_currentEncoder setVertexBuffer:g_megaVB offset:0 atIndex:0];
   }
   [g_currentEncoder setVertexBuffer:g_v18OffsetBuf offset:0 atIndex:4];
-  bool canICB = (megaCount > 0 && g_megaVB && g_pipelineInhouseICB &&
+  bool canICB = (megaRunCount > 0 && g_megaVB && g_pipelineInhouseICB &&
                  g_fragArgBuf && g_fragArgEncoder && g_blockAtlas);
   if (canICB) {
     [g_currentEncoder setRenderPipelineState:g_pipelineInhouseICB];
@@ -1967,8 +2314,8 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawAllVisibleChun
     [g_currentEncoder useResource:g_blockAtlas
                             usage:MTLResourceUsageRead
                            stages:MTLRenderStageFragment];
-    if (!g_icb || g_icbMaxCommands < (NSUInteger)megaCount) {
-      NSUInteger newSize = MAX(ICB_INITIAL_SIZE, (NSUInteger)megaCount * 2);
+    if (!g_icb || g_icbMaxCommands < (NSUInteger)megaRunCount) {
+      NSUInteger newSize = MAX(ICB_INITIAL_SIZE, (NSUInteger)megaRunCount * 2);
       MTLIndirectCommandBufferDescriptor *desc =
           [MTLIndirectCommandBufferDescriptor new];
       desc.commandTypes = MTLIndirectCommandTypeDrawIndexed;
@@ -1980,38 +2327,29 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawAllVisibleChun
                                          options:MTLResourceStorageModeShared];
       g_icbMaxCommands = newSize;
     }
-    [g_icb resetWithRange:NSMakeRange(0, (NSUInteger)megaCount)];
+    [g_icb resetWithRange:NSMakeRange(0, (NSUInteger)megaRunCount)];
     int icbIdx = 0;
     for (int i = 0; i < validCount; i++) {
-      if (!s_cmds[i].isMega)
+      if (!s_cmds[i].isMega ||
+          s_cmds[i].vertexFormat == VERTEX_FORMAT_COMPACT)
         continue;
-      int opaqueIdx = s_cmds[i].opaqueIdxCount;
-      if (opaqueIdx <= 0) {
-        icbIdx++; 
+      int runCount =
+          opaqueQuadRuns(s_cmds[i].faceQuads, s_cmds[i].faceMask, runs);
+      for (int r = 0; r < runCount; r++) {
         id<MTLIndirectRenderCommand> icmd =
-            [g_icb indirectRenderCommandAtIndex:(NSUInteger)(icbIdx - 1)];
+            [g_icb indirectRenderCommandAtIndex:(NSUInteger)icbIdx];
         [icmd drawIndexedPrimitives:MTLPrimitiveTypeTriangle
-                         indexCount:0
+                         indexCount:(NSUInteger)(runs[r].count * 6)
                           indexType:MTLIndexTypeUInt32
                         indexBuffer:ib
                   indexBufferOffset:ibOffset
                       instanceCount:1
-                         baseVertex:0
+                         baseVertex:(NSInteger)(s_cmds[i].megaOffset /
+                                                VERTEX_STRIDE) +
+                                    runs[r].first * 4
                        baseInstance:(NSUInteger)i];
-        continue;
+        icbIdx++;
       }
-      id<MTLIndirectRenderCommand> icmd =
-          [g_icb indirectRenderCommandAtIndex:(NSUInteger)icbIdx];
-      [icmd drawIndexedPrimitives:MTLPrimitiveTypeTriangle
-                       indexCount:(NSUInteger)opaqueIdx
-                        indexType:MTLIndexTypeUInt32
-                      indexBuffer:ib
-                indexBufferOffset:ibOffset
-                    instanceCount:1
-                       baseVertex:(NSInteger)(s_cmds[i].megaOffset /
-                                              VERTEX_STRIDE)
-                     baseInstance:(NSUInteger)i];
-      icbIdx++;
     }
     [g_currentEncoder
         executeCommandsInBuffer:g_icb
@@ -2023,68 +2361,86 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawAllVisibleChun
       [g_currentEncoder setFragmentTexture:g_blockAtlas atIndex:0];
     }
     for (int i = 0; i < validCount; i++) {
-      if (s_cmds[i].isMega)
+      if (s_cmds[i].isMega ||
+          s_cmds[i].vertexFormat == VERTEX_FORMAT_COMPACT)
         continue;
-      int opaqueIdx = s_cmds[i].opaqueIdxCount;
-      if (opaqueIdx <= 0)
+      int runCount =
+          opaqueQuadRuns(s_cmds[i].faceQuads, s_cmds[i].faceMask, runs);
+      if (runCount == 0)
         continue;
       ResolvedBuf vbRes = resolve_buffer(s_cmds[i].bufHandle);
       if (vbRes.buf) {
         [g_currentEncoder setVertexBuffer:vbRes.buf
-                                   offset:(NSUInteger)vbRes.offset
+                                   offset:(NSUInteger)(vbRes.offset +
+                                                       s_cmds[i].megaOffset)
                                   atIndex:0];
-        [g_currentEncoder drawIndexedPrimitives:MTLPrimitiveTypeTriangle
-                                     indexCount:(NSUInteger)opaqueIdx
-                                      indexType:MTLIndexTypeUInt32
-                                    indexBuffer:ib
-                              indexBufferOffset:ibOffset
-                                  instanceCount:1
-                                     baseVertex:0
-                                   baseInstance:(NSUInteger)i];
+        for (int r = 0; r < runCount; r++) {
+          [g_currentEncoder
+              drawIndexedPrimitives:MTLPrimitiveTypeTriangle
+                         indexCount:(NSUInteger)(runs[r].count * 6)
+                          indexType:MTLIndexTypeUInt32
+                        indexBuffer:ib
+                  indexBufferOffset:ibOffset
+                      instanceCount:1
+                         baseVertex:runs[r].first * 4
+                       baseInstance:(NSUInteger)i];
+          g_drawCallCount++;
+        }
       }
-      g_drawCallCount++;
     }
     if (g_megaVB) {
       [g_currentEncoder setVertexBuffer:g_megaVB offset:0 atIndex:0];
     }
   } else {
     for (int i = 0; i < validCount; i++) {
-      int opaqueIdx = s_cmds[i].opaqueIdxCount;
-      if (opaqueIdx <= 0)
+      if (s_cmds[i].vertexFormat == VERTEX_FORMAT_COMPACT)
+        continue;
+      int runCount =
+          opaqueQuadRuns(s_cmds[i].faceQuads, s_cmds[i].faceMask, runs);
+      if (runCount == 0)
         continue;
       if (s_cmds[i].isMega) {
-        [g_currentEncoder
-            drawIndexedPrimitives:MTLPrimitiveTypeTriangle
-                       indexCount:(NSUInteger)opaqueIdx
-                        indexType:MTLIndexTypeUInt32
-                      indexBuffer:ib
-                indexBufferOffset:ibOffset
-                    instanceCount:1
-                       baseVertex:(NSInteger)(s_cmds[i].megaOffset /
-                                              VERTEX_STRIDE)
-                     baseInstance:(NSUInteger)i];
+        for (int r = 0; r < runCount; r++) {
+          [g_currentEncoder
+              drawIndexedPrimitives:MTLPrimitiveTypeTriangle
+                         indexCount:(NSUInteger)(runs[r].count * 6)
+                          indexType:MTLIndexTypeUInt32
+                        indexBuffer:ib
+                  indexBufferOffset:ibOffset
+                      instanceCount:1
+                         baseVertex:(NSInteger)(s_cmds[i].megaOffset /
+                                                VERTEX_STRIDE) +
+                                    runs[r].first * 4
+                       baseInstance:(NSUInteger)i];
+          g_drawCallCount++;
+        }
       } else {
         ResolvedBuf vbRes = resolve_buffer(s_cmds[i].bufHandle);
         if (vbRes.buf) {
           [g_currentEncoder setVertexBuffer:vbRes.buf
-                                     offset:(NSUInteger)vbRes.offset
+                                     offset:(NSUInteger)(vbRes.offset +
+                                                         s_cmds[i].megaOffset)
                                     atIndex:0];
-          [g_currentEncoder drawIndexedPrimitives:MTLPrimitiveTypeTriangle
-                                       indexCount:(NSUInteger)opaqueIdx
-                                        indexType:MTLIndexTypeUInt32
-                                      indexBuffer:ib
-                                indexBufferOffset:ibOffset
-                                    instanceCount:1
-                                       baseVertex:0
-                                     baseInstance:(NSUInteger)i];
+          for (int r = 0; r < runCount; r++) {
+            [g_currentEncoder
+                drawIndexedPrimitives:MTLPrimitiveTypeTriangle
+                           indexCount:(NSUInteger)(runs[r].count * 6)
+                            indexType:MTLIndexTypeUInt32
+                          indexBuffer:ib
+                    indexBufferOffset:ibOffset
+                        instanceCount:1
+                           baseVertex:runs[r].first * 4
+                         baseInstance:(NSUInteger)i];
+            g_drawCallCount++;
+          }
           if (g_megaVB) {
             [g_currentEncoder setVertexBuffer:g_megaVB offset:0 atIndex:0];
           }
         }
       }
-      g_drawCallCount++;
     }
   }
+  drawCompactPass(false);
   int waterDraws = 0;
   for (int i = 0; i < validCount; i++) {
     int waterIdxCount = s_cmds[i].idxCount - s_cmds[i].opaqueIdxCount;
@@ -2097,18 +2453,22 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawAllVisibleChun
     if (g_megaVB) {
       [g_currentEncoder setVertexBuffer:g_megaVB offset:0 atIndex:0];
     }
-    for (int i = 0; i < validCount; i++) {
+    for (int i = validCount - 1; i >= 0; i--) {
       int waterIdxCount = s_cmds[i].idxCount - s_cmds[i].opaqueIdxCount;
-      if (waterIdxCount <= 0)
+      if (waterIdxCount <= 0 ||
+          s_cmds[i].vertexFormat == VERTEX_FORMAT_COMPACT)
         continue;
       int opaqueVertCount = s_cmds[i].opaqueIdxCount / 6 * 4;
+      id<MTLBuffer> waterIB;
+      NSUInteger waterIBOffset;
+      waterIndexBuffer(s_cmds[i], &waterIB, &waterIBOffset);
       if (s_cmds[i].isMega) {
         [g_currentEncoder
             drawIndexedPrimitives:MTLPrimitiveTypeTriangle
                        indexCount:(NSUInteger)waterIdxCount
                         indexType:MTLIndexTypeUInt32
-                      indexBuffer:ib
-                indexBufferOffset:ibOffset
+                      indexBuffer:waterIB
+                indexBufferOffset:waterIBOffset
                     instanceCount:1
                        baseVertex:(NSInteger)(s_cmds[i].megaOffset /
                                               VERTEX_STRIDE) +
@@ -2118,13 +2478,14 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawAllVisibleChun
         ResolvedBuf vbRes = resolve_buffer(s_cmds[i].bufHandle);
         if (vbRes.buf) {
           [g_currentEncoder setVertexBuffer:vbRes.buf
-                                     offset:(NSUInteger)vbRes.offset
+                                     offset:(NSUInteger)(vbRes.offset +
+                                                     s_cmds[i].megaOffset)
                                     atIndex:0];
           [g_currentEncoder drawIndexedPrimitives:MTLPrimitiveTypeTriangle
                                        indexCount:(NSUInteger)waterIdxCount
                                         indexType:MTLIndexTypeUInt32
-                                      indexBuffer:ib
-                                indexBufferOffset:ibOffset
+                                      indexBuffer:waterIB
+                                indexBufferOffset:waterIBOffset
                                     instanceCount:1
                                        baseVertex:opaqueVertCount
                                      baseInstance:(NSUInteger)i];
@@ -2135,6 +2496,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawAllVisibleChun
       }
       g_drawCallCount++;
     }
+    drawCompactPass(true);
     [g_currentEncoder setDepthStencilState:g_depthState];
   }
   if (g_frameCount < 5 || g_frameCount % 600 == 0) {
@@ -2146,7 +2508,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawAllVisibleChun
   return (jint)validCount;
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawBuffer(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nDrawBuffer(
     JNIEnv *, jclass, jlong frameContext, jlong vertexBuffer, jint vertexCount,
     jint baseVertex) {
   (void)frameContext;
@@ -2171,7 +2533,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawBuffer(
                        vertexCount:(NSUInteger)vertexCount];
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nSetDebugColor(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nSetDebugColor(
     JNIEnv *, jclass, jlong frameContext, jfloat r, jfloat g, jfloat b,
     jfloat a) {
   (void)frameContext;
@@ -2181,7 +2543,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nSetDebugColor(
   [g_currentEncoder setVertexBytes:color length:sizeof(color) atIndex:5];
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawLineBuffer(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nDrawLineBuffer(
     JNIEnv *, jclass, jlong frameContext, jlong vertexBuffer,
     jint vertexCount) {
   (void)frameContext;
@@ -2214,7 +2576,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawLineBuffer(
   }
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawTriangleBuffer(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nDrawTriangleBuffer(
     JNIEnv *, jclass, jlong frameContext, jlong vertexBuffer,
     jint vertexCount) {
   (void)frameContext;
@@ -2240,7 +2602,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawTriangleBuffer
   }
 }
 extern "C" JNIEXPORT jlong JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nGetCurrentFrameContext(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nGetCurrentFrameContext(
     JNIEnv *, jclass, jlong handle) {
   (void)handle;
   if (!g_device || !g_queue || !g_color || !g_depth)
@@ -2310,7 +2672,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nGetCurrentFrameCon
   return (jlong)0x1;
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nEndFrame(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nEndFrame(
     JNIEnv *, jclass, jlong handle) {
   (void)handle;
   uint64_t _prof_ef_t0 = mach_absolute_time();
@@ -2570,7 +2932,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nEndFrame(
   }
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nSetProjectionMatrix(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nSetProjectionMatrix(
     JNIEnv *env, jclass, jlong handle, jfloatArray matrix) {
   (void)handle;
   if (matrix && env->GetArrayLength(matrix) >= 16) {
@@ -2581,7 +2943,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nSetProjectionMatri
   }
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nSetModelViewMatrix(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nSetModelViewMatrix(
     JNIEnv *env, jclass, jlong handle, jfloatArray matrix) {
   (void)handle;
   if (matrix && env->GetArrayLength(matrix) >= 16) {
@@ -2592,7 +2954,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nSetModelViewMatrix
   }
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nSetCameraPosition(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nSetCameraPosition(
     JNIEnv *, jclass, jlong handle, jdouble x, jdouble y, jdouble z) {
   (void)handle;
   g_camX = x;
@@ -2604,7 +2966,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nSetCameraPosition(
   }
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nBindTexture(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nBindTexture(
     JNIEnv *, jclass, jlong handle, jlong textureHandle, jint slot) {
   (void)handle;
   if (textureHandle == 0)
@@ -2619,7 +2981,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nBindTexture(
   }
 }
 extern "C" JNIEXPORT jlong JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nCreateTexture2D(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nCreateTexture2D(
     JNIEnv *env, jclass, jlong deviceHandle, jint width, jint height,
     jbyteArray pixelData) {
   (void)deviceHandle;
@@ -2651,7 +3013,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nCreateTexture2D(
   return (jlong)(uintptr_t)(__bridge_retained void *)tex;
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nUpdateTexture2D(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nUpdateTexture2D(
     JNIEnv *env, jclass, jlong textureHandle, jint width, jint height,
     jbyteArray pixelData) {
   if (!textureHandle || width <= 0 || height <= 0)
@@ -2671,55 +3033,55 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nUpdateTexture2D(
   }
 }
 extern "C" JNIEXPORT jlong JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nGetDeviceHandle(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nGetDeviceHandle(
     JNIEnv *, jclass, jlong handle) {
   (void)handle;
   return (jlong)(uintptr_t)(__bridge void *)g_device;
 }
 extern "C" JNIEXPORT jlong JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nGetShaderLibraryHandle(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nGetShaderLibraryHandle(
     JNIEnv *, jclass, jlong handle) {
   (void)handle;
   return 0;
 }
 extern "C" JNIEXPORT jlong JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nGetInhousePipelineHandle(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nGetInhousePipelineHandle(
     JNIEnv *, jclass, jlong handle) {
   (void)handle;
   return (jlong)(uintptr_t)(__bridge void *)g_pipelineOpaque;
 }
 extern "C" JNIEXPORT jlong JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nGetDefaultPipelineHandle(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nGetDefaultPipelineHandle(
     JNIEnv *, jclass, jlong handle) {
   (void)handle;
   return (jlong)(uintptr_t)(__bridge void *)g_pipelineOpaque;
 }
 extern "C" JNIEXPORT jint JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nGetGLTextureId(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nGetGLTextureId(
     JNIEnv *, jclass, jlong handle) {
   (void)handle;
   return 0;
 }
 extern "C" JNIEXPORT jint JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nGetIOSurfaceWidth(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nGetIOSurfaceWidth(
     JNIEnv *, jclass, jlong handle) {
   (void)handle;
   return g_rtWidth;
 }
 extern "C" JNIEXPORT jint JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nGetIOSurfaceHeight(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nGetIOSurfaceHeight(
     JNIEnv *, jclass, jlong handle) {
   (void)handle;
   return g_rtHeight;
 }
 extern "C" JNIEXPORT jboolean JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nIsFrameReady(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nIsFrameReady(
     JNIEnv *, jclass, jlong handle) {
   (void)handle;
   return g_currentFrameReady ? JNI_TRUE : JNI_FALSE;
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nWaitForRender(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nWaitForRender(
     JNIEnv *, jclass, jlong handle) {
   (void)handle;
   uint64_t _prof_wr_t0 = mach_absolute_time();
@@ -2729,7 +3091,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nWaitForRender(
   g_prof_waitRender_acc += (mach_absolute_time() - _prof_wr_t0);
 }
 extern "C" JNIEXPORT jboolean JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nBindIOSurfaceToTexture(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nBindIOSurfaceToTexture(
     JNIEnv *, jclass, jlong handle, jint glTexture) {
   (void)handle;
   uint64_t _prof_cgl_t0 = mach_absolute_time();
@@ -2749,7 +3111,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nBindIOSurfaceToTex
   return (err == kCGLNoError) ? JNI_TRUE : JNI_FALSE;
 }
 extern "C" JNIEXPORT jboolean JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nReadbackPixels(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nReadbackPixels(
     JNIEnv *env, jclass, jlong handle, jobject dest) {
   (void)handle;
   if (!g_color || !dest || !env)
@@ -2769,7 +3131,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nReadbackPixels(
   return JNI_TRUE;
 }
 extern "C" JNIEXPORT jboolean JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nReadbackDepth(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nReadbackDepth(
     JNIEnv *env, jclass, jlong handle, jobject dest) {
   (void)handle;
   if (!g_depthReadBuffer || !dest || !env)
@@ -2790,31 +3152,31 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nReadbackDepth(
   return JNI_TRUE;
 }
 extern "C" JNIEXPORT jlong JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nGetEntityPipelineHandle(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nGetEntityPipelineHandle(
     JNIEnv *, jclass, jlong handle) {
   (void)handle;
   return (jlong)(uintptr_t)(__bridge void *)g_pipelineEntity;
 }
 extern "C" JNIEXPORT jlong JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nGetEntityTranslucentPipelineHandle(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nGetEntityTranslucentPipelineHandle(
     JNIEnv *, jclass, jlong handle) {
   (void)handle;
   return (jlong)(uintptr_t)(__bridge void *)g_pipelineEntityTranslucent;
 }
 extern "C" JNIEXPORT jlong JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nGetEntityEmissivePipelineHandle(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nGetEntityEmissivePipelineHandle(
     JNIEnv *, jclass, jlong handle) {
   (void)handle;
   return (jlong)(uintptr_t)(__bridge void *)g_pipelineEntityEmissive;
 }
 extern "C" JNIEXPORT jlong JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nGetParticlePipelineHandle(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nGetParticlePipelineHandle(
     JNIEnv *, jclass, jlong handle) {
   (void)handle;
   return (jlong)(uintptr_t)(__bridge void *)g_pipelineParticle;
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nSetEntityOverlay(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nSetEntityOverlay(
     JNIEnv *, jclass, jlong frameContext, jfloat hurtTime, jfloat whiteFlash,
     jfloat alpha) {
   (void)frameContext;
@@ -2824,7 +3186,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nSetEntityOverlay(
   g_entityOverlayParams[3] = alpha;
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nSetEntityTintColor(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nSetEntityTintColor(
     JNIEnv *, jclass, jlong frameContext, jfloat r, jfloat g, jfloat b,
     jfloat a) {
   (void)frameContext;
@@ -2834,7 +3196,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nSetEntityTintColor
   g_entityTintColor[3] = a;
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nBindEntityTexture(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nBindEntityTexture(
     JNIEnv *, jclass, jlong frameContext, jlong textureHandle) {
   (void)frameContext;
   if (textureHandle == 0) {
@@ -2851,7 +3213,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nBindEntityTexture(
   }
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawEntityBuffer(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nDrawEntityBuffer(
     JNIEnv *, jclass, jlong frameContext, jlong vertexBuffer, jint vertexCount,
     jint baseVertex, jint renderFlags) {
   (void)frameContext;
@@ -2910,7 +3272,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawEntityBuffer(
   g_drawCallCount++;
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nDrawEntityBufferIndexed(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nDrawEntityBufferIndexed(
     JNIEnv *, jclass, jlong frameContext, jlong vertexBuffer, jlong indexBuffer,
     jint indexCount, jint baseIndex, jint renderFlags) {
   (void)frameContext;
@@ -2971,7 +3333,7 @@ struct CameraUniformsCPU {
   uint32_t _pad;            
 };
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nUploadCameraUniforms(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nUploadCameraUniforms(
     JNIEnv *env, jclass, jlong handle, jfloatArray viewProj, jfloatArray proj,
     jfloatArray modelView, jfloatArray cameraPos, jfloatArray frustumPlanes,
     jfloat screenW, jfloat screenH, jfloat nearPlane, jfloat farPlane,
@@ -3002,7 +3364,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nUploadCameraUnifor
   u->_pad = 0;
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nUploadSubChunkData(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nUploadSubChunkData(
     JNIEnv *env, jclass, jlong handle, jobject directBuffer, jint count) {
   (void)handle;
   if (!g_device || !directBuffer || count <= 0)
@@ -3030,7 +3392,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nUploadSubChunkData
   }
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nSetGPUDrivenEnabled(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nSetGPUDrivenEnabled(
     JNIEnv *, jclass, jlong handle, jboolean enabled) {
   (void)handle;
   g_gpuDrivenEnabled = (enabled == JNI_TRUE);
@@ -3040,7 +3402,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nSetGPUDrivenEnable
 static id<MTLTexture> g_hizFallbackTexture = nil;
 static int g_cullMode = 0;
 extern "C" JNIEXPORT jint JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nRunGPUCulling(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nRunGPUCulling(
     JNIEnv *, jclass, jlong handle, jint chunkCount) {
   (void)handle;
   if (!g_device || chunkCount <= 0)
@@ -3134,7 +3496,7 @@ cpu_path:
   }
 }
 extern "C" JNIEXPORT jint JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nGetGPUVisibleCount(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nGetGPUVisibleCount(
     JNIEnv *, jclass, jlong handle) {
   (void)handle;
   if (!g_cullDrawCountBuffer)
@@ -3143,7 +3505,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nGetGPUVisibleCount
   return (jint)(*count);
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nExecuteIndirectDraws(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nExecuteIndirectDraws(
     JNIEnv *, jclass, jlong frameContext, jlong vertexBuffer,
     jlong indexBuffer) {
   (void)frameContext;
@@ -3220,17 +3582,17 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nExecuteIndirectDra
   }
 }
 extern "C" JNIEXPORT jint JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nGetThermalState(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nGetThermalState(
     JNIEnv *, jclass) {
   return (jint)g_thermalState;
 }
 extern "C" JNIEXPORT jint JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nGetThermalLODReduction(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nGetThermalLODReduction(
     JNIEnv *, jclass) {
   return (jint)g_lodRadiusReduction;
 }
 extern "C" JNIEXPORT jlong JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nGetAvailableMemory(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nGetAvailableMemory(
     JNIEnv *, jclass) {
   mach_port_t host = mach_host_self();
   vm_size_t pageSize;
@@ -3245,12 +3607,12 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nGetAvailableMemory
   return (jlong)(2ULL * 1024 * 1024 * 1024);
 }
 extern "C" JNIEXPORT jint JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nGetHiZMipCount(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nGetHiZMipCount(
     JNIEnv *, jclass) {
   return (jint)g_hizMipCount;
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nGetGPUCullStats(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nGetGPUCullStats(
     JNIEnv *env, jclass, jintArray outStats) {
   if (!outStats || !g_cullStatsBuffer)
     return;
@@ -3262,7 +3624,7 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nGetGPUCullStats(
   env->SetIntArrayRegion(outStats, 0, 5, jstats);
 }
 extern "C" JNIEXPORT void JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nUploadChunkUniforms(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nUploadChunkUniforms(
     JNIEnv *env, jclass, jlong handle, jobject directBuffer, jint count) {
   (void)handle;
   if (!g_device || !directBuffer || count <= 0)
@@ -3283,12 +3645,12 @@ Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nUploadChunkUniform
   memcpy([g_chunkUniformsBuffer contents], ptr, totalSize);
 }
 extern "C" JNIEXPORT jboolean JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nAreMeshShadersActive(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nAreMeshShadersActive(
     JNIEnv *, jclass) {
   return g_meshShadersActive ? JNI_TRUE : JNI_FALSE;
 }
 extern "C" JNIEXPORT jboolean JNICALL
-Java_com_pebbles_1boon_metalrender_nativebridge_NativeBridge_nIsGPUDrivenActive(
+Java_com_pebbles_1boon_metalrender_nativebridge_MetalNatives_nIsGPUDrivenActive(
     JNIEnv *, jclass) {
   return g_gpuDrivenEnabled ? JNI_TRUE : JNI_FALSE;
 }
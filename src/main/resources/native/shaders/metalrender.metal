@@ -61,8 +61,17 @@ struct SimpleVertexOut {
     float2 lightUV;
     half  light;
     uint   normalIndex [[flat]];
+    float2 tileUV;
+    float4 spriteRect [[flat]];
 };
 
+static inline float2 terrainTexCoord(SimpleVertexOut in) {
+    if (in.spriteRect.z <= 0.0f) {
+        return in.texCoord;
+    }
+    return in.spriteRect.xy + fract(in.tileUV) * in.spriteRect.zw;
+}
+
 static inline half3 applyUnderwaterFog(half3 rgb, half fogDist, constant float4& overlayParams) {
     float waterFog = overlayParams.z;
     if (waterFog <= 0.0f) {
@@ -93,6 +102,8 @@ vertex SimpleVertexOut vertex_terrain(
                                 out.lightUV.y * cameraPosition.w), 0.15f));
 
     out.normalIndex = (v.lightData >> 16) & 0x7;
+    out.tileUV = float2(0.0f);
+    out.spriteRect = float4(0.0f);
     return out;
 }
 
@@ -102,7 +113,7 @@ fragment half4 fragment_terrain(
     texture2d<half> lightmap    [[texture(1)]]
 ) {
     constexpr sampler texSampler(mag_filter::nearest, min_filter::nearest, mip_filter::nearest);
-    half4 texColor = blockAtlas.sample(texSampler, in.texCoord);
+    half4 texColor = blockAtlas.sample(texSampler, terrainTexCoord(in));
     half vertAlpha = in.color.a;
     if (texColor.a < half(0.5)) {
         if (vertAlpha > half(0.994) && vertAlpha < half(0.998)) {
@@ -126,7 +137,7 @@ fragment half4 fragment_terrain_cutout(
     texture2d<half> lightmap    [[texture(1)]]
 ) {
     constexpr sampler texSampler(mag_filter::nearest, min_filter::nearest, mip_filter::nearest);
-    half4 texColor = blockAtlas.sample(texSampler, in.texCoord);
+    half4 texColor = blockAtlas.sample(texSampler, terrainTexCoord(in));
     if (texColor.a < half(0.5)) discard_fragment();
     half4 tinted = texColor * in.color;
     half faceShade = kFaceShade[min(in.normalIndex, 5u)];
@@ -165,6 +176,8 @@ vertex SimpleVertexOut vertex_terrain_inhouse(
             out.lightUV  = float2(0.0f);
             out.light    = 0.0h;
             out.normalIndex = 1;
+            out.tileUV   = float2(0.0f);
+            out.spriteRect = float4(0.0f);
             return out;
         }
     }
@@ -181,6 +194,93 @@ vertex SimpleVertexOut vertex_terrain_inhouse(
     out.light = half(max(max(out.lightUV.x,
                              out.lightUV.y * cameraPosition.w), 0.15f));
     out.normalIndex = uint(v.normalIndex & 0x7);
+    out.tileUV = float2(0.0f);
+    out.spriteRect = float4(0.0f);
+    if ((v.normalIndex & 0x8) != 0) {
+        uint quadBase = vid & ~3u;
+        InhouseTerrainVertex c0 = vertices[quadBase];
+        InhouseTerrainVertex c2 = vertices[quadBase + 2];
+        float2 uv0 = float2(c0.texCoord) / 65535.0;
+        float2 uv2 = float2(c2.texCoord) / 65535.0;
+        float2 spriteMin = min(uv0, uv2);
+        float2 spriteSize = max(abs(uv2 - uv0), float2(1e-6f));
+        float3 span = abs(float3(short3(c2.position)) - float3(short3(c0.position))) / 256.0;
+        float2 extent = out.normalIndex < 2 ? span.xz : (out.normalIndex < 4 ? span.xy : span.zy);
+        out.tileUV = (out.texCoord - spriteMin) / spriteSize * extent;
+        out.spriteRect = float4(spriteMin, spriteSize);
+    }
+    return out;
+}
+
+struct CompactTerrainVertex {
+    uint posFlags;
+    uint attribs;
+};
+
+static float3 compactPosition(uint w) {
+    return float3(float(w & 0x3FFu), float((w >> 10) & 0x3FFu),
+                  float((w >> 20) & 0x3FFu)) / 32.0 - 8.0;
+}
+
+vertex SimpleVertexOut vertex_terrain_compact(
+    device const CompactTerrainVertex* vertices [[buffer(0)]],
+    constant float4x4& projectionMatrix [[buffer(1)]],
+    constant float4x4& modelViewMatrix [[buffer(2)]],
+    constant float4& cameraPosition [[buffer(3)]],
+    constant float4* chunkOffsets [[buffer(4)]],
+    constant uint* paletteBases [[buffer(5)]],
+    uint vid [[vertex_id]],
+    uint iid [[instance_id]]
+) {
+    CompactTerrainVertex v = vertices[vid];
+    device const uint* palette = (device const uint*)vertices + paletteBases[iid];
+    uint uvCount = palette[0];
+    SimpleVertexOut out;
+    float4 chunkOffset = chunkOffsets[iid];
+    uint faceMask = as_type<uint>(chunkOffset.w);
+    uint normalIndex = v.attribs & 0x7u;
+    float4 color = unpack_unorm4x8_to_float(palette[1 + uvCount + (v.attribs >> 23)]);
+    if (faceMask != 0 && color.a >= 254.0 / 255.0 && normalIndex < 6 &&
+        ((faceMask >> normalIndex) & 1) == 0) {
+        out.position = float4(0.0, 0.0, -2.0, 1.0);
+        out.texCoord = float2(0.0);
+        out.color    = half4(0.0h);
+        out.lightUV  = float2(0.0f);
+        out.light    = 0.0h;
+        out.normalIndex = 1;
+        out.tileUV   = float2(0.0f);
+        out.spriteRect = float4(0.0f);
+        return out;
+    }
+    uint uv = palette[1 + ((v.attribs >> 11) & 0xFFFu)];
+    float3 worldPos = compactPosition(v.posFlags) + chunkOffset.xyz;
+    float4 viewPos = modelViewMatrix * float4(worldPos, 1.0);
+    out.position = projectionMatrix * viewPos;
+    out.texCoord = float2(uv & 0xFFFFu, uv >> 16) / 65535.0;
+    out.color    = half4(color);
+    uint packedLight = (v.attribs >> 3) & 0xFFu;
+    out.lightUV = float2((float(packedLight & 0xFu) + 0.5f) / 16.0f,
+                         (float(packedLight >> 4) + 0.5f) / 16.0f);
+    out.light = half(max(max(out.lightUV.x,
+                             out.lightUV.y * cameraPosition.w), 0.15f));
+    out.normalIndex = normalIndex;
+    out.tileUV = float2(0.0f);
+    out.spriteRect = float4(0.0f);
+    if ((v.posFlags & (1u << 30)) != 0) {
+        uint quadBase = vid & ~3u;
+        CompactTerrainVertex c0 = vertices[quadBase];
+        CompactTerrainVertex c2 = vertices[quadBase + 2];
+        uint t0 = palette[1 + ((c0.attribs >> 11) & 0xFFFu)];
+        uint t2 = palette[1 + ((c2.attribs >> 11) & 0xFFFu)];
+        float2 uv0 = float2(t0 & 0xFFFFu, t0 >> 16) / 65535.0;
+        float2 uv2 = float2(t2 & 0xFFFFu, t2 >> 16) / 65535.0;
+        float2 spriteMin = min(uv0, uv2);
+        float2 spriteSize = max(abs(uv2 - uv0), float2(1e-6f));
+        float3 span = abs(compactPosition(c2.posFlags) - compactPosition(c0.posFlags));
+        float2 extent = normalIndex < 2 ? span.xz : (normalIndex < 4 ? span.xy : span.zy);
+        out.tileUV = (out.texCoord - spriteMin) / spriteSize * extent;
+        out.spriteRect = float4(spriteMin, spriteSize);
+    }
     return out;
 }
 
@@ -202,7 +302,7 @@ fragment half4 fragment_terrain_opaque(
     texture2d<half> lightmap    [[texture(1)]]
 ) {
     constexpr sampler texSampler(mag_filter::nearest, min_filter::nearest, mip_filter::nearest);
-    half4 texColor = blockAtlas.sample(texSampler, in.texCoord);
+    half4 texColor = blockAtlas.sample(texSampler, terrainTexCoord(in));
     half vertAlpha = in.color.a;
     if (texColor.a < half(0.5)) {
 
@@ -226,7 +326,7 @@ fragment half4 fragment_terrain_icb_opaque(
     constant TerrainFragArgs& resources [[buffer(0)]]
 ) {
     constexpr sampler texSampler(mag_filter::nearest, min_filter::nearest, mip_filter::nearest);
-    half4 texColor = resources.blockAtlas.sample(texSampler, in.texCoord);
+    half4 texColor = resources.blockAtlas.sample(texSampler, terrainTexCoord(in));
     half vertAlpha = in.color.a;
     if (texColor.a < half(0.5)) {
 
@@ -249,7 +349,7 @@ fragment half4 fragment_terrain_icb(
     constant float4& overlayParams [[buffer(5)]]
 ) {
     constexpr sampler texSampler(mag_filter::nearest, min_filter::nearest, mip_filter::nearest);
-    half4 texColor = resources.blockAtlas.sample(texSampler, in.texCoord);
+    half4 texColor = resources.blockAtlas.sample(texSampler, terrainTexCoord(in));
     half vertAlpha = in.color.a;
     if (texColor.a < half(0.5)) {
         if (vertAlpha > half(0.994) && vertAlpha < half(0.998)) {
@@ -274,7 +374,7 @@ fragment half4 fragment_terrain_cutout_inhouse(
     texture2d<half> lightmap    [[texture(1)]]
 ) {
     constexpr sampler texSampler(mag_filter::nearest, min_filter::nearest, mip_filter::nearest);
-    half4 texColor = blockAtlas.sample(texSampler, in.texCoord);
+    half4 texColor = blockAtlas.sample(texSampler, terrainTexCoord(in));
     if (texColor.a < half(0.5)) discard_fragment();
     half4 tinted = texColor * in.color;
     half faceShade = kFaceShade[min(in.normalIndex, 5u)];
@@ -288,7 +388,7 @@ fragment half4 fragment_terrain_icb_cutout(
     constant TerrainFragArgs& resources [[buffer(0)]]
 ) {
     constexpr sampler texSampler(mag_filter::nearest, min_filter::nearest, mip_filter::nearest);
-    half4 texColor = resources.blockAtlas.sample(texSampler, in.texCoord);
+    half4 texColor = resources.blockAtlas.sample(texSampler, terrainTexCoord(in));
     if (texColor.a < half(0.5)) discard_fragment();
     half4 tinted = texColor * in.color;
     half faceShade = kFaceShade[min(in.normalIndex, 5u)];
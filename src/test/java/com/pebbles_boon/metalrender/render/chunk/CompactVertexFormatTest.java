@@ -0,0 +1,109 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+class CompactVertexFormatTest {
+  private static final int STANDARD_STRIDE = 16;
+  private static final int MIN_POS = -2048;
+  private static final int MAX_POS = 6136;
+  private final CompactVertexFormat format = new CompactVertexFormat();
+  private static ByteBuffer vertices(int quads) {
+    return ByteBuffer.allocateDirect(quads * 4 * STANDARD_STRIDE)
+        .order(ByteOrder.nativeOrder());
+  }
+  private static void put(ByteBuffer buf, int vertex, int x, int y, int z,
+      int uv, int color, int light, int normal) {
+    int b = vertex * STANDARD_STRIDE;
+    buf.putShort(b, (short) x);
+    buf.putShort(b + 2, (short) y);
+    buf.putShort(b + 4, (short) z);
+    buf.putShort(b + 6, (short) uv);
+    buf.putShort(b + 8, (short) (uv >>> 16));
+    buf.putInt(b + 10, color);
+    buf.put(b + 14, (byte) light);
+    buf.put(b + 15, (byte) normal);
+  }
+  private static ByteBuffer randomMesh(int quads, long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    ByteBuffer buf = vertices(quads);
+    for (int v = 0; v < quads * 4; v++) {
+      int normal = random.nextInt(6) |
+          (random.nextBoolean() ? GreedyQuadMerger.TILED_FLAG : 0);
+      put(buf, v, position(random), position(random), position(random),
+          random.nextInt(200) * 0x10001 + 3, 0xFF000000 | random.nextInt(64) * 0x030507,
+          random.nextInt(256), normal);
+    }
+    return buf;
+  }
+  private static int position(SplittableRandom random) {
+    return MIN_POS + random.nextInt((MAX_POS - MIN_POS) / 8 + 1) * 8;
+  }
+  private ByteBuffer roundTrip(ByteBuffer src, int quads) {
+    int len = format.encode(src, quads);
+    assertEquals(quads * 4 * CompactVertexFormat.STRIDE, format.getPaletteOffset());
+    assertTrue(len > format.getPaletteOffset());
+    ByteBuffer dst = vertices(quads);
+    CompactVertexFormat.decode(format.output, quads, format.getPaletteOffset(), dst);
+    assertEquals(dst.capacity(), dst.position());
+    return dst;
+  }
+  @Test
+  void roundTripRestoresStandardVertices() {
+    for (int quads : new int[] { 1, 37, 4096 }) {
+      ByteBuffer src = randomMesh(quads, quads);
+      ByteBuffer dst = roundTrip(src, quads);
+      assertTrue(format.isLossless());
+      assertEquals(0, src.clear().compareTo(dst.clear()));
+    }
+  }
+  @Test
+  void roundTripKeepsRangeEndpoints() {
+    ByteBuffer src = vertices(1);
+    put(src, 0, MIN_POS, MAX_POS, 0, 0, 0, 0, 0);
+    put(src, 1, MAX_POS, MIN_POS, 4096, -1, -1, 255, 5);
+    put(src, 2, 8, 16, 24, 0x7FFF8000, 0x12345678, 15, 3);
+    put(src, 3, 0, 0, 0, 0, 0, 0, GreedyQuadMerger.TILED_FLAG | 2);
+    ByteBuffer dst = roundTrip(src, 1);
+    assertTrue(format.isLossless());
+    assertEquals(0, src.clear().compareTo(dst.clear()));
+  }
+  @Test
+  void subStepPositionsAreRoundedAndFlagged() {
+    ByteBuffer src = vertices(1);
+    put(src, 0, 3, 0, 0, 0, 0, 0, 0);
+    ByteBuffer dst = roundTrip(src, 1);
+    assertFalse(format.isLossless());
+    assertEquals(0, dst.getShort(0));
+    format.encode(vertices(1), 1);
+    assertTrue(format.isLossless());
+  }
+  @Test
+  void positionOverflowIsRejected() {
+    ByteBuffer src = vertices(1);
+    put(src, 2, 0, MAX_POS + 8, 0, 0, 0, 0, 0);
+    assertEquals(-1, format.encode(src, 1));
+    put(src, 2, 0, 0, MIN_POS - 8, 0, 0, 0, 0);
+    assertEquals(-1, format.encode(src, 1));
+  }
+  @Test
+  void paletteOverflowIsRejected() {
+    int uvQuads = CompactVertexFormat.MAX_UVS / 4 + 1;
+    ByteBuffer uvs = vertices(uvQuads);
+    for (int v = 0; v < uvQuads * 4; v++)
+      put(uvs, v, 0, 0, 0, v, 0, 0, 0);
+    assertEquals(-1, format.encode(uvs, uvQuads));
+    ByteBuffer fits = vertices(uvQuads - 1);
+    for (int v = 0; v < (uvQuads - 1) * 4; v++)
+      put(fits, v, 0, 0, 0, v, 0, 0, 0);
+    assertTrue(format.encode(fits, uvQuads - 1) > 0);
+    int colorQuads = CompactVertexFormat.MAX_COLORS / 4 + 1;
+    ByteBuffer colors = vertices(colorQuads);
+    for (int v = 0; v < colorQuads * 4; v++)
+      put(colors, v, 0, 0, 0, 0, v, 0, 0);
+    assertEquals(-1, format.encode(colors, colorQuads));
+  }
+}
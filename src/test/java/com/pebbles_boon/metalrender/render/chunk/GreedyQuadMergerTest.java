@@ -0,0 +1,263 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+class GreedyQuadMergerTest {
+  private static final int QUAD_BYTES = 64;
+  private static final int VERTEX_BYTES = 16;
+  private static final int TOP_DROP = 32;
+  private final GreedyQuadMerger merger = new GreedyQuadMerger();
+  private final ByteBuffer opaque = buffer(CustomChunkMesher.MAX_QUADS);
+  private final ByteBuffer water = buffer(CustomChunkMesher.MAX_QUADS);
+  private static ByteBuffer buffer(int quads) {
+    return ByteBuffer.allocateDirect(quads * QUAD_BYTES)
+        .order(ByteOrder.nativeOrder());
+  }
+  private int material(int id, boolean isWater, int topDrop) {
+    return merger.addMaterial((byte) id, (byte) 0, (byte) 0, (byte) 255,
+        (short) (id * 100), (short) (id * 100 + 50), (short) (id * 7),
+        (short) (id * 7 + 3), isWater, topDrop);
+  }
+  private static int cell(int d, int slice, int u, int v) {
+    return ((d * 16 + slice) * 16 + v) * 16 + u;
+  }
+  private void addFace(int d, int slice, int u, int v, int material,
+      int light) {
+    switch (d) {
+      case 0, 1 -> merger.addFace(d, u, slice, v, material, (byte) light);
+      case 2, 3 -> merger.addFace(d, u, v, slice, material, (byte) light);
+      default -> merger.addFace(d, slice, v, u, material, (byte) light);
+    }
+  }
+  private static final class Quad {
+    final int normal;
+    final boolean tiled;
+    final int[] min = { Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE };
+    final int[] max = { Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE };
+    final int minU, maxU, minV, maxV;
+    final int material;
+    final int light;
+    Quad(ByteBuffer buf, int q) {
+      int base = q * QUAD_BYTES;
+      int nIdx = buf.get(base + 15);
+      normal = nIdx & 7;
+      tiled = (nIdx & GreedyQuadMerger.TILED_FLAG) != 0;
+      int uLo = Integer.MAX_VALUE, uHi = Integer.MIN_VALUE;
+      int vLo = Integer.MAX_VALUE, vHi = Integer.MIN_VALUE;
+      for (int v = 0; v < 4; v++) {
+        int b = base + v * VERTEX_BYTES;
+        for (int axis = 0; axis < 3; axis++) {
+          int p = buf.getShort(b + axis * 2);
+          min[axis] = Math.min(min[axis], p);
+          max[axis] = Math.max(max[axis], p);
+        }
+        int u = buf.getShort(b + 6) & 0xFFFF, t = buf.getShort(b + 8) & 0xFFFF;
+        uLo = Math.min(uLo, u);
+        uHi = Math.max(uHi, u);
+        vLo = Math.min(vLo, t);
+        vHi = Math.max(vHi, t);
+        assertEquals(nIdx, buf.get(b + 15));
+        assertEquals(buf.get(base + 14), buf.get(b + 14));
+      }
+      minU = uLo;
+      maxU = uHi;
+      minV = vLo;
+      maxV = vHi;
+      material = buf.get(base + 10) & 0xFF;
+      light = buf.get(base + 14) & 0xFF;
+    }
+    int slice(int unit) {
+      return (min[sliceAxis()] + unit - 1) / unit - (normal & 1);
+    }
+    int sliceAxis() {
+      return normal < 2 ? 1 : normal < 4 ? 2 : 0;
+    }
+    int uAxis() {
+      return normal < 4 ? 0 : 2;
+    }
+    int vAxis() {
+      return normal < 2 ? 2 : 1;
+    }
+  }
+  private static Quad[] quads(ByteBuffer buf) {
+    Quad[] out = new Quad[buf.position() / QUAD_BYTES];
+    for (int q = 0; q < out.length; q++)
+      out[q] = new Quad(buf, q);
+    return out;
+  }
+  @Test
+  void mergedQuadsCoverInputFacesExactlyOnce() {
+    SplittableRandom random = new SplittableRandom(42);
+    for (int round = 0; round < 20; round++) {
+      merger.reset();
+      opaque.clear();
+      water.clear();
+      int[] materials = { material(1, false, 0), material(2, false, 0),
+          material(3, true, 0) };
+      int[] expected = new int[6 * 16 * 256];
+      int faces = 0;
+      for (int i = 0; i < 3000; i++) {
+        int d = random.nextInt(6), slice = random.nextInt(16);
+        int u = random.nextInt(16), v = random.nextInt(16);
+        int m = random.nextInt(random.nextBoolean() ? 1 : 3);
+        int light = random.nextBoolean() ? 0xF0 : 0x3A;
+        int c = cell(d, slice, u, v);
+        if (expected[c] == 0)
+          faces++;
+        expected[c] = ((m + 1) << 8) | light;
+        addFace(d, slice, u, v, materials[m], light);
+      }
+      assertEquals(faces, merger.getPendingFaceCount());
+      int emitted = merger.emit(opaque, water, CustomChunkMesher.MAX_QUADS);
+      assertEquals(emitted,
+          merger.getMergedQuadCount() + merger.getMergedWaterQuadCount());
+      assertTrue(emitted <= faces);
+      int[] covered = new int[expected.length];
+      int coveredFaces = 0;
+      for (ByteBuffer buf : new ByteBuffer[] { opaque, water }) {
+        for (Quad q : quads(buf)) {
+          assertEquals(buf == water, q.material == 3);
+          int slice = q.slice(256);
+          assertEquals(q.min[q.sliceAxis()], q.max[q.sliceAxis()]);
+          for (int v = q.min[q.vAxis()] / 256; v < q.max[q.vAxis()] / 256; v++) {
+            for (int u = q.min[q.uAxis()] / 256; u < q.max[q.uAxis()] / 256; u++) {
+              int c = cell(q.normal, slice, u, v);
+              assertEquals(0, covered[c]);
+              covered[c] = (q.material << 8) | q.light;
+              coveredFaces++;
+            }
+          }
+        }
+      }
+      assertEquals(faces, coveredFaces);
+      for (int c = 0; c < expected.length; c++)
+        assertEquals(expected[c], covered[c]);
+    }
+  }
+  @Test
+  void emitStopsAtQuadBudget() {
+    merger.reset();
+    int a = material(1, false, 0), b = material(2, true, 0);
+    for (int v = 0; v < 16; v++) {
+      for (int u = 0; u < 16; u++)
+        addFace(1, 4, u, v, (u + v) % 2 == 0 ? a : b, 0xF0);
+    }
+    assertEquals(100, merger.emit(opaque, water, 100));
+    assertEquals(100,
+        merger.getMergedQuadCount() + merger.getMergedWaterQuadCount());
+    assertEquals(merger.getMergedQuadCount() * QUAD_BYTES, opaque.position());
+    assertEquals(merger.getMergedWaterQuadCount() * QUAD_BYTES,
+        water.position());
+    assertEquals(50, merger.getMergedQuadCount());
+  }
+  @Test
+  void fullSectionFitsMaxQuadsAcrossBothBuffers() {
+    merger.reset();
+    int a = material(1, false, 0), b = material(2, true, 0);
+    for (int d = 0; d < 6; d++) {
+      for (int slice = 0; slice < 16; slice++) {
+        for (int v = 0; v < 16; v++) {
+          for (int u = 0; u < 16; u++)
+            addFace(d, slice, u, v, (u + v + slice) % 2 == 0 ? a : b, 0xF0);
+        }
+      }
+    }
+    assertEquals(CustomChunkMesher.MAX_QUADS, merger.getPendingFaceCount());
+    assertEquals(CustomChunkMesher.MAX_QUADS,
+        merger.emit(opaque, water, CustomChunkMesher.MAX_QUADS));
+    assertEquals(CustomChunkMesher.MAX_QUADS / 2, merger.getMergedQuadCount());
+    assertEquals(CustomChunkMesher.MAX_QUADS / 2,
+        merger.getMergedWaterQuadCount());
+    assertEquals(opaque.capacity() / 2, opaque.position());
+    assertEquals(water.capacity() / 2, water.position());
+  }
+  @Test
+  void waterSidesWithTopDropDoNotMergeVertically() {
+    merger.reset();
+    int dropped = material(1, true, TOP_DROP);
+    int flat = material(2, false, 0);
+    for (int y = 0; y < 4; y++) {
+      for (int x = 0; x < 3; x++) {
+        addFace(2, 5, x, y, dropped, 0xF0);
+        addFace(3, 5, x, y, flat, 0xF0);
+      }
+    }
+    for (int x = 0; x < 3; x++) {
+      for (int z = 0; z < 3; z++)
+        addFace(1, 7, x, z, dropped, 0xF0);
+    }
+    merger.emit(opaque, water, CustomChunkMesher.MAX_QUADS);
+    Quad[] flatQuads = quads(opaque);
+    assertEquals(1, flatQuads.length);
+    assertEquals(3 * 256, flatQuads[0].max[0]);
+    assertEquals(4 * 256, flatQuads[0].max[1]);
+    int sides = 0, tops = 0;
+    for (Quad q : quads(water)) {
+      if (q.normal == 2) {
+        sides++;
+        assertEquals(3 * 256, q.max[0] - q.min[0]);
+        assertEquals(256 - TOP_DROP, q.max[1] - q.min[1]);
+      } else {
+        tops++;
+        assertEquals(1, q.normal);
+        assertEquals(8 * 256 - TOP_DROP, q.max[1]);
+        assertEquals(3 * 256, q.max[2] - q.min[2]);
+      }
+    }
+    assertEquals(4, sides);
+    assertEquals(1, tops);
+  }
+  @Test
+  void onlyMergedOrScaledQuadsAreTiled() {
+    merger.reset();
+    int m = material(4, false, 0);
+    addFace(0, 0, 0, 0, m, 0xF0);
+    addFace(1, 3, 5, 5, m, 0xF0);
+    addFace(1, 3, 6, 5, m, 0xF0);
+    merger.emit(opaque, water, CustomChunkMesher.MAX_QUADS);
+    Quad[] single = quads(opaque);
+    assertEquals(2, single.length);
+    for (Quad q : single) {
+      assertEquals(q.normal == 1, q.tiled);
+      assertEquals(400, q.minU);
+      assertEquals(450, q.maxU);
+      assertEquals(28, q.minV);
+      assertEquals(31, q.maxV);
+    }
+    merger.reset();
+    opaque.clear();
+    m = material(4, false, 0);
+    merger.setScale(2);
+    addFace(0, 0, 0, 0, m, 0xF0);
+    merger.emit(opaque, water, CustomChunkMesher.MAX_QUADS);
+    Quad scaled = quads(opaque)[0];
+    assertTrue(scaled.tiled);
+    assertEquals(400, scaled.minU);
+    assertEquals(450, scaled.maxU);
+  }
+  @Test
+  void setScaleMultipliesTheGridUnit() {
+    for (int scale : new int[] { 1, 2, 4, 8 }) {
+      merger.reset();
+      opaque.clear();
+      int m = material(5, false, 0);
+      merger.setScale(scale);
+      merger.addFace(1, 1, 2, 3, m, (byte) 0xF0);
+      merger.addFace(5, 1, 2, 3, m, (byte) 0xF0);
+      merger.emit(opaque, water, CustomChunkMesher.MAX_QUADS);
+      int unit = 256 * scale;
+      for (Quad q : quads(opaque)) {
+        int[] lo = q.normal == 1 ? new int[] { 1, 3, 3 } : new int[] { 2, 2, 3 };
+        int[] hi = q.normal == 1 ? new int[] { 2, 3, 4 } : new int[] { 2, 3, 4 };
+        for (int axis = 0; axis < 3; axis++) {
+          assertEquals(lo[axis] * unit, q.min[axis]);
+          assertEquals(hi[axis] * unit, q.max[axis]);
+        }
+      }
+      assertEquals(2, merger.getMergedQuadCount());
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+class MeshBuildSchedulerTest {
+  private static final long REPRIORITIZE_NANOS = 100_000_000L;
+  private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+  private final List<Long> ran = Collections.synchronizedList(new ArrayList<>());
+  private MeshBuildScheduler inline() {
+    MeshBuildScheduler scheduler = new MeshBuildScheduler(0, clock::get);
+    scheduler.updateView(8, 8, 8, 16, null);
+    return scheduler;
+  }
+  private void submit(MeshBuildScheduler scheduler, long key, int chunkX,
+      int chunkZ, boolean edit) {
+    scheduler.submit(key, chunkX, 0, chunkZ, 0, edit, job -> ran.add(key));
+  }
+  @Test
+  void runsEditsThenVisibleByDistanceThenHidden() {
+    MeshBuildScheduler scheduler = inline();
+    scheduler.updateView(8, 8, 8, 32, (x, y, z) -> z == 0);
+    submit(scheduler, 1, 5, 0, false);
+    submit(scheduler, 2, 1, 0, false);
+    submit(scheduler, 3, 0, 1, false);
+    submit(scheduler, 4, 6, 0, true);
+    assertEquals(4, scheduler.drain(10));
+    assertEquals(List.of(4L, 2L, 1L, 3L), ran);
+  }
+  @Test
+  void stillCameraKeepsPrioritiesWithinInterval() {
+    MeshBuildScheduler scheduler = inline();
+    submit(scheduler, 1, 1, 0, false);
+    submit(scheduler, 2, 4, 0, false);
+    clock.addAndGet(REPRIORITIZE_NANOS - 1);
+    scheduler.updateView(8, 8, 8, 16, (x, y, z) -> x != 1);
+    scheduler.drain(10);
+    assertEquals(List.of(1L, 2L), ran);
+  }
+  @Test
+  void stillCameraReprioritizesAfterInterval() {
+    MeshBuildScheduler scheduler = inline();
+    submit(scheduler, 1, 1, 0, false);
+    submit(scheduler, 2, 4, 0, false);
+    clock.addAndGet(REPRIORITIZE_NANOS);
+    scheduler.updateView(8, 8, 8, 16, (x, y, z) -> x != 1);
+    scheduler.drain(10);
+    assertEquals(List.of(2L, 1L), ran);
+  }
+  @Test
+  void movingAwayDropsOutOfRangeJobsButKeepsEdits() {
+    MeshBuildScheduler scheduler = inline();
+    submit(scheduler, 1, 12, 0, false);
+    submit(scheduler, 2, 14, 0, true);
+    submit(scheduler, 3, 2, 0, false);
+    scheduler.updateView(8, 8, 8, 8, null);
+    assertFalse(scheduler.isScheduled(1));
+    assertTrue(scheduler.isScheduled(2));
+    scheduler.drain(10);
+    assertEquals(List.of(2L, 3L), ran);
+  }
+  @Test
+  void cancelRemovesQueuedJob() {
+    MeshBuildScheduler scheduler = inline();
+    submit(scheduler, 1, 1, 0, false);
+    submit(scheduler, 2, 2, 0, false);
+    scheduler.cancel(1);
+    assertFalse(scheduler.isScheduled(1));
+    assertEquals(1, scheduler.drain(10));
+    assertEquals(List.of(2L), ran);
+    assertEquals(0, scheduler.getPendingCount());
+  }
+  @Test
+  void cancelFlagsRunningJob() {
+    MeshBuildScheduler scheduler = inline();
+    boolean[] cancelled = new boolean[2];
+    scheduler.submit(1, 1, 0, 0, 0, false, job -> {
+      cancelled[0] = job.isCancelled();
+      scheduler.cancel(1);
+      cancelled[1] = job.isCancelled();
+    });
+    scheduler.drain(1);
+    assertFalse(cancelled[0]);
+    assertTrue(cancelled[1]);
+  }
+  @Test
+  void resubmitSupersedesQueuedJob() {
+    MeshBuildScheduler scheduler = inline();
+    List<Integer> lods = new ArrayList<>();
+    scheduler.submit(1, 1, 0, 0, 2, false, job -> lods.add(job.getLodLevel()));
+    scheduler.submit(1, 1, 0, 0, 0, false, job -> lods.add(job.getLodLevel()));
+    scheduler.submit(1, 1, 0, 0, 0, false, job -> lods.add(-1));
+    scheduler.drain(10);
+    assertEquals(List.of(0), lods);
+  }
+  @Test
+  void editPreemptsRunningFarBuildAndRequeuesIt() throws InterruptedException {
+    MeshBuildScheduler scheduler = new MeshBuildScheduler(1, clock::get);
+    try {
+      scheduler.updateView(8, 8, 8, 16, null);
+      CountDownLatch started = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+      CountDownLatch finished = new CountDownLatch(3);
+      List<String> events = Collections.synchronizedList(new ArrayList<>());
+      scheduler.submit(1, 6, 0, 0, 2, false, job -> {
+        if (started.getCount() > 0) {
+          started.countDown();
+          try {
+            release.await(5, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        events.add("far:" + job.isCancelled());
+        finished.countDown();
+      });
+      assertTrue(started.await(5, TimeUnit.SECONDS));
+      scheduler.submit(2, 1, 0, 0, 0, true, job -> {
+        events.add("edit");
+        finished.countDown();
+      });
+      release.countDown();
+      assertTrue(finished.await(5, TimeUnit.SECONDS));
+      assertEquals(List.of("far:true", "edit", "far:false"), events);
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+class TranslucentSorterTest {
+  private final TranslucentSorter.DepthSort depthSort = new TranslucentSorter.DepthSort();
+  private static float[] randomCentroids(int quads, long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    float[] centroids = new float[quads * 3];
+    for (int i = 0; i < centroids.length; i++)
+      centroids[i] = (float) random.nextDouble(0.0, 16.0);
+    return centroids;
+  }
+  private static float distSq(float[] centroids, int q, float cx, float cy,
+      float cz) {
+    float dx = centroids[q * 3] - cx;
+    float dy = centroids[q * 3 + 1] - cy;
+    float dz = centroids[q * 3 + 2] - cz;
+    return dx * dx + dy * dy + dz * dz;
+  }
+  private static float[] referenceDistances(float[] centroids, int quads,
+      float cx, float cy, float cz) {
+    Integer[] order = IntStream.range(0, quads).boxed().toArray(Integer[]::new);
+    Arrays.sort(order, Comparator.comparingDouble(
+        (Integer q) -> distSq(centroids, q, cx, cy, cz)).reversed());
+    float[] out = new float[quads];
+    for (int i = 0; i < quads; i++)
+      out[i] = distSq(centroids, order[i], cx, cy, cz);
+    return out;
+  }
+  private static void assertBackToFront(float[] centroids, int quads,
+      int[] order, float cx, float cy, float cz) {
+    boolean[] seen = new boolean[quads];
+    float[] actual = new float[quads];
+    for (int i = 0; i < quads; i++) {
+      assertFalse(seen[order[i]]);
+      seen[order[i]] = true;
+      actual[i] = distSq(centroids, order[i], cx, cy, cz);
+    }
+    assertArrayEquals(referenceDistances(centroids, quads, cx, cy, cz), actual);
+  }
+  @Test
+  void matchesReferenceSortForSmallAndLargeSections() {
+    for (int quads : new int[] { 1, 2, 31, 32, 33, 500, 20000 }) {
+      float[] centroids = randomCentroids(quads, quads);
+      int[] order = new int[quads];
+      float cx = 5.5f, cy = 40.25f, cz = -3.0f;
+      depthSort.sortBackToFront(centroids, quads, cx, cy, cz, order, false);
+      assertBackToFront(centroids, quads, order, cx, cy, cz);
+    }
+  }
+  @Test
+  void incrementalResortAfterSmallMoveMatchesReference() {
+    int quads = 2000;
+    float[] centroids = randomCentroids(quads, 7);
+    int[] order = new int[quads];
+    depthSort.sortBackToFront(centroids, quads, 8f, 30f, 8f, order, false);
+    assertTrue(depthSort.sortBackToFront(centroids, quads, 8.01f, 30f, 8f,
+        order, true));
+    assertBackToFront(centroids, quads, order, 8.01f, 30f, 8f);
+  }
+  @Test
+  void largeMoveFallsBackToFullSort() {
+    int quads = 2000;
+    float[] centroids = randomCentroids(quads, 11);
+    int[] order = new int[quads];
+    depthSort.sortBackToFront(centroids, quads, -20f, 8f, 8f, order, false);
+    assertFalse(depthSort.sortBackToFront(centroids, quads, 36f, 8f, 8f,
+        order, true));
+    assertBackToFront(centroids, quads, order, 36f, 8f, 8f);
+  }
+  @Test
+  void centroidsAverageQuadCorners() {
+    ByteBuffer vertices = ByteBuffer.allocateDirect(2 * 64)
+        .order(ByteOrder.nativeOrder());
+    for (int v = 0; v < 4; v++) {
+      int b = 64 + v * 16;
+      vertices.putShort(b, (short) (256 * (v & 1)));
+      vertices.putShort(b + 2, (short) (512 + 256 * (v >> 1)));
+      vertices.putShort(b + 4, (short) 1024);
+    }
+    float[] centroids = TranslucentSorter.centroids(vertices, 1, 1);
+    assertArrayEquals(new float[] { 0.5f, 2.5f, 4.0f }, centroids);
+    assertEquals(3, centroids.length);
+  }
+}
@@ -0,0 +1,109 @@
+package com.pebbles_boon.metalrender.render.chunk;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+class VoxelDownsamplerTest {
+  private static final int STONE = 1;
+  private static final int WATER = 2;
+  private static final int DOWN = 0;
+  private static final int UP = 1;
+  private static final int NORTH = 2;
+  private final BlockStatePropertyTable props = table();
+  private final VoxelDownsampler downsampler = new VoxelDownsampler();
+  private static BlockStatePropertyTable table() {
+    BlockStatePropertyTable props = new BlockStatePropertyTable(3, false,
+        List.of());
+    props.flags[STONE] = (byte) (BlockStatePropertyTable.F_OPAQUE_FULL |
+        BlockStatePropertyTable.F_FAST_DRAW);
+    props.flags[WATER] = (byte) (BlockStatePropertyTable.F_WATER |
+        BlockStatePropertyTable.F_FLUID | BlockStatePropertyTable.F_FAST_WATER |
+        BlockStatePropertyTable.F_FAST_DRAW);
+    props.lodMask[STONE] = (byte) 0xFF;
+    props.lodMask[WATER] = (byte) 0xFF;
+    props.fastWater[WATER] = true;
+    props.occluders(0)[STONE] = true;
+    return props;
+  }
+  private static int[] filled(int sid) {
+    int[] states = new int[SectionSnapshot.VOLUME];
+    Arrays.fill(states, sid);
+    return states;
+  }
+  private static int[] layer(int sid, int y) {
+    int[] states = new int[SectionSnapshot.VOLUME];
+    Arrays.fill(states, y * 256, y * 256 + 256, sid);
+    return states;
+  }
+  private static PaddedSectionVolume volume(int[] states) {
+    PaddedSectionVolume volume = new PaddedSectionVolume();
+    volume.loadStates(states);
+    return volume;
+  }
+  private static void fillPaddingOnly(PaddedSectionVolume volume, int dir,
+      int sid) {
+    int y = dir == DOWN ? -1 : 16;
+    for (int z = 0; z < 16; z++) {
+      for (int x = 0; x < 16; x++)
+        volume.states[PaddedSectionVolume.index(x, y, z)] = sid;
+    }
+  }
+  private int exposedFaces(PaddedSectionVolume volume, int lodLevel, int dir) {
+    downsampler.downsample(volume, props, lodLevel, props.occluders(0));
+    int n = downsampler.getCells(), faces = 0;
+    for (int cy = 0; cy < n; cy++) {
+      for (int cz = 0; cz < n; cz++) {
+        for (int cx = 0; cx < n; cx++) {
+          int idx = VoxelDownsampler.index(cx, cy, cz);
+          if (downsampler.kind[idx] != VoxelDownsampler.EMPTY &&
+              downsampler.exposed(idx, dir))
+            faces++;
+        }
+      }
+    }
+    return faces;
+  }
+  @Test
+  void stackedWaterSectionsHaveNoInternalFaces() {
+    for (int lodLevel : new int[] { 1, 2 }) {
+      int n = 16 / VoxelDownsampler.factorFor(lodLevel);
+      PaddedSectionVolume lower = volume(filled(WATER));
+      lower.loadNeighbor(UP, filled(WATER));
+      PaddedSectionVolume upper = volume(filled(WATER));
+      upper.loadNeighbor(DOWN, filled(WATER));
+      assertEquals(0, exposedFaces(lower, lodLevel, UP));
+      assertEquals(0, exposedFaces(upper, lodLevel, DOWN));
+      assertEquals(n * n, exposedFaces(upper, lodLevel, UP));
+      assertEquals(n * n, exposedFaces(lower, lodLevel, NORTH));
+    }
+  }
+  @Test
+  void waterPaddingWithoutNeighborSectionCullsWaterFaces() {
+    for (int lodLevel : new int[] { 1, 2 }) {
+      int n = 16 / VoxelDownsampler.factorFor(lodLevel);
+      PaddedSectionVolume lower = volume(filled(WATER));
+      fillPaddingOnly(lower, UP, WATER);
+      assertEquals(0, exposedFaces(lower, lodLevel, UP));
+      fillPaddingOnly(lower, UP, STONE);
+      assertEquals(n * n, exposedFaces(lower, lodLevel, UP));
+    }
+  }
+  @Test
+  void solidFacesAgainstPaddingOnlyAreAlwaysEmitted() {
+    PaddedSectionVolume lower = volume(filled(STONE));
+    fillPaddingOnly(lower, UP, STONE);
+    assertEquals(16, exposedFaces(lower, 2, UP));
+  }
+  @Test
+  void solidBoundaryFollowsNeighborCoarseCells() {
+    PaddedSectionVolume lower = volume(filled(STONE));
+    lower.loadNeighbor(UP, filled(STONE));
+    assertEquals(0, exposedFaces(lower, 2, UP));
+    lower = volume(filled(STONE));
+    lower.loadNeighbor(UP, layer(STONE, 0));
+    assertEquals(16, exposedFaces(lower, 2, UP));
+    lower = volume(filled(WATER));
+    lower.loadNeighbor(UP, filled(STONE));
+    assertEquals(0, exposedFaces(lower, 2, UP));
+  }
+}
@@ -0,0 +1,119 @@
+package com.pebbles_boon.metalrender.util;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+class BufferArenaTest {
+  private static final int UNIT = BufferArena.UNIT;
+  private static final int RETIRE_EPOCHS = 3;
+  private final BufferArena.OffHeapBacking backing = new BufferArena.OffHeapBacking();
+  private static ByteBuffer pattern(int bytes, int seed) {
+    ByteBuffer buf = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    for (int i = 0; i < bytes; i++)
+      buf.put(i, (byte) (seed * 31 + i));
+    return buf;
+  }
+  private void assertContents(BufferArena.Allocation a, int seed) {
+    ByteBuffer page = backing.page(a.getPageHandle());
+    for (int i = 0; i < a.getLength(); i++)
+      assertEquals((byte) (seed * 31 + i), page.get(a.getOffset() + i));
+  }
+  private static void settle(BufferArena arena) {
+    for (int i = 0; i < RETIRE_EPOCHS; i++)
+      arena.advanceEpoch();
+  }
+  @Test
+  void allocationsAreUnitAlignedAndWritable() {
+    BufferArena arena = new BufferArena(backing, 16 * UNIT, 4);
+    BufferArena.Allocation a = arena.allocate(100, 7);
+    BufferArena.Allocation b = arena.allocate(UNIT + 1, 8);
+    BufferArena.Allocation c = arena.allocate(UNIT, 9);
+    assertEquals(0, a.getOffset());
+    assertEquals(UNIT, b.getOffset());
+    assertEquals(3 * UNIT, c.getOffset());
+    assertEquals(7, a.getTag());
+    assertEquals(100, a.getLength());
+    assertEquals(4L * UNIT, arena.getUsedBytes());
+    arena.write(a, pattern(100, 1), 0);
+    arena.write(b, pattern(UNIT + 1, 2), 0);
+    assertContents(a, 1);
+    assertContents(b, 2);
+    assertNull(arena.allocate(16 * UNIT + 1, 0));
+    arena.close();
+  }
+  @Test
+  void freedSpaceIsReusedOnlyAfterRetireEpochs() {
+    BufferArena arena = new BufferArena(backing, 4 * UNIT, 1);
+    List<BufferArena.Allocation> live = new ArrayList<>();
+    for (int i = 0; i < 4; i++)
+      live.add(arena.allocate(UNIT, i));
+    assertNull(arena.allocate(UNIT, 4));
+    arena.free(live.get(1));
+    arena.free(live.get(1));
+    assertEquals(3L * UNIT, arena.getUsedBytes());
+    for (int i = 1; i < RETIRE_EPOCHS; i++)
+      arena.advanceEpoch();
+    assertNull(arena.allocate(UNIT, 4));
+    arena.advanceEpoch();
+    BufferArena.Allocation reused = arena.allocate(UNIT, 4);
+    assertNotNull(reused);
+    assertEquals(UNIT, reused.getOffset());
+    arena.close();
+  }
+  @Test
+  void adjacentFreesCoalesce() {
+    BufferArena arena = new BufferArena(backing, 8 * UNIT, 1);
+    List<BufferArena.Allocation> live = new ArrayList<>();
+    for (int i = 0; i < 8; i++)
+      live.add(arena.allocate(UNIT, i));
+    arena.free(live.get(2));
+    arena.free(live.get(4));
+    settle(arena);
+    assertEquals(0.5, arena.getFragmentation(), 1e-9);
+    assertNull(arena.allocate(2 * UNIT, 8));
+    arena.free(live.get(3));
+    settle(arena);
+    assertEquals(0.0, arena.getFragmentation(), 1e-9);
+    assertNull(arena.allocate(4 * UNIT, 8));
+    BufferArena.Allocation merged = arena.allocate(3 * UNIT, 8);
+    assertNotNull(merged);
+    assertEquals(2 * UNIT, merged.getOffset());
+    arena.close();
+  }
+  @Test
+  void compactionRelocatesSealedAllocationsAndReleasesPages() {
+    BufferArena arena = new BufferArena(backing, 8 * UNIT, 2);
+    List<BufferArena.Allocation> relocated = new ArrayList<>();
+    arena.setRelocationListener(relocated::add);
+    List<BufferArena.Allocation> first = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      BufferArena.Allocation a = arena.allocate(UNIT, i);
+      arena.write(a, pattern(UNIT, i), 0);
+      first.add(a);
+    }
+    BufferArena.Allocation straggler = arena.allocate(200, 100);
+    BufferArena.Allocation unsealed = arena.allocate(UNIT, 101);
+    assertEquals(1, straggler.getPage());
+    assertEquals(2L * 8 * UNIT, arena.getCommittedBytes());
+    arena.free(first.get(3));
+    arena.free(first.get(5));
+    settle(arena);
+    assertEquals(0, arena.compactStep(8 * UNIT));
+    arena.write(straggler, pattern(200, 100), 0);
+    arena.free(unsealed);
+    assertEquals(1, arena.compactStep(8 * UNIT));
+    assertEquals(List.of(straggler), relocated);
+    assertEquals(0, straggler.getPage());
+    assertEquals(3 * UNIT, straggler.getOffset());
+    assertContents(straggler, 100);
+    settle(arena);
+    assertEquals(8L * UNIT, arena.getCommittedBytes());
+    assertSame(straggler, relocated.get(0));
+    arena.close();
+  }
+}